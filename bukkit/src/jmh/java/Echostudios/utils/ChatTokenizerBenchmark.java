@@ -0,0 +1,91 @@
+package Echostudios.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link ChatTokenizer} scan per message against the passes the chat pipeline made before it: a
+ * contains/replace per built-in and custom tag, a split on spaces with a player lookup per word, and
+ * {@link Utils#colorize}. Run with {@code -prof gc} to compare allocations per message as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatTokenizerBenchmark {
+
+    private static final String[] MESSAGES = {
+            "gg",
+            "anyone up for a dungeon run later?",
+            "@Steve look at my [inv] and tell me what you think",
+            "&aselling &6diamonds &afor cheap, check [item] or msg alex",
+            "&#FF8800orange &lbold&r and #00ff00green with a <gradient:#ff0000:#0000ff:rainbow> at the end",
+            "lol [ec] [discord] [store] that's the whole list\\nsee you steve_2 and Alex tomorrow at spawn, bring food",
+    };
+
+    private final Map<String, String> customTags = new LinkedHashMap<>();
+    private final Map<String, String> players = new HashMap<>();
+    private final OnlineNameIndex online = new OnlineNameIndex();
+    private TagMatcher<String> tags;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (String tag : List.of("discord", "store", "rules", "vote", "map", "wiki", "apply", "forum", "shop", "help")) {
+            customTags.put(tag, "&9" + tag + ".example.net");
+        }
+        Map<String, String> known = new HashMap<>();
+        known.put("inv", "inv");
+        known.put("ec", "ec");
+        known.put("item", "item");
+        customTags.keySet().forEach(tag -> known.put(tag, tag));
+        tags = new TagMatcher<>(known);
+        for (int i = 0; i < 100; i++) {
+            String name = i == 0 ? "Steve" : i == 1 ? "Alex" : "player" + i;
+            players.put(name.toLowerCase(), name);
+            online.add(name, UUID.randomUUID());
+        }
+    }
+
+    @Benchmark
+    public List<ChatTokenizer.Token> tokenizer() {
+        return ChatTokenizer.tokenize(MESSAGES[next++ % MESSAGES.length], true, online::exact, true, tags);
+    }
+
+    @Benchmark
+    public String previousPipeline() {
+        String message = MESSAGES[next++ % MESSAGES.length];
+        if (message.contains("[inv]")) message = message.replace("[inv]", "&e[Inventory]&r");
+        if (message.contains("[ec]")) message = message.replace("[ec]", "&5[Ender Chest]&r");
+        for (Map.Entry<String, String> tag : customTags.entrySet()) {
+            String text = "[" + tag.getKey() + "]";
+            if (message.contains(text)) message = message.replace(text, tag.getValue());
+        }
+        StringBuilder out = new StringBuilder();
+        for (String word : message.split(" ")) {
+            String name = word.startsWith("@") ? word.substring(1) : word;
+            // Stands in for Bukkit.getPlayer, which was called for every word
+            String player = players.get(name.toLowerCase());
+            if (out.length() > 0) out.append(' ');
+            out.append(player != null ? "&b@" + player + "&r" : word);
+        }
+        return Utils.colorize(out.toString());
+    }
+}
@@ -0,0 +1,152 @@
+package Echostudios.utils;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CompiledPermissions#hasPermission} against the hasPermission that read permissions.yml on every
+ * check, over 50 groups holding 2,000 nodes in total. Each group inherits from up to two lower groups and
+ * has a weight; users hold up to three groups and a few nodes of their own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledPermissionsBenchmark {
+
+    private static final int GROUPS = 50;
+    private static final int NODES = 2_000;
+    private static final int USERS = 200;
+
+    private YamlConfiguration config;
+    private CompiledPermissions compiled;
+    private String[] names;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        config = new YamlConfiguration();
+        List<String> granted = new ArrayList<>();
+        for (int g = 0; g < GROUPS; g++) {
+            String group = g == 0 ? "default" : "group" + g;
+            List<String> permissions = new ArrayList<>();
+            for (int i = 0; i < NODES / GROUPS; i++) {
+                String node = "plugin" + random.nextInt(20) + ".feature" + random.nextInt(50) + ".action" + random.nextInt(5);
+                switch (random.nextInt(10)) {
+                    case 0 -> permissions.add(node.substring(0, node.lastIndexOf('.')) + ".*");
+                    case 1 -> permissions.add("-" + node);
+                    default -> permissions.add(node);
+                }
+                granted.add(node);
+            }
+            List<String> inherits = new ArrayList<>();
+            for (int p = 0; p < 2 && g > 0; p++) {
+                int parent = random.nextInt(g);
+                inherits.add(parent == 0 ? "default" : "group" + parent);
+            }
+            config.set("groups." + group + ".permissions", permissions);
+            config.set("groups." + group + ".inherits", inherits);
+            config.set("groups." + group + ".meta.weight", g);
+        }
+        names = new String[USERS];
+        for (int u = 0; u < USERS; u++) {
+            names[u] = "user" + u;
+            List<String> groups = new ArrayList<>();
+            for (int i = 0, n = 1 + random.nextInt(3); i < n; i++) groups.add("group" + (1 + random.nextInt(GROUPS - 1)));
+            List<String> own = new ArrayList<>();
+            for (int i = 0, n = random.nextInt(5); i < n; i++) own.add(granted.get(random.nextInt(granted.size())));
+            config.set("users." + names[u] + ".groups", groups);
+            config.set("users." + names[u] + ".permissions", own);
+        }
+        compiled = CompiledPermissions.compile(config, "server");
+
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            // Half of the checks are for nodes nobody was given, which walk every group in the chain
+            queries[i] = i % 2 == 0 ? granted.get(random.nextInt(granted.size()))
+                    : "other" + random.nextInt(20) + ".feature" + random.nextInt(50);
+        }
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        int i = next++;
+        return compiled.hasPermission(names[i % USERS], queries[i & 1023]);
+    }
+
+    @Benchmark
+    public boolean yaml() {
+        int i = next++;
+        return yamlHasPermission(names[i % USERS], queries[i & 1023]);
+    }
+
+    // hasPermission as PermissionsManager did it before the compiled snapshot
+
+    private boolean yamlHasPermission(String name, String permission) {
+        String node = permission.toLowerCase();
+        String base = "users." + name.toLowerCase();
+        int result = evaluateList(config.getStringList(base + ".permissions"), node);
+        if (result != 0) return result > 0;
+
+        List<String> groups = new ArrayList<>(config.getStringList(base + ".groups"));
+        groups.sort((a, b) -> Integer.compare(config.getInt("groups." + b + ".meta.weight", 0),
+                config.getInt("groups." + a + ".meta.weight", 0)));
+        for (String group : groups) {
+            int g = groupPermission(group, node, new HashSet<>());
+            if (g != 0) return g > 0;
+        }
+        return groupPermission("default", node, new HashSet<>()) > 0;
+    }
+
+    private int groupPermission(String group, String node, Set<String> visited) {
+        if (!visited.add(group)) return 0;
+        int result = evaluateList(config.getStringList("groups." + group + ".permissions"), node);
+        if (result != 0) return result;
+        for (String parent : config.getStringList("groups." + group + ".inherits")) {
+            int parentResult = groupPermission(parent, node, visited);
+            if (parentResult != 0) return parentResult;
+        }
+        return 0;
+    }
+
+    // 1 allow, -1 deny, 0 unset; the last matching entry wins
+    private static int evaluateList(List<String> entries, String node) {
+        int current = 0;
+        for (String raw : entries) {
+            String entry = raw.trim();
+            boolean deny = entry.startsWith("-");
+            String perm = (deny ? entry.substring(1) : entry).toLowerCase();
+            if (matches(perm, node)) current = deny ? -1 : 1;
+        }
+        return current;
+    }
+
+    private static boolean matches(String pattern, String node) {
+        if (pattern.equals("*") || pattern.equals(node)) return true;
+        if (pattern.endsWith(".*")) {
+            String prefix = pattern.substring(0, pattern.length() - 2);
+            return node.equals(prefix) || node.startsWith(prefix + ".");
+        }
+        return false;
+    }
+}
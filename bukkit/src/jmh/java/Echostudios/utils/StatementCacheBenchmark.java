@@ -0,0 +1,91 @@
+package Echostudios.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hot point lookup run through {@link StatementCache} against preparing the statement on every call,
+ * on an in-memory SQLite database so the parse cost is not hidden behind network time
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+    private static final String SQL = "SELECT expires FROM bans WHERE uuid = ? AND active = 1";
+    private static final int ROWS = 10_000;
+
+    private Connection connection;
+    private StatementCache cache;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE bans (uuid TEXT PRIMARY KEY, expires INTEGER, active INTEGER)");
+        }
+        ids = new String[ROWS];
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO bans VALUES (?, ?, 1)")) {
+            for (int i = 0; i < ROWS; i++) {
+                ids[i] = UUID.randomUUID().toString();
+                insert.setString(1, ids[i]);
+                insert.setLong(2, i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        cache = new StatementCache(32);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        cache.clear();
+        connection.close();
+    }
+
+    @Benchmark
+    public long preparedEachCall() throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SQL)) {
+            return query(stmt);
+        }
+    }
+
+    @Benchmark
+    public long cached() throws SQLException {
+        return query(cache.prepare(connection, SQL));
+    }
+
+    private long query(PreparedStatement stmt) throws SQLException {
+        stmt.setString(1, ids[next++ % ROWS]);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : -1L;
+        }
+    }
+}
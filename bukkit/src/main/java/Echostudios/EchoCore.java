@@ -7,6 +7,8 @@ import Echostudios.commands.*;
 import Echostudios.events.ChatEvents;
 import Echostudios.utils.WebhookManager;
 import Echostudios.utils.DatabaseManager;
+import Echostudios.utils.ChatSettings;
+import Echostudios.utils.Utils;
 
 import java.io.File;
 import java.io.IOException;
@@ -39,6 +41,7 @@ public class EchoCore extends JavaPlugin {
     // Event instances
     private ChatEvents chatEvents;
     private Echostudios.listeners.PlayerListener playerListener;
+    private Echostudios.listeners.SessionListener sessionListener;
     
     // Utility instances
     private WebhookManager webhookManager;
@@ -47,9 +50,12 @@ public class EchoCore extends JavaPlugin {
     private Echostudios.utils.Placeholders placeholders;
     private Echostudios.utils.PermissionChecker permissionChecker;
     private Echostudios.utils.PermissionSyncManager permissionSyncManager;
+    private Echostudios.utils.PermissionNetworkSync permissionNetworkSync;
+    private final Echostudios.utils.OnlineNameIndex onlineNames = new Echostudios.utils.OnlineNameIndex();
     
     // Configuration files
     private FileConfiguration messagesConfig;
+    private volatile ChatSettings chatSettings;
     private FileConfiguration serverConfig;
     private File messagesFile;
     private File serverFile;
@@ -150,6 +156,15 @@ public class EchoCore extends JavaPlugin {
         logColored(ANSI_YELLOW + "     Author: Echostudios");
         logColored(ANSI_YELLOW + "----------------------------------------------" + ANSI_RESET);
         
+        if (permissionNetworkSync != null) {
+            permissionNetworkSync.stop();
+        }
+
+        // Write pending permission changes while the database is still open
+        if (permissionsManager != null) {
+            permissionsManager.close();
+        }
+
         // Close database connection
         if (databaseManager != null) {
             databaseManager.closeConnection();
@@ -180,6 +195,7 @@ public class EchoCore extends JavaPlugin {
             }
         }
         messagesConfig = YamlConfiguration.loadConfiguration(messagesFile);
+        loadChatSettings();
         
         // Load server.yml
         serverFile = new File(getDataFolder(), "server.yml");
@@ -409,8 +425,32 @@ public class EchoCore extends JavaPlugin {
             writer.write("  connection:\n");
             writer.write("    timeout: 30 # seconds\n");
             writer.write("    max-connections: 10\n");
+            writer.write("    minimum-idle: 2\n");
+            writer.write("    idle-timeout: 600 # seconds\n");
+            writer.write("    max-lifetime: 1800 # seconds\n");
+            writer.write("    keepalive: 300 # seconds\n");
+            writer.write("    leak-detection-threshold: 0 # seconds, 0 = off\n");
+            writer.write("    statement-cache-size: 64\n");
             writer.write("    auto-reconnect: true\n");
             writer.write("    use-ssl: false\n\n");
+            writer.write("  # Database worker threads\n");
+            writer.write("  executor:\n");
+            writer.write("    threads: 0 # 0 = auto\n");
+            writer.write("    queue-size: 1000\n");
+            writer.write("    rejection-policy: \"abort\" # abort | caller-runs | block\n");
+            writer.write("    block-timeout: 1000 # milliseconds\n");
+            writer.write("    virtual-threads: false\n");
+            writer.write("    shutdown-timeout: 10 # seconds\n\n");
+            writer.write("  # Batched moderation logs and login counters\n");
+            writer.write("  write-behind:\n");
+            writer.write("    batch-size: 100\n");
+            writer.write("    flush-interval: 2000 # milliseconds\n");
+            writer.write("  ban-sweep-interval: 60 # seconds\n");
+            writer.write("  # Per-player data cached for the session\n");
+            writer.write("  session:\n");
+            writer.write("    flush-interval: 30 # seconds\n");
+            writer.write("    offline-cache-size: 500\n");
+            writer.write("    offline-cache-ttl: 300 # seconds\n\n");
             writer.write("# Discord Webhook URLs\n");
             writer.write("webhook:\n");
             writer.write("  enabled: true\n");
@@ -519,6 +559,7 @@ public class EchoCore extends JavaPlugin {
             createDefaultMessagesFile();
             messagesConfig = YamlConfiguration.loadConfiguration(messagesFile);
         }
+        loadChatSettings();
         
         // Reload server.yml
         if (serverFile != null && serverFile.exists()) {
@@ -532,6 +573,14 @@ public class EchoCore extends JavaPlugin {
         getLogger().info("All configuration files reloaded successfully!");
     }
     
+    /**
+     * Compile the chat options of messages.yml; chat threads pick up the new snapshot on their next message
+     */
+    private void loadChatSettings() {
+        chatSettings = ChatSettings.load(messagesConfig,
+                Utils.getMessageWithPrefix(this, "chat.gui.no-permission", "&cNo Permission"));
+    }
+    
     /**
      * Save all configuration files
      */
@@ -579,6 +628,10 @@ public class EchoCore extends JavaPlugin {
         permissionsManager = new Echostudios.utils.PermissionsManager(this);
         permissionChecker = new Echostudios.utils.PermissionChecker(this, permissionsManager);
         permissionSyncManager = new Echostudios.utils.PermissionSyncManager(this, permissionsManager);
+        if (getConfig().getBoolean("runs.permissions.network-sync", false)) {
+            permissionNetworkSync = new Echostudios.utils.PermissionNetworkSync(this, permissionsManager);
+            permissionNetworkSync.start();
+        }
         permCommand = new PermCommand(this, permissionsManager);
         ecCommand = new EcCommand(this, permissionsManager);
 
@@ -625,10 +678,18 @@ public class EchoCore extends JavaPlugin {
         // Initialize event instances
         chatEvents = new ChatEvents(this);
         playerListener = new Echostudios.listeners.PlayerListener(this);
+        sessionListener = new Echostudios.listeners.SessionListener(this);
 
         // Register events
+        getServer().getPluginManager().registerEvents(onlineNames, this);
+        onlineNames.rebuild(getServer().getOnlinePlayers());
+        // Players already online (enable or /reload) get no join event; record their worlds before the sync below
+        for (org.bukkit.entity.Player player : getServer().getOnlinePlayers()) {
+            permissionsManager.setWorld(player.getName(), player.getWorld().getName());
+        }
         getServer().getPluginManager().registerEvents(chatEvents, this);
         getServer().getPluginManager().registerEvents(playerListener, this);
+        getServer().getPluginManager().registerEvents(sessionListener, this);
         // Sync existing players into Bukkit layer so other plugins see EchoPerms (hybrid/echoperms modes)
         try {
             permissionSyncManager.syncAllOnline();
@@ -745,6 +806,10 @@ public class EchoCore extends JavaPlugin {
     public Echostudios.utils.PermissionSyncManager getPermissionSyncManager() {
         return permissionSyncManager;
     }
+
+    public Echostudios.utils.PermissionNetworkSync getPermissionNetworkSync() {
+        return permissionNetworkSync;
+    }
     
     public GameModeCommands getGameModeCommands() {
         return gameModeCommands;
@@ -790,6 +855,10 @@ public class EchoCore extends JavaPlugin {
         return staffInventoryCommand;
     }
     
+    public Echostudios.utils.OnlineNameIndex getOnlineNames() {
+        return onlineNames;
+    }
+    
     public ChatEvents getChatEvents() {
         return chatEvents;
     }
@@ -808,6 +877,10 @@ public class EchoCore extends JavaPlugin {
         return messagesConfig;
     }
     
+    public ChatSettings getChatSettings() {
+        return chatSettings;
+    }
+    
     public FileConfiguration getServerConfig() {
         if (serverConfig == null) {
             getLogger().warning("server.yml not loaded, attempting to load...");
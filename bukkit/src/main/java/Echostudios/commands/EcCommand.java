@@ -1,7 +1,10 @@
 package Echostudios.commands;
 
 import Echostudios.EchoCore;
+import Echostudios.utils.PermissionCache;
+import Echostudios.utils.PermissionTransfer;
 import Echostudios.utils.PermissionsManager;
+import Echostudios.utils.TemporaryEntry;
 import Echostudios.utils.Utils;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -9,6 +12,7 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -18,10 +22,12 @@ public class EcCommand implements CommandExecutor, TabCompleter {
 
     private final EchoCore plugin;
     private final PermissionsManager perms;
+    private final PermissionTransfer transfer;
 
     public EcCommand(EchoCore plugin, PermissionsManager perms) {
         this.plugin = plugin;
         this.perms = perms;
+        this.transfer = new PermissionTransfer(plugin, perms);
     }
 
     @Override
@@ -42,6 +48,14 @@ public class EcCommand implements CommandExecutor, TabCompleter {
                 case "info":
                     sender.sendMessage(Utils.colorize("&bEchoCore &7v" + plugin.getDescription().getVersion()));
                     return true;
+                case "debug": {
+                    PermissionCache.Stats stats = perms.getCacheStats();
+                    sender.sendMessage(Utils.colorize("&bPermission cache: &f" + stats.users() + " users, " + stats.nodes() + " nodes"));
+                    sender.sendMessage(Utils.colorize("&7Hits: &f" + stats.hits() + " &7Misses: &f" + stats.misses()
+                            + " &7Hit ratio: &f" + String.format("%.1f%%", stats.hitRatio() * 100)));
+                    sender.sendMessage(Utils.colorize("&7Invalidations: &f" + stats.invalidations()));
+                    return true;
+                }
                 case "listgroups":
                     sender.sendMessage(Utils.colorize("&bGroups: &f" + String.join(", ", perms.getAllGroups())));
                     return true;
@@ -78,10 +92,31 @@ public class EcCommand implements CommandExecutor, TabCompleter {
                     perms.renameGroup(oldName, newName);
                     broadcastAudit(sender, "Renamed group &e" + oldName + "&7 to &e" + newName);
                     return true;
+                case "listtracks":
+                    sender.sendMessage(Utils.colorize("&bTracks: &f" + String.join(", ", perms.getAllTracks())));
+                    return true;
                 case "user":
                     return handleUser(sender, label, args);
                 case "group":
                     return handleGroup(sender, label, args);
+                case "track":
+                    return handleTrack(sender, label, args);
+                case "bulk":
+                    return handleBulk(sender, label, args);
+                case "export": {
+                    File file = transfer.exportAll(progress -> sender.sendMessage(Utils.colorize(progress)),
+                            done -> broadcastAudit(sender, done));
+                    sender.sendMessage(Utils.colorize("&7Exporting permissions to &eexports/" + file.getName() + "&7..."));
+                    return true;
+                }
+                case "import": {
+                    if (args.length < 2) return usage(sender, label, "import <file>");
+                    File file = transfer.resolve(args[1]);
+                    transfer.importFrom(file, progress -> sender.sendMessage(Utils.colorize(progress)),
+                            done -> broadcastAudit(sender, done));
+                    sender.sendMessage(Utils.colorize("&7Importing permissions from &eexports/" + file.getName() + "&7..."));
+                    return true;
+                }
                 default:
                     sendHelp(sender, label);
                     return true;
@@ -94,6 +129,12 @@ public class EcCommand implements CommandExecutor, TabCompleter {
 
     private boolean handleUser(CommandSender sender, String label, String[] args) {
         if (args.length < 3) return usage(sender, label, "user <name> <info|permission|parent|meta>");
+        withUser(sender, args[1], () -> userCommand(sender, label, args));
+        return true;
+    }
+
+    // The user is resident by now
+    private boolean userCommand(CommandSender sender, String label, String[] args) {
         String name = args[1];
         String sec = args[2].toLowerCase(Locale.ROOT);
         switch (sec) {
@@ -105,25 +146,40 @@ public class EcCommand implements CommandExecutor, TabCompleter {
                 sender.sendMessage(Utils.colorize("&8&m                                                                                "));
                 sender.sendMessage(Utils.colorize("&7Groups: &f" + (groups.isEmpty() ? "None" : String.join(", ", groups))));
                 sender.sendMessage(Utils.colorize("&7Permissions: &f" + (permissions.isEmpty() ? "None" : String.join(", ", permissions))));
+                List<TemporaryEntry> tempGroups = perms.getUserTempGroups(name);
+                List<TemporaryEntry> tempPermissions = perms.getUserTempPermissions(name);
+                if (!tempGroups.isEmpty()) sender.sendMessage(Utils.colorize("&7Temporary groups: &f" + formatTemporary(tempGroups)));
+                if (!tempPermissions.isEmpty()) sender.sendMessage(Utils.colorize("&7Temporary permissions: &f" + formatTemporary(tempPermissions)));
                 sender.sendMessage(Utils.colorize("&7Prefix: &f" + perms.getUserPrefix(name)));
                 sender.sendMessage(Utils.colorize("&7Suffix: &f" + perms.getUserSuffix(name)));
                 return true;
             case "permission":
                 if (args.length >= 6 && args[3].equalsIgnoreCase("set")) {
                     String node = args[4]; boolean val = Boolean.parseBoolean(args[5]);
-                    perms.setUserPermission(name, node, val);
+                    String context = parseContext(args, 6);
+                    perms.setUserPermission(name, node, val, context);
                     try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
-                    broadcastAudit(sender, "User &e" + name + "&7 perm &e" + node + " &7= &e" + val);
+                    broadcastAudit(sender, "User &e" + name + "&7 perm &e" + node + " &7= &e" + val + describeContext(context));
+                    return true;
+                }
+                if (args.length >= 7 && args[3].equalsIgnoreCase("settemp")) {
+                    String node = args[4]; boolean val = Boolean.parseBoolean(args[5]);
+                    long duration = Utils.parseDuration(args[6]);
+                    if (duration <= 0) return usage(sender, label, "user <name> permission settemp <node> <true|false> <duration, e.g. 1d12h>");
+                    perms.setUserTempPermission(name, node, val, System.currentTimeMillis() + duration);
+                    try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
+                    broadcastAudit(sender, "User &e" + name + "&7 perm &e" + node + " &7= &e" + val + " &7for &e" + Utils.formatDuration(duration));
                     return true;
                 }
                 if (args.length >= 5 && args[3].equalsIgnoreCase("unset")) {
                     String node = args[4];
-                    perms.unsetUserPermission(name, node);
+                    String context = parseContext(args, 5);
+                    perms.unsetUserPermission(name, node, context);
                     try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
-                    broadcastAudit(sender, "User &e" + name + "&7 unset &e" + node);
+                    broadcastAudit(sender, "User &e" + name + "&7 unset &e" + node + describeContext(context));
                     return true;
                 }
-                return usage(sender, label, "user <name> permission set <node> <true|false> | unset <node>");
+                return usage(sender, label, "user <name> permission set <node> <true|false> [world=<w>] [server=<s>] | settemp <node> <true|false> <duration> | unset <node> [world=<w>] [server=<s>]");
             case "parent":
                 if (args.length >= 6 && args[3].equalsIgnoreCase("add")) {
                     String group = args[4];
@@ -136,6 +192,19 @@ public class EcCommand implements CommandExecutor, TabCompleter {
                     broadcastAudit(sender, "User &e" + name + "&7 add parent &e" + group);
                     return true;
                 }
+                if (args.length >= 6 && args[3].equalsIgnoreCase("addtemp")) {
+                    String group = args[4];
+                    if (!perms.groupExists(group)) {
+                        sender.sendMessage(Utils.colorize("&cGroup " + group + " does not exist!"));
+                        return true;
+                    }
+                    long duration = Utils.parseDuration(args[5]);
+                    if (duration <= 0) return usage(sender, label, "user <name> parent addtemp <group> <duration, e.g. 1d12h>");
+                    perms.addUserTempGroup(name, group, System.currentTimeMillis() + duration);
+                    try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
+                    broadcastAudit(sender, "User &e" + name + "&7 add parent &e" + group + " &7for &e" + Utils.formatDuration(duration));
+                    return true;
+                }
                 if (args.length >= 6 && args[3].equalsIgnoreCase("remove")) {
                     String group = args[4];
                     perms.removeUserGroup(name, group);
@@ -143,7 +212,7 @@ public class EcCommand implements CommandExecutor, TabCompleter {
                     broadcastAudit(sender, "User &e" + name + "&7 remove parent &e" + group);
                     return true;
                 }
-                return usage(sender, label, "user <name> parent add <group> | remove <group>");
+                return usage(sender, label, "user <name> parent add <group> | addtemp <group> <duration> | remove <group>");
             case "meta":
                 if (args.length >= 6 && args[3].equalsIgnoreCase("set")) {
                     String key = args[4]; String value = args[5];
@@ -188,19 +257,21 @@ public class EcCommand implements CommandExecutor, TabCompleter {
             case "permission":
                 if (args.length >= 6 && args[3].equalsIgnoreCase("set")) {
                     String node = args[4]; boolean val = Boolean.parseBoolean(args[5]);
-                    perms.setGroupPermission(group, node, val);
+                    String context = parseContext(args, 6);
+                    perms.setGroupPermission(group, node, val, context);
                     plugin.getPermissionSyncManager().syncAllOnline();
-                    broadcastAudit(sender, "Group &e" + group + "&7 perm &e" + node + " &7= &e" + val);
+                    broadcastAudit(sender, "Group &e" + group + "&7 perm &e" + node + " &7= &e" + val + describeContext(context));
                     return true;
                 }
                 if (args.length >= 5 && args[3].equalsIgnoreCase("unset")) {
                     String node = args[4];
-                    perms.unsetGroupPermission(group, node);
+                    String context = parseContext(args, 5);
+                    perms.unsetGroupPermission(group, node, context);
                     plugin.getPermissionSyncManager().syncAllOnline();
-                    broadcastAudit(sender, "Group &e" + group + "&7 unset &e" + node);
+                    broadcastAudit(sender, "Group &e" + group + "&7 unset &e" + node + describeContext(context));
                     return true;
                 }
-                return usage(sender, label, "group <group> permission set <node> <true|false> | unset <node>");
+                return usage(sender, label, "group <group> permission set <node> <true|false> [world=<w>] [server=<s>] | unset <node> [world=<w>] [server=<s>]");
             case "parent":
                 if (args.length >= 6 && args[3].equalsIgnoreCase("add")) {
                     String parent = args[4];
@@ -257,6 +328,136 @@ public class EcCommand implements CommandExecutor, TabCompleter {
         }
     }
 
+    private boolean handleTrack(CommandSender sender, String label, String[] args) {
+        if (args.length < 3) return usage(sender, label, "track <track> <create|delete|info|append|insert|remove|promote|demote>");
+        String track = args[1];
+        String sec = args[2].toLowerCase(Locale.ROOT);
+        if (!sec.equals("create") && !perms.trackExists(track)) {
+            sender.sendMessage(Utils.colorize("&cTrack " + track + " does not exist!"));
+            return true;
+        }
+        switch (sec) {
+            case "create":
+                perms.createTrack(track);
+                broadcastAudit(sender, "Created track &e" + track);
+                return true;
+            case "delete":
+                perms.deleteTrack(track);
+                broadcastAudit(sender, "Deleted track &e" + track);
+                return true;
+            case "info": {
+                List<String> groups = perms.getTrack(track);
+                sender.sendMessage(Utils.colorize("&b&lTrack: &e" + track));
+                sender.sendMessage(Utils.colorize("&7Groups: &f" + (groups.isEmpty() ? "None" : String.join(" &7→&f ", groups))));
+                return true;
+            }
+            case "append":
+                if (args.length < 4) return usage(sender, label, "track <track> append <group>");
+                perms.appendTrackGroup(track, args[3]);
+                broadcastAudit(sender, "Track &e" + track + "&7 append &e" + args[3]);
+                return true;
+            case "insert":
+                if (args.length < 5) return usage(sender, label, "track <track> insert <group> <position>");
+                perms.insertTrackGroup(track, args[3], Integer.parseInt(args[4]));
+                broadcastAudit(sender, "Track &e" + track + "&7 insert &e" + args[3] + "&7 at &e" + args[4]);
+                return true;
+            case "remove":
+                if (args.length < 4) return usage(sender, label, "track <track> remove <group>");
+                perms.removeTrackGroup(track, args[3]);
+                broadcastAudit(sender, "Track &e" + track + "&7 remove &e" + args[3]);
+                return true;
+            case "promote":
+            case "demote": {
+                if (args.length < 4) return usage(sender, label, "track <track> " + sec + " <user>");
+                String name = args[3];
+                boolean promote = sec.equals("promote");
+                withUser(sender, name, () -> {
+                    String group = promote ? perms.promote(name, track) : perms.demote(name, track);
+                    if (group == null) {
+                        sender.sendMessage(Utils.colorize("&c" + name + " cannot be " + sec + "d on track " + track + "!"));
+                        return;
+                    }
+                    try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
+                    broadcastAudit(sender, "User &e" + name + "&7 " + sec + "d to &e" + group + "&7 on track &e" + track);
+                });
+                return true;
+            }
+            default:
+                return usage(sender, label, "track <track> <create|delete|info|append|insert|remove|promote|demote>");
+        }
+    }
+
+    private boolean handleBulk(CommandSender sender, String label, String[] args) {
+        if (args.length < 4 || !(args[1].equalsIgnoreCase("promote") || args[1].equalsIgnoreCase("demote"))) {
+            return usage(sender, label, "bulk <promote|demote> <track> <group>");
+        }
+        String action = args[1].toLowerCase(Locale.ROOT);
+        String track = args[2];
+        String group = args[3];
+        if (!perms.groupExists(group)) {
+            sender.sendMessage(Utils.colorize("&cGroup " + group + " does not exist!"));
+            return true;
+        }
+        perms.bulkShift(track, group, action.equals("promote"), result -> {
+            if (result.failed()) {
+                sender.sendMessage(Utils.colorize("&cBulk " + action + " hit storage errors, see the console."));
+            }
+            broadcastAudit(sender, "Bulk " + action + " on track &e" + track + "&7 for &e" + group + "&7: &e"
+                    + result.moved() + "&7 of &e" + result.matched() + "&7 users moved");
+        });
+        sender.sendMessage(Utils.colorize("&7Running bulk " + action + " on track &e" + track + "&7 for members of &e" + group + "&7..."));
+        return true;
+    }
+
+    /**
+     * Run a user command once the user's permissions are in memory; offline users of a lazy backend are read
+     * off the main thread and the command answers a tick or more later
+     */
+    private void withUser(CommandSender sender, String name, Runnable action) {
+        perms.withUser(name, loaded -> {
+            if (!loaded) {
+                sender.sendMessage(Utils.colorize("&cCould not load the permissions of " + name + ", see the console."));
+                return;
+            }
+            try {
+                action.run();
+            } catch (Exception e) {
+                sender.sendMessage(Utils.colorize("&cError: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Trailing {@code world=<w>} / {@code server=<s>} arguments as a context string, or null if there are none
+     */
+    private String parseContext(String[] args, int from) {
+        List<String> contexts = new ArrayList<>();
+        for (int i = from; i < args.length; i++) {
+            String arg = args[i].toLowerCase(Locale.ROOT);
+            if (!arg.matches("(world|server)=[^,\\[\\]=]+")) {
+                throw new IllegalArgumentException("Invalid context '" + args[i] + "', expected world=<world> or server=<server>");
+            }
+            String key = arg.substring(0, arg.indexOf('='));
+            if (contexts.stream().anyMatch(c -> c.startsWith(key + "="))) {
+                throw new IllegalArgumentException("Context " + key + " is given twice");
+            }
+            contexts.add(arg);
+        }
+        // world=a server=b and server=b world=a must name the same entry
+        return PermissionsManager.normalizeContext(String.join(",", contexts));
+    }
+
+    private String describeContext(String context) {
+        return context == null ? "" : " &7in &e" + context;
+    }
+
+    private String formatTemporary(List<TemporaryEntry> entries) {
+        long now = System.currentTimeMillis();
+        return entries.stream()
+                .map(t -> t.value() + " &7(" + Utils.formatDuration(t.expiresAt() - now) + ")&f")
+                .collect(Collectors.joining(", "));
+    }
+
     private void broadcastAudit(CommandSender actor, String action) {
         String msg = Utils.colorize("&8[&bEchoPerms&8] &7" + actor.getName() + " &f» " + action);
         Bukkit.getConsoleSender().sendMessage(msg);
@@ -277,20 +478,30 @@ public class EcCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(Utils.colorize("&b&lEchoPerms Commands (&7/" + label + "&b)"));
         sender.sendMessage(Utils.colorize("&8&m                                                                                "));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " info"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " debug"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " listgroups"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " creategroup <group> [weight] [displayname]"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " deletegroup <group>"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " renamegroup <oldname> <newname>"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " user <name> info"));
-        sender.sendMessage(Utils.colorize("&7- &b/" + label + " user <name> permission set <node> <true|false> | unset <node>"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " user <name> permission set <node> <true|false> | unset <node> &7[world=<w>] [server=<s>]"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " user <name> permission settemp <node> <true|false> <duration>"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " user <name> parent add <group> | remove <group>"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " user <name> parent addtemp <group> <duration>"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " user <name> meta set <key> <value> | unset <key>"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " group <group> info"));
-        sender.sendMessage(Utils.colorize("&7- &b/" + label + " group <group> permission set <node> <true|false> | unset <node>"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " group <group> permission set <node> <true|false> | unset <node> &7[world=<w>] [server=<s>]"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " group <group> parent add <parent> | remove <parent>"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " group <group> meta set <key> <value> | unset <key>"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " group <group> setweight <weight>"));
         sender.sendMessage(Utils.colorize("&7- &b/" + label + " group <group> setdisplayname <name>"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " listtracks"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " track <track> create | delete | info"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " track <track> append <group> | insert <group> <position> | remove <group>"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " track <track> promote <user> | demote <user>"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " bulk <promote|demote> <track> <group>"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " export"));
+        sender.sendMessage(Utils.colorize("&7- &b/" + label + " import <file> &7(EchoPerms .jsonl[.gz] or LuckPerms .json[.gz])"));
     }
 
     @Override
@@ -300,21 +511,26 @@ public class EcCommand implements CommandExecutor, TabCompleter {
         if (!plugin.getPermissionChecker().has(sender, "echocore.perm")) return out;
 
         if (args.length == 1) {
-            out.add("help"); out.add("info"); out.add("listgroups"); out.add("creategroup"); out.add("deletegroup"); out.add("renamegroup"); out.add("user"); out.add("group");
+            out.add("help"); out.add("info"); out.add("debug"); out.add("listgroups"); out.add("creategroup"); out.add("deletegroup"); out.add("renamegroup"); out.add("user"); out.add("group"); out.add("listtracks"); out.add("track"); out.add("bulk"); out.add("export"); out.add("import");
+            return filter(out, last);
+        }
+        if (args[0].equalsIgnoreCase("import") && args.length == 2) {
+            File[] files = new File(plugin.getDataFolder(), "exports").listFiles(File::isFile);
+            if (files != null) for (File file : files) out.add(file.getName());
             return filter(out, last);
         }
         if (args[0].equalsIgnoreCase("user")) {
             if (args.length == 2) {
                 out.addAll(perms.getAllUsers());
-                out.addAll(Bukkit.getOnlinePlayers().stream().map(p -> p.getName()).collect(Collectors.toList()));
+                out.addAll(plugin.getOnlineNames().names());
                 return filter(out, last);
             }
             if (args.length == 3) { out.add("info"); out.add("permission"); out.add("parent"); out.add("meta"); return filter(out, last);}    
-            if (args.length == 4 && args[2].equalsIgnoreCase("permission")) { out.add("set"); out.add("unset"); return filter(out, last);}    
-            if (args.length == 5 && args[2].equalsIgnoreCase("permission") && args[3].equalsIgnoreCase("set")) { out.addAll(perms.getKnownPermissions()); return filter(out, last);}    
-            if (args.length == 6 && args[2].equalsIgnoreCase("permission") && args[3].equalsIgnoreCase("set")) { out.add("true"); out.add("false"); return filter(out, last);}    
-            if (args.length == 4 && args[2].equalsIgnoreCase("parent")) { out.add("add"); out.add("remove"); return filter(out, last);}    
-            if (args.length == 5 && args[2].equalsIgnoreCase("parent") && (args[3].equalsIgnoreCase("add") || args[3].equalsIgnoreCase("remove"))) { out.addAll(perms.getAllGroups()); return filter(out, last);}    
+            if (args.length == 4 && args[2].equalsIgnoreCase("permission")) { out.add("set"); out.add("settemp"); out.add("unset"); return filter(out, last);}    
+            if (args.length == 5 && args[2].equalsIgnoreCase("permission") && (args[3].equalsIgnoreCase("set") || args[3].equalsIgnoreCase("settemp"))) { out.addAll(perms.getKnownPermissions()); return filter(out, last);}    
+            if (args.length == 6 && args[2].equalsIgnoreCase("permission") && (args[3].equalsIgnoreCase("set") || args[3].equalsIgnoreCase("settemp"))) { out.add("true"); out.add("false"); return filter(out, last);}    
+            if (args.length == 4 && args[2].equalsIgnoreCase("parent")) { out.add("add"); out.add("addtemp"); out.add("remove"); return filter(out, last);}    
+            if (args.length == 5 && args[2].equalsIgnoreCase("parent") && (args[3].equalsIgnoreCase("add") || args[3].equalsIgnoreCase("addtemp") || args[3].equalsIgnoreCase("remove"))) { out.addAll(perms.getAllGroups()); return filter(out, last);}    
             if (args.length == 4 && args[2].equalsIgnoreCase("meta")) { out.add("set"); out.add("unset"); return filter(out, last);}    
         }
         if (args[0].equalsIgnoreCase("group")) {
@@ -327,6 +543,21 @@ public class EcCommand implements CommandExecutor, TabCompleter {
             if (args.length == 5 && args[2].equalsIgnoreCase("parent") && (args[3].equalsIgnoreCase("add") || args[3].equalsIgnoreCase("remove"))) { out.addAll(perms.getAllGroups()); return filter(out, last);}    
             if (args.length == 4 && args[2].equalsIgnoreCase("meta")) { out.add("set"); out.add("unset"); return filter(out, last);}    
         }
+        if (args[0].equalsIgnoreCase("track")) {
+            if (args.length == 2) { out.addAll(perms.getAllTracks()); return filter(out, last);}
+            if (args.length == 3) { out.add("create"); out.add("delete"); out.add("info"); out.add("append"); out.add("insert"); out.add("remove"); out.add("promote"); out.add("demote"); return filter(out, last);}
+            if (args.length == 4 && (args[2].equalsIgnoreCase("append") || args[2].equalsIgnoreCase("insert"))) { out.addAll(perms.getAllGroups()); return filter(out, last);}
+            if (args.length == 4 && args[2].equalsIgnoreCase("remove")) { out.addAll(perms.getTrack(args[1])); return filter(out, last);}
+            if (args.length == 4 && (args[2].equalsIgnoreCase("promote") || args[2].equalsIgnoreCase("demote"))) {
+                out.addAll(plugin.getOnlineNames().names());
+                return filter(out, last);
+            }
+        }
+        if (args[0].equalsIgnoreCase("bulk")) {
+            if (args.length == 2) { out.add("promote"); out.add("demote"); return filter(out, last);}
+            if (args.length == 3) { out.addAll(perms.getAllTracks()); return filter(out, last);}
+            if (args.length == 4) { out.addAll(perms.getAllGroups()); return filter(out, last);}
+        }
         return filter(out, last);
     }
 
@@ -11,7 +11,6 @@ import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class FlyCommand implements CommandExecutor, TabCompleter {
     
@@ -96,10 +95,7 @@ public class FlyCommand implements CommandExecutor, TabCompleter {
             // Complete player names for the second argument
             if (plugin.getPermissionChecker().has(sender, "echocore.fly.others")) {
                 String input = args[0].toLowerCase();
-                List<String> playerNames = Bukkit.getOnlinePlayers().stream()
-                        .map(Player::getName)
-                        .filter(name -> name.toLowerCase().startsWith(input))
-                        .collect(Collectors.toList());
+                List<String> playerNames = plugin.getOnlineNames().withPrefix(input);
                 completions.addAll(playerNames);
             }
         }
@@ -95,16 +95,7 @@ public class GuiCommand implements CommandExecutor, TabCompleter {
                     .collect(Collectors.toList());
         } else if (args.length == 2) {
             // Second argument: Player names
-            List<String> playerNames = Bukkit.getOnlinePlayers().stream()
-                    .map(Player::getName)
-                    .collect(Collectors.toList());
-            
-            completions.addAll(playerNames);
-            
-            // Filter based on input
-            completions = completions.stream()
-                    .filter(name -> name.toLowerCase().startsWith(args[1].toLowerCase()))
-                    .collect(Collectors.toList());
+            completions.addAll(plugin.getOnlineNames().withPrefix(args[1]));
         }
         
         return completions;
@@ -14,7 +14,6 @@ import org.bukkit.entity.Player;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class InventoryCommand implements CommandExecutor, TabCompleter {
     
@@ -169,19 +168,13 @@ public class InventoryCommand implements CommandExecutor, TabCompleter {
             }
             
             // Also complete player names
-            List<String> playerNames = Bukkit.getOnlinePlayers().stream()
-                    .map(Player::getName)
-                    .filter(name -> name.toLowerCase().startsWith(input))
-                    .collect(Collectors.toList());
+            List<String> playerNames = plugin.getOnlineNames().withPrefix(input);
             completions.addAll(playerNames);
             
         } else if (args.length == 2) {
             // Complete player names for the second argument
             String input = args[1].toLowerCase();
-            List<String> playerNames = Bukkit.getOnlinePlayers().stream()
-                    .map(Player::getName)
-                    .filter(name -> name.toLowerCase().startsWith(input))
-                    .collect(Collectors.toList());
+            List<String> playerNames = plugin.getOnlineNames().withPrefix(input);
             completions.addAll(playerNames);
         }
         
@@ -13,6 +13,8 @@ import org.bukkit.entity.Player;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class ModerationCommands implements CommandExecutor {
     
@@ -92,8 +94,8 @@ public class ModerationCommands implements CommandExecutor {
         
         // Save to database
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
-            plugin.getDatabaseManager().banPlayer(target != null ? target.getUniqueId() : 
-                    java.util.UUID.randomUUID(), reason, sender.getName(), duration);
+            reportFailure(sender, "ban", targetName, plugin.getDatabaseManager().banPlayer(target != null ? target.getUniqueId() : 
+                    java.util.UUID.randomUUID(), reason, sender.getName(), duration));
         }
         
         String message = Utils.getMessageWithPrefix(plugin, "moderation.player-banned", "&c{player} &chas been banned by &e{sender}&c!\\n&cReason: &e{reason}")
@@ -131,7 +133,8 @@ public class ModerationCommands implements CommandExecutor {
         // Update database
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
             // Note: We need to get the UUID from the database or use a different approach
-            plugin.getDatabaseManager().unbanPlayer(java.util.UUID.randomUUID(), sender.getName());
+            reportFailure(sender, "unban", targetName,
+                    plugin.getDatabaseManager().unbanPlayer(java.util.UUID.randomUUID(), sender.getName()));
         }
         
         String message = Utils.getMessageWithPrefix(plugin, "moderation.player-unbanned", "&a{player} &ahas been unbanned by &e{sender}&a!")
@@ -179,6 +182,11 @@ public class ModerationCommands implements CommandExecutor {
         
         Bukkit.broadcastMessage(Utils.colorize(message));
         
+        // Log to database
+        if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
+            plugin.getDatabaseManager().logKick(target.getUniqueId(), reason, sender.getName());
+        }
+        
         // Send webhook notification
         webhookManager.sendModerationWebhook("Kick", targetName, sender.getName(), reason);
         
@@ -318,7 +326,8 @@ public class ModerationCommands implements CommandExecutor {
         
         // Update database
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
-            plugin.getDatabaseManager().mutePlayer(target.getUniqueId(), reason, sender.getName(), duration);
+            reportFailure(sender, "mute", targetName,
+                    plugin.getDatabaseManager().mutePlayer(target.getUniqueId(), reason, sender.getName(), duration));
         }
         
         String message = Utils.getMessageWithPrefix(plugin, "moderation.player-muted", "&c{player} &chas been muted by &e{sender}&c!\\n&cReason: &e{reason}")
@@ -354,7 +363,7 @@ public class ModerationCommands implements CommandExecutor {
         Player target = Bukkit.getPlayer(targetName);
         UUID targetUUID = target != null ? target.getUniqueId() : null;
         
-        if (targetUUID == null || !mutedPlayers.containsKey(targetUUID)) {
+        if (targetUUID == null || !isMuted(targetUUID)) {
             sender.sendMessage(Utils.getMessageWithPrefix(plugin, "moderation.player-not-muted", "&e{player} &cis not currently muted!")
                     .replace("{player}", targetName));
             return true;
@@ -364,7 +373,7 @@ public class ModerationCommands implements CommandExecutor {
         
         // Update database
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
-            plugin.getDatabaseManager().unmutePlayer(targetUUID, sender.getName());
+            reportFailure(sender, "unmute", targetName, plugin.getDatabaseManager().unmutePlayer(targetUUID, sender.getName()));
         }
         
         String message = Utils.getMessageWithPrefix(plugin, "moderation.player-unmuted", "&a{player} &ahas been unmuted by &e{sender}&a!")
@@ -379,8 +388,27 @@ public class ModerationCommands implements CommandExecutor {
         return true;
     }
     
+    /**
+     * Tell the sender, on the main thread, when a punishment could not be saved; the database cache
+     * is left unchanged in that case, so it only lasts as long as the Bukkit ban list or this session
+     */
+    private void reportFailure(CommandSender sender, String action, String targetName, CompletableFuture<Void> write) {
+        write.exceptionally(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            plugin.getLogger().warning("Could not save " + action + " of " + targetName + " to the database: " + cause.getMessage());
+            Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(Utils.colorize(
+                    Utils.getMessageWithPrefix(plugin, "moderation.save-failed", "&cThe {action} of &e{player} &ccould not be saved to the database!")
+                            .replace("{action}", action)
+                            .replace("{player}", targetName))));
+            return null;
+        });
+    }
+    
     public boolean isMuted(UUID playerUUID) {
-        return mutedPlayers.containsKey(playerUUID);
+        if (mutedPlayers.containsKey(playerUUID)) return true;
+        // Mutes from before a restart only live in the database / punishment cache
+        return plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()
+                && plugin.getDatabaseManager().getPunishmentCache().isMuted(playerUUID);
     }
     
     public int getWarnings(UUID playerUUID) {
@@ -61,16 +61,29 @@ public class PermCommand implements CommandExecutor, TabCompleter {
             String node = args[3];
             String val = args[4];
             boolean value = Boolean.parseBoolean(val);
-            perms.setUserPermission(name, node, value);
-            try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
-            sender.sendMessage(Utils.colorize("&aImpostato &e" + node + " &aa &e" + value + " &aper l'utente &e" + name));
+            // Offline users of a lazy backend are read off the main thread first
+            perms.withUser(name, loaded -> {
+                if (!loaded) {
+                    sender.sendMessage(Utils.colorize("&cImpossibile caricare i permessi di &e" + name));
+                    return;
+                }
+                perms.setUserPermission(name, node, value);
+                try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
+                sender.sendMessage(Utils.colorize("&aImpostato &e" + node + " &aa &e" + value + " &aper l'utente &e" + name));
+            });
             return true;
         }
         if (args.length >= 5 && args[2].equalsIgnoreCase("group") && args[3].equalsIgnoreCase("add")) {
             String group = args[4];
-            perms.addUserGroup(name, group);
-            try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
-            sender.sendMessage(Utils.colorize("&aAggiunto gruppo &e" + group + " &aall'utente &e" + name));
+            perms.withUser(name, loaded -> {
+                if (!loaded) {
+                    sender.sendMessage(Utils.colorize("&cImpossibile caricare i permessi di &e" + name));
+                    return;
+                }
+                perms.addUserGroup(name, group);
+                try { plugin.getPermissionSyncManager().syncPlayer(name); } catch (Throwable ignored) {}
+                sender.sendMessage(Utils.colorize("&aAggiunto gruppo &e" + group + " &aall'utente &e" + name));
+            });
             return true;
         }
         sendUsage(sender, label);
@@ -130,7 +143,7 @@ public class PermCommand implements CommandExecutor, TabCompleter {
         if (args[0].equalsIgnoreCase("user")) {
             if (args.length == 2) {
                 out.addAll(perms.getAllUsers());
-                out.addAll(Bukkit.getOnlinePlayers().stream().map(Player::getName).collect(Collectors.toList()));
+                out.addAll(plugin.getOnlineNames().names());
                 return filter(out, input);
             }
             if (args.length == 3) {
@@ -180,7 +193,7 @@ public class PermCommand implements CommandExecutor, TabCompleter {
         if (args[0].equalsIgnoreCase("check")) {
             if (args.length == 2) {
                 out.addAll(perms.getAllUsers());
-                out.addAll(Bukkit.getOnlinePlayers().stream().map(Player::getName).collect(Collectors.toList()));
+                out.addAll(plugin.getOnlineNames().names());
                 return filter(out, input);
             }
         }
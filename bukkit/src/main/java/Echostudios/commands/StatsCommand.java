@@ -1,6 +1,7 @@
 package Echostudios.commands;
 
 import Echostudios.EchoCore;
+import Echostudios.utils.PlayerProfile;
 import Echostudios.utils.Utils;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -12,8 +13,6 @@ import org.bukkit.entity.Player;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 
 public class StatsCommand implements CommandExecutor, TabCompleter {
     
@@ -51,33 +50,18 @@ public class StatsCommand implements CommandExecutor, TabCompleter {
         
         UUID targetUUID = target.getUniqueId();
         
-        // Get player stats from database
+        // Load the whole profile in one query and render it back on the main thread
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
             final String targetName = target.getName(); // Store target name for error handling
-            CompletableFuture.runAsync(() -> {
-                try {
-                    // Get player info
-                    String firstJoin = plugin.getDatabaseManager().getFirstJoin(targetUUID).get();
-                    String lastSeen = plugin.getDatabaseManager().getLastSeen(targetUUID).get();
-                    int totalLogins = plugin.getDatabaseManager().getTotalLogins(targetUUID).get();
-                    
-                    // Get moderation stats
-                    int warnings = plugin.getDatabaseManager().getPlayerWarnings(targetUUID).get();
-                    int bans = plugin.getDatabaseManager().getBans(targetUUID).get();
-                    int kicks = plugin.getDatabaseManager().getKicks(targetUUID).get();
-                    int mutes = plugin.getDatabaseManager().getMutes(targetUUID).get();
-                    
-                    // Send stats to sender
-                    Bukkit.getScheduler().runTask(plugin, () -> {
-                        showPlayerStats(sender, target, firstJoin, lastSeen, totalLogins, warnings, bans, kicks, mutes);
-                    });
-                    
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Error getting stats for " + targetName + ": " + e.getMessage());
+            plugin.getDatabaseManager().loadProfile(targetUUID).whenComplete((profile, error) -> {
+                if (error != null) {
+                    plugin.getLogger().warning("Error getting stats for " + targetName + ": " + error.getMessage());
                     Bukkit.getScheduler().runTask(plugin, () -> {
                         sender.sendMessage(Utils.colorize("&cError retrieving player statistics. Check console for details."));
                     });
+                    return;
                 }
+                Bukkit.getScheduler().runTask(plugin, () -> showPlayerStats(sender, target, profile));
             });
         } else {
             // Fallback to basic stats
@@ -87,8 +71,9 @@ public class StatsCommand implements CommandExecutor, TabCompleter {
         return true;
     }
     
-    private void showPlayerStats(CommandSender sender, Player target, String firstJoin, String lastSeen, 
-                                int totalLogins, int warnings, int bans, int kicks, int mutes) {
+    private void showPlayerStats(CommandSender sender, Player target, PlayerProfile profile) {
+        String firstJoin = profile.firstJoin() != null ? profile.firstJoin().toString() : null;
+        String lastSeen = profile.lastSeen() != null ? profile.lastSeen().toString() : null;
         
         sender.sendMessage(Utils.colorize("&8&m                                                                                "));
         sender.sendMessage(Utils.colorize("&b&l                    Player Statistics                    "));
@@ -105,15 +90,15 @@ public class StatsCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(Utils.colorize("&e&lJoin Statistics:"));
         sender.sendMessage(Utils.colorize("&7- &fFirst Join: &e" + (firstJoin != null ? firstJoin : "Unknown")));
         sender.sendMessage(Utils.colorize("&7- &fLast Seen: &e" + (lastSeen != null ? lastSeen : "Unknown")));
-        sender.sendMessage(Utils.colorize("&7- &fTotal Logins: &e" + totalLogins));
+        sender.sendMessage(Utils.colorize("&7- &fTotal Logins: &e" + profile.totalLogins()));
         sender.sendMessage("");
         
         // Moderation statistics
         sender.sendMessage(Utils.colorize("&c&lModeration Statistics:"));
-        sender.sendMessage(Utils.colorize("&7- &fWarnings: &e" + warnings));
-        sender.sendMessage(Utils.colorize("&7- &fBans: &e" + bans));
-        sender.sendMessage(Utils.colorize("&7- &fKicks: &e" + kicks));
-        sender.sendMessage(Utils.colorize("&7- &fMutes: &e" + mutes));
+        sender.sendMessage(Utils.colorize("&7- &fWarnings: &e" + profile.warnings()));
+        sender.sendMessage(Utils.colorize("&7- &fBans: &e" + profile.bans()));
+        sender.sendMessage(Utils.colorize("&7- &fKicks: &e" + profile.kicks()));
+        sender.sendMessage(Utils.colorize("&7- &fMutes: &e" + profile.mutes()));
         sender.sendMessage("");
         
         // Current status (only visible to staff)
@@ -159,10 +144,7 @@ public class StatsCommand implements CommandExecutor, TabCompleter {
         if (args.length == 1) {
             // Complete player names for the first argument
             String input = args[0].toLowerCase();
-            List<String> playerNames = Bukkit.getOnlinePlayers().stream()
-                    .map(Player::getName)
-                    .filter(name -> name.toLowerCase().startsWith(input))
-                    .collect(Collectors.toList());
+            List<String> playerNames = plugin.getOnlineNames().withPrefix(input);
             completions.addAll(playerNames);
         }
         
@@ -44,16 +44,12 @@ public class TeleportCommand implements CommandExecutor, TabCompleter {
         String targetName = args[0];
         List<Player> possibleTargets = new ArrayList<>();
         
-        // First try exact match
-        Player exactTarget = Bukkit.getPlayer(targetName);
-        if (exactTarget != null) {
-            possibleTargets.add(exactTarget);
-        }
-        
-        // Then try partial matches
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            if (onlinePlayer.getName().toLowerCase().startsWith(targetName.toLowerCase()) && 
-                !possibleTargets.contains(onlinePlayer)) {
+        // An exact match wins; otherwise every name starting with the input
+        String exactName = plugin.getOnlineNames().exact(targetName);
+        List<String> names = exactName != null ? List.of(exactName) : plugin.getOnlineNames().withPrefix(targetName);
+        for (String name : names) {
+            Player onlinePlayer = Bukkit.getPlayerExact(name);
+            if (onlinePlayer != null) {
                 possibleTargets.add(onlinePlayer);
             }
         }
@@ -115,10 +111,7 @@ public class TeleportCommand implements CommandExecutor, TabCompleter {
             // Complete player names for the first argument
             if (plugin.getPermissionChecker().has(sender, "echocore.teleport")) {
                 String input = args[0].toLowerCase();
-                List<String> playerNames = Bukkit.getOnlinePlayers().stream()
-                        .map(Player::getName)
-                        .filter(name -> name.toLowerCase().startsWith(input))
-                        .collect(Collectors.toList());
+                List<String> playerNames = plugin.getOnlineNames().withPrefix(input);
                 completions.addAll(playerNames);
             }
         }
@@ -14,7 +14,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 public class VanishCommand implements CommandExecutor, TabCompleter {
     
@@ -153,10 +152,7 @@ public class VanishCommand implements CommandExecutor, TabCompleter {
             // Complete player names for the second argument
             if (plugin.getPermissionChecker().has(sender, "echocore.vanish.others")) {
                 String input = args[0].toLowerCase();
-                List<String> playerNames = Bukkit.getOnlinePlayers().stream()
-                        .map(Player::getName)
-                        .filter(name -> name.toLowerCase().startsWith(input))
-                        .collect(Collectors.toList());
+                List<String> playerNames = plugin.getOnlineNames().withPrefix(input);
                 completions.addAll(playerNames);
             }
         }
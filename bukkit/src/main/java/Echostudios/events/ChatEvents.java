@@ -1,6 +1,10 @@
 package Echostudios.events;
 
 import Echostudios.EchoCore;
+import Echostudios.utils.ChatSettings;
+import Echostudios.utils.ChatTokenizer;
+import Echostudios.utils.DatabaseManager;
+import Echostudios.utils.PunishmentCache;
 import Echostudios.utils.Utils;
 import Echostudios.utils.WebhookManager;
 import Echostudios.utils.GuiManager;
@@ -29,8 +33,10 @@ import net.md_5.bungee.api.chat.TextComponent;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class ChatEvents implements Listener {
@@ -39,6 +45,17 @@ public class ChatEvents implements Listener {
     private final WebhookManager webhookManager;
     private final GuiManager guiManager;
     private final Set<UUID> mutedPlayers = new HashSet<>();
+
+    /**
+     * A sender's chat header and [inv] / [ec] tags as components. The header is kept for the settings and
+     * the header text it was built from, which already holds the name and any placeholder values like rank,
+     * prefix or suffix; when either differs it is built again. Shared between messages, so append copies.
+     */
+    private record Rendered(ChatSettings settings, String header, BaseComponent[] headerComponents,
+                            TextComponent inventoryTag, TextComponent enderchestTag) {
+    }
+
+    private final Map<UUID, Rendered> rendered = new ConcurrentHashMap<>();
     
     public ChatEvents(EchoCore plugin) {
         this.plugin = plugin;
@@ -79,6 +96,7 @@ public class ChatEvents implements Listener {
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
+        rendered.remove(player.getUniqueId());
         
         // Send quit message
         String quitMessage = Utils.getMessageWithPrefix(plugin, "join-leave.player-quit", "&c- &e{player} &cleft the server");
@@ -95,15 +113,18 @@ public class ChatEvents implements Listener {
     public void onPlayerChat(AsyncPlayerChatEvent event) {
         Player player = event.getPlayer();
         
-        // Check if player is muted (from database first, then memory)
+        // Check if player is muted (punishment cache first, then memory); never blocks on the database
         boolean isMuted = false;
-        if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
-            try {
-                isMuted = plugin.getDatabaseManager().isPlayerMuted(player.getUniqueId()).get();
-            } catch (Exception e) {
-                // Fallback to memory check
+        DatabaseManager db = plugin.getDatabaseManager();
+        if (db != null && db.isConnected()) {
+            PunishmentCache cache = db.getPunishmentCache();
+            if (cache.isLoaded(player.getUniqueId())) {
+                isMuted = cache.isMuted(player.getUniqueId());
+            } else {
+                // Not loaded (e.g. joined before a reload): use memory now and load for the next message
                 isMuted = plugin.getModerationCommands() != null && 
                     plugin.getModerationCommands().isMuted(player.getUniqueId());
+                db.loadSession(player.getUniqueId());
             }
         } else {
             // Fallback to memory check
@@ -127,290 +148,151 @@ public class ChatEvents implements Listener {
                 !recipient.hasPermission("echocore.vanish.see"));
         }
         
+        // One scan of the message; every later step works on its tokens
+        ChatSettings settings = plugin.getChatSettings();
+        List<ChatTokenizer.Token> tokens = ChatTokenizer.tokenize(event.getMessage(), player.hasPermission("echocore.chat.colors"),
+                settings.tagsEnabled() ? plugin.getOnlineNames()::resolve : null, settings.autoTagEnabled(), settings.tags());
+        if (settings.tagsEnabled()) {
+            runTagActions(settings, tokens, player);
+        }
         // Use components to allow clickable tags like [inv] and [ec]
-        String rawMessage = event.getMessage();
-        String processedMessage = processChatMessage(rawMessage, player);
         event.setCancelled(true);
-        sendComponentChat(player, processedMessage, event.getRecipients());
-    }
-    
-    private String processChatMessage(String message, Player player) {
-        // Process special commands like [enderchest] and [inventory] FIRST
-        message = processSpecialCommandsWithComponents(message, player);
-        
-        // Then process @player tags
-        message = processPlayerTags(message);
-        
-        // Finally process colors and gradients (only if player has permission)
-        if (player.hasPermission("echocore.chat.colors")) {
-            message = Utils.colorize(message);
-        }
-        
-        return message;
+        sendComponentChat(settings, player, tokens, event.getRecipients());
     }
-    
-    private void sendComponentChat(Player sender, String processedMessage, Set<Player> recipients) {
-        // Build chat format with customizable pattern
-        String chatFormat = plugin.getMessagesConfig().getString("chat.format", "&7<&e{player}&7> &f{message}");
-        String formattedMessage = chatFormat
-                .replace("{player}", sender.getName())
-                .replace("{message}", processedMessage);
-        formattedMessage = Utils.applyPlaceholders(sender, formattedMessage);
-        String coloredMessage = Utils.colorize(formattedMessage);
-        
-        // Build only once to avoid duplications. We'll append the header and then the processed message parts.
-        ComponentBuilder builder = new ComponentBuilder();
-        String msg = processedMessage;
-        
-        // Append the header (everything in chat format before {message})
-        String playerPart = plugin.getMessagesConfig().getString("chat.format", "&7<&e{player}&7> &f{message}");
-        String headerOnly = playerPart.substring(0, playerPart.indexOf("{message}"));
-        String headerColored = Utils.colorize(Utils.applyPlaceholders(sender, headerOnly.replace("{player}", sender.getName())));
-        builder.append(TextComponent.fromLegacyText(headerColored));
-
-        // Parse message and insert clickable components for inventory/enderchest
-        int index = 0;
-        while (index < msg.length()) {
-            int invPos = msg.indexOf("[inv]", index);
-            int ecPos = msg.indexOf("[ec]", index);
 
-            int nextPos;
-            boolean isInv;
-            if (invPos == -1 && ecPos == -1) {
-                // No more tags; append rest of message content
-                String tail = msg.substring(index);
-                builder.append(TextComponent.fromLegacyText(Utils.colorize(tail)));
-                break;
-            } else if (invPos != -1 && (ecPos == -1 || invPos < ecPos)) {
-                nextPos = invPos;
-                isInv = true;
-            } else {
-                nextPos = ecPos;
-                isInv = false;
-            }
-
-            // Append text before the tag
-            if (nextPos > index) {
-                String before = msg.substring(index, nextPos);
-                builder.append(TextComponent.fromLegacyText(Utils.colorize(before)));
-            }
-
-            // Append clickable tag
-            if (isInv) {
-                TextComponent tag = new TextComponent("[inv]");
-                tag.setColor(ChatColor.AQUA);
-                tag.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/inventory " + sender.getName()));
-                tag.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, TextComponent.fromLegacyText(Utils.colorize("&bApri l'inventario di &e" + sender.getName()))));
-                builder.append(tag);
-                index = nextPos + "[inv]".length();
-                // Grant consent for a limited time
-                ConsentManager.grantInventoryConsent(sender.getUniqueId());
-            } else {
-                TextComponent tag = new TextComponent("[ec]");
-                tag.setColor(ChatColor.AQUA);
-                tag.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/inventory enderchest " + sender.getName()));
-                tag.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, TextComponent.fromLegacyText(Utils.colorize("&bApri l'enderchest di &e" + sender.getName()))));
-                builder.append(tag);
-                index = nextPos + "[ec]".length();
-                // Grant consent for a limited time
-                ConsentManager.grantEnderchestConsent(sender.getUniqueId());
+    /**
+     * Side effects of tags in a message, once per tag: [ec] and [inv] open the GUI, custom commands send their message
+     */
+    private void runTagActions(ChatSettings settings, List<ChatTokenizer.Token> tokens, Player player) {
+        Set<String> seen = new HashSet<>();
+        for (ChatTokenizer.Token token : tokens) {
+            if (token.type() != ChatTokenizer.Type.TAG || !seen.add(token.value())) continue;
+            String tag = token.value();
+            if (tag.equals("ec") || tag.equals("inv")) {
+                boolean enderchest = tag.equals("ec");
+                if (player.hasPermission(enderchest ? "echocore.chat.enderchest" : "echocore.chat.inventory")) {
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        if (enderchest) guiManager.openEnderchestGui(player, player);
+                        else guiManager.openInventoryGui(player, player);
+                    });
+                } else {
+                    player.sendMessage(settings.noPermissionMessage());
+                }
+                continue;
             }
-        }
-
-        // Process item tags if the message contains them, but skip when [inv] or [ec] are present
-        if (ItemTagProcessor.containsItemTags(processedMessage)
-                && !processedMessage.contains("[inv]")
-                && !processedMessage.contains("[ec]")) {
-            // Check if item tags are enabled and player has permission
-            boolean itemTagsEnabled = plugin.getMessagesConfig().getBoolean("chat.item-tags.enabled", true);
-            String itemTagsPermission = plugin.getMessagesConfig().getString("chat.item-tags.permission", "echocore.chat.itemtags");
-            
-            if (itemTagsEnabled && (itemTagsPermission.isEmpty() || sender.hasPermission(itemTagsPermission))) {
-                // Create a new message with item tags processed
-                BaseComponent[] itemComponents = ItemTagProcessor.processItemTags(processedMessage, sender, plugin.getMessagesConfig());
-                
-                // Build chat header with player name and item components
-                String headerPart = chatFormat.substring(0, chatFormat.indexOf("{message}"));
-                String playerPartColored = Utils.colorize(headerPart.replace("{player}", sender.getName()));
-                
-                ComponentBuilder finalBuilder = new ComponentBuilder();
-                finalBuilder.append(TextComponent.fromLegacyText(playerPartColored));
-                finalBuilder.append(itemComponents);
-                
-                BaseComponent[] finalComponents = finalBuilder.create();
-                for (Player recipient : recipients) {
-                    recipient.spigot().sendMessage(finalComponents);
+            ChatSettings.CustomCommand custom = settings.customCommand(tag);
+            if (custom == null) continue;
+            if (custom.permission().isEmpty() || player.hasPermission(custom.permission())) {
+                if (!custom.message().isEmpty()) {
+                    player.sendMessage(Utils.colorize(custom.message().replace("{player}", player.getName())));
                 }
             } else {
-                // Send message without item processing
-                BaseComponent[] components = builder.create();
-                for (Player recipient : recipients) {
-                    recipient.spigot().sendMessage(components);
-                }
-            }
-        } else {
-            // Send message without item processing
-            BaseComponent[] components = builder.create();
-            for (Player recipient : recipients) {
-                recipient.spigot().sendMessage(components);
+                player.sendMessage(settings.noPermissionMessage());
             }
         }
     }
 
-    private String processSpecialCommands(String message, Player player) {
-        // Check if tags are enabled
-        boolean tagsEnabled = plugin.getMessagesConfig().getBoolean("chat.tags.enabled", true);
-        if (!tagsEnabled) {
-            return message;
-        }
-        
-        // Process [ec] command (grant consent, keep tag)
-        if (message.contains("[ec]")) {
-            if (player.hasPermission("echocore.chat.enderchest")) {
-                ConsentManager.grantEnderchestConsent(player.getUniqueId());
-            } else {
-                String noPermMessage = Utils.getMessageWithPrefix(plugin, "chat.gui.no-permission", "&cNo Permission");
-                player.sendMessage(Utils.colorize(noPermMessage));
-            }
-        }
-        
-        // Process [inv] command (grant consent, keep tag)
-        if (message.contains("[inv]")) {
-            if (player.hasPermission("echocore.chat.inventory")) {
-                ConsentManager.grantInventoryConsent(player.getUniqueId());
-            } else {
-                String noPermMessage = Utils.getMessageWithPrefix(plugin, "chat.gui.no-permission", "&cNo Permission");
-                player.sendMessage(Utils.colorize(noPermMessage));
-            }
+    private void sendComponentChat(ChatSettings settings, Player sender, List<ChatTokenizer.Token> tokens, Set<Player> recipients) {
+        // Append the header (everything in chat format before {message}); only placeholders are resolved per message
+        Rendered cached = render(settings, sender);
+        ComponentBuilder builder = new ComponentBuilder();
+        for (BaseComponent component : cached.headerComponents()) {
+            builder.append(component.duplicate());
         }
-        
-        // Process custom commands from config
-        if (plugin.getMessagesConfig().isConfigurationSection("custom-commands")) {
-            plugin.getLogger().info("Processing custom commands for " + player.getName());
-            for (String customCmd : plugin.getMessagesConfig().getConfigurationSection("custom-commands").getKeys(false)) {
-                String commandName = plugin.getMessagesConfig().getString("custom-commands." + customCmd + ".name", customCmd);
-                String permission = plugin.getMessagesConfig().getString("custom-commands." + customCmd + ".permission", "");
-                String messageText = plugin.getMessagesConfig().getString("custom-commands." + customCmd + ".message", "");
-                String color = plugin.getMessagesConfig().getString("custom-commands." + customCmd + ".color", "&b");
-                
-                plugin.getLogger().info("Checking custom command: " + commandName + " in message: " + message);
-                
-                if (message.contains("[" + commandName + "]")) {
-                    plugin.getLogger().info("Found custom command: " + commandName);
-                    if (permission.isEmpty() || player.hasPermission(permission)) {
-                        // Send custom message if specified
-                        if (!messageText.isEmpty()) {
-                            String formattedMessage = messageText.replace("{player}", player.getName());
-                            player.sendMessage(Utils.colorize(formattedMessage));
-                            plugin.getLogger().info("Sent custom message: " + formattedMessage);
-                        }
+
+        // Item tags are skipped when [inv] or [ec] are present
+        boolean guiTags = tokens.stream().anyMatch(t -> t.type() == ChatTokenizer.Type.TAG
+                && (t.value().equals("inv") || t.value().equals("ec")));
+        boolean itemTags = !guiTags && canUseItemTags(settings, sender);
+
+        // Runs of text, colors and mentions become one legacy string, cut at each clickable component
+        StringBuilder text = new StringBuilder();
+        for (ChatTokenizer.Token token : tokens) {
+            switch (token.type()) {
+                case TEXT, COLOR -> text.append(token.value());
+                case MENTION -> text.append(formatMention(settings, token));
+                case TAG -> {
+                    String tag = token.value();
+                    ChatSettings.CustomCommand custom;
+                    if (tag.equals("inv") || tag.equals("ec")) {
+                        appendText(builder, text);
+                        boolean inventory = tag.equals("inv");
+                        builder.append((inventory ? cached.inventoryTag() : cached.enderchestTag()).duplicate());
+                        // Showing it grants others consent to look for a limited time, every time it is shown
+                        if (inventory) ConsentManager.grantInventoryConsent(sender.getUniqueId());
+                        else ConsentManager.grantEnderchestConsent(sender.getUniqueId());
+                    } else if (settings.tagsEnabled() && (custom = settings.customCommand(tag)) != null) {
+                        // Keep the custom command in chat but make it colored
+                        text.append(custom.color()).append(token.source()).append(ChatColor.RESET);
+                    } else if (itemTags) {
+                        appendText(builder, text);
+                        builder.append(ItemTagProcessor.createItemComponent(tag.toLowerCase(), sender, plugin.getMessagesConfig()));
                     } else {
-                        String noPermMessage = Utils.getMessageWithPrefix(plugin, "chat.gui.no-permission", "&cNo Permission");
-                        player.sendMessage(Utils.colorize(noPermMessage));
-                        plugin.getLogger().info("No permission for custom command: " + commandName);
+                        text.append(token.source());
                     }
-                    // Keep the custom command in chat but make it colored
-                    String customTag = color + "[" + commandName + "]&r";
-                    message = message.replace("[" + commandName + "]", customTag);
-                    plugin.getLogger().info("Replaced command with colored tag: " + customTag);
                 }
             }
-        } else {
-            plugin.getLogger().warning("No custom-commands section found in messages.yml");
         }
-        
-        return message;
+        appendText(builder, text);
+
+        BaseComponent[] components = builder.create();
+        for (Player recipient : recipients) {
+            recipient.spigot().sendMessage(components);
+        }
     }
-    
-    private String processPlayerTags(String message) {
-        // Check if tags are enabled
-        boolean tagsEnabled = plugin.getMessagesConfig().getBoolean("chat.tags.enabled", true);
-        if (!tagsEnabled) {
-            return message;
-        }
-        
-        // Get tag formats from config
-        String tagFormat = plugin.getMessagesConfig().getString("chat.tags.format", "&b@{player}&r");
-        boolean autoTagEnabled = plugin.getMessagesConfig().getBoolean("chat.tags.auto-tag-enabled", true);
-        String autoTagFormat = plugin.getMessagesConfig().getString("chat.tags.auto-tag-format", "&b@{player}&r");
-        
-        // Find @player patterns and convert them to colored tags
-        String[] words = message.split(" ");
-        for (int i = 0; i < words.length; i++) {
-            // Check for @player tags
-            if (words[i].startsWith("@")) {
-                String playerName = words[i].substring(1); // Remove @
-                Player target = Bukkit.getPlayer(playerName);
-                if (target != null) {
-                    // Convert to colored tag format using config
-                    String formattedTag = tagFormat.replace("{player}", target.getName());
-                    words[i] = Utils.colorize(formattedTag);
-                } else {
-                    // Player not found, but still color the @ symbol
-                    words[i] = "&b" + words[i] + "&r";
-                }
-            }
-            // Check for auto-tags (player names without @ that should become tags)
-            else if (autoTagEnabled) {
-                Player target = Bukkit.getPlayer(words[i]);
-                if (target != null && words[i].equals(target.getName())) {
-                    // This is a player name that should become a tag
-                    String formattedTag = autoTagFormat.replace("{player}", target.getName());
-                    words[i] = Utils.colorize(formattedTag);
-                }
-            }
+
+    private void appendText(ComponentBuilder builder, StringBuilder text) {
+        if (text.length() == 0) return;
+        builder.append(TextComponent.fromLegacyText(text.toString()));
+        text.setLength(0);
+    }
+
+    private String formatMention(ChatSettings settings, ChatTokenizer.Token mention) {
+        if (mention.value() == null) {
+            // Player not found, but still color the @ symbol
+            return ChatColor.AQUA + mention.source() + ChatColor.RESET;
         }
-        return String.join(" ", words);
+        return (mention.explicit() ? settings.tagFormat() : settings.autoTagFormat()).apply(mention.value());
     }
-    
-    // TODO: Implement component system for interactive chat commands
-    // This will be added in a future update
-    
-    // TODO: Component creation method will be re-implemented when component system is ready
-    
-    /**
-     * Processes special commands with enhanced functionality
-     */
-    private String processSpecialCommandsWithComponents(String message, Player player) {
-        // Check if tags are enabled
-        boolean tagsEnabled = plugin.getMessagesConfig().getBoolean("chat.tags.enabled", true);
-        if (!tagsEnabled) {
-            return message;
-        }
-        
-        // Process [ec] command (grant consent, keep tag)
-        if (message.contains("[ec]")) {
-            if (player.hasPermission("echocore.chat.enderchest")) {
-                // Open enderchest GUI instead of showing text
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    guiManager.openEnderchestGui(player, player);
-                });
-            } else {
-                String noPermMessage = Utils.getMessageWithPrefix(plugin, "chat.gui.no-permission", "&cNo Permission");
-                player.sendMessage(Utils.colorize(noPermMessage));
-            }
-            // Keep the [ec] in chat but make it colored
-            String ecTag = "&b[ec]&r";
-            message = message.replace("[ec]", ecTag);
-        }
-        
-        // Process [inv] command (grant consent, keep tag)
-        if (message.contains("[inv]")) {
-            if (player.hasPermission("echocore.chat.inventory")) {
-                // Open inventory GUI instead of showing text
-                Bukkit.getScheduler().runTask(plugin, () -> {
-                    guiManager.openInventoryGui(player, player);
-                });
-            } else {
-                String noPermMessage = Utils.getMessageWithPrefix(plugin, "chat.gui.no-permission", "&cNo Permission");
-                player.sendMessage(Utils.colorize(noPermMessage));
-            }
-            // Keep the [inv] in chat but make it colored
-            String invTag = "&b[inv]&r";
-            message = message.replace("[inv]", invTag);
+
+    private boolean canUseItemTags(ChatSettings settings, Player player) {
+        return settings.itemTagsEnabled()
+                && (settings.itemTagsPermission().isEmpty() || player.hasPermission(settings.itemTagsPermission()));
+    }
+
+    // The sender's cached components, rebuilt when the settings or the resolved header text changed
+    private Rendered render(ChatSettings settings, Player sender) {
+        String header = settings.chatHeader().replace("{player}", sender.getName());
+        if (settings.chatHeaderPlaceholders()) {
+            header = Utils.applyPlaceholders(sender, header);
+        }
+        Rendered cached = rendered.get(sender.getUniqueId());
+        if (cached != null && cached.settings() == settings && cached.header().equals(header)) {
+            return cached;
+        }
+        // Tags only depend on the name, which cannot change while the player is online
+        TextComponent inventoryTag = cached != null ? cached.inventoryTag() : guiTag(sender, true);
+        TextComponent enderchestTag = cached != null ? cached.enderchestTag() : guiTag(sender, false);
+        cached = new Rendered(settings, header, TextComponent.fromLegacyText(Utils.colorize(header)), inventoryTag, enderchestTag);
+        // A player who quit while their message was on its way is not kept
+        if (sender.isOnline()) {
+            rendered.put(sender.getUniqueId(), cached);
+        }
+        return cached;
+    }
+
+    // Clickable [inv] / [ec]
+    private TextComponent guiTag(Player sender, boolean inventory) {
+        TextComponent tag = new TextComponent(inventory ? "[inv]" : "[ec]");
+        tag.setColor(ChatColor.AQUA);
+        if (inventory) {
+            tag.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/inventory " + sender.getName()));
+            tag.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, TextComponent.fromLegacyText(Utils.colorize("&bApri l'inventario di &e" + sender.getName()))));
+        } else {
+            tag.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/inventory enderchest " + sender.getName()));
+            tag.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, TextComponent.fromLegacyText(Utils.colorize("&bApri l'enderchest di &e" + sender.getName()))));
         }
-        
-        return message;
+        return tag;
     }
     
     @EventHandler
@@ -421,11 +303,7 @@ public class ChatEvents implements Listener {
         
         Player player = (Player) event.getSender();
         String buffer = event.getBuffer();
-        
-        // Debug: Log tab completion attempts (only for @ tags)
-        if (buffer.contains("@")) {
-            plugin.getLogger().info("Tab completion for " + player.getName() + ": '" + buffer + "'");
-        }
+        ChatSettings settings = plugin.getChatSettings();
         
         // Only handle chat tab completion (not command tab completion)
         if (buffer.startsWith("/")) {
@@ -436,9 +314,7 @@ public class ChatEvents implements Listener {
         event.getCompletions().clear();
 
         // Get online players
-        List<String> onlinePlayers = Bukkit.getOnlinePlayers().stream()
-                .map(Player::getName)
-                .collect(Collectors.toList());
+        List<String> onlinePlayers = plugin.getOnlineNames().names();
         
         // Filter based on current input
         String[] words = buffer.split(" ");
@@ -447,12 +323,10 @@ public class ChatEvents implements Listener {
         // Special handling for @player tags
         if (currentWord.startsWith("@")) {
             String playerName = currentWord.substring(1); // Remove @
-            List<String> playerCompletions = onlinePlayers.stream()
-                    .filter(name -> name.toLowerCase().startsWith(playerName.toLowerCase()))
+            List<String> playerCompletions = plugin.getOnlineNames().withPrefix(playerName).stream()
                     .map(name -> "@" + name) // Add @ back
                     .collect(Collectors.toList());
             event.getCompletions().addAll(playerCompletions);
-            plugin.getLogger().info("Added " + playerCompletions.size() + " @player completions for " + player.getName());
             return;
         }
         
@@ -463,10 +337,7 @@ public class ChatEvents implements Listener {
             specialOptions.add("[inv]");
             
             // Add common item tags if player has permission
-            boolean itemTagsEnabled = plugin.getMessagesConfig().getBoolean("chat.item-tags.enabled", true);
-            String itemTagsPermission = plugin.getMessagesConfig().getString("chat.item-tags.permission", "echocore.chat.itemtags");
-            
-            if (itemTagsEnabled && (itemTagsPermission.isEmpty() || player.hasPermission(itemTagsPermission))) {
+            if (canUseItemTags(settings, player)) {
                 specialOptions.add("[item]");
                 specialOptions.add("[sword]");
                 specialOptions.add("[armor]");
@@ -479,7 +350,6 @@ public class ChatEvents implements Listener {
             }
             
             event.getCompletions().addAll(specialOptions);
-            plugin.getLogger().info("Added " + specialOptions.size() + " special options for " + player.getName());
             return;
         }
         
@@ -490,20 +360,12 @@ public class ChatEvents implements Listener {
             bracketCompletions.add("[inv]");
             
             // Add item tags if player has permission
-            boolean itemTagsEnabled = plugin.getMessagesConfig().getBoolean("chat.item-tags.enabled", true);
-            String itemTagsPermission = plugin.getMessagesConfig().getString("chat.item-tags.permission", "echocore.chat.itemtags");
-            
-            if (itemTagsEnabled && (itemTagsPermission.isEmpty() || player.hasPermission(itemTagsPermission))) {
+            if (canUseItemTags(settings, player)) {
                 bracketCompletions.addAll(ItemTagProcessor.getAvailableTags(player));
             }
             
             // Add custom commands from config
-            if (plugin.getMessagesConfig().isConfigurationSection("custom-commands")) {
-                for (String customCmd : plugin.getMessagesConfig().getConfigurationSection("custom-commands").getKeys(false)) {
-                    String commandName = plugin.getMessagesConfig().getString("custom-commands." + customCmd + ".name", customCmd);
-                    bracketCompletions.add("[" + commandName + "]");
-                }
-            }
+            bracketCompletions.addAll(settings.customCommandTags());
             
             bracketCompletions = bracketCompletions.stream()
                     .filter(completion -> completion.toLowerCase().startsWith(currentWord.toLowerCase()))
@@ -538,18 +400,13 @@ public class ChatEvents implements Listener {
                 .collect(Collectors.toList());
         
         event.getCompletions().addAll(completions);
-        
-        // Debug: Log completions added
-        plugin.getLogger().info("Added " + completions.size() + " completions for " + player.getName());
     }
     
     @EventHandler
     public void onPlayerChatTabComplete(PlayerChatTabCompleteEvent event) {
         Player player = event.getPlayer();
         String lastToken = event.getLastToken();
-        
-        // Debug: Log chat tab completion
-        plugin.getLogger().info("Chat tab completion for " + player.getName() + ": '" + lastToken + "'");
+        ChatSettings settings = plugin.getChatSettings();
 
         // Ensure we control the chat completions (clear defaults like plain player names)
         event.getTabCompletions().clear();
@@ -557,17 +414,11 @@ public class ChatEvents implements Listener {
         // Special handling for @player tags
         if (lastToken.startsWith("@")) {
             String playerName = lastToken.substring(1); // Remove @
-            List<String> onlinePlayers = Bukkit.getOnlinePlayers().stream()
-                    .map(Player::getName)
-                    .collect(Collectors.toList());
-            
-            List<String> playerCompletions = onlinePlayers.stream()
-                    .filter(name -> name.toLowerCase().startsWith(playerName.toLowerCase()))
+            List<String> playerCompletions = plugin.getOnlineNames().withPrefix(playerName).stream()
                     .map(name -> "@" + name) // Add @ back
                     .collect(Collectors.toList());
             
             event.getTabCompletions().addAll(playerCompletions);
-            plugin.getLogger().info("Added " + playerCompletions.size() + " @player completions for " + player.getName());
             return;
         }
         
@@ -578,10 +429,7 @@ public class ChatEvents implements Listener {
             specialOptions.add("[inv]");
             
             // Add common item tags if player has permission
-            boolean itemTagsEnabled = plugin.getMessagesConfig().getBoolean("chat.item-tags.enabled", true);
-            String itemTagsPermission = plugin.getMessagesConfig().getString("chat.item-tags.permission", "echocore.chat.itemtags");
-            
-            if (itemTagsEnabled && (itemTagsPermission.isEmpty() || player.hasPermission(itemTagsPermission))) {
+            if (canUseItemTags(settings, player)) {
                 specialOptions.add("[item]");
                 specialOptions.add("[sword]");
                 specialOptions.add("[item]");
@@ -590,15 +438,11 @@ public class ChatEvents implements Listener {
             }
             
             // Add online players with @ prefix for easy tagging
-            List<String> onlinePlayers = Bukkit.getOnlinePlayers().stream()
-                    .map(Player::getName)
-                    .collect(Collectors.toList());
-            for (String playerName : onlinePlayers) {
+            for (String playerName : plugin.getOnlineNames().names()) {
                 specialOptions.add("@" + playerName);
             }
             
             event.getTabCompletions().addAll(specialOptions);
-            plugin.getLogger().info("Added " + specialOptions.size() + " special options for " + player.getName());
             return;
         }
         
@@ -609,20 +453,12 @@ public class ChatEvents implements Listener {
             bracketCompletions.add("[inv]");
             
             // Add item tags if player has permission
-            boolean itemTagsEnabled = plugin.getMessagesConfig().getBoolean("chat.item-tags.enabled", true);
-            String itemTagsPermission = plugin.getMessagesConfig().getString("chat.item-tags.permission", "echocore.chat.itemtags");
-            
-            if (itemTagsEnabled && (itemTagsPermission.isEmpty() || player.hasPermission(itemTagsPermission))) {
+            if (canUseItemTags(settings, player)) {
                 bracketCompletions.addAll(ItemTagProcessor.getAvailableTags(player));
             }
             
             // Add custom commands from config
-            if (plugin.getMessagesConfig().isConfigurationSection("custom-commands")) {
-                for (String customCmd : plugin.getMessagesConfig().getConfigurationSection("custom-commands").getKeys(false)) {
-                    String commandName = plugin.getMessagesConfig().getString("custom-commands." + customCmd + ".name", customCmd);
-                    bracketCompletions.add("[" + commandName + "]");
-                }
-            }
+            bracketCompletions.addAll(settings.customCommandTags());
             
             bracketCompletions = bracketCompletions.stream()
                     .filter(completion -> completion.toLowerCase().startsWith(lastToken.toLowerCase()))
@@ -636,10 +472,7 @@ public class ChatEvents implements Listener {
         List<String> completions = new ArrayList<>();
         
         // Add online players with @ prefix for easy tagging
-        List<String> onlinePlayers = Bukkit.getOnlinePlayers().stream()
-                .map(Player::getName)
-                .collect(Collectors.toList());
-        for (String playerName : onlinePlayers) {
+        for (String playerName : plugin.getOnlineNames().names()) {
             completions.add("@" + playerName);
         }
         
@@ -662,7 +495,6 @@ public class ChatEvents implements Listener {
                 .collect(Collectors.toList());
         
         event.getTabCompletions().addAll(completions);
-        plugin.getLogger().info("Added " + completions.size() + " chat completions for " + player.getName());
     }
     
     private List<String> getInventoryItems(Player player) {
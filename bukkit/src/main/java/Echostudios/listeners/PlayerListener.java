@@ -6,8 +6,13 @@ import Echostudios.utils.RankManager;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 public class PlayerListener implements Listener {
 
@@ -17,6 +22,46 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
     
+    /**
+     * Load the player's EchoPerms data off the main thread; only does work for lazy storage backends
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        if (plugin.getPermissionsManager() != null) {
+            plugin.getPermissionsManager().loadUser(event.getName());
+        }
+    }
+
+    /**
+     * A login refused after pre-login gets no quit event; unpin what pre-login loaded so lazy storage can drop it
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoginRefused(PlayerLoginEvent event) {
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED || plugin.getPermissionsManager() == null) return;
+        // A second login for a player who is still online keeps their data
+        if (Bukkit.getPlayer(event.getPlayer().getUniqueId()) != null) return;
+        plugin.getPermissionsManager().unloadUser(event.getPlayer().getName());
+    }
+
+    // Before anything checks or syncs the joining player's permissions
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoinContext(PlayerJoinEvent event) {
+        if (plugin.getPermissionsManager() != null) {
+            plugin.getPermissionsManager().setWorld(event.getPlayer().getName(), event.getPlayer().getWorld().getName());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        if (plugin.getPermissionsManager() == null) return;
+        if (plugin.getPermissionsManager().setWorld(player.getName(), player.getWorld().getName())
+                && plugin.getPermissionSyncManager() != null) {
+            plugin.getPermissionSyncManager().syncPlayer(player);
+        }
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
@@ -28,4 +73,14 @@ public class PlayerListener implements Listener {
             Bukkit.getScheduler().runTask(plugin, () -> player.setPlayerListName(formatted))
         );
     }
-}
\ No newline at end of file
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        if (plugin.getPermissionsManager() != null) {
+            plugin.getPermissionsManager().unloadUser(event.getPlayer().getName());
+        }
+        if (plugin.getPermissionSyncManager() != null) {
+            plugin.getPermissionSyncManager().forget(event.getPlayer());
+        }
+    }
+}
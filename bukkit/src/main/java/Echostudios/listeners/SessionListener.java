@@ -0,0 +1,93 @@
+package Echostudios.listeners;
+
+import Echostudios.EchoCore;
+import Echostudios.utils.DatabaseManager;
+import Echostudios.utils.PunishmentCache;
+import Echostudios.utils.Utils;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts a player's session during the async pre-login (where blocking is allowed),
+ * which also fills the punishment cache, and ends it on quit.
+ * Banned players are refused here, before the server creates a player entity.
+ * No quit event follows a refused login, so a session started for a login that is refused
+ * later (by another plugin, the whitelist or a full server) is ended when the refusal is seen.
+ */
+public class SessionListener implements Listener {
+
+    private final EchoCore plugin;
+
+    public SessionListener(EchoCore plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.LOW)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        DatabaseManager db = plugin.getDatabaseManager();
+        if (db == null || !db.isConnected()) return;
+
+        UUID uuid = event.getUniqueId();
+        CompletableFuture<?> load = db.loadSession(uuid);
+        try {
+            load.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // Chat falls back to loading on first use; the ban index below still applies
+            plugin.getLogger().warning("Could not load session for " + event.getName() + ": " + e.getMessage());
+            if (e instanceof TimeoutException) {
+                // The load still starts a session when it finishes; keep it only if the player made it in
+                load.thenRun(() -> plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    if (plugin.getServer().getPlayer(uuid) == null) db.endSession(uuid);
+                }));
+            }
+        }
+
+        if (db.getBanIndex().isBanned(event.getUniqueId(), System.currentTimeMillis())) {
+            PunishmentCache.Punishment punishment = db.getPunishmentCache().get(event.getUniqueId());
+            String reason = punishment != null && punishment.banReason() != null
+                    ? punishment.banReason()
+                    : Utils.getMessage(plugin, "moderation.default-ban-reason", "No reason specified");
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED,
+                    Utils.colorize(Utils.getMessage(plugin, "moderation.ban-message", "&cYou have been banned from this server!\\n&cReason: &e{reason}")
+                            .replace("{reason}", reason)));
+        }
+    }
+
+    // Refused here or by any handler after ours; the ban above ends up here too
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLoginResult(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        endRefused(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) return;
+        endRefused(event.getPlayer().getUniqueId());
+    }
+
+    private void endRefused(UUID uuid) {
+        DatabaseManager db = plugin.getDatabaseManager();
+        // A second login for a player who is still online must not end the online session
+        if (db == null || plugin.getServer().getPlayer(uuid) != null) return;
+        db.endSession(uuid);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        DatabaseManager db = plugin.getDatabaseManager();
+        if (db != null) {
+            db.endSession(event.getPlayer().getUniqueId());
+        }
+    }
+}
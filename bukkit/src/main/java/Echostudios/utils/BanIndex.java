@@ -0,0 +1,225 @@
+package Echostudios.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Compact set of banned UUIDs with their expiry, for the pre-login gate.
+ * Open addressing with linear probing over three parallel long arrays
+ * (UUID high bits, low bits, expiry), so an entry costs 24 bytes instead of a
+ * boxed UUID, map node and value object. Deletes use backward-shift, so there are no tombstones.
+ * The nil UUID (console) marks an empty slot and is never stored.
+ */
+public class BanIndex {
+
+    private static final int MIN_CAPACITY = 64;
+    private static final float MAX_LOAD = 0.6f;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] most;
+    private long[] least;
+    private long[] expires; // epoch millis, 0 = permanent
+    private int size;
+
+    public BanIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Whether the player is banned right now. Lock-free unless a writer is active.
+     */
+    public boolean isBanned(UUID uuid, long now) {
+        long stamp = lock.tryOptimisticRead();
+        long expiry = find(uuid);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                expiry = find(uuid);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return expiry >= 0 && (expiry == 0 || expiry > now);
+    }
+
+    /**
+     * Add or update a ban; expiry 0 = permanent
+     */
+    public void put(UUID uuid, long expiry) {
+        if (uuid.getMostSignificantBits() == 0L && uuid.getLeastSignificantBits() == 0L) return;
+        long stamp = lock.writeLock();
+        try {
+            if (size + 1 > most.length * MAX_LOAD) {
+                resize(most.length << 1);
+            }
+            insert(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), Math.max(0L, expiry));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(UUID uuid) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (slot < 0) return false;
+            deleteAt(slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Drop every ban whose expiry has passed, in one pass over the table
+     */
+    public List<UUID> removeExpired(long now) {
+        List<UUID> removed = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            int i = 0;
+            while (i < most.length) {
+                if (!isEmpty(i) && expires[i] != 0L && expires[i] <= now) {
+                    removed.add(new UUID(most[i], least[i]));
+                    // Backward shift may pull a later entry into slot i; check it again
+                    deleteAt(i);
+                } else {
+                    i++;
+                }
+            }
+            if (most.length > MIN_CAPACITY && size < most.length * MAX_LOAD / 4) {
+                resize(Math.max(MIN_CAPACITY, Integer.highestOneBit((int) (size / MAX_LOAD)) << 1));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return removed;
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            allocate(MIN_CAPACITY);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Approximate heap used by the table arrays
+     */
+    public long memoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return 3L * 8L * most.length;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Expiry for the uuid, or -1 if absent. Safe to run racy under an optimistic read.
+    private long find(UUID uuid) {
+        long[] m = most, l = least, e = expires;
+        // Mid-resize snapshot; validate() will fail and the caller retries under the read lock
+        if (l.length != m.length || e.length != m.length) return -1;
+        long hi = uuid.getMostSignificantBits();
+        long lo = uuid.getLeastSignificantBits();
+        int mask = m.length - 1;
+        int i = hash(hi, lo) & mask;
+        for (int probes = 0; probes < m.length; probes++) {
+            long slotHi = m[i], slotLo = l[i];
+            if (slotHi == 0L && slotLo == 0L) return -1;
+            if (slotHi == hi && slotLo == lo) return e[i];
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotOf(long hi, long lo) {
+        int mask = most.length - 1;
+        int i = hash(hi, lo) & mask;
+        while (!isEmpty(i)) {
+            if (most[i] == hi && least[i] == lo) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long hi, long lo, long expiry) {
+        int mask = most.length - 1;
+        int i = hash(hi, lo) & mask;
+        while (!isEmpty(i)) {
+            if (most[i] == hi && least[i] == lo) {
+                expires[i] = expiry;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        most[i] = hi;
+        least[i] = lo;
+        expires[i] = expiry;
+        size++;
+    }
+
+    // Backward-shift deletion for linear probing
+    private void deleteAt(int slot) {
+        int mask = most.length - 1;
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        while (!isEmpty(i)) {
+            int home = hash(most[i], least[i]) & mask;
+            // Move the entry into the hole if its home slot is not between the hole and i (cyclically)
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                most[hole] = most[i];
+                least[hole] = least[i];
+                expires[hole] = expires[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        most[hole] = 0L;
+        least[hole] = 0L;
+        expires[hole] = 0L;
+        size--;
+    }
+
+    private boolean isEmpty(int i) {
+        return most[i] == 0L && least[i] == 0L;
+    }
+
+    private void resize(int capacity) {
+        long[] oldMost = most, oldLeast = least, oldExpires = expires;
+        allocate(capacity);
+        for (int i = 0; i < oldMost.length; i++) {
+            if (oldMost[i] != 0L || oldLeast[i] != 0L) {
+                insert(oldMost[i], oldLeast[i], oldExpires[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        most = new long[capacity];
+        least = new long[capacity];
+        expires = new long[capacity];
+        size = 0;
+    }
+
+    private static int hash(long hi, long lo) {
+        long h = hi ^ lo;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,178 @@
+package Echostudios.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The chat options from messages.yml, read once per load. Formats are split around their placeholder and
+ * colorized ahead of time, every known bracket tag is compiled into one {@link TagMatcher} and permissions
+ * are stored the way Bukkit looks them up, so a chat message never walks the YAML tree. Immutable; EchoCore
+ * swaps in a new one on reload, so chat threads see either the old settings or the new ones, never a mix.
+ */
+public final class ChatSettings {
+
+    /**
+     * A format with one placeholder, colorized on either side of it
+     */
+    public record Template(String before, String after) {
+        static Template compile(String format, String placeholder) {
+            int at = format.indexOf(placeholder);
+            if (at < 0) return new Template(Utils.colorize(format), "");
+            return new Template(Utils.colorize(format.substring(0, at)), Utils.colorize(format.substring(at + placeholder.length())));
+        }
+
+        public String apply(String value) {
+            return before + value + after;
+        }
+    }
+
+    /**
+     * A custom-commands entry: {@code color} is already colorized, {@code message} still has {player}
+     */
+    public record CustomCommand(String name, String permission, String message, String color) {
+    }
+
+    private final boolean tagsEnabled;
+    private final boolean autoTagEnabled;
+    private final Template tagFormat;
+    private final Template autoTagFormat;
+    private final boolean itemTagsEnabled;
+    private final String itemTagsPermission;
+    private final String chatHeader;
+    private final boolean chatHeaderPlaceholders;
+    private final String noPermissionMessage;
+    private final Map<String, CustomCommand> customCommands;
+    private final List<String> customCommandTags;
+    private final TagMatcher<String> tags;
+
+    private ChatSettings(FileConfiguration messages, String noPermissionMessage) {
+        this.tagsEnabled = messages.getBoolean("chat.tags.enabled", true);
+        this.autoTagEnabled = messages.getBoolean("chat.tags.auto-tag-enabled", true);
+        this.tagFormat = Template.compile(messages.getString("chat.tags.format", "&b@{player}&r"), "{player}");
+        this.autoTagFormat = Template.compile(messages.getString("chat.tags.auto-tag-format", "&b@{player}&r"), "{player}");
+        this.itemTagsEnabled = messages.getBoolean("chat.item-tags.enabled", true);
+        this.itemTagsPermission = permission(messages.getString("chat.item-tags.permission", "echocore.chat.itemtags"));
+        String chatFormat = messages.getString("chat.format", "&7<&e{player}&7> &f{message}");
+        int messageAt = chatFormat.indexOf("{message}");
+        this.chatHeader = messageAt < 0 ? chatFormat : chatFormat.substring(0, messageAt);
+        this.chatHeaderPlaceholders = chatHeader.indexOf('%') >= 0;
+        this.noPermissionMessage = noPermissionMessage;
+
+        Map<String, CustomCommand> commands = new LinkedHashMap<>();
+        ConfigurationSection section = messages.getConfigurationSection("custom-commands");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                ConfigurationSection custom = section.getConfigurationSection(key);
+                if (custom == null) continue;
+                String name = custom.getString("name", key);
+                // The first entry with a name wins, as it did when they were searched in order
+                commands.putIfAbsent(name, new CustomCommand(name, permission(custom.getString("permission", "")),
+                        custom.getString("message", ""), Utils.colorize(custom.getString("color", "&b"))));
+            }
+        }
+        this.customCommands = Collections.unmodifiableMap(commands);
+        List<String> tags = new ArrayList<>();
+        for (String name : commands.keySet()) {
+            tags.add("[" + name + "]");
+        }
+        this.customCommandTags = Collections.unmodifiableList(tags);
+
+        // Each tag maps to the name ChatEvents knows it by; [ec] and [inv] come first, then custom commands
+        Map<String, String> names = new LinkedHashMap<>();
+        names.put("ec", "ec");
+        names.put("inv", "inv");
+        for (String name : commands.keySet()) {
+            names.putIfAbsent(name, name);
+        }
+        for (String slot : ItemTagProcessor.getSlotTags()) {
+            names.putIfAbsent(slot, slot);
+        }
+        this.tags = new TagMatcher<>(names);
+    }
+
+    public static ChatSettings load(FileConfiguration messages, String noPermissionMessage) {
+        return new ChatSettings(messages, noPermissionMessage);
+    }
+
+    // Bukkit lowercases a node before every lookup; doing it here lets those calls find it already lowercase
+    private static String permission(String node) {
+        return node == null ? "" : node.toLowerCase(Locale.ROOT).intern();
+    }
+
+    public boolean tagsEnabled() {
+        return tagsEnabled;
+    }
+
+    public boolean autoTagEnabled() {
+        return autoTagEnabled;
+    }
+
+    public Template tagFormat() {
+        return tagFormat;
+    }
+
+    public Template autoTagFormat() {
+        return autoTagFormat;
+    }
+
+    public boolean itemTagsEnabled() {
+        return itemTagsEnabled;
+    }
+
+    /**
+     * Empty when item tags need no permission
+     */
+    public String itemTagsPermission() {
+        return itemTagsPermission;
+    }
+
+    /**
+     * The chat format up to {message}, still with {player} and uncolored
+     */
+    public String chatHeader() {
+        return chatHeader;
+    }
+
+    /**
+     * Whether the header may hold PlaceholderAPI placeholders, which can differ from one message to the next
+     */
+    public boolean chatHeaderPlaceholders() {
+        return chatHeaderPlaceholders;
+    }
+
+    /**
+     * Already prefixed and colorized
+     */
+    public String noPermissionMessage() {
+        return noPermissionMessage;
+    }
+
+    /**
+     * The custom command for a tag name, or null
+     */
+    public CustomCommand customCommand(String tag) {
+        return customCommands.get(tag);
+    }
+
+    /**
+     * [ec], [inv], custom commands and item slots, each matching to its name
+     */
+    public TagMatcher<String> tags() {
+        return tags;
+    }
+
+    /**
+     * Every custom command as its {@code [name]} tag, for tab completion
+     */
+    public Collection<String> customCommandTags() {
+        return customCommandTags;
+    }
+}
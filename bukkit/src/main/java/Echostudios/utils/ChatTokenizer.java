@@ -0,0 +1,202 @@
+package Echostudios.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Splits a chat message into tokens in one left-to-right scan, so the chat pipeline never searches or
+ * rewrites the whole string again. Recognises {@code [tag]}s as found by a {@link TagMatcher}, {@code @mentions}
+ * (and bare online names when auto-tagging), and, when colors are allowed, {@code &} codes, {@code &#RRGGBB} /
+ * {@code #RRGGBB} hex colors, {@code <gradient:a:b:text>} and a literal {@code \n}. Everything else is TEXT.
+ * Holds no state; any thread.
+ */
+public final class ChatTokenizer {
+
+    public enum Type {
+        /** Plain text; {@code value} is what to show */
+        TEXT,
+        /** A color or format code; {@code value} is the legacy {@code §} sequence */
+        COLOR,
+        /** {@code [name]}; {@code value} is the name the matcher gave a known tag, otherwise the text inside the brackets */
+        TAG,
+        /** {@code @name} or an auto-tagged name; {@code value} is the online player's name, or null if nobody matched */
+        MENTION
+    }
+
+    /**
+     * @param source the characters of the message this token came from
+     */
+    public record Token(Type type, String value, String source) {
+        public boolean explicit() {
+            return type == Type.MENTION && source.startsWith("@");
+        }
+    }
+
+    private static final String LEGACY_CODES = "0123456789abcdefklmnorx";
+    private static final String GRADIENT_START = "<gradient:";
+
+    private ChatTokenizer() {
+    }
+
+    /**
+     * @param colors whether color codes are read; otherwise they stay TEXT
+     * @param onlineName maps a typed name to an online player's name, or null to read no mentions
+     * @param autoTag whether a word that is exactly an online player's name is a mention without the {@code @}
+     * @param tags the known tags
+     */
+    public static List<Token> tokenize(String message, boolean colors, Function<String, String> onlineName, boolean autoTag,
+                                       TagMatcher<String> tags) {
+        List<Token> tokens = new ArrayList<>();
+        List<TagMatcher.Match<String>> found = tags.find(message);
+        int nextTag = 0;
+        int length = message.length();
+        int textStart = 0;
+        int i = 0;
+        while (i < length) {
+            char c = message.charAt(i);
+            boolean wordStart = i == 0 || message.charAt(i - 1) == ' ';
+
+            if (onlineName != null && wordStart && c != ' ') {
+                int end = message.indexOf(' ', i);
+                if (end < 0) end = length;
+                if (c == '@') {
+                    String name = end - i > 1 ? onlineName.apply(message.substring(i + 1, end)) : null;
+                    i = emit(tokens, message, textStart, i, end, new Token(Type.MENTION, name, message.substring(i, end)));
+                    textStart = i;
+                    continue;
+                }
+                if (autoTag) {
+                    String word = message.substring(i, end);
+                    String name = onlineName.apply(word);
+                    if (word.equals(name)) {
+                        i = emit(tokens, message, textStart, i, end, new Token(Type.MENTION, name, word));
+                        textStart = i;
+                        continue;
+                    }
+                }
+            }
+
+            if (c == '[') {
+                // Tags inside a mention or color code were passed over
+                while (nextTag < found.size() && found.get(nextTag).start() < i) nextTag++;
+                if (nextTag < found.size() && found.get(nextTag).start() == i) {
+                    TagMatcher.Match<String> tag = found.get(nextTag++);
+                    String name = tag.value() != null ? tag.value() : tag.name(message);
+                    i = emit(tokens, message, textStart, i, tag.end(), new Token(Type.TAG, name, message.substring(i, tag.end())));
+                    textStart = i;
+                    continue;
+                }
+            }
+
+            if (colors) {
+                int end = colorEnd(message, i);
+                if (end > i) {
+                    i = emit(tokens, message, textStart, i, end, new Token(Type.COLOR, legacy(message, i, end), message.substring(i, end)));
+                    textStart = i;
+                    continue;
+                }
+                if (c == '\\' && i + 1 < length && message.charAt(i + 1) == 'n') {
+                    i = emit(tokens, message, textStart, i, i + 2, new Token(Type.TEXT, "\n", "\\n"));
+                    textStart = i;
+                    continue;
+                }
+                if (c == '<' && message.startsWith(GRADIENT_START, i)) {
+                    int gradientEnd = gradient(message, i, null);
+                    if (gradientEnd > i) {
+                        if (textStart < i) tokens.add(text(message, textStart, i));
+                        gradient(message, i, tokens);
+                        i = gradientEnd;
+                        textStart = i;
+                        continue;
+                    }
+                }
+            }
+            i++;
+        }
+        if (textStart < length) tokens.add(text(message, textStart, length));
+        return tokens;
+    }
+
+    // Adds the pending text before start and then the token; returns where scanning continues
+    private static int emit(List<Token> tokens, String message, int textStart, int start, int end, Token token) {
+        if (textStart < start) tokens.add(text(message, textStart, start));
+        tokens.add(token);
+        return end;
+    }
+
+    private static Token text(String message, int start, int end) {
+        String text = message.substring(start, end);
+        return new Token(Type.TEXT, text, text);
+    }
+
+    // End of an &c, &#RRGGBB or #RRGGBB code at i, or i if there is none
+    private static int colorEnd(String message, int i) {
+        char c = message.charAt(i);
+        if (c == '&' && i + 1 < message.length()) {
+            char code = Character.toLowerCase(message.charAt(i + 1));
+            if (code == '#' && isHex(message, i + 2)) return i + 8;
+            if (LEGACY_CODES.indexOf(code) >= 0) return i + 2;
+        }
+        if (c == '#' && isHex(message, i + 1)) return i + 7;
+        return i;
+    }
+
+    private static boolean isHex(String message, int from) {
+        if (from + 6 > message.length()) return false;
+        for (int i = from; i < from + 6; i++) {
+            if (Character.digit(message.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static String legacy(String message, int start, int end) {
+        int hash = message.indexOf('#', start);
+        if (hash >= 0 && hash < end) return hex(message, hash + 1);
+        return "§" + Character.toLowerCase(message.charAt(start + 1));
+    }
+
+    private static String hex(String message, int from) {
+        StringBuilder out = new StringBuilder(14).append("§x");
+        for (int i = from; i < from + 6; i++) {
+            out.append('§').append(Character.toLowerCase(message.charAt(i)));
+        }
+        return out.toString();
+    }
+
+    /**
+     * {@code <gradient:a:b:text>} alternates the two colors per character, skipping spaces. Each color is a
+     * legacy code or a hex color. Returns the end of the gradient, or start if it is malformed; adds its
+     * tokens when given a list.
+     */
+    private static int gradient(String message, int start, List<Token> tokens) {
+        int first = start + GRADIENT_START.length();
+        int second = message.indexOf(':', first) + 1;
+        int content = second > 0 ? message.indexOf(':', second) + 1 : 0;
+        int end = content > 0 ? message.indexOf('>', content) : -1;
+        if (end < 0 || end == content) return start;
+        String from = gradientColor(message.substring(first, second - 1));
+        String to = gradientColor(message.substring(second, content - 1));
+        if (from == null || to == null) return start;
+        if (tokens != null) {
+            for (int i = content; i < end; i++) {
+                String character = String.valueOf(message.charAt(i));
+                if (!character.equals(" ")) {
+                    String color = (i - content) % 2 == 0 ? from : to;
+                    tokens.add(new Token(Type.COLOR, color, ""));
+                }
+                tokens.add(new Token(Type.TEXT, character, character));
+            }
+        }
+        return end + 1;
+    }
+
+    private static String gradientColor(String spec) {
+        String hex = spec.startsWith("#") ? spec.substring(1) : spec;
+        if (hex.length() == 6 && isHex(hex, 0)) return hex(hex, 0);
+        if (spec.length() == 1 && LEGACY_CODES.indexOf(Character.toLowerCase(spec.charAt(0))) >= 0) {
+            return "§" + Character.toLowerCase(spec.charAt(0));
+        }
+        return null;
+    }
+}
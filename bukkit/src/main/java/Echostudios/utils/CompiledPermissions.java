@@ -0,0 +1,435 @@
+package Echostudios.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable snapshot of permissions.yml for permission checks. Every group's list is a
+ * {@link PermissionTrie}, and every user gets a pre-flattened chain of tries in resolution
+ * order: their own permissions, their groups by weight (each followed by its inherited groups,
+ * depth-first), then the default group. A check walks the chain until a trie has a match.
+ * Temporary entries still active at compile time are included, after the permanent ones.
+ * <p>
+ * Entries may carry contexts, e.g. {@code [world=nether,server=lobby]-essentials.fly}. The server
+ * context is fixed per instance and applied here. Every world named in some entry gets its own
+ * view, with a chain built from the entries that apply there; view 0 serves every other world.
+ * Views that come out identical share one chain. {@link PermissionsManager} swaps in a new
+ * snapshot whenever the file changes, made by {@link #update} from the previous one when only
+ * a few users or groups changed.
+ */
+public final class CompiledPermissions {
+
+    public static final CompiledPermissions EMPTY = new CompiledPermissions(null, new String[1], Collections.emptyMap(),
+            Collections.emptyMap(), Collections.emptySet(), new PermissionTrie[][]{new PermissionTrie[0]}, new String[0],
+            new TreeMap<>(String.CASE_INSENSITIVE_ORDER), new TreeMap<>(String.CASE_INSENSITIVE_ORDER),
+            new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+
+    // What update() needs to compile more users against this snapshot: the server context,
+    // the world of each view (null for view 0) and every group
+    private final String server;
+    private final String[] viewWorlds;
+    private final Map<String, Group> groups;
+    // Lowercased world name to view; worlds no entry mentions use view 0
+    private final Map<String, Integer> worldViews;
+    // The default group and its parents, in resolution order
+    private final Set<String> defaultGroups;
+    private final PermissionTrie[][] defaultViews;
+    private final String[] defaultGrants;
+    // Per user, one chain per view
+    private final Map<String, PermissionTrie[][]> users;
+    // Every group a user's resolution passes through, for targeted cache invalidation and updates
+    private final Map<String, Set<String>> userGroups;
+    // Allow entries of each chain, contexts stripped; nothing outside them can resolve to true
+    private final Map<String, String[]> userGrants;
+
+    private CompiledPermissions(String server, String[] viewWorlds, Map<String, Group> groups,
+                                Map<String, Integer> worldViews, Set<String> defaultGroups,
+                                PermissionTrie[][] defaultViews, String[] defaultGrants,
+                                Map<String, PermissionTrie[][]> users, Map<String, Set<String>> userGroups,
+                                Map<String, String[]> userGrants) {
+        this.server = server;
+        this.viewWorlds = viewWorlds;
+        this.groups = groups;
+        this.worldViews = worldViews;
+        this.defaultGroups = defaultGroups;
+        this.defaultViews = defaultViews;
+        this.defaultGrants = defaultGrants;
+        this.users = users;
+        this.userGroups = userGroups;
+        this.userGrants = userGrants;
+    }
+
+    /**
+     * @param server this instance's server context; entries for other servers are left out
+     */
+    public static CompiledPermissions compile(ConfigurationSection root, String server) {
+        long now = System.currentTimeMillis();
+
+        // Parse everything first: the views depend on every world mentioned anywhere
+        Set<String> worlds = new LinkedHashSet<>();
+        Map<String, ParsedGroup> parsedGroups = new HashMap<>();
+        ConfigurationSection groupSection = root.getConfigurationSection("groups");
+        if (groupSection != null) {
+            for (String group : groupSection.getKeys(false)) {
+                parsedGroups.put(group, parseGroup(groupSection, group, server, worlds));
+            }
+        }
+        Map<String, ParsedUser> parsedUsers = new HashMap<>();
+        ConfigurationSection userSection = root.getConfigurationSection("users");
+        if (userSection != null) {
+            for (String user : userSection.getKeys(false)) {
+                // Entries are written under the lowercased name; other keys were never read
+                if (!user.equals(user.toLowerCase())) continue;
+                parsedUsers.put(user, parseUser(userSection, user, server, now, worlds));
+            }
+        }
+
+        Map<String, Integer> worldViews = new HashMap<>();
+        String[] viewWorlds = new String[worlds.size() + 1];
+        for (String world : worlds) {
+            worldViews.put(world, worldViews.size() + 1);
+            viewWorlds[worldViews.size()] = world;
+        }
+
+        Map<String, Group> groups = new HashMap<>();
+        for (Map.Entry<String, ParsedGroup> group : parsedGroups.entrySet()) {
+            groups.put(group.getKey(), group.getValue().compile(viewWorlds));
+        }
+        Map<String, List<String>> groupChains = new HashMap<>();
+        Set<String> defaults = new LinkedHashSet<>(groupChain("default", groups, groupChains));
+        Set<String> defaultGrants = new LinkedHashSet<>();
+        for (String group : defaults) {
+            addGrants(groups.get(group), defaultGrants);
+        }
+
+        // Names are matched case-insensitively without lowercasing on every check
+        Map<String, PermissionTrie[][]> users = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, Set<String>> userGroups = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, String[]> userGrants = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, ParsedUser> user : parsedUsers.entrySet()) {
+            link(user.getKey(), user.getValue(), groups, defaults, groupChains, viewWorlds, users, userGroups, userGrants);
+        }
+        return new CompiledPermissions(server, viewWorlds, groups, worldViews, defaults,
+                chainViews(null, defaults, groups, viewWorlds.length), defaultGrants.toArray(new String[0]),
+                users, userGroups, userGrants);
+    }
+
+    /**
+     * This snapshot with the given groups and users compiled again from {@code root}, which also adds or removes
+     * them. Users whose resolution passes through a changed group are relinked; every other user keeps its chains,
+     * so the cost is a copy of the user maps plus the affected users. Falls back to {@link #compile} when a changed
+     * group is part of the default chain, which every user resolves through, or a changed entry names a world that
+     * has no view yet. Not for {@link #EMPTY}, which has no server context.
+     *
+     * @param changedUsers lowercased names
+     */
+    public CompiledPermissions update(ConfigurationSection root, Collection<String> changedGroups,
+                                      Collection<String> changedUsers) {
+        if (server == null) throw new IllegalStateException("Compile a snapshot before updating it");
+        if (changedGroups.isEmpty() && changedUsers.isEmpty()) return this;
+        for (String group : changedGroups) {
+            if (defaultGroups.contains(group)) return compile(root, server);
+        }
+        long now = System.currentTimeMillis();
+
+        Set<String> worlds = new LinkedHashSet<>();
+        Map<String, ParsedGroup> parsedGroups = new HashMap<>();
+        ConfigurationSection groupSection = root.getConfigurationSection("groups");
+        for (String group : changedGroups) {
+            if (groupSection != null && groupSection.contains(group)) {
+                parsedGroups.put(group, parseGroup(groupSection, group, server, worlds));
+            }
+        }
+        Set<String> relink = new HashSet<>(changedUsers);
+        if (!changedGroups.isEmpty()) {
+            for (Map.Entry<String, Set<String>> user : userGroups.entrySet()) {
+                if (!Collections.disjoint(user.getValue(), changedGroups)) relink.add(user.getKey());
+            }
+        }
+        Map<String, ParsedUser> parsedUsers = new HashMap<>();
+        ConfigurationSection userSection = root.getConfigurationSection("users");
+        for (String user : relink) {
+            // The maps ignore case, so another spelling would replace the lowercased user
+            if (!user.equals(user.toLowerCase())) continue;
+            parsedUsers.put(user, userSection != null && userSection.contains(user)
+                    ? parseUser(userSection, user, server, now, worlds) : null);
+        }
+        if (!worldViews.keySet().containsAll(worlds)) return compile(root, server);
+
+        Map<String, Group> groups = this.groups;
+        if (!changedGroups.isEmpty()) {
+            groups = new HashMap<>(this.groups);
+            for (String group : changedGroups) {
+                ParsedGroup parsed = parsedGroups.get(group);
+                if (parsed != null) groups.put(group, parsed.compile(viewWorlds)); else groups.remove(group);
+            }
+        }
+        Map<String, PermissionTrie[][]> users = copyOf(this.users);
+        Map<String, Set<String>> userGroups = copyOf(this.userGroups);
+        Map<String, String[]> userGrants = copyOf(this.userGrants);
+        Map<String, List<String>> groupChains = new HashMap<>();
+        for (Map.Entry<String, ParsedUser> user : parsedUsers.entrySet()) {
+            if (user.getValue() == null) {
+                users.remove(user.getKey());
+                userGroups.remove(user.getKey());
+                userGrants.remove(user.getKey());
+            } else {
+                link(user.getKey(), user.getValue(), groups, defaultGroups, groupChains, viewWorlds,
+                        users, userGroups, userGrants);
+            }
+        }
+        return new CompiledPermissions(server, viewWorlds, groups, worldViews, defaultGroups, defaultViews,
+                defaultGrants, users, userGroups, userGrants);
+    }
+
+    // Sorted by the same comparator, so the copy is built in linear time
+    private static <V> Map<String, V> copyOf(Map<String, V> map) {
+        Map<String, V> copy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        copy.putAll(map);
+        return copy;
+    }
+
+    /**
+     * A group's own list, parents and weight, before the views are known
+     */
+    private record ParsedGroup(List<Entry> entries, List<String> inherits, int weight) {
+
+        Group compile(String[] viewWorlds) {
+            Set<String> grants = new LinkedHashSet<>();
+            addGrants(entries, grants);
+            return new Group(compileViews(entries, viewWorlds), inherits, weight, grants.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * One group: a trie per view, its parents, its weight and its allow entries
+     */
+    private record Group(PermissionTrie[] views, List<String> inherits, int weight, String[] grants) {
+    }
+
+    /**
+     * A user's own entries, active temporary ones appended, and groups with active temporary ones, unsorted
+     */
+    private record ParsedUser(List<Entry> entries, List<String> groups) {
+    }
+
+    private static ParsedGroup parseGroup(ConfigurationSection section, String group, String server, Set<String> worlds) {
+        return new ParsedGroup(parse(section.getStringList(group + ".permissions"), server, worlds),
+                section.getStringList(group + ".inherits"), section.getInt(group + ".meta.weight", 0));
+    }
+
+    private static ParsedUser parseUser(ConfigurationSection section, String user, String server, long now,
+                                        Set<String> worlds) {
+        List<String> ownPermissions = new ArrayList<>(section.getStringList(user + ".permissions"));
+        List<String> groupsOfUser = new ArrayList<>(section.getStringList(user + ".groups"));
+        // Appended, so an active temporary entry overrides the permanent one for the same node
+        for (TemporaryEntry temp : TemporaryEntry.read(section, user + ".temp-permissions")) {
+            if (temp.isActive(now)) ownPermissions.add(temp.value());
+        }
+        for (TemporaryEntry temp : TemporaryEntry.read(section, user + ".temp-groups")) {
+            if (temp.isActive(now) && !groupsOfUser.contains(temp.value())) groupsOfUser.add(temp.value());
+        }
+        return new ParsedUser(parse(ownPermissions, server, worlds), groupsOfUser);
+    }
+
+    // Compile one user's chains against the groups and put them into the three maps
+    private static void link(String user, ParsedUser parsed, Map<String, Group> groups, Set<String> defaults,
+                             Map<String, List<String>> groupChains, String[] viewWorlds,
+                             Map<String, PermissionTrie[][]> users, Map<String, Set<String>> userGroups,
+                             Map<String, String[]> userGrants) {
+        List<String> direct = new ArrayList<>(parsed.groups());
+        direct.sort((a, b) -> Integer.compare(weightOf(groups, b), weightOf(groups, a)));
+        // Each group by weight followed by its parents, then default; a group seen earlier is skipped
+        Set<String> resolved = new LinkedHashSet<>();
+        for (String group : direct) {
+            resolved.addAll(groupChain(group, groups, groupChains));
+        }
+        resolved.addAll(defaults);
+        PermissionTrie[] own = compileViews(parsed.entries(), viewWorlds);
+        users.put(user, chainViews(own, resolved, groups, viewWorlds.length));
+        userGroups.put(user, resolved);
+        Set<String> grants = new LinkedHashSet<>();
+        addGrants(parsed.entries(), grants);
+        for (String group : resolved) {
+            addGrants(groups.get(group), grants);
+        }
+        userGrants.put(user, grants.toArray(new String[0]));
+    }
+
+    private static int weightOf(Map<String, Group> groups, String group) {
+        Group compiled = groups.get(group);
+        return compiled != null ? compiled.weight() : 0;
+    }
+
+    /**
+     * One entry as PermissionTrie takes it, and the world it is limited to (null for every world)
+     */
+    private record Entry(String value, String world) {
+    }
+
+    private static List<Entry> parse(List<String> raw, String server, Set<String> worlds) {
+        List<Entry> entries = new ArrayList<>(raw.size());
+        for (String line : raw) {
+            String value = line.trim();
+            String world = null;
+            boolean applies = true;
+            int end = value.startsWith("[") ? value.indexOf(']') : -1;
+            if (end > 0) {
+                for (String context : value.substring(1, end).split(",")) {
+                    int eq = context.indexOf('=');
+                    if (eq < 0) continue;
+                    String key = context.substring(0, eq).trim().toLowerCase();
+                    String contextValue = context.substring(eq + 1).trim().toLowerCase();
+                    switch (key) {
+                        case "world" -> world = contextValue;
+                        case "server" -> applies &= contextValue.equalsIgnoreCase(server);
+                        // Unknown contexts are never satisfied
+                        default -> applies = false;
+                    }
+                }
+                value = value.substring(end + 1).trim();
+            }
+            if (!applies) continue;
+            if (world != null) worlds.add(world);
+            entries.add(new Entry(value, world));
+        }
+        return entries;
+    }
+
+    // One trie per view; a list without world entries compiles once and is shared by all views
+    private static PermissionTrie[] compileViews(List<Entry> entries, String[] viewWorlds) {
+        PermissionTrie[] views = new PermissionTrie[viewWorlds.length];
+        boolean contextual = entries.stream().anyMatch(e -> e.world() != null);
+        for (int view = 0; view < viewWorlds.length; view++) {
+            if (!contextual && view > 0) {
+                views[view] = views[0];
+                continue;
+            }
+            // Order is kept, so the last matching entry still wins
+            List<String> values = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                if (entry.world() == null || entry.world().equals(viewWorlds[view])) values.add(entry.value());
+            }
+            views[view] = PermissionTrie.compile(values);
+        }
+        return views;
+    }
+
+    private static PermissionTrie[][] chainViews(PermissionTrie[] own, Iterable<String> chainGroups,
+                                                 Map<String, Group> groups, int viewCount) {
+        PermissionTrie[][] chains = new PermissionTrie[viewCount][];
+        for (int view = 0; view < viewCount; view++) {
+            List<PermissionTrie> chain = new ArrayList<>();
+            if (own != null && !own[view].isEmpty()) chain.add(own[view]);
+            for (String name : chainGroups) {
+                Group group = groups.get(name);
+                if (group != null && !group.views()[view].isEmpty()) chain.add(group.views()[view]);
+            }
+            PermissionTrie[] array = chain.toArray(new PermissionTrie[0]);
+            // Most users have no world-specific entries anywhere in their chain
+            chains[view] = view > 0 && Arrays.equals(array, chains[0]) ? chains[0] : array;
+        }
+        return chains;
+    }
+
+    // A group followed by its parents, depth-first, each group once
+    private static List<String> groupChain(String group, Map<String, Group> groups,
+                                           Map<String, List<String>> cache) {
+        List<String> chain = cache.get(group);
+        if (chain == null) {
+            Set<String> visited = new LinkedHashSet<>();
+            collect(group, groups, visited);
+            chain = new ArrayList<>(visited);
+            cache.put(group, chain);
+        }
+        return chain;
+    }
+
+    private static void collect(String group, Map<String, Group> groups, Set<String> visited) {
+        if (!visited.add(group)) return; // prevent cycles
+        Group compiled = groups.get(group);
+        if (compiled == null) return;
+        for (String parent : compiled.inherits()) {
+            collect(parent, groups, visited);
+        }
+    }
+
+    // Allow entries, normalized like PermissionTrie.compile
+    private static void addGrants(List<Entry> entries, Set<String> out) {
+        for (Entry entry : entries) {
+            if (!entry.value().startsWith("-")) out.add(entry.value().toLowerCase());
+        }
+    }
+
+    private static void addGrants(Group group, Set<String> out) {
+        if (group != null) Collections.addAll(out, group.grants());
+    }
+
+    /**
+     * Check in view 0, for players whose world no entry mentions (or callers without a world)
+     */
+    public boolean hasPermission(String name, String node) {
+        return check(chains(name)[0], node);
+    }
+
+    /**
+     * @param world the player's lowercased world name, or null
+     */
+    public boolean hasPermission(String name, String world, String node) {
+        return check(chains(name)[viewOf(world)], node);
+    }
+
+    /**
+     * The view for a lowercased world name; fixed for the life of this snapshot
+     */
+    public int viewOf(String world) {
+        if (world == null || worldViews.isEmpty()) return 0;
+        Integer view = worldViews.get(world);
+        return view != null ? view : 0;
+    }
+
+    private PermissionTrie[][] chains(String name) {
+        PermissionTrie[][] chains = users.get(name);
+        return chains != null ? chains : defaultViews;
+    }
+
+    private static boolean check(PermissionTrie[] chain, String node) {
+        for (PermissionTrie trie : chain) {
+            int result = trie.lookup(node);
+            if (result != PermissionTrie.UNSET) return PermissionTrie.isAllowed(result);
+        }
+        return false;
+    }
+
+    /**
+     * Whether the group (directly or through inheritance) takes part in resolving this user
+     */
+    public boolean dependsOn(String name, String group) {
+        Set<String> groups = userGroups.get(name);
+        return (groups != null ? groups : defaultGroups).contains(group);
+    }
+
+    /**
+     * Lowercased allow entries ({@code node}, {@code prefix.*} or {@code *}) anywhere in the user's chain,
+     * in any world. Only nodes matching one of them can resolve to true.
+     */
+    public String[] grantPatterns(String name) {
+        String[] grants = userGrants.get(name);
+        return grants != null ? grants : defaultGrants;
+    }
+
+    public int getUserCount() {
+        return users.size();
+    }
+}
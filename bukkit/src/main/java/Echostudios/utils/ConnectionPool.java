@@ -0,0 +1,176 @@
+package Echostudios.utils;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool used by {@link DatabaseManager}.
+ * MySQL gets a real multi-connection pool; SQLite is kept in single-writer mode
+ * (one pooled connection) because the file only accepts one writer at a time.
+ */
+public class ConnectionPool {
+
+    private final HikariDataSource dataSource;
+    private final boolean singleWriter;
+
+    // Wait-time metrics for getConnection()
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private ConnectionPool(HikariConfig config, boolean singleWriter) {
+        this.singleWriter = singleWriter;
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    /**
+     * Create a pool for a MySQL server
+     */
+    public static ConnectionPool mysql(String host, int port, String database, String username, String password,
+                                       boolean useSsl, Settings settings) {
+        HikariConfig config = baseConfig("EchoCore-MySQL", settings);
+        config.setJdbcUrl(String.format("jdbc:mysql://%s:%d/%s?useSSL=%s&useUnicode=true&characterEncoding=UTF-8",
+                host, port, database, useSsl));
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(settings.maxConnections);
+        config.setMinimumIdle(Math.min(settings.minimumIdle, settings.maxConnections));
+
+        // Driver-side statement caching, see MySQL Connector/J performance notes
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return new ConnectionPool(config, false);
+    }
+
+    /**
+     * Create a single-writer pool for a SQLite database file
+     */
+    public static ConnectionPool sqlite(String filePath, Settings settings) throws SQLException {
+        HikariConfig config = baseConfig("EchoCore-SQLite", settings);
+        config.setJdbcUrl("jdbc:sqlite:" + filePath);
+        config.setMaximumPoolSize(1);
+        config.setMinimumIdle(1);
+        // Both are per-connection, so they must be set on every connection the pool opens, not just the first.
+        // Hikari runs the init SQL through Statement.execute, which sqlite-jdbc stops after one statement,
+        // so synchronous goes in as a driver property that the driver applies when it opens the connection.
+        config.setConnectionInitSql("PRAGMA busy_timeout = " + settings.connectionTimeoutMillis);
+        config.addDataSourceProperty("synchronous", "NORMAL");
+
+        ConnectionPool pool = new ConnectionPool(config, true);
+        try (Connection connection = pool.getConnection(); Statement stmt = connection.createStatement()) {
+            // WAL keeps readers from blocking on the single writer; it is stored in the file, so once is enough
+            stmt.execute("PRAGMA journal_mode = WAL");
+        } catch (SQLException | RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+        return pool;
+    }
+
+    private static HikariConfig baseConfig(String poolName, Settings settings) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setConnectionTimeout(settings.connectionTimeoutMillis);
+        config.setIdleTimeout(settings.idleTimeoutMillis);
+        config.setMaxLifetime(settings.maxLifetimeMillis);
+        config.setKeepaliveTime(settings.keepaliveMillis);
+        config.setLeakDetectionThreshold(settings.leakDetectionMillis);
+        // Health check: JDBC4 Connection.isValid() is used when no test query is set
+        config.setValidationTimeout(Math.min(5000L, settings.connectionTimeoutMillis));
+        return config;
+    }
+
+    /**
+     * Borrow a connection from the pool. Always close it (try-with-resources) to return it.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return dataSource.getConnection();
+        } finally {
+            long waited = System.nanoTime() - start;
+            acquisitions.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    public boolean isSingleWriter() {
+        return singleWriter;
+    }
+
+    public boolean isClosed() {
+        return dataSource.isClosed();
+    }
+
+    public void close() {
+        if (!dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Snapshot of the pool size and wait-time metrics
+     */
+    public Stats getStats() {
+        HikariPoolMXBean mx = dataSource.getHikariPoolMXBean();
+        long count = acquisitions.sum();
+        long avgWait = count == 0 ? 0 : totalWaitNanos.sum() / count;
+        return new Stats(
+                mx != null ? mx.getActiveConnections() : 0,
+                mx != null ? mx.getIdleConnections() : 0,
+                mx != null ? mx.getTotalConnections() : 0,
+                mx != null ? mx.getThreadsAwaitingConnection() : 0,
+                dataSource.getMaximumPoolSize(),
+                count,
+                TimeUnit.NANOSECONDS.toMicros(avgWait),
+                TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get())
+        );
+    }
+
+    public record Stats(int active, int idle, int total, int awaiting, int maxSize,
+                        long acquisitions, long avgWaitMicros, long maxWaitMicros) {
+
+        @Override
+        public String toString() {
+            return "active=" + active + ", idle=" + idle + ", total=" + total + "/" + maxSize
+                    + ", awaiting=" + awaiting + ", acquisitions=" + acquisitions
+                    + ", avgWait=" + avgWaitMicros + "us, maxWait=" + maxWaitMicros + "us";
+        }
+    }
+
+    /**
+     * Pool tuning read from the database.connection section of server.yml
+     */
+    public static class Settings {
+        public final int maxConnections;
+        public final int minimumIdle;
+        public final long connectionTimeoutMillis;
+        public final long idleTimeoutMillis;
+        public final long maxLifetimeMillis;
+        public final long keepaliveMillis;
+        public final long leakDetectionMillis;
+
+        public Settings(int maxConnections, int minimumIdle, long connectionTimeoutMillis, long idleTimeoutMillis,
+                        long maxLifetimeMillis, long keepaliveMillis, long leakDetectionMillis) {
+            this.maxConnections = Math.max(1, maxConnections);
+            this.minimumIdle = Math.max(0, minimumIdle);
+            this.connectionTimeoutMillis = Math.max(250L, connectionTimeoutMillis);
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            this.maxLifetimeMillis = maxLifetimeMillis;
+            this.keepaliveMillis = keepaliveMillis;
+            this.leakDetectionMillis = leakDetectionMillis;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package Echostudios.utils;
+
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Named, bounded executor for blocking JDBC work so it never runs on the common ForkJoinPool.
+ * Tracks queue wait and execution latency per operation name. When the queue is full the work is
+ * dropped by default; CALLER_RUNS and BLOCK only apply off the main thread, which always drops
+ * rather than running or waiting on JDBC during a tick.
+ */
+public class DatabaseExecutor {
+
+    public enum RejectionPolicy { CALLER_RUNS, BLOCK, ABORT }
+
+    private final Logger logger;
+    private final ThreadPoolExecutor executor;
+    private final RejectionPolicy policy;
+    private final long blockTimeoutMillis;
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicLong lastDropWarning = new AtomicLong();
+
+    // Drops are logged at most this often, with the running total
+    private static final long DROP_WARNING_INTERVAL_MILLIS = 10_000L;
+
+    public DatabaseExecutor(Logger logger, Settings settings) {
+        this.logger = logger;
+        this.policy = settings.policy;
+        this.blockTimeoutMillis = settings.blockTimeoutMillis;
+        this.executor = new ThreadPoolExecutor(
+                settings.threads, settings.threads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(settings.queueSize),
+                threadFactory(settings.virtualThreads),
+                new BackPressureHandler());
+    }
+
+    private static ThreadFactory threadFactory(boolean virtualThreads) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name("EchoCore-DB-", 1).factory();
+        }
+        AtomicInteger counter = new AtomicInteger(1);
+        return runnable -> {
+            Thread thread = new Thread(runnable, "EchoCore-DB-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Run a query on the database executor and complete the future with its result
+     */
+    public <T> CompletableFuture<T> supply(String operation, Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, operation(operation));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Run a statement on the database executor
+     */
+    public CompletableFuture<Void> run(String operation, Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, operation(operation));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Executor view that records queue wait and execution time under the given operation name
+     */
+    public Executor operation(String operation) {
+        OperationStats stats = operations.computeIfAbsent(operation, k -> new OperationStats());
+        return command -> {
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                long started = System.nanoTime();
+                stats.queueWait.record(started - submitted);
+                try {
+                    command.run();
+                } finally {
+                    stats.execution.record(System.nanoTime() - started);
+                }
+            });
+        };
+    }
+
+    /**
+     * Stop accepting work and wait for queued statements to finish
+     */
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                List<Runnable> dropped = executor.shutdownNow();
+                logger.warning("Database executor did not drain in " + timeoutMillis + "ms, dropped "
+                        + dropped.size() + " queued task(s)");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Per-operation latency snapshot, slowest total execution time first
+     */
+    public List<OperationSnapshot> getOperationStats() {
+        List<OperationSnapshot> list = new ArrayList<>();
+        operations.forEach((name, stats) -> list.add(stats.snapshot(name)));
+        list.sort((a, b) -> Long.compare(b.count() * b.avgExecMicros(), a.count() * a.avgExecMicros()));
+        return list;
+    }
+
+    private final class BackPressureHandler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+            if (pool.isShutdown()) {
+                rejected.increment();
+                throw new RejectedExecutionException("Database executor is shut down");
+            }
+            // The server tick must never run or wait on a statement
+            RejectionPolicy effective = Bukkit.isPrimaryThread() ? RejectionPolicy.ABORT : policy;
+            switch (effective) {
+                case CALLER_RUNS -> task.run();
+                case BLOCK -> {
+                    try {
+                        if (!pool.getQueue().offer(task, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                            rejected.increment();
+                            throw new RejectedExecutionException("Database queue full for " + blockTimeoutMillis + "ms");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        rejected.increment();
+                        throw new RejectedExecutionException("Interrupted while waiting for database queue", e);
+                    }
+                }
+                case ABORT -> {
+                    rejected.increment();
+                    warnDropped(pool.getQueue().size());
+                    throw new RejectedExecutionException("Database queue full (" + pool.getQueue().size() + " pending)");
+                }
+            }
+        }
+    }
+
+    private void warnDropped(int pending) {
+        long now = System.currentTimeMillis();
+        long last = lastDropWarning.get();
+        if (now - last < DROP_WARNING_INTERVAL_MILLIS || !lastDropWarning.compareAndSet(last, now)) return;
+        logger.warning("Database queue full (" + pending + " pending), dropping work; "
+                + rejected.sum() + " task(s) dropped so far");
+    }
+
+    private static final class Latency {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        long avgMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / n);
+        }
+
+        long maxMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+        }
+    }
+
+    private static final class OperationStats {
+        private final Latency queueWait = new Latency();
+        private final Latency execution = new Latency();
+
+        OperationSnapshot snapshot(String name) {
+            return new OperationSnapshot(name, execution.count.sum(),
+                    queueWait.avgMicros(), queueWait.maxMicros(),
+                    execution.avgMicros(), execution.maxMicros());
+        }
+    }
+
+    public record OperationSnapshot(String operation, long count, long avgQueueMicros, long maxQueueMicros,
+                                    long avgExecMicros, long maxExecMicros) {
+
+        @Override
+        public String toString() {
+            return operation + ": n=" + count + ", queue avg/max=" + avgQueueMicros + "/" + maxQueueMicros
+                    + "us, exec avg/max=" + avgExecMicros + "/" + maxExecMicros + "us";
+        }
+    }
+
+    /**
+     * Executor tuning read from the database.executor section of server.yml
+     */
+    public static class Settings {
+        public final int threads;
+        public final int queueSize;
+        public final RejectionPolicy policy;
+        public final long blockTimeoutMillis;
+        public final boolean virtualThreads;
+        public final long shutdownTimeoutMillis;
+
+        public Settings(int threads, int queueSize, RejectionPolicy policy, long blockTimeoutMillis,
+                        boolean virtualThreads, long shutdownTimeoutMillis) {
+            this.threads = Math.max(1, threads);
+            this.queueSize = Math.max(1, queueSize);
+            this.policy = policy;
+            this.blockTimeoutMillis = Math.max(0L, blockTimeoutMillis);
+            this.virtualThreads = virtualThreads;
+            this.shutdownTimeoutMillis = Math.max(0L, shutdownTimeoutMillis);
+        }
+
+        public static RejectionPolicy parsePolicy(String value) {
+            if (value == null) return RejectionPolicy.ABORT;
+            return switch (value.toLowerCase().replace('_', '-')) {
+                case "block" -> RejectionPolicy.BLOCK;
+                case "caller-runs" -> RejectionPolicy.CALLER_RUNS;
+                default -> RejectionPolicy.ABORT;
+            };
+        }
+    }
+}
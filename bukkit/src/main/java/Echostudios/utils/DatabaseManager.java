@@ -1,12 +1,20 @@
 package Echostudios.utils;
 
 import Echostudios.EchoCore;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 
 public class DatabaseManager {
@@ -19,8 +27,26 @@ public class DatabaseManager {
     private final String username;
     private final String password;
     private final String tablePrefix;
+    private final boolean useSsl;
+    private final ConnectionPool.Settings poolSettings;
+    private final DatabaseExecutor.Settings executorSettings;
+    private final int writeBehindBatchSize;
+    private final long writeBehindFlushMillis;
+    private final SqlDialect dialect;
+    private final DatabaseQueries queries;
+    private final StatementCache statements;
+    private final PunishmentCache punishments = new PunishmentCache();
+    private final BanIndex banIndex = new BanIndex();
+    private final long banSweepIntervalTicks;
+    private final SessionCache sessions;
+    private final long sessionFlushTicks;
+    private BukkitTask punishmentExpiryTask;
+    private BukkitTask banSweepTask;
+    private BukkitTask sessionFlushTask;
     
-    private Connection connection;
+    private ConnectionPool pool;
+    private DatabaseExecutor executor;
+    private WriteBehindQueue writeBehind;
     private boolean isConnected = false;
     
     public DatabaseManager(EchoCore plugin) {
@@ -44,6 +70,14 @@ public class DatabaseManager {
             this.username = "root";
             this.password = "";
             this.tablePrefix = "ec_";
+            this.useSsl = false;
+            this.poolSettings = readPoolSettings(null);
+            this.executorSettings = readExecutorSettings(null);
+            this.writeBehindBatchSize = 100;
+            this.writeBehindFlushMillis = 2000L;
+            this.banSweepIntervalTicks = 60L * 20L;
+            this.sessions = new SessionCache(500, 300_000L);
+            this.sessionFlushTicks = 30L * 20L;
         } else {
             this.databaseType = dbConfig.getString("type", "sqlite").toLowerCase();
             this.host = dbConfig.getString("host", "localhost");
@@ -52,12 +86,58 @@ public class DatabaseManager {
             this.username = dbConfig.getString("username", "root");
             this.password = dbConfig.getString("password", "");
             this.tablePrefix = dbConfig.getString("table-prefix", "ec_");
+            this.useSsl = dbConfig.getBoolean("connection.use-ssl", false);
+            this.poolSettings = readPoolSettings(dbConfig.getConfigurationSection("connection"));
+            this.executorSettings = readExecutorSettings(dbConfig.getConfigurationSection("executor"));
+            this.writeBehindBatchSize = dbConfig.getInt("write-behind.batch-size", 100);
+            this.writeBehindFlushMillis = dbConfig.getLong("write-behind.flush-interval", 2000);
+            this.banSweepIntervalTicks = Math.max(1L, dbConfig.getLong("ban-sweep-interval", 60)) * 20L;
+            this.sessions = new SessionCache(dbConfig.getInt("session.offline-cache-size", 500),
+                    dbConfig.getLong("session.offline-cache-ttl", 300) * 1000L);
+            this.sessionFlushTicks = Math.max(1L, dbConfig.getLong("session.flush-interval", 30)) * 20L;
         }
         
+        this.dialect = SqlDialect.fromType(databaseType);
+        this.queries = new DatabaseQueries(dialect, tablePrefix);
+        this.statements = new StatementCache(dbConfig != null ? dbConfig.getInt("connection.statement-cache-size", 64) : 64);
         initializeDatabase();
     }
     
+    private ConnectionPool.Settings readPoolSettings(ConfigurationSection connection) {
+        if (connection == null) {
+            return new ConnectionPool.Settings(10, 2, 30_000L, 600_000L, 1_800_000L, 300_000L, 0L);
+        }
+        return new ConnectionPool.Settings(
+            connection.getInt("max-connections", 10),
+            connection.getInt("minimum-idle", 2),
+            connection.getLong("timeout", 30) * 1000L,
+            connection.getLong("idle-timeout", 600) * 1000L,
+            connection.getLong("max-lifetime", 1800) * 1000L,
+            connection.getLong("keepalive", 300) * 1000L,
+            connection.getLong("leak-detection-threshold", 0) * 1000L
+        );
+    }
+    
+    private DatabaseExecutor.Settings readExecutorSettings(ConfigurationSection section) {
+        // One worker per pooled connection; SQLite only ever has a single writer connection
+        int defaultThreads = SqlDialect.fromType(databaseType) == SqlDialect.MYSQL ? poolSettings.maxConnections : 1;
+        if (section == null) {
+            return new DatabaseExecutor.Settings(defaultThreads, 1000, DatabaseExecutor.RejectionPolicy.ABORT,
+                    1000L, false, 10_000L);
+        }
+        int threads = section.getInt("threads", 0);
+        return new DatabaseExecutor.Settings(
+            threads > 0 ? threads : defaultThreads,
+            section.getInt("queue-size", 1000),
+            DatabaseExecutor.Settings.parsePolicy(section.getString("rejection-policy", "abort")),
+            section.getLong("block-timeout", 1000),
+            section.getBoolean("virtual-threads", false),
+            section.getLong("shutdown-timeout", 10) * 1000L
+        );
+    }
+    
     private void initializeDatabase() {
+        executor = new DatabaseExecutor(plugin.getLogger(), executorSettings);
         try {
             if (databaseType.equals("mysql")) {
                 initializeMySQL();
@@ -65,20 +145,32 @@ public class DatabaseManager {
                 initializeSQLite();
             }
             
-            createTables();
+            new SchemaMigrator(plugin, pool, tablePrefix, dialect).migrate();
+            writeBehind = new WriteBehindQueue(plugin.getLogger(), pool,
+                    new File(plugin.getDataFolder(), "db-spill.jsonl"), dialect, queries,
+                    writeBehindBatchSize, writeBehindFlushMillis);
             isConnected = true;
+            // Lift timed mutes/bans in the cache once a second
+            punishmentExpiryTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, punishments::expire, 20L, 20L);
+            loadBanIndex();
+            banSweepTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::sweepExpiredBans,
+                    banSweepIntervalTicks, banSweepIntervalTicks);
+            sessionFlushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+                if (!executor.isShutdown()) executor.run("flushSessions", this::flushSessions);
+            }, sessionFlushTicks, sessionFlushTicks);
             plugin.getLogger().info("Database connected successfully!");
             
         } catch (Exception e) {
             plugin.getLogger().severe("Failed to initialize database: " + e.getMessage());
             isConnected = false;
+            if (pool != null) {
+                pool.close();
+            }
         }
     }
     
-    private void initializeMySQL() throws SQLException {
-        String url = String.format("jdbc:mysql://%s:%d/%s?useSSL=false&autoReconnect=true&useUnicode=true&characterEncoding=UTF-8", 
-                host, port, database);
-        connection = DriverManager.getConnection(url, username, password);
+    private void initializeMySQL() {
+        pool = ConnectionPool.mysql(host, port, database, username, password, useSsl, poolSettings);
     }
     
     private void initializeSQLite() throws SQLException {
@@ -87,77 +179,25 @@ public class DatabaseManager {
             dataFolder.mkdirs();
         }
         
-        String url = "jdbc:sqlite:" + new File(dataFolder, "echocore.db").getAbsolutePath();
-        connection = DriverManager.getConnection(url);
-    }
-    
-    private void createTables() throws SQLException {
-        // Players table
-        String playersTable = String.format(
-            "CREATE TABLE IF NOT EXISTS %splayers (" +
-            "uuid VARCHAR(36) PRIMARY KEY, " +
-            "username VARCHAR(16) NOT NULL, " +
-            "first_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-            "last_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-            "playtime BIGINT DEFAULT 0, " +
-            "warnings INT DEFAULT 0, " +
-            "muted BOOLEAN DEFAULT FALSE, " +
-            "mute_reason TEXT, " +
-            "banned BOOLEAN DEFAULT FALSE, " +
-            "ban_reason TEXT, " +
-            "ban_expires TIMESTAMP NULL, " +
-            "rank VARCHAR(64) DEFAULT 'default', " +
-            "prefix VARCHAR(128) NULL, " +
-            "suffix VARCHAR(128) NULL" +
-            ")", tablePrefix
-        );
-        
-        // Moderation logs table
-        String logsTable = String.format(
-            "CREATE TABLE IF NOT EXISTS %smoderation_logs (" +
-            "id INT AUTO_INCREMENT PRIMARY KEY, " +
-            "action VARCHAR(20) NOT NULL, " +
-            "target_uuid VARCHAR(36) NOT NULL, " +
-            "target_username VARCHAR(16) NOT NULL, " +
-            "moderator_uuid VARCHAR(36) NOT NULL, " +
-            "moderator_username VARCHAR(16) NOT NULL, " +
-            "reason TEXT, " +
-            "timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-            "expires TIMESTAMP NULL" +
-            ")", tablePrefix
-        );
-        
-        // Player statistics table
-        String statsTable = String.format(
-            "CREATE TABLE IF NOT EXISTS %splayer_stats (" +
-            "uuid VARCHAR(36) PRIMARY KEY, " +
-            "total_logins INT DEFAULT 0, " +
-            "total_playtime BIGINT DEFAULT 0, " +
-            "last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-            "FOREIGN KEY (uuid) REFERENCES %splayers(uuid) ON DELETE CASCADE" +
-            ")", tablePrefix, tablePrefix
-        );
-        
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(playersTable);
-            stmt.execute(logsTable);
-            stmt.execute(statsTable);
-        }
+        pool = ConnectionPool.sqlite(new File(dataFolder, "echocore.db").getAbsolutePath(), poolSettings);
     }
-
+    
+    /**
+     * Cached players only get their session updated; the change is written by the next session flush
+     */
     public CompletableFuture<Void> setPlayerRank(UUID playerUUID, String rank, String prefix, String suffix) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                String sql = String.format(
-                    "UPDATE %splayers SET rank = ?, prefix = ?, suffix = ? WHERE uuid = ?", tablePrefix
-                );
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, rank);
-                    stmt.setString(2, prefix);
-                    stmt.setString(3, suffix);
-                    stmt.setString(4, playerUUID.toString());
-                    stmt.executeUpdate();
-                }
+        if (sessions.modify(playerUUID, session -> session.setRank(rank, prefix, suffix))) {
+            return CompletableFuture.completedFuture(null);
+        }
+        sessions.forget(playerUUID);
+        return executor.run("setPlayerRank", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.setPlayerRank);
+                stmt.setString(1, rank);
+                stmt.setString(2, prefix);
+                stmt.setString(3, suffix);
+                dialect.bindUuid(stmt, 4, playerUUID);
+                stmt.executeUpdate();
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.SEVERE, "Error setting player rank", e);
             }
@@ -165,98 +205,227 @@ public class DatabaseManager {
     }
 
     public CompletableFuture<String> getPlayerRank(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT rank FROM %splayers WHERE uuid = ?", tablePrefix);
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            return rs.getString("rank");
-                        }
-                    }
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting player rank", e);
-            }
-            return "default";
-        });
+        return getSession(playerUUID).thenApply(session ->
+                session != null && session.getRank() != null ? session.getRank() : "default");
     }
 
     public CompletableFuture<String> getPlayerPrefix(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT prefix FROM %splayers WHERE uuid = ?", tablePrefix);
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            return rs.getString("prefix");
-                        }
-                    }
-                }
+        return getSession(playerUUID).thenApply(session -> session != null ? session.getPrefix() : null);
+    }
+
+    public CompletableFuture<String> getPlayerSuffix(UUID playerUUID) {
+        return getSession(playerUUID).thenApply(session -> session != null ? session.getSuffix() : null);
+    }
+    
+    /**
+     * Session of an online or recently seen player from memory; anyone else is read from the
+     * database into the offline cache. Completes with null if the player has no row.
+     */
+    public CompletableFuture<PlayerSession> getSession(UUID playerUUID) {
+        PlayerSession cached = sessions.getIfPresent(playerUUID);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return executor.supply("getSession", () -> {
+            try (Connection connection = pool.getConnection()) {
+                SessionRow row = readSession(connection, playerUUID);
+                if (row == null) return null;
+                sessions.putOffline(row.session());
+                return row.session();
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting player prefix", e);
+                plugin.getLogger().log(Level.SEVERE, "Error loading player session", e);
             }
             return null;
         });
     }
-
-    public CompletableFuture<String> getPlayerSuffix(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
+    
+    /**
+     * Start a player's session: one query fills the session, the punishment cache and the ban index
+     */
+    public CompletableFuture<PlayerSession> loadSession(UUID playerUUID) {
+        return executor.supply("loadSession", () -> {
+            SessionRow row;
+            try (Connection connection = pool.getConnection()) {
+                row = readSession(connection, playerUUID);
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Error loading player session", e);
+                throw new CompletionException(e);
+            }
+            if (row == null) {
+                row = new SessionRow(PlayerSession.empty(playerUUID), PunishmentCache.Punishment.NONE);
+            }
+            PunishmentCache.Punishment punishment = row.punishment();
+            punishments.put(playerUUID, punishment);
+            // The row is authoritative: picks up bans and unbans made on other servers since startup
+            if (punishment.isBanned(System.currentTimeMillis())) {
+                banIndex.put(playerUUID, punishment.banExpires());
+            } else {
+                banIndex.remove(playerUUID);
+            }
+            return sessions.start(row.session());
+        });
+    }
+    
+    /**
+     * End a player's session; unsaved changes are written by the next flush
+     */
+    public void endSession(UUID playerUUID) {
+        punishments.remove(playerUUID);
+        sessions.end(playerUUID);
+    }
+    
+    private record SessionRow(PlayerSession session, PunishmentCache.Punishment punishment) {
+    }
+    
+    private SessionRow readSession(Connection connection, UUID playerUUID) throws SQLException {
+        PreparedStatement stmt = statements.prepare(connection, queries.loadSession);
+        dialect.bindUuid(stmt, 1, playerUUID);
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) return null;
+            Timestamp firstJoin = rs.getTimestamp("first_join");
+            Timestamp lastJoin = rs.getTimestamp("last_join");
+            Timestamp muteExpires = rs.getTimestamp("mute_expires");
+            Timestamp banExpires = rs.getTimestamp("ban_expires");
+            PlayerSession session = new PlayerSession(
+                playerUUID,
+                rs.getString("username"),
+                rs.getString("rank"),
+                rs.getString("prefix"),
+                rs.getString("suffix"),
+                rs.getInt("warnings"),
+                firstJoin != null ? firstJoin.getTime() : 0L,
+                lastJoin != null ? lastJoin.getTime() : 0L
+            );
+            PunishmentCache.Punishment punishment = new PunishmentCache.Punishment(
+                rs.getBoolean("muted"),
+                rs.getString("mute_reason"),
+                muteExpires != null ? muteExpires.getTime() : 0L,
+                rs.getBoolean("banned"),
+                rs.getString("ban_reason"),
+                banExpires != null ? banExpires.getTime() : 0L
+            );
+            return new SessionRow(session, punishment);
+        }
+    }
+    
+    /**
+     * Write every dirty session field in one transaction, one batch per combination of dirty fields
+     */
+    public void flushSessions() {
+        List<PlayerSession.Snapshot> batch = sessions.drainDirty();
+        if (batch.isEmpty() || pool == null || pool.isClosed()) return;
+        Map<Integer, List<PlayerSession.Snapshot>> byMask = new HashMap<>();
+        for (PlayerSession.Snapshot snapshot : batch) {
+            byMask.computeIfAbsent(snapshot.mask(), k -> new ArrayList<>()).add(snapshot);
+        }
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
             try {
-                String sql = String.format("SELECT suffix FROM %splayers WHERE uuid = ?", tablePrefix);
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            return rs.getString("suffix");
+                for (Map.Entry<Integer, List<PlayerSession.Snapshot>> group : byMask.entrySet()) {
+                    // Not taken from the statement cache, so a failed batch leaves nothing behind
+                    try (PreparedStatement stmt = connection.prepareStatement(queries.flushSession[group.getKey()])) {
+                        for (PlayerSession.Snapshot snapshot : group.getValue()) {
+                            int index = 1;
+                            if ((snapshot.mask() & PlayerSession.RANK) != 0) stmt.setString(index++, snapshot.rank());
+                            if ((snapshot.mask() & PlayerSession.PREFIX) != 0) stmt.setString(index++, snapshot.prefix());
+                            if ((snapshot.mask() & PlayerSession.SUFFIX) != 0) stmt.setString(index++, snapshot.suffix());
+                            dialect.bindUuid(stmt, index, snapshot.session().getUuid());
+                            stmt.addBatch();
                         }
+                        stmt.executeBatch();
                     }
                 }
+                connection.commit();
+                sessions.recordFlushed(batch.size());
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting player suffix", e);
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
-            return null;
-        });
+        } catch (SQLException e) {
+            sessions.requeue(batch);
+            plugin.getLogger().log(Level.SEVERE, "Error flushing " + batch.size() + " player session(s)", e);
+        }
     }
     
+    public SessionCache getSessionCache() {
+        return sessions;
+    }
+    
+    /**
+     * Answered from the in-memory ban index; expired bans are cleared in batches by the sweeper
+     */
     public CompletableFuture<Boolean> isPlayerBanned(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT banned, ban_expires FROM %splayers WHERE uuid = ?", tablePrefix);
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            boolean banned = rs.getBoolean("banned");
-                            Timestamp expires = rs.getTimestamp("ban_expires");
-                            
-                            if (banned && expires != null && expires.before(new Timestamp(System.currentTimeMillis()))) {
-                                // Ban expired, remove it
-                                removeBan(playerUUID);
-                                return false;
-                            }
-                            return banned;
-                        }
+        return CompletableFuture.completedFuture(banIndex.isBanned(playerUUID, System.currentTimeMillis()));
+    }
+    
+    public PunishmentCache getPunishmentCache() {
+        return punishments;
+    }
+    
+    public BanIndex getBanIndex() {
+        return banIndex;
+    }
+    
+    /**
+     * Fill the ban index with every active ban; runs once at startup
+     */
+    private void loadBanIndex() {
+        executor.run("loadBanIndex", () -> {
+            long start = System.currentTimeMillis();
+            int loaded = 0;
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.loadActiveBans);
+                stmt.setFetchSize(1000);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        UUID uuid = dialect.readUuid(rs, "uuid");
+                        if (uuid == null) continue;
+                        Timestamp expires = rs.getTimestamp("ban_expires");
+                        banIndex.put(uuid, expires != null ? expires.getTime() : 0L);
+                        loaded++;
                     }
                 }
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error checking ban status", e);
+                plugin.getLogger().log(Level.SEVERE, "Error loading ban index", e);
+                return;
+            }
+            plugin.getLogger().info("Loaded " + loaded + " active ban(s) in " + (System.currentTimeMillis() - start)
+                    + "ms (" + banIndex.memoryBytes() / 1024 + " KiB)");
+        });
+    }
+    
+    /**
+     * Drop expired bans from the index and clear them in the database with one statement
+     */
+    private void sweepExpiredBans() {
+        long now = System.currentTimeMillis();
+        int expired = banIndex.removeExpired(now).size();
+        if (expired == 0 || executor.isShutdown()) return;
+        executor.run("sweepExpiredBans", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.clearExpiredBans);
+                dialect.bindTimestamp(stmt, 1, new Timestamp(now));
+                int cleared = stmt.executeUpdate();
+                plugin.getLogger().fine("Ban sweep: " + expired + " expired in index, " + cleared + " row(s) cleared");
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Error clearing expired bans", e);
             }
-            return false;
         });
     }
     
     public CompletableFuture<Boolean> isPlayerMuted(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT muted FROM %splayers WHERE uuid = ?", tablePrefix);
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        return rs.next() && rs.getBoolean("muted");
-                    }
+        PunishmentCache.Punishment cached = punishments.get(playerUUID);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.isMuted(System.currentTimeMillis()));
+        }
+        return executor.supply("isPlayerMuted", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.isPlayerMuted);
+                dialect.bindUuid(stmt, 1, playerUUID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() && rs.getBoolean("muted");
                 }
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.SEVERE, "Error checking mute status", e);
@@ -266,35 +435,20 @@ public class DatabaseManager {
     }
     
     public CompletableFuture<Integer> getPlayerWarnings(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT warnings FROM %splayers WHERE uuid = ?", tablePrefix);
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        return rs.next() ? rs.getInt("warnings") : 0;
-                    }
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting warnings", e);
-            }
-            return 0;
-        });
+        return getSession(playerUUID).thenApply(session -> session != null ? session.getWarnings() : 0);
     }
     
     public CompletableFuture<Void> savePlayer(UUID playerUUID, String username) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                // SQLite doesn't support ON DUPLICATE KEY UPDATE, so we use INSERT OR REPLACE
-                String sql = String.format(
-                    "INSERT OR REPLACE INTO %splayers (uuid, username, last_join) VALUES (?, ?, CURRENT_TIMESTAMP)", tablePrefix
-                );
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    stmt.setString(2, username);
-                    stmt.executeUpdate();
-                }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        sessions.modify(playerUUID, session -> session.joined(username, now.getTime()));
+        return executor.run("savePlayer", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.upsertPlayer);
+                dialect.bindUuid(stmt, 1, playerUUID);
+                stmt.setString(2, username);
+                dialect.bindTimestamp(stmt, 3, now);
+                dialect.bindTimestamp(stmt, 4, now);
+                stmt.executeUpdate();
                 
                 // Update stats
                 updatePlayerStats(playerUUID);
@@ -305,106 +459,94 @@ public class DatabaseManager {
         });
     }
     
+    /**
+     * The cache and ban index only change once the row is written, so a dropped or failed write never
+     * leaves a ban that exists nowhere but in memory. The future fails when the write does.
+     */
     public CompletableFuture<Void> banPlayer(UUID playerUUID, String reason, String moderator, long duration) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                Timestamp expires = duration > 0 ? new Timestamp(System.currentTimeMillis() + duration) : null;
-                
-                String sql = String.format(
-                    "UPDATE %splayers SET banned = TRUE, ban_reason = ? WHERE uuid = ?", tablePrefix
-                );
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, reason);
-                    stmt.setString(2, playerUUID.toString());
-                    stmt.executeUpdate();
-                }
-                
-                // Log the action
-                logModerationAction("BAN", playerUUID, moderator, reason, expires);
-                
+        Timestamp expires = duration > 0 ? new Timestamp(System.currentTimeMillis() + duration) : null;
+        return executor.run("banPlayer", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.banPlayer);
+                stmt.setString(1, reason);
+                dialect.bindTimestamp(stmt, 2, expires);
+                dialect.bindUuid(stmt, 3, playerUUID);
+                stmt.executeUpdate();
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.SEVERE, "Error banning player", e);
+                throw new CompletionException(e);
             }
+            punishments.updateBan(playerUUID, true, reason, expires != null ? expires.getTime() : 0L);
+            banIndex.put(playerUUID, expires != null ? expires.getTime() : 0L);
+            
+            // Log the action
+            logModerationAction("BAN", playerUUID, moderator, reason, expires);
         });
     }
     
     public CompletableFuture<Void> unbanPlayer(UUID playerUUID, String moderator) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                String sql = String.format(
-                    "UPDATE %splayers SET banned = FALSE, ban_reason = NULL, ban_expires = NULL WHERE uuid = ?", tablePrefix
-                );
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    stmt.executeUpdate();
-                }
-                
-                // Log the action
-                logModerationAction("UNBAN", playerUUID, moderator, "Player unbanned", null);
-                
+        return executor.run("unbanPlayer", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.unbanPlayer);
+                dialect.bindUuid(stmt, 1, playerUUID);
+                stmt.executeUpdate();
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.SEVERE, "Error unbanning player", e);
+                throw new CompletionException(e);
             }
+            punishments.updateBan(playerUUID, false, null, 0L);
+            banIndex.remove(playerUUID);
+            
+            // Log the action
+            logModerationAction("UNBAN", playerUUID, moderator, "Player unbanned", null);
         });
     }
     
     public CompletableFuture<Void> mutePlayer(UUID playerUUID, String reason, String moderator, long duration) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                String sql = String.format(
-                    "UPDATE %splayers SET muted = TRUE, mute_reason = ? WHERE uuid = ?", tablePrefix
-                );
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, reason);
-                    stmt.setString(2, playerUUID.toString());
-                    stmt.executeUpdate();
-                }
-                
-                // Log the action
-                Timestamp expires = duration > 0 ? new Timestamp(System.currentTimeMillis() + duration) : null;
-                logModerationAction("MUTE", playerUUID, moderator, reason, expires);
-                
+        // The cache follows the row, like bans; a failed write leaves the player unmuted
+        Timestamp expires = duration > 0 ? new Timestamp(System.currentTimeMillis() + duration) : null;
+        return executor.run("mutePlayer", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.mutePlayer);
+                stmt.setString(1, reason);
+                dialect.bindTimestamp(stmt, 2, expires);
+                dialect.bindUuid(stmt, 3, playerUUID);
+                stmt.executeUpdate();
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.SEVERE, "Error muting player", e);
+                throw new CompletionException(e);
             }
+            punishments.updateMute(playerUUID, true, reason, expires != null ? expires.getTime() : 0L);
+            
+            // Log the action
+            logModerationAction("MUTE", playerUUID, moderator, reason, expires);
         });
     }
     
     public CompletableFuture<Void> unmutePlayer(UUID playerUUID, String moderator) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                String sql = String.format(
-                    "UPDATE %splayers SET muted = FALSE, mute_reason = NULL WHERE uuid = ?", tablePrefix
-                );
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    stmt.executeUpdate();
-                }
-                
-                // Log the action
-                logModerationAction("UNMUTE", playerUUID, moderator, "Player unmuted", null);
-                
+        return executor.run("unmutePlayer", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.unmutePlayer);
+                dialect.bindUuid(stmt, 1, playerUUID);
+                stmt.executeUpdate();
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.SEVERE, "Error unmuting player", e);
+                throw new CompletionException(e);
             }
+            punishments.updateMute(playerUUID, false, null, 0L);
+            
+            // Log the action
+            logModerationAction("UNMUTE", playerUUID, moderator, "Player unmuted", null);
         });
     }
     
     public CompletableFuture<Void> warnPlayer(UUID playerUUID, String reason, String moderator) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                String sql = String.format(
-                    "UPDATE %splayers SET warnings = warnings + 1 WHERE uuid = ?", tablePrefix
-                );
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    stmt.executeUpdate();
-                }
+        sessions.modify(playerUUID, session -> session.adjustWarnings(1));
+        return executor.run("warnPlayer", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.warnPlayer);
+                dialect.bindUuid(stmt, 1, playerUUID);
+                stmt.executeUpdate();
                 
                 // Log the action
                 logModerationAction("WARN", playerUUID, moderator, reason, null);
@@ -416,17 +558,12 @@ public class DatabaseManager {
     }
     
     public CompletableFuture<Void> unwarnPlayer(UUID playerUUID, String moderator) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                // SQLite doesn't support GREATEST function, so we use CASE statement
-                String sql = String.format(
-                    "UPDATE %splayers SET warnings = CASE WHEN warnings > 0 THEN warnings - 1 ELSE 0 END WHERE uuid = ?", tablePrefix
-                );
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    stmt.executeUpdate();
-                }
+        sessions.modify(playerUUID, session -> session.adjustWarnings(-1));
+        return executor.run("unwarnPlayer", () -> {
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.unwarnPlayer);
+                dialect.bindUuid(stmt, 1, playerUUID);
+                stmt.executeUpdate();
                 
                 // Log the action
                 logModerationAction("UNWARN", playerUUID, moderator, "Warning removed", null);
@@ -437,228 +574,131 @@ public class DatabaseManager {
         });
     }
     
-    private void removeBan(UUID playerUUID) {
-        try {
-            String sql = String.format(
-                "UPDATE %splayers SET banned = FALSE, ban_reason = NULL, ban_expires = NULL WHERE uuid = ?", tablePrefix
-            );
-            
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, playerUUID.toString());
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error removing expired ban", e);
-        }
-    }
-    
     private void logModerationAction(String action, UUID targetUUID, String moderator, String reason, Timestamp expires) {
-        try {
-            String sql = String.format(
-                "INSERT INTO %smoderation_logs (action, target_uuid, target_username, moderator_uuid, moderator_username, reason, expires) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)", tablePrefix
-            );
-            
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, action);
-                stmt.setString(2, targetUUID.toString());
-                stmt.setString(3, getPlayerUsername(targetUUID));
-                stmt.setString(4, "00000000-0000-0000-0000-000000000000"); // Console UUID
-                stmt.setString(5, moderator);
-                stmt.setString(6, reason);
-                stmt.setTimestamp(7, expires);
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error logging moderation action", e);
-        }
-    }
-    
-    private String getPlayerUsername(UUID playerUUID) {
-        try {
-            String sql = String.format("SELECT username FROM %splayers WHERE uuid = ?", tablePrefix);
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, playerUUID.toString());
-                try (ResultSet rs = stmt.executeQuery()) {
-                    return rs.next() ? rs.getString("username") : "Unknown";
-                }
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error getting username", e);
-        }
-        return "Unknown";
+        // Batched by the write-behind queue; target_username is resolved in the INSERT itself
+        if (writeBehind != null) writeBehind.enqueueLog(action, targetUUID, moderator, reason, expires);
     }
     
     private void updatePlayerStats(UUID playerUUID) {
-        try {
-            // SQLite doesn't support ON DUPLICATE KEY UPDATE, so we use INSERT OR REPLACE
-            // First check if record exists
-            String checkSql = String.format("SELECT total_logins FROM %splayer_stats WHERE uuid = ?", tablePrefix);
-            int currentLogins = 0;
-            
-            try (PreparedStatement checkStmt = connection.prepareStatement(checkSql)) {
-                checkStmt.setString(1, playerUUID.toString());
-                try (ResultSet rs = checkStmt.executeQuery()) {
-                    if (rs.next()) {
-                        currentLogins = rs.getInt("total_logins");
-                    }
-                }
-            }
-            
-            // Insert or replace with updated count
-            String sql = String.format(
-                "INSERT OR REPLACE INTO %splayer_stats (uuid, total_logins, last_seen) VALUES (?, ?, CURRENT_TIMESTAMP)", tablePrefix
-            );
-            
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setString(1, playerUUID.toString());
-                stmt.setInt(2, currentLogins + 1);
-                stmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error updating player stats", e);
-        }
+        // Coalesced per player and flushed as a single upsert
+        if (writeBehind != null) writeBehind.enqueueLogin(playerUUID);
     }
     
     public boolean isConnected() {
-        return isConnected && connection != null;
+        return isConnected && pool != null && !pool.isClosed();
     }
     
-    // New methods for StatsCommand
-    public CompletableFuture<String> getFirstJoin(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT first_join FROM %splayers WHERE uuid = ?", tablePrefix);
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            Timestamp firstJoin = rs.getTimestamp("first_join");
-                            return firstJoin != null ? firstJoin.toString() : null;
-                        }
-                    }
-                }
-                return null;
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting first join", e);
-                return null;
-            }
-        });
+    /**
+     * Pool size and connection wait-time metrics, or null when no pool is open
+     */
+    public ConnectionPool.Stats getPoolStats() {
+        return pool != null ? pool.getStats() : null;
     }
     
-    public CompletableFuture<String> getLastSeen(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT last_join FROM %splayers WHERE uuid = ?", tablePrefix);
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            Timestamp lastJoin = rs.getTimestamp("last_join");
-                            return lastJoin != null ? lastJoin.toString() : null;
-                        }
-                    }
-                }
-                return null;
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting last seen", e);
-                return null;
-            }
-        });
+    /**
+     * Queue wait and execution latency per database operation
+     */
+    public List<DatabaseExecutor.OperationSnapshot> getOperationStats() {
+        return executor != null ? executor.getOperationStats() : Collections.emptyList();
     }
     
-    public CompletableFuture<Integer> getTotalLogins(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT total_logins FROM %splayer_stats WHERE uuid = ?", tablePrefix);
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            return rs.getInt("total_logins");
-                        }
-                    }
-                }
-                return 0;
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting total logins", e);
-                return 0;
-            }
-        });
+    public DatabaseExecutor getExecutor() {
+        return executor;
     }
-    
-    public CompletableFuture<Integer> getBans(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT COUNT(*) as ban_count FROM %smoderation_logs WHERE action = 'BAN' AND target_uuid = ?", tablePrefix);
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            return rs.getInt("ban_count");
-                        }
-                    }
-                }
-                return 0;
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting ban count", e);
-                return 0;
-            }
-        });
+
+    /**
+     * EchoPerms storage on this database's pool and table prefix; only valid while connected
+     */
+    public PermissionStorage createPermissionStorage() {
+        return new SqlPermissionStorage(pool, queries, statements);
     }
     
-    public CompletableFuture<Integer> getKicks(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT COUNT(*) as kick_count FROM %smoderation_logs WHERE action = 'KICK' AND target_uuid = ?", tablePrefix);
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            return rs.getInt("kick_count");
+    /**
+     * Load everything /stats shows in one query: the players row joined with its maintained counters.
+     * Counters still waiting in the write-behind queue are added on top.
+     */
+    public CompletableFuture<PlayerProfile> loadProfile(UUID playerUUID) {
+        return executor.supply("loadProfile", () -> {
+            PlayerProfile profile = PlayerProfile.empty(playerUUID);
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.loadProfile);
+                dialect.bindUuid(stmt, 1, playerUUID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        Timestamp lastSeen = rs.getTimestamp("last_seen");
+                        Timestamp lastJoin = rs.getTimestamp("last_join");
+                        if (lastSeen == null || (lastJoin != null && lastJoin.after(lastSeen))) {
+                            lastSeen = lastJoin;
                         }
+                        profile = new PlayerProfile(
+                            playerUUID,
+                            rs.getString("username"),
+                            rs.getTimestamp("first_join"),
+                            lastSeen,
+                            rs.getInt("total_logins"),
+                            rs.getInt("warnings"),
+                            rs.getInt("ban_count"),
+                            rs.getInt("kick_count"),
+                            rs.getInt("mute_count"),
+                            rs.getBoolean("muted"),
+                            rs.getBoolean("banned")
+                        );
                     }
                 }
-                return 0;
             } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting kick count", e);
-                return 0;
+                plugin.getLogger().log(Level.SEVERE, "Error loading player profile", e);
+                throw new CompletionException(e);
             }
+            return writeBehind != null ? profile.withPending(writeBehind.pendingFor(playerUUID)) : profile;
         });
     }
     
-    public CompletableFuture<Integer> getMutes(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String sql = String.format("SELECT COUNT(*) as mute_count FROM %smoderation_logs WHERE action = 'MUTE' AND target_uuid = ?", tablePrefix);
-                
-                try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                    stmt.setString(1, playerUUID.toString());
-                    try (ResultSet rs = stmt.executeQuery()) {
-                        if (rs.next()) {
-                            return rs.getInt("mute_count");
-                        }
-                    }
-                }
-                return 0;
-            } catch (SQLException e) {
-                plugin.getLogger().log(Level.SEVERE, "Error getting mute count", e);
-                return 0;
-            }
-        });
+    /**
+     * Record a kick; there is no player state to change, only the log row and kick counter
+     */
+    public void logKick(UUID playerUUID, String reason, String moderator) {
+        logModerationAction("KICK", playerUUID, moderator, reason, null);
     }
     
     public void closeConnection() {
+        if (punishmentExpiryTask != null) {
+            punishmentExpiryTask.cancel();
+            punishmentExpiryTask = null;
+        }
+        if (banSweepTask != null) {
+            banSweepTask.cancel();
+            banSweepTask = null;
+        }
+        if (sessionFlushTask != null) {
+            sessionFlushTask.cancel();
+            sessionFlushTask = null;
+        }
+        plugin.getLogger().fine("Punishment cache: " + punishments.getStats());
+        punishments.clear();
+        banIndex.clear();
+        // Drain queued statements before the pool goes away
+        if (executor != null && !executor.isShutdown()) {
+            executor.shutdown(executorSettings.shutdownTimeoutMillis);
+            for (DatabaseExecutor.OperationSnapshot op : executor.getOperationStats()) {
+                plugin.getLogger().fine("DB " + op);
+            }
+        }
+        // Then write unsaved session changes, batched log rows and login counters synchronously
+        flushSessions();
+        plugin.getLogger().fine("Session cache: " + sessions.getStats());
+        sessions.clear();
+        if (writeBehind != null) {
+            writeBehind.close();
+            writeBehind = null;
+        }
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+            statements.clear();
+            if (pool != null && !pool.isClosed()) {
+                plugin.getLogger().info("Closing database pool (" + pool.getStats() + ", statement cache hits="
+                        + statements.getHits() + ", misses=" + statements.getMisses() + ")");
+                pool.close();
             }
-        } catch (SQLException e) {
+        } catch (Exception e) {
             plugin.getLogger().log(Level.SEVERE, "Error closing database connection", e);
         }
     }
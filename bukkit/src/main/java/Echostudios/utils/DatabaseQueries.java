@@ -0,0 +1,182 @@
+package Echostudios.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every statement DatabaseManager, WriteBehindQueue and SqlPermissionStorage run, built once
+ * for the configured dialect and table prefix instead of String.format on each call.
+ */
+final class DatabaseQueries {
+
+    final String setPlayerRank;
+    final String loadSession;
+    final String[] flushSession = new String[PlayerSession.ALL_DIRTY + 1];
+    final String loadActiveBans;
+    final String clearExpiredBans;
+    final String isPlayerMuted;
+    final String upsertPlayer;
+    final String banPlayer;
+    final String unbanPlayer;
+    final String mutePlayer;
+    final String unmutePlayer;
+    final String warnPlayer;
+    final String unwarnPlayer;
+    final String loadProfile;
+    final String insertModerationLog;
+    final String upsertPlayerStats;
+
+    // EchoPerms tables (SqlPermissionStorage)
+    final String permGroups;
+    final String permGroupPermissions;
+    final String permGroupParents;
+    final String permGroupMeta;
+    final String permTracks;
+    final String permUserPage;
+    final String permUsersInGroup;
+    final UserReads permUser;
+    final UserReads permUserRange;
+    final String permMoveUserGroups;
+    final String permMoveGroupParents;
+    final String permDropUserGroups;
+    final String permDropGroupParents;
+    final String permDeleteGroupPermissions;
+    final String permDeleteGroupParents;
+    final String permDeleteGroupMeta;
+    final String permDeleteGroup;
+    final String permUpsertGroup;
+    final String permInsertGroupPermission;
+    final String permInsertGroupParent;
+    final String permInsertGroupMeta;
+    final String permDeleteUserPermissions;
+    final String permDeleteUserGroups;
+    final String permDeleteUserMeta;
+    final String permInsertUserPermission;
+    final String permInsertUserGroup;
+    final String permInsertUserMeta;
+    final String permDeleteTrack;
+    final String permInsertTrack;
+
+    DatabaseQueries(SqlDialect dialect, String prefix) {
+        String players = prefix + "players";
+        String stats = prefix + "player_stats";
+        String logs = prefix + "moderation_logs";
+        String rank = dialect.quote("rank");
+
+        setPlayerRank = "UPDATE " + players + " SET " + rank + " = ?, prefix = ?, suffix = ? WHERE uuid = ?";
+        // Everything a session holds plus the punishment state, so pre-login is a single round trip
+        loadSession = "SELECT username, " + rank + ", prefix, suffix, warnings, first_join, last_join, " +
+            "muted, mute_reason, mute_expires, banned, ban_reason, ban_expires FROM " + players + " WHERE uuid = ?";
+        // One UPDATE per combination of dirty fields; binds the dirty values in RANK, PREFIX, SUFFIX order, then uuid
+        for (int mask = 1; mask <= PlayerSession.ALL_DIRTY; mask++) {
+            List<String> columns = new ArrayList<>(3);
+            if ((mask & PlayerSession.RANK) != 0) columns.add(rank + " = ?");
+            if ((mask & PlayerSession.PREFIX) != 0) columns.add("prefix = ?");
+            if ((mask & PlayerSession.SUFFIX) != 0) columns.add("suffix = ?");
+            flushSession[mask] = "UPDATE " + players + " SET " + String.join(", ", columns) + " WHERE uuid = ?";
+        }
+        loadActiveBans = "SELECT uuid, ban_expires FROM " + players + " WHERE banned = TRUE";
+        // Served by idx_players_banned (banned, ban_expires)
+        clearExpiredBans = "UPDATE " + players + " SET banned = FALSE, ban_reason = NULL, ban_expires = NULL " +
+            "WHERE banned = TRUE AND ban_expires IS NOT NULL AND ban_expires <= ?";
+        isPlayerMuted = "SELECT muted FROM " + players + " WHERE uuid = ?";
+
+        // first_join is only written on insert; a returning player just gets a new name and last_join
+        upsertPlayer = dialect.upsert(
+            "INSERT INTO " + players + " (uuid, username, first_join, last_join) VALUES (?, ?, ?, ?)",
+            "uuid",
+            "username = " + dialect.inserted("username"),
+            "last_join = " + dialect.inserted("last_join")
+        );
+
+        banPlayer = "UPDATE " + players + " SET banned = TRUE, ban_reason = ?, ban_expires = ? WHERE uuid = ?";
+        unbanPlayer = "UPDATE " + players + " SET banned = FALSE, ban_reason = NULL, ban_expires = NULL WHERE uuid = ?";
+        mutePlayer = "UPDATE " + players + " SET muted = TRUE, mute_reason = ?, mute_expires = ? WHERE uuid = ?";
+        unmutePlayer = "UPDATE " + players + " SET muted = FALSE, mute_reason = NULL, mute_expires = NULL WHERE uuid = ?";
+        warnPlayer = "UPDATE " + players + " SET warnings = warnings + 1 WHERE uuid = ?";
+        // CASE rather than GREATEST, which SQLite lacks
+        unwarnPlayer = "UPDATE " + players + " SET warnings = CASE WHEN warnings > 0 THEN warnings - 1 ELSE 0 END WHERE uuid = ?";
+
+        loadProfile = "SELECT p.username, p.first_join, p.last_join, p.warnings, p.muted, p.banned, " +
+            "s.total_logins, s.ban_count, s.kick_count, s.mute_count, s.last_seen " +
+            "FROM " + players + " p LEFT JOIN " + stats + " s ON s.uuid = p.uuid WHERE p.uuid = ?";
+
+        insertModerationLog = "INSERT INTO " + logs + " (action, target_uuid, target_username, moderator_uuid, " +
+            "moderator_username, reason, timestamp, expires) " +
+            "VALUES (?, ?, COALESCE((SELECT username FROM " + players + " WHERE uuid = ?), 'Unknown'), ?, ?, ?, ?, ?)";
+
+        // INSERT ... SELECT so counters are only kept for players that have a players row
+        upsertPlayerStats = dialect.upsert(
+            "INSERT INTO " + stats + " (uuid, total_logins, ban_count, kick_count, mute_count, last_seen) " +
+            "SELECT ?, ?, ?, ?, ?, ? FROM " + players + " WHERE uuid = ?",
+            "uuid",
+            "total_logins = total_logins + " + dialect.inserted("total_logins"),
+            "ban_count = ban_count + " + dialect.inserted("ban_count"),
+            "kick_count = kick_count + " + dialect.inserted("kick_count"),
+            "mute_count = mute_count + " + dialect.inserted("mute_count"),
+            "last_seen = COALESCE(" + dialect.inserted("last_seen") + ", last_seen)"
+        );
+
+        String groups = prefix + "perm_groups";
+        String groupPermissions = prefix + "perm_group_permissions";
+        String groupParents = prefix + "perm_group_parents";
+        String groupMeta = prefix + "perm_group_meta";
+        String userPermissions = prefix + "perm_user_permissions";
+        String userGroups = prefix + "perm_user_groups";
+        String userMeta = prefix + "perm_user_meta";
+        String tracks = prefix + "perm_tracks";
+
+        permGroups = "SELECT name FROM " + groups;
+        permGroupPermissions = "SELECT group_name, node FROM " + groupPermissions + " ORDER BY group_name, position";
+        permGroupParents = "SELECT group_name, parent FROM " + groupParents + " ORDER BY group_name, position";
+        permGroupMeta = "SELECT group_name, meta_key, meta_value FROM " + groupMeta;
+        permTracks = "SELECT track_name, group_name FROM " + tracks + " ORDER BY track_name, position";
+        // Binds (after, limit)
+        permUserPage = dialect.paginate("SELECT user_name FROM (SELECT user_name FROM " + userPermissions
+            + " UNION SELECT user_name FROM " + userGroups + " UNION SELECT user_name FROM " + userMeta + ") users", "user_name");
+        permUsersInGroup = "SELECT DISTINCT user_name FROM " + userGroups + " WHERE group_name = ? AND expires_at IS NULL";
+        permUser = new UserReads(userPermissions, userGroups, userMeta, "user_name = ?");
+        // Binds (after, last) of one page
+        permUserRange = new UserReads(userPermissions, userGroups, userMeta, "user_name > ? AND user_name <= ?");
+
+        // Binds (to, from)
+        permMoveUserGroups = "UPDATE " + userGroups + " SET group_name = ? WHERE group_name = ?";
+        permMoveGroupParents = "UPDATE " + groupParents + " SET parent = ? WHERE parent = ?";
+        permDropUserGroups = "DELETE FROM " + userGroups + " WHERE group_name = ?";
+        permDropGroupParents = "DELETE FROM " + groupParents + " WHERE parent = ?";
+        permDeleteGroupPermissions = "DELETE FROM " + groupPermissions + " WHERE group_name = ?";
+        permDeleteGroupParents = "DELETE FROM " + groupParents + " WHERE group_name = ?";
+        permDeleteGroupMeta = "DELETE FROM " + groupMeta + " WHERE group_name = ?";
+        permDeleteGroup = "DELETE FROM " + groups + " WHERE name = ?";
+        permUpsertGroup = dialect.upsert("INSERT INTO " + groups + " (name) VALUES (?)", "name",
+            "name = " + dialect.inserted("name"));
+        permInsertGroupPermission = "INSERT INTO " + groupPermissions + " (group_name, position, node) VALUES (?, ?, ?)";
+        permInsertGroupParent = "INSERT INTO " + groupParents + " (group_name, position, parent) VALUES (?, ?, ?)";
+        permInsertGroupMeta = "INSERT INTO " + groupMeta + " (group_name, meta_key, meta_value) VALUES (?, ?, ?)";
+        permDeleteUserPermissions = "DELETE FROM " + userPermissions + " WHERE user_name = ?";
+        permDeleteUserGroups = "DELETE FROM " + userGroups + " WHERE user_name = ?";
+        permDeleteUserMeta = "DELETE FROM " + userMeta + " WHERE user_name = ?";
+        permInsertUserPermission = "INSERT INTO " + userPermissions + " (user_name, position, node, expires_at) VALUES (?, ?, ?, ?)";
+        permInsertUserGroup = "INSERT INTO " + userGroups + " (user_name, position, group_name, expires_at) VALUES (?, ?, ?, ?)";
+        permInsertUserMeta = "INSERT INTO " + userMeta + " (user_name, meta_key, meta_value) VALUES (?, ?, ?)";
+        permDeleteTrack = "DELETE FROM " + tracks + " WHERE track_name = ?";
+        permInsertTrack = "INSERT INTO " + tracks + " (track_name, position, group_name) VALUES (?, ?, ?)";
+    }
+
+    /**
+     * The three reads that rebuild users' sections, for one condition on user_name
+     */
+    static final class UserReads {
+        final String permissions;
+        final String groups;
+        final String meta;
+
+        private UserReads(String permissionsTable, String groupsTable, String metaTable, String where) {
+            permissions = "SELECT user_name, node, expires_at FROM " + permissionsTable + " WHERE " + where
+                + " ORDER BY user_name, position";
+            groups = "SELECT user_name, group_name, expires_at FROM " + groupsTable + " WHERE " + where
+                + " ORDER BY user_name, position";
+            meta = "SELECT user_name, meta_key, meta_value FROM " + metaTable + " WHERE " + where;
+        }
+    }
+}
@@ -14,11 +14,11 @@ import net.md_5.bungee.api.chat.hover.content.Item;
 import org.bukkit.configuration.file.FileConfiguration;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 /**
  * Processore per i tag degli oggetti in chat
@@ -26,8 +26,8 @@ import java.util.regex.Pattern;
  */
 public class ItemTagProcessor {
     
-    private static final Pattern ITEM_TAG_PATTERN = Pattern.compile("\\[([^\\]]+)\\]");
     private static final Map<String, String> SLOT_MAPPINGS = new HashMap<>();
+    private static final TagMatcher<String> ITEM_TAGS;
     
     static {
         // Mappature per slot specifici
@@ -42,6 +42,8 @@ public class ItemTagProcessor {
         SLOT_MAPPINGS.put("weapon", "mainhand");
         SLOT_MAPPINGS.put("armor", "helmet");
         SLOT_MAPPINGS.put("shield", "offhand");
+        // Ogni altro testo tra parentesi quadre viene cercato per nome
+        ITEM_TAGS = new TagMatcher<>(SLOT_MAPPINGS);
     }
     
     /**
@@ -59,22 +61,21 @@ public class ItemTagProcessor {
      */
     public static BaseComponent[] processItemTags(String message, Player player, FileConfiguration config) {
         ComponentBuilder builder = new ComponentBuilder();
-        Matcher matcher = ITEM_TAG_PATTERN.matcher(message);
         int lastEnd = 0;
         
-        while (matcher.find()) {
+        for (TagMatcher.Match<String> tag : ITEM_TAGS.find(message)) {
             // Aggiungi il testo prima del tag
-            if (matcher.start() > lastEnd) {
-                String before = message.substring(lastEnd, matcher.start());
+            if (tag.start() > lastEnd) {
+                String before = message.substring(lastEnd, tag.start());
                 builder.append(TextComponent.fromLegacyText(before));
             }
             
             // Processa il tag
-            String tagContent = matcher.group(1).toLowerCase();
+            String tagContent = tag.name(message).toLowerCase();
             BaseComponent itemComponent = createItemComponent(tagContent, player, config);
             builder.append(itemComponent);
             
-            lastEnd = matcher.end();
+            lastEnd = tag.end();
         }
         
         // Aggiungi il testo rimanente
@@ -96,7 +97,7 @@ public class ItemTagProcessor {
     /**
      * Crea un componente per un oggetto specifico
      */
-    private static BaseComponent createItemComponent(String tag, Player player, FileConfiguration config) {
+    public static BaseComponent createItemComponent(String tag, Player player, FileConfiguration config) {
         ItemStack item = getItemFromTag(tag, player);
         
         if (item == null || item.getType() == Material.AIR) {
@@ -324,7 +325,14 @@ public class ItemTagProcessor {
      * Controlla se un messaggio contiene tag di oggetti
      */
     public static boolean containsItemTags(String message) {
-        return ITEM_TAG_PATTERN.matcher(message).find();
+        return ITEM_TAGS.contains(message);
+    }
+    
+    /**
+     * I nomi dei tag legati a uno slot ([item], [sword], ...), senza parentesi
+     */
+    public static Set<String> getSlotTags() {
+        return Collections.unmodifiableSet(SLOT_MAPPINGS.keySet());
     }
     
     /**
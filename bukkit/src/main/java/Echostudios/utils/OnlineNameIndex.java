@@ -0,0 +1,138 @@
+package Echostudios.utils;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Names of online players, sorted case-insensitively, for @mentions, auto-tags, tab completion and commands
+ * that accept part of a name. Joins and quits copy the arrays and publish the copy; readers on any thread
+ * take the current copy without locking and without touching Bukkit's player map, so an exact or prefix
+ * lookup is two binary searches over the lowercase names.
+ */
+public class OnlineNameIndex implements Listener {
+
+    private record Snapshot(String[] keys, String[] names, UUID[] ids) {
+        static final Snapshot EMPTY = new Snapshot(new String[0], new String[0], new UUID[0]);
+    }
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Index everyone online now; for enabling or reloading while players are on
+     */
+    public synchronized void rebuild(Collection<? extends Player> players) {
+        snapshot = Snapshot.EMPTY;
+        for (Player player : players) {
+            add(player.getName(), player.getUniqueId());
+        }
+    }
+
+    // Lowest so other join handlers can already find the player
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        add(event.getPlayer().getName(), event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        remove(event.getPlayer().getName(), event.getPlayer().getUniqueId());
+    }
+
+    synchronized void add(String name, UUID id) {
+        Snapshot current = snapshot;
+        String key = name.toLowerCase(Locale.ROOT);
+        int at = Arrays.binarySearch(current.keys(), key);
+        if (at >= 0) {
+            // The same name again (a relog racing its quit); the newest player owns it
+            String[] names = current.names().clone();
+            UUID[] ids = current.ids().clone();
+            names[at] = name;
+            ids[at] = id;
+            snapshot = new Snapshot(current.keys(), names, ids);
+            return;
+        }
+        at = -at - 1;
+        snapshot = new Snapshot(insert(current.keys(), at, key), insert(current.names(), at, name), insert(current.ids(), at, id));
+    }
+
+    synchronized void remove(String name, UUID id) {
+        Snapshot current = snapshot;
+        int at = Arrays.binarySearch(current.keys(), name.toLowerCase(Locale.ROOT));
+        // A newer login under the same name keeps its entry
+        if (at < 0 || !current.ids()[at].equals(id)) return;
+        snapshot = new Snapshot(delete(current.keys(), at), delete(current.names(), at), delete(current.ids(), at));
+    }
+
+    /**
+     * The online player's name that equals this one ignoring case, or null
+     */
+    public String exact(String name) {
+        Snapshot current = snapshot;
+        int at = Arrays.binarySearch(current.keys(), name.toLowerCase(Locale.ROOT));
+        return at >= 0 ? current.names()[at] : null;
+    }
+
+    /**
+     * Like {@code Bukkit.getPlayer(String)}: the exact name, otherwise the shortest name starting with it, or null
+     */
+    public String resolve(String name) {
+        if (name.isEmpty()) return null;
+        Snapshot current = snapshot;
+        String key = name.toLowerCase(Locale.ROOT);
+        int from = Arrays.binarySearch(current.keys(), key);
+        if (from >= 0) return current.names()[from];
+        from = -from - 1;
+        String best = null;
+        for (int i = from; i < current.keys().length && current.keys()[i].startsWith(key); i++) {
+            if (best == null || current.names()[i].length() < best.length()) best = current.names()[i];
+        }
+        return best;
+    }
+
+    /**
+     * Online names starting with the prefix, ignoring case, in alphabetical order
+     */
+    public List<String> withPrefix(String prefix) {
+        Snapshot current = snapshot;
+        String key = prefix.toLowerCase(Locale.ROOT);
+        int from = Arrays.binarySearch(current.keys(), key);
+        if (from < 0) from = -from - 1;
+        List<String> names = new ArrayList<>();
+        for (int i = from; i < current.keys().length && current.keys()[i].startsWith(key); i++) {
+            names.add(current.names()[i]);
+        }
+        return names;
+    }
+
+    /**
+     * Every online name in alphabetical order
+     */
+    public List<String> names() {
+        return Collections.unmodifiableList(Arrays.asList(snapshot.names()));
+    }
+
+    private static <T> T[] insert(T[] array, int at, T value) {
+        T[] copy = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, at, copy, at + 1, array.length - at);
+        copy[at] = value;
+        return copy;
+    }
+
+    private static <T> T[] delete(T[] array, int at) {
+        T[] copy = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, at + 1, copy, at, array.length - at - 1);
+        return copy;
+    }
+}
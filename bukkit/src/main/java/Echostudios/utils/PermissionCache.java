@@ -0,0 +1,151 @@
+package Echostudios.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolved permission results per player, so repeated checks of the same node
+ * (every command, staff chat recipient and audit broadcast) skip resolution.
+ * Each player has an open-addressed table from node to result; node strings are
+ * mostly interned literals, so a probe usually matches by reference.
+ * {@link PermissionsManager} drops exactly the players a change can affect.
+ */
+public class PermissionCache {
+
+    public static final byte UNSET = 0;
+    public static final byte ALLOW = 1;
+    public static final byte DENY = 2;
+
+    // Case-insensitive, so checks never lowercase the name
+    private final Map<String, Entry> users = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * The player's table, created on first use. Fetch it before reading the compiled
+     * permissions so a concurrent invalidation can only discard, never poison, a result.
+     */
+    public Entry forUser(String name) {
+        Entry entry = users.get(name);
+        if (entry == null) {
+            entry = users.computeIfAbsent(name, k -> new Entry());
+        }
+        return entry;
+    }
+
+    public byte get(Entry entry, String node) {
+        byte result = entry.get(node);
+        if (result != UNSET) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return result;
+    }
+
+    public void invalidateUser(String name) {
+        if (users.remove(name) != null) invalidations.increment();
+    }
+
+    /**
+     * Drop every player whose resolution passed through the group before or after the change,
+     * i.e. members of the group and of every group inheriting from it
+     */
+    public void invalidateGroup(String group, CompiledPermissions before, CompiledPermissions after) {
+        users.keySet().removeIf(name -> {
+            if (before.dependsOn(name, group) || after.dependsOn(name, group)) {
+                invalidations.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public void invalidateAll() {
+        invalidations.add(users.size());
+        users.clear();
+    }
+
+    public Stats getStats() {
+        int nodes = 0;
+        for (Entry entry : users.values()) {
+            nodes += entry.size();
+        }
+        return new Stats(users.size(), nodes, hits.sum(), misses.sum(), invalidations.sum());
+    }
+
+    public record Stats(int users, int nodes, long hits, long misses, long invalidations) {
+
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 1.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "users=" + users + ", nodes=" + nodes + ", hitRatio=" + String.format("%.3f", hitRatio())
+                    + " (" + hits + "/" + (hits + misses) + "), invalidations=" + invalidations;
+        }
+    }
+
+    /**
+     * One player's results; linear probing over parallel key and value arrays
+     */
+    public static final class Entry {
+        private String[] keys = new String[16];
+        private byte[] values = new byte[16];
+        private int size;
+
+        synchronized byte get(String node) {
+            String[] k = keys;
+            int mask = k.length - 1;
+            int i = spread(node.hashCode()) & mask;
+            String key;
+            while ((key = k[i]) != null) {
+                if (key == node || key.equals(node)) return values[i];
+                i = (i + 1) & mask;
+            }
+            return UNSET;
+        }
+
+        synchronized void put(String node, boolean allowed) {
+            if ((size + 1) * 2 > keys.length) resize();
+            int mask = keys.length - 1;
+            int i = spread(node.hashCode()) & mask;
+            while (keys[i] != null && !keys[i].equals(node)) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == null) {
+                keys[i] = node.intern();
+                size++;
+            }
+            values[i] = allowed ? ALLOW : DENY;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private void resize() {
+            String[] oldKeys = keys;
+            byte[] oldValues = values;
+            keys = new String[oldKeys.length << 1];
+            values = new byte[oldKeys.length << 1];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == null) continue;
+                int i = spread(oldKeys[j].hashCode()) & mask;
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
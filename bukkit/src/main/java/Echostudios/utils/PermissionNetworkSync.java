@@ -0,0 +1,230 @@
+package Echostudios.utils;
+
+import Echostudios.EchoCore;
+import Echostudios.utils.PermissionSyncProtocol.Message;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Keeps EchoPerms in step with the EchoProxy permission hub ({@code runs.permissions.network-sync}).
+ * Local changes go to the proxy as one CHANGE message per tick; the proxy orders them and sends numbered
+ * DELTA messages to every backend, which are applied to the in-memory data without reloading storage.
+ * A delta that does not follow the last one, or comes from a new proxy epoch, triggers a SNAPSHOT request;
+ * later deltas are held until the snapshot arrives. Local changes are held back until the first snapshot,
+ * or the seed of an empty hub, has been applied. Plugin messages need an online player to travel
+ * through, so nothing is sent while nobody connected through the proxy is online. Main thread only.
+ */
+public class PermissionNetworkSync implements PluginMessageListener {
+
+    private static final int MAX_HELD_DELTAS = 1024;
+    // A snapshot request that got no answer in this time is sent again
+    private static final long SNAPSHOT_TIMEOUT_MILLIS = 30_000L;
+
+    private final EchoCore plugin;
+    private final PermissionsManager permissionsManager;
+    private final PermissionSyncProtocol.Reassembler reassembler = new PermissionSyncProtocol.Reassembler();
+    private final List<Message> held = new ArrayList<>();
+    // Imported entities waiting for a carrier or the first snapshot, keyed by path
+    private final Map<String, Object> imported = new LinkedHashMap<>();
+    private BukkitTask publishTask;
+    // Epoch 0 means nothing has been received from the proxy yet
+    private long epoch;
+    private long seq;
+    private boolean awaitingSnapshot;
+    private long snapshotRequestedAt;
+    private boolean versionMismatch;
+
+    public PermissionNetworkSync(EchoCore plugin, PermissionsManager permissionsManager) {
+        this.plugin = plugin;
+        this.permissionsManager = permissionsManager;
+    }
+
+    public void start() {
+        Bukkit.getMessenger().registerOutgoingPluginChannel(plugin, PermissionSyncProtocol.CHANNEL);
+        Bukkit.getMessenger().registerIncomingPluginChannel(plugin, PermissionSyncProtocol.CHANNEL, this);
+        permissionsManager.setPublishing(true);
+        publishTask = Bukkit.getScheduler().runTaskTimer(plugin, this::publish, 1L, 1L);
+    }
+
+    public void stop() {
+        if (publishTask != null) publishTask.cancel();
+        // Last chance for changes made this tick
+        publish();
+        permissionsManager.setPublishing(false);
+        Bukkit.getMessenger().unregisterIncomingPluginChannel(plugin, PermissionSyncProtocol.CHANNEL, this);
+        Bukkit.getMessenger().unregisterOutgoingPluginChannel(plugin, PermissionSyncProtocol.CHANNEL);
+    }
+
+    // Changes stay collected in the manager until someone is online to carry them and the proxy's state is known
+    private void publish() {
+        if (carrier() == null) return;
+        boolean stale = awaitingSnapshot && System.currentTimeMillis() - snapshotRequestedAt > SNAPSHOT_TIMEOUT_MILLIS;
+        if ((epoch == 0 && !awaitingSnapshot) || stale) requestSnapshot();
+        // A change sent before then could reach an empty hub; the snapshot keeps unsent entities, so they go after it
+        if (epoch == 0) return;
+        // Local changes are newer than the import data of the same entity
+        Map<String, Object> changed = new LinkedHashMap<>(imported);
+        imported.clear();
+        changed.putAll(permissionsManager.drainOutgoing());
+        if (changed.isEmpty()) return;
+        send(new Message(PermissionSyncProtocol.CHANGE, epoch, seq, toYaml(changed)));
+    }
+
+    /**
+     * Send a chunk of imported entities, keyed by path, with the next change; imports bypass the manager's
+     * change collection so their users can be evicted as soon as they are written
+     */
+    public void publishImported(Map<String, Object> entities) {
+        imported.putAll(entities);
+        publish();
+    }
+
+    private void requestSnapshot() {
+        if (send(new Message(PermissionSyncProtocol.SNAPSHOT_REQUEST, epoch, seq))) {
+            awaitingSnapshot = true;
+            snapshotRequestedAt = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] data) {
+        if (!channel.equals(PermissionSyncProtocol.CHANNEL)) return;
+        Message message;
+        try {
+            message = reassembler.accept(data);
+        } catch (PermissionSyncProtocol.VersionMismatchException e) {
+            // Every frame would fail the same way, so say it once
+            if (!versionMismatch) {
+                plugin.getLogger().severe("The proxy speaks permission sync version " + e.getVersion() + ", this server "
+                        + PermissionSyncProtocol.VERSION + "; update EchoCore and EchoProxy together. Changes are not synced until then.");
+                versionMismatch = true;
+            }
+            return;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Dropped a bad permission sync message from the proxy", e);
+            return;
+        }
+        versionMismatch = false;
+        if (message == null) return;
+        switch (message.type()) {
+            case PermissionSyncProtocol.DELTA -> onDelta(message);
+            case PermissionSyncProtocol.SNAPSHOT -> onSnapshot(message);
+            case PermissionSyncProtocol.SEED_REQUEST -> {
+                plugin.getLogger().info("Seeding the proxy's permission hub from this server");
+                send(new Message(PermissionSyncProtocol.SEED, epoch, seq, toYaml(permissionsManager.snapshotEntities())));
+            }
+            default -> plugin.getLogger().warning("Unexpected permission sync message " + message.type());
+        }
+    }
+
+    private void onDelta(Message delta) {
+        if (awaitingSnapshot) {
+            hold(delta);
+            return;
+        }
+        if (delta.epoch() == epoch && delta.seq() <= seq) return;
+        if (delta.epoch() != epoch || delta.seq() != seq + 1) {
+            plugin.getLogger().info("Missed permission changes from the proxy (at " + seq + ", got " + delta.seq() + "), requesting a snapshot");
+            hold(delta);
+            requestSnapshot();
+            return;
+        }
+        apply(delta, false);
+    }
+
+    private void onSnapshot(Message snapshot) {
+        awaitingSnapshot = false;
+        apply(snapshot, true);
+        List<Message> pending = new ArrayList<>(held);
+        held.clear();
+        for (Message delta : pending) {
+            onDelta(delta);
+        }
+    }
+
+    private void hold(Message delta) {
+        if (held.size() >= MAX_HELD_DELTAS) held.clear();
+        held.add(delta);
+    }
+
+    private void apply(Message message, boolean replaceAll) {
+        Map<String, Object> entities = fromYaml(message.entities());
+        if (entities == null) {
+            // Nothing was applied, so this number still has to come
+            requestSnapshot();
+            return;
+        }
+        boolean changed = permissionsManager.applyRemote(entities, replaceAll);
+        epoch = message.epoch();
+        seq = message.seq();
+        PermissionSyncManager sync = plugin.getPermissionSyncManager();
+        if (changed && sync != null) sync.syncAllOnline();
+    }
+
+    // Bukkit drops messages on channels the player's connection has not registered yet
+    private Player carrier() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.getListeningPluginChannels().contains(PermissionSyncProtocol.CHANNEL)) return player;
+        }
+        return null;
+    }
+
+    private boolean send(Message message) {
+        Player carrier = carrier();
+        if (carrier == null) return false;
+        try {
+            for (byte[] frame : PermissionSyncProtocol.encode(message)) {
+                carrier.sendPluginMessage(plugin, PermissionSyncProtocol.CHANNEL, frame);
+            }
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to encode permission sync message", e);
+            return false;
+        }
+    }
+
+    private static Map<String, String> toYaml(Map<String, Object> entities) {
+        Map<String, String> texts = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entity : entities.entrySet()) {
+            if (entity.getValue() == null) {
+                texts.put(entity.getKey(), null);
+                continue;
+            }
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.set("value", entity.getValue());
+            texts.put(entity.getKey(), yaml.saveToString());
+        }
+        return texts;
+    }
+
+    // Null if any entity is unreadable; a half-applied message would desync the sequence
+    private Map<String, Object> fromYaml(Map<String, String> texts) {
+        Map<String, Object> entities = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entity : texts.entrySet()) {
+            if (entity.getValue() == null) {
+                entities.put(entity.getKey(), null);
+                continue;
+            }
+            YamlConfiguration yaml = new YamlConfiguration();
+            try {
+                yaml.loadFromString(entity.getValue());
+            } catch (InvalidConfigurationException e) {
+                plugin.getLogger().log(Level.SEVERE, "Unreadable permission entity " + entity.getKey() + " from the proxy", e);
+                return null;
+            }
+            entities.put(entity.getKey(), yaml.get("value"));
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,76 @@
+package Echostudios.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Where EchoPerms groups and users are persisted. {@link PermissionsManager} keeps the
+ * resident data in a YamlConfiguration laid out like permissions.yml; a backend fills it on
+ * load and writes back the entities that changed.
+ */
+public interface PermissionStorage {
+
+    String getName();
+
+    /**
+     * Fill the config with everything kept resident: every group and track, and every user unless {@link #isLazy()}
+     */
+    void load(YamlConfiguration into) throws Exception;
+
+    /**
+     * Whether users are loaded on demand (on join or when edited) instead of all at startup
+     */
+    boolean isLazy();
+
+    /**
+     * One user's section ({@code permissions}, {@code groups}, {@code meta}), or null if nothing is stored.
+     * Only called when {@link #isLazy()}.
+     */
+    ConfigurationSection loadUser(String name) throws Exception;
+
+    /**
+     * Stream the lowercased names of stored users with the group as a permanent parent, without loading them.
+     * Only called when {@link #isLazy()}, off the main thread.
+     */
+    void forEachUserInGroup(String group, Consumer<String> action) throws Exception;
+
+    /**
+     * Stream every stored user with their section, without keeping them loaded. Only called when
+     * {@link #isLazy()}, off the main thread.
+     */
+    void forEachUser(BiConsumer<String, ConfigurationSection> action) throws Exception;
+
+    /**
+     * Capture the changed data while the caller holds the manager's lock.
+     * The returned write runs later on the writer thread without it.
+     */
+    PendingWrite prepare(YamlConfiguration config, Changes changes);
+
+    void close();
+
+    interface PendingWrite {
+        void write() throws Exception;
+    }
+
+    /**
+     * Entities changed since the last write. A changed entity missing from the config was deleted.
+     * Group references are moved first, in order, so users that are not loaded follow renames and deletions.
+     */
+    record Changes(Set<String> groups, Set<String> users, Set<String> tracks, List<GroupReference> references) {
+
+        public boolean isEmpty() {
+            return groups.isEmpty() && users.isEmpty() && tracks.isEmpty() && references.isEmpty();
+        }
+    }
+
+    /**
+     * References to group {@code from} now point to {@code to}, or are dropped when {@code to} is null
+     */
+    record GroupReference(String from, String to) {
+    }
+}
@@ -5,24 +5,62 @@ import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionDefault;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
+/**
+ * Mirrors EchoPerms grants into Bukkit (echoperms/hybrid modes). Each player gets one registered
+ * permission, {@code echocore.sync.<uuid>}, whose children are the grants, and a PermissionAttachment
+ * that sets only that node. A sync that changes the grants rewrites the children and recalculates once,
+ * through the public Permission API, instead of once per setPermission. The grant set comes from the
+ * compiled permissions: only registered Bukkit permissions matching an allow entry in the player's chain
+ * are checked. {@link #syncAllOnline()} is spread over ticks within
+ * {@code runs.permissions.sync-budget} milliseconds per tick. Main thread only.
+ */
 public class PermissionSyncManager {
 
+    // How long the snapshot of registered permissions is reused by single-player syncs
+    private static final long REGISTRY_MAX_AGE_MILLIS = 30_000L;
+
+    // Per-player parent permission; never offered to resolveGrants, so "*" cannot grant another player's set
+    private static final String NODE_PREFIX = "echocore.sync.";
+
     private final EchoCore plugin;
     private final PermissionsManager permissionsManager;
-    private final Map<java.util.UUID, PermissionAttachment> attachments = new HashMap<>();
+    private final Map<UUID, Synced> synced = new HashMap<>();
+    private final Set<UUID> pending = new LinkedHashSet<>();
+    private final long budgetNanos;
+    private BukkitTask drainTask;
+    private Registry registry;
 
     public PermissionSyncManager(EchoCore plugin, PermissionsManager permissionsManager) {
         this.plugin = plugin;
         this.permissionsManager = permissionsManager;
+        this.budgetNanos = Math.max(1L, plugin.getConfig().getLong("runs.permissions.sync-budget", 2)) * 1_000_000L;
     }
 
+    /**
+     * Queue every online player; the queue is drained over the following ticks
+     */
     public void syncAllOnline() {
+        if (!isEnabled()) return;
+        registry = Registry.snapshot();
         for (Player p : Bukkit.getOnlinePlayers()) {
-            syncPlayer(p);
+            pending.add(p.getUniqueId());
+        }
+        if (drainTask == null && !pending.isEmpty()) {
+            drainTask = Bukkit.getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
         }
     }
 
@@ -33,30 +71,172 @@ public class PermissionSyncManager {
 
     public void syncPlayer(Player player) {
         // Only if mode is echoperms or hybrid we try to reflect into Bukkit layer
+        if (!isEnabled()) return;
+        pending.remove(player.getUniqueId());
+        if (registry == null || registry.isOlderThan(REGISTRY_MAX_AGE_MILLIS)) {
+            registry = Registry.snapshot();
+        }
+        sync(player);
+    }
+
+    /**
+     * Drop a player's state when they leave; their attachment goes with the Player object
+     */
+    public void forget(Player player) {
+        Synced state = synced.remove(player.getUniqueId());
+        if (state != null) Bukkit.getPluginManager().removePermission(state.node);
+        pending.remove(player.getUniqueId());
+    }
+
+    private boolean isEnabled() {
         String mode = plugin.getConfig().getString("runs.permissions.mode", "hybrid").toLowerCase();
-        if (!(mode.equals("echoperms") || mode.equals("hybrid"))) return;
+        return mode.equals("echoperms") || mode.equals("hybrid");
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + budgetNanos;
+        Iterator<UUID> it = pending.iterator();
+        while (it.hasNext() && System.nanoTime() < deadline) {
+            UUID id = it.next();
+            it.remove();
+            Player player = Bukkit.getPlayer(id);
+            if (player != null) sync(player);
+        }
+        if (pending.isEmpty()) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+    }
+
+    private void sync(Player player) {
+        Synced state = synced.get(player.getUniqueId());
+        // A rejoin is a new Player object; the old attachment went with the old one
+        if (state == null || state.attachment.getPermissible() != player) {
+            state = attach(player);
+            synced.put(player.getUniqueId(), state);
+        }
 
-        PermissionAttachment attachment = attachments.computeIfAbsent(player.getUniqueId(),
-            id -> player.addAttachment(plugin));
+        Set<String> granted = resolveGrants(player.getName());
+        if (granted.equals(state.granted)) return;
 
-        // Clear previous grants on this attachment
-        attachment.getPermissions().keySet().forEach(node -> attachment.unsetPermission(node));
+        // Only force-allow true; do not force-deny. Let other providers (OP/LuckPerms) decide when false.
+        Map<String, Boolean> children = state.node.getChildren();
+        children.clear();
+        for (String node : granted) {
+            children.put(node, true);
+        }
+        state.granted = granted;
+        // Recalculates every permissible holding the node, which is only this player
+        state.node.recalculatePermissibles();
+    }
 
-        // Iterate known permissions and set according to EchoPerms resolution
-        for (Permission perm : Bukkit.getPluginManager().getPermissions()) {
-            String node = perm.getName();
-            boolean allow = permissionsManager.hasPermission(player.getName(), node);
-            // Only force-allow true; do not force-deny. Let other providers (OP/LuckPerms) decide when false.
-            if (allow) {
-                attachment.setPermission(node, true);
+    private Synced attach(Player player) {
+        PluginManager pluginManager = Bukkit.getPluginManager();
+        String name = NODE_PREFIX + player.getUniqueId();
+        // Left over from a previous session or a reload
+        Permission old = pluginManager.getPermission(name);
+        if (old != null) pluginManager.removePermission(old);
+        Permission node = new Permission(name, "EchoPerms grants of " + player.getName(), PermissionDefault.FALSE);
+        pluginManager.addPermission(node);
+        PermissionAttachment attachment = player.addAttachment(plugin);
+        attachment.setPermission(node, true);
+        return new Synced(attachment, node);
+    }
+
+    /**
+     * Registered permissions EchoPerms allows for the player in their world, checked against one compiled snapshot
+     */
+    private Set<String> resolveGrants(String name) {
+        CompiledPermissions compiled = permissionsManager.getCompiled();
+        String world = permissionsManager.getWorld(name);
+        Registry reg = registry;
+        Set<String> granted = new HashSet<>();
+        for (String pattern : compiled.grantPatterns(name)) {
+            int from;
+            int to;
+            if (pattern.equals("*")) {
+                from = 0;
+                to = reg.keys.length;
+            } else if (pattern.endsWith(".*")) {
+                // prefix.* covers "prefix" itself and everything below it
+                String prefix = pattern.substring(0, pattern.length() - 2);
+                from = reg.lowerBound(prefix);
+                to = reg.lowerBound(prefix + '/');
             } else {
-                if (attachment.getPermissions().containsKey(node)) {
-                    attachment.unsetPermission(node);
-                }
+                from = reg.lowerBound(pattern);
+                to = from < reg.keys.length && reg.keys[from].equals(pattern) ? from + 1 : from;
+            }
+            for (int i = from; i < to; i++) {
+                String key = reg.keys[i];
+                if (granted.contains(reg.names[i]) || !matchesPrefixRange(pattern, key)) continue;
+                if (compiled.hasPermission(name, world, reg.names[i])) granted.add(reg.names[i]);
             }
         }
-        player.recalculatePermissions();
+        return granted;
+    }
+
+    // The range up to prefix + '/' also holds e.g. "prefix-x"; only "prefix" and "prefix.<...>" match
+    private static boolean matchesPrefixRange(String pattern, String key) {
+        if (!pattern.endsWith(".*")) return true;
+        int length = pattern.length() - 2;
+        return key.length() == length || key.charAt(length) == '.';
+    }
+
+    private static final class Synced {
+        final PermissionAttachment attachment;
+        final Permission node;
+        Set<String> granted = new HashSet<>();
+
+        Synced(PermissionAttachment attachment, Permission node) {
+            this.attachment = attachment;
+            this.node = node;
+        }
     }
-}
 
+    /**
+     * Registered Bukkit permissions sorted by lowercased name, for range lookups by prefix.
+     * getPermissions() copies the whole registry, so it is only called when a snapshot is taken.
+     */
+    private static final class Registry {
+        final String[] keys;
+        final String[] names;
+        final long createdAt = System.currentTimeMillis();
 
+        private Registry(String[] keys, String[] names) {
+            this.keys = keys;
+            this.names = names;
+        }
+
+        static Registry snapshot() {
+            Set<Permission> permissions = Bukkit.getPluginManager().getPermissions();
+            String[] names = new String[permissions.size()];
+            int i = 0;
+            for (Permission permission : permissions) {
+                if (permission.getName().startsWith(NODE_PREFIX)) continue;
+                names[i++] = permission.getName();
+            }
+            names = Arrays.copyOf(names, i);
+            Arrays.sort(names, Comparator.comparing(String::toLowerCase));
+            String[] keys = new String[names.length];
+            for (int j = 0; j < names.length; j++) {
+                keys[j] = names[j].toLowerCase();
+            }
+            return new Registry(keys, names);
+        }
+
+        boolean isOlderThan(long millis) {
+            return System.currentTimeMillis() - createdAt > millis;
+        }
+
+        // First index whose key is not less than the given key
+        int lowerBound(String key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(key) < 0) low = mid + 1; else high = mid;
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package Echostudios.utils;
+
+import Echostudios.EchoCore;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.stream.JsonReader;
+import org.bukkit.Bukkit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * /ec export and /ec import. EchoPerms data is written as gzipped line-delimited JSON, one group, track or
+ * user per line ({@code {"type":"user","name":"steve","data":{...}}}), and read back line by line; LuckPerms
+ * exports (.json or .json.gz) are read as a stream too and converted. Both run off the main thread with
+ * memory bounded by {@value #CHUNK} entries: exports copy resident users a chunk at a time and page through
+ * lazy storage, imports into lazy storage write and drop each chunk before reading the next.
+ * Progress is reported to the caller every few seconds.
+ */
+public class PermissionTransfer {
+
+    private static final int CHUNK = 1000;
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000L;
+
+    private final EchoCore plugin;
+    private final PermissionsManager permissionsManager;
+    private final File directory;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Gson gson = new GsonBuilder()
+            .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+            .disableHtmlEscaping()
+            .create();
+
+    public PermissionTransfer(EchoCore plugin, PermissionsManager permissionsManager) {
+        this.plugin = plugin;
+        this.permissionsManager = permissionsManager;
+        this.directory = new File(plugin.getDataFolder(), "exports");
+    }
+
+    /**
+     * A file in the exports folder; names may not leave it
+     */
+    public File resolve(String name) {
+        if (name.contains("/") || name.contains("\\") || name.contains("..")) {
+            throw new IllegalArgumentException("Give a file name inside " + plugin.getDataFolder().getName() + "/exports");
+        }
+        return new File(directory, name);
+    }
+
+    /**
+     * Start exporting everything; returns the file being written. Messages are delivered on the main thread.
+     */
+    public File exportAll(Consumer<String> progress, Consumer<String> done) {
+        begin();
+        File file = new File(directory, "echoperms-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jsonl.gz");
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Progress counter = new Progress("Exported", progress);
+            File tmp = new File(directory, file.getName() + ".tmp");
+            try {
+                if (!directory.exists()) directory.mkdirs();
+                // Lazy storage is read directly, so it has to have every change
+                permissionsManager.flush();
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                        new GZIPOutputStream(new FileOutputStream(tmp)), StandardCharsets.UTF_8))) {
+                    writeChunk(out, permissionsManager.copyEntities(permissionsManager.residentPaths("groups")), counter);
+                    writeChunk(out, permissionsManager.copyEntities(permissionsManager.residentPaths("tracks")), counter);
+                    PermissionStorage storage = permissionsManager.getStorage();
+                    if (storage.isLazy()) {
+                        storage.forEachUser((user, section) -> {
+                            try {
+                                writeLine(out, "users." + user, PermissionsManager.copyOf(section));
+                                counter.add(1);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    } else {
+                        List<String> users = permissionsManager.residentPaths("users");
+                        for (int from = 0; from < users.size(); from += CHUNK) {
+                            List<String> chunk = users.subList(from, Math.min(from + CHUNK, users.size()));
+                            writeChunk(out, permissionsManager.copyEntities(chunk), counter);
+                        }
+                    }
+                }
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                finish(done, "&aExported &e" + counter.count + "&a entries to &eexports/" + file.getName());
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Permission export failed", e);
+                tmp.delete();
+                finish(done, "&cExport failed: " + e.getMessage());
+            }
+        });
+        return file;
+    }
+
+    /**
+     * Start importing a file written by {@link #exportAll} or by LuckPerms' export. Imported groups, users and
+     * tracks replace existing ones with the same name; nothing else is removed.
+     */
+    public void importFrom(File file, Consumer<String> progress, Consumer<String> done) {
+        if (!file.isFile()) throw new IllegalArgumentException("No such file: exports/" + file.getName());
+        begin();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Progress counter = new Progress("Imported", progress);
+            Map<String, Object> chunk = new LinkedHashMap<>();
+            Consumer<Map.Entry<String, Object>> sink = entity -> {
+                chunk.put(entity.getKey(), entity.getValue());
+                if (chunk.size() >= CHUNK) applyChunk(chunk, counter);
+            };
+            String name = file.getName().toLowerCase();
+            try (InputStream in = open(file);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                if (name.endsWith(".json") || name.endsWith(".json.gz")) {
+                    readLuckPerms(reader, sink, counter);
+                } else {
+                    readLines(reader, sink, counter);
+                }
+                applyChunk(chunk, counter);
+                permissionsManager.completeImport();
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    PermissionSyncManager sync = plugin.getPermissionSyncManager();
+                    if (sync != null) sync.syncAllOnline();
+                });
+                finish(done, "&aImported &e" + counter.count + "&a entries from &eexports/" + file.getName()
+                        + (counter.skipped > 0 ? " &7(" + counter.skipped + " skipped, see console)" : ""));
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Permission import failed", e);
+                // Whatever was applied so far is kept and published
+                permissionsManager.completeImport();
+                finish(done, "&cImport failed after " + counter.count + " entries: " + e.getMessage());
+            }
+        });
+    }
+
+    private void begin() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An import or export is already running");
+        }
+    }
+
+    private void finish(Consumer<String> done, String message) {
+        running.set(false);
+        Bukkit.getScheduler().runTask(plugin, () -> done.accept(message));
+    }
+
+    // Lazy storage gets each chunk written and its users dropped before the next one is read
+    private void applyChunk(Map<String, Object> chunk, Progress counter) {
+        if (chunk.isEmpty()) return;
+        List<String> added = permissionsManager.importEntities(chunk);
+        PermissionNetworkSync network = plugin.getPermissionNetworkSync();
+        if (network != null) {
+            // Copied before eviction; the proxy gets the chunk with the next change message
+            Map<String, Object> copies = permissionsManager.copyEntities(chunk.keySet());
+            Bukkit.getScheduler().runTask(plugin, () -> network.publishImported(copies));
+        }
+        if (permissionsManager.getStorage().isLazy()) {
+            permissionsManager.flush();
+            permissionsManager.evictUsers(added);
+        }
+        counter.add(chunk.size());
+        chunk.clear();
+    }
+
+    private void writeChunk(Writer out, Map<String, Object> entities, Progress counter) throws IOException {
+        for (Map.Entry<String, Object> entity : entities.entrySet()) {
+            writeLine(out, entity.getKey(), entity.getValue());
+        }
+        counter.add(entities.size());
+    }
+
+    private void writeLine(Writer out, String path, Object data) throws IOException {
+        int dot = path.indexOf('.');
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", path.substring(0, dot - 1));
+        line.put("name", path.substring(dot + 1));
+        line.put("data", data);
+        gson.toJson(line, out);
+        out.write('\n');
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readLines(BufferedReader reader, Consumer<Map.Entry<String, Object>> sink, Progress counter) throws IOException {
+        String text;
+        int number = 0;
+        while ((text = reader.readLine()) != null) {
+            number++;
+            if (text.isBlank()) continue;
+            Map<String, Object> line;
+            try {
+                line = gson.fromJson(text, Map.class);
+            } catch (JsonSyntaxException e) {
+                counter.skip("line " + number + " is not valid JSON");
+                continue;
+            }
+            Object type = line.get("type");
+            Object name = line.get("name");
+            Object data = line.get("data");
+            String path = type + "s." + (("user").equals(type) && name != null ? name.toString().toLowerCase() : name);
+            if (!(type instanceof String) || !(name instanceof String) || data == null || !PermissionsManager.isEntityPath(path)) {
+                counter.skip("line " + number + " is not a group, user or track");
+                continue;
+            }
+            sink.accept(Map.entry(path, data));
+        }
+    }
+
+    // LuckPerms' export: {"groups": {name: {"nodes": [...]}}, "tracks": {name: {"groups": [...]}}, "users": {uuid: {...}}}
+    private void readLuckPerms(BufferedReader in, Consumer<Map.Entry<String, Object>> sink, Progress counter) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String section = reader.nextName();
+            if (!section.equals("groups") && !section.equals("tracks") && !section.equals("users")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                // One entry at a time; the rest of the file stays unread
+                JsonObject entry = JsonParser.parseReader(reader).getAsJsonObject();
+                switch (section) {
+                    case "groups" -> sink.accept(Map.entry("groups." + key, convertNodes(entry, false, counter)));
+                    case "tracks" -> {
+                        List<String> groups = new ArrayList<>();
+                        if (entry.has("groups")) entry.getAsJsonArray("groups").forEach(group -> groups.add(group.getAsString()));
+                        sink.accept(Map.entry("tracks." + key, groups));
+                    }
+                    default -> {
+                        if (!entry.has("username") || entry.get("username").isJsonNull()) {
+                            counter.skip("user " + key + " has no username");
+                            continue;
+                        }
+                        String user = entry.get("username").getAsString().toLowerCase();
+                        sink.accept(Map.entry("users." + user, convertNodes(entry, true, counter)));
+                    }
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+    }
+
+    /**
+     * A LuckPerms holder's nodes as an EchoPerms group or user section. Prefixes and suffixes keep the highest
+     * priority; expired nodes, and contexts other than one world and server, are dropped.
+     */
+    private Map<String, Object> convertNodes(JsonObject holder, boolean user, Progress counter) {
+        List<String> permissions = new ArrayList<>();
+        List<String> parents = new ArrayList<>();
+        List<TemporaryEntry> tempPermissions = new ArrayList<>();
+        List<TemporaryEntry> tempParents = new ArrayList<>();
+        Map<String, Object> meta = new LinkedHashMap<>();
+        int prefixPriority = Integer.MIN_VALUE;
+        int suffixPriority = Integer.MIN_VALUE;
+        long now = System.currentTimeMillis();
+
+        JsonArray nodes = holder.has("nodes") ? holder.getAsJsonArray("nodes") : new JsonArray();
+        for (JsonElement element : nodes) {
+            JsonObject node = element.getAsJsonObject();
+            String key = node.get("key").getAsString();
+            boolean value = !node.has("value") || node.get("value").getAsBoolean();
+            // LuckPerms expiries are in seconds
+            long expiresAt = node.has("expiry") ? node.get("expiry").getAsLong() * 1000L : 0L;
+            if (expiresAt > 0 && expiresAt <= now) continue;
+            String context;
+            try {
+                context = convertContext(node.getAsJsonObject("context"));
+            } catch (IllegalArgumentException e) {
+                counter.skip(key + ": " + e.getMessage());
+                continue;
+            }
+            boolean temporary = expiresAt > 0;
+            if ((temporary && (!user || context != null)) || (context != null && !isPermissionNode(key))) {
+                counter.skip(key + ": temporary or contextual nodes of this kind are not supported");
+                continue;
+            }
+
+            String[] parts = key.split("\\.", 3);
+            if (key.startsWith("group.")) {
+                if (!value) continue;
+                String group = key.substring("group.".length());
+                if (temporary) tempParents.add(new TemporaryEntry(group, expiresAt)); else parents.add(group);
+            } else if ((key.startsWith("prefix.") || key.startsWith("suffix.")) && parts.length == 3) {
+                int priority = parseInt(parts[1]);
+                boolean prefix = parts[0].equals("prefix");
+                if (prefix ? priority > prefixPriority : priority > suffixPriority) {
+                    meta.put(parts[0], parts[2]);
+                    if (prefix) prefixPriority = priority; else suffixPriority = priority;
+                }
+            } else if (key.startsWith("weight.")) {
+                meta.put("weight", parseInt(key.substring("weight.".length())));
+            } else if (key.startsWith("displayname.")) {
+                meta.put("name", key.substring("displayname.".length()));
+            } else if (key.startsWith("meta.") && parts.length == 3) {
+                meta.put(parts[1], parts[2]);
+            } else if (temporary) {
+                tempPermissions.add(new TemporaryEntry(value ? key : "-" + key, expiresAt));
+            } else {
+                permissions.add(PermissionsManager.entry(key, value, context));
+            }
+        }
+
+        Map<String, Object> section = new LinkedHashMap<>();
+        section.put("permissions", permissions);
+        section.put(user ? "groups" : "inherits", parents);
+        if (!tempPermissions.isEmpty()) section.put("temp-permissions", TemporaryEntry.toMaps(tempPermissions));
+        if (!tempParents.isEmpty()) section.put("temp-groups", TemporaryEntry.toMaps(tempParents));
+        if (!meta.isEmpty()) section.put("meta", meta);
+        return section;
+    }
+
+    private static boolean isPermissionNode(String key) {
+        return !key.startsWith("group.") && !key.startsWith("prefix.") && !key.startsWith("suffix.")
+                && !key.startsWith("weight.") && !key.startsWith("displayname.") && !key.startsWith("meta.");
+    }
+
+    // {"world": "nether", "server": "lobby"} as "world=nether,server=lobby"; values may be single-element arrays
+    private static String convertContext(JsonObject context) {
+        if (context == null || context.size() == 0) return null;
+        List<String> parts = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> entry : context.entrySet()) {
+            String key = entry.getKey().toLowerCase();
+            JsonElement value = entry.getValue();
+            if (value.isJsonArray()) {
+                if (value.getAsJsonArray().size() != 1) throw new IllegalArgumentException("multiple values for context " + key);
+                value = value.getAsJsonArray().get(0);
+            }
+            if (!key.equals("world") && !key.equals("server")) throw new IllegalArgumentException("unsupported context " + key);
+            parts.add(key + "=" + value.getAsString().toLowerCase());
+        }
+        return String.join(",", parts);
+    }
+
+    private static int parseInt(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static InputStream open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        return file.getName().toLowerCase().endsWith(".gz") ? new GZIPInputStream(in, 65536) : in;
+    }
+
+    /**
+     * Counts entries and tells the caller how far along it is at most every few seconds
+     */
+    private final class Progress {
+        private final String verb;
+        private final Consumer<String> listener;
+        private long count;
+        private long skipped;
+        private long reportedAt = System.currentTimeMillis();
+
+        Progress(String verb, Consumer<String> listener) {
+            this.verb = verb;
+            this.listener = listener;
+        }
+
+        void add(int entries) {
+            count += entries;
+            long now = System.currentTimeMillis();
+            if (now - reportedAt < PROGRESS_INTERVAL_MILLIS) return;
+            reportedAt = now;
+            String message = "&7" + verb + " &e" + count + "&7 entries so far...";
+            Bukkit.getScheduler().runTask(plugin, () -> listener.accept(message));
+        }
+
+        void skip(String reason) {
+            // The first few are enough to see what is wrong with a file
+            if (skipped++ < 20) plugin.getLogger().warning("Import skipped " + reason);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package Echostudios.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One permission list (a group's or a user's) compiled into an immutable trie keyed by
+ * node segments. Each node holds the exact entry for that path and the {@code path.*}
+ * wildcard entry; {@code *} sits on the root. Every entry remembers its position in the
+ * list, so "last matching entry wins" is kept without scanning the list.
+ * Lookups compare segments case-insensitively in place and allocate nothing.
+ */
+public final class PermissionTrie {
+
+    /**
+     * Lookup result when no entry matches
+     */
+    public static final int UNSET = -1;
+
+    public static final PermissionTrie EMPTY = compile(List.of());
+
+    private final Node root;
+    private final int size;
+
+    private PermissionTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Compile entries as stored in permissions.yml: {@code node}, {@code -node}, {@code prefix.*} or {@code *}
+     */
+    public static PermissionTrie compile(List<String> entries) {
+        Builder root = new Builder();
+        for (int i = 0; i < entries.size(); i++) {
+            String entry = entries.get(i).trim();
+            boolean deny = entry.startsWith("-");
+            String perm = (deny ? entry.substring(1) : entry).toLowerCase();
+            int value = (i << 1) | (deny ? 0 : 1);
+            if (perm.equals("*")) {
+                root.wildcard = value;
+            } else if (perm.endsWith(".*")) {
+                root.path(perm.substring(0, perm.length() - 2)).wildcard = value;
+            } else {
+                root.path(perm).exact = value;
+            }
+        }
+        return new PermissionTrie(root.freeze(), entries.size());
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The last entry matching the node, encoded as {@code (index << 1) | allow}, or {@link #UNSET}
+     */
+    public int lookup(String node) {
+        Node current = root;
+        int best = current.wildcard;
+        int from = 0;
+        int length = node.length();
+        while (true) {
+            int to = node.indexOf('.', from);
+            if (to < 0) to = length;
+            current = current.child(node, from, to);
+            if (current == null) return best;
+            // prefix.* covers both "prefix" itself and everything below it
+            if (current.wildcard > best) best = current.wildcard;
+            if (to == length) {
+                return current.exact > best ? current.exact : best;
+            }
+            from = to + 1;
+        }
+    }
+
+    public static boolean isAllowed(int result) {
+        return (result & 1) == 1;
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final String[] NO_KEYS = new String[0];
+
+        private final String[] keys;
+        private final Node[] children;
+        private final int exact;
+        private final int wildcard;
+
+        private Node(String[] keys, Node[] children, int exact, int wildcard) {
+            this.keys = keys;
+            this.children = children;
+            this.exact = exact;
+            this.wildcard = wildcard;
+        }
+
+        // Open-addressed child table; the probe runs over the segment in place
+        private Node child(String node, int from, int to) {
+            if (keys.length == 0) return null;
+            int mask = keys.length - 1;
+            int length = to - from;
+            int i = hash(node, from, to) & mask;
+            String key;
+            while ((key = keys[i]) != null) {
+                if (key.length() == length && key.regionMatches(true, 0, node, from, length)) {
+                    return children[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+    }
+
+    private static final class Builder {
+        private final Map<String, Builder> children = new HashMap<>();
+        private int exact = UNSET;
+        private int wildcard = UNSET;
+
+        private Builder path(String perm) {
+            Builder current = this;
+            int from = 0;
+            while (true) {
+                int to = perm.indexOf('.', from);
+                if (to < 0) to = perm.length();
+                current = current.children.computeIfAbsent(perm.substring(from, to), k -> new Builder());
+                if (to == perm.length()) return current;
+                from = to + 1;
+            }
+        }
+
+        private Node freeze() {
+            if (children.isEmpty()) {
+                return new Node(Node.NO_KEYS, Node.NO_CHILDREN, exact, wildcard);
+            }
+            // Load factor at most 0.5 keeps probe chains short
+            int capacity = Integer.highestOneBit(children.size() * 2 - 1) << 1;
+            String[] keys = new String[capacity];
+            Node[] nodes = new Node[capacity];
+            int mask = capacity - 1;
+            for (Map.Entry<String, Builder> entry : children.entrySet()) {
+                String key = entry.getKey();
+                int i = hash(key, 0, key.length()) & mask;
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = key;
+                nodes[i] = entry.getValue().freeze();
+            }
+            return new Node(keys, nodes, exact, wildcard);
+        }
+    }
+
+    // Case-insensitive, so a mixed-case query hashes like the lowercased key
+    private static int hash(String s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + Character.toLowerCase(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+}
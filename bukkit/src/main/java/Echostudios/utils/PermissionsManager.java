@@ -1,141 +1,461 @@
 package Echostudios.utils;
 
 import Echostudios.EchoCore;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
+/**
+ * EchoPerms groups and users, kept in memory in the permissions.yml layout and persisted
+ * through a {@link PermissionStorage} ({@code runs.permissions.storage}: yaml or sql).
+ * Mutators change the in-memory config and record what changed; a background writer
+ * coalesces changes into one write at most every {@code runs.permissions.save-delay}
+ * milliseconds. With a lazy backend only loaded users (online or recently edited) are resident.
+ * Temporary user permissions and parents are expired by a {@link TimerWheel} checked once a second.
+ * Entries may be limited to a world or server ({@code [world=nether]node}); see {@link CompiledPermissions}.
+ * Tracks are ordered group lists under {@code tracks} that users are promoted and demoted along.
+ * With network sync on, local changes are also collected for {@link PermissionNetworkSync}.
+ * Readers take the same lock as mutators, since the config is read and written from the main thread,
+ * pre-login threads and async jobs. Getters only see resident users and never touch storage; callers
+ * that may name an offline user go through {@link #withUser(String, Consumer)} first.
+ */
 public class PermissionsManager {
 
+    // Users loaded and moved per lock hold during a bulk track run
+    private static final int BULK_CHUNK = 500;
+
     private final EchoCore plugin;
-    private final File file;
-    private FileConfiguration config;
+    private final PermissionStorage storage;
+    private YamlConfiguration config = new YamlConfiguration();
+    private volatile CompiledPermissions compiled = CompiledPermissions.EMPTY;
+    private final PermissionCache cache = new PermissionCache();
+    private final long saveDelayMillis;
+    private final ScheduledExecutorService writer;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+    private final Object fileLock = new Object();
+    private boolean dirty;
+    // Changes since the last write, guarded by this
+    private final Set<String> dirtyGroups = new LinkedHashSet<>();
+    private final Set<String> dirtyUsers = new LinkedHashSet<>();
+    private final Set<String> dirtyTracks = new LinkedHashSet<>();
+    private final List<PermissionStorage.GroupReference> references = new ArrayList<>();
+    private final Set<String> writingUsers = new HashSet<>();
+    // Groups and users whose compiled form is out of date, guarded by this; everything after a reload
+    private final Set<String> staleGroups = new HashSet<>();
+    private final Set<String> staleUsers = new HashSet<>();
+    private boolean staleAll = true;
+    // Paths of entities changed locally and not yet sent to the proxy, guarded by this
+    private final Set<String> outgoing = new LinkedHashSet<>();
+    private boolean publishing;
+    // Lowercased users present in the config, for lazy backends
+    private final Set<String> loadedUsers = ConcurrentHashMap.newKeySet();
+    // Lowercased users logging in or online, never evicted by bulk runs
+    private final Set<String> pinnedUsers = ConcurrentHashMap.newKeySet();
+    // This instance's server context, and each online player's lowercased world
+    private final String serverContext;
+    private final Map<String, String> worlds = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final TimerWheel<TempKey> expiries = new TimerWheel<>(1000L, 64, System.currentTimeMillis());
+    private final BukkitTask expiryTask;
+
+    /**
+     * One temporary entry: the user, its list ({@code temp-permissions} or {@code temp-groups})
+     * and the lowercased node without sign, or the group
+     */
+    private record TempKey(String user, String list, String value) {
+    }
+
+    /**
+     * Outcome of a bulk track run: users with the filter group, and how many of them moved
+     */
+    public record BulkResult(int matched, int moved, boolean failed) {
+    }
 
     public PermissionsManager(EchoCore plugin) {
         this.plugin = plugin;
-        this.file = new File(plugin.getDataFolder(), "permissions.yml");
+        this.storage = createStorage();
+        this.serverContext = plugin.getConfig().getString("runs.permissions.server", "global");
+        this.saveDelayMillis = Math.max(0L, plugin.getConfig().getLong("runs.permissions.save-delay", 250));
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "EchoCore-Perms-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
         load();
+        this.expiryTask = Bukkit.getScheduler().runTaskTimer(plugin, this::expireTemporary, 20L, 20L);
+    }
+
+    private PermissionStorage createStorage() {
+        String type = plugin.getConfig().getString("runs.permissions.storage", "yaml").toLowerCase();
+        if (type.equals("sql")) {
+            DatabaseManager db = plugin.getDatabaseManager();
+            if (db != null && db.isConnected()) {
+                return db.createPermissionStorage();
+            }
+            plugin.getLogger().warning("Permission storage 'sql' needs a database connection, using permissions.yml");
+        }
+        return new YamlPermissionStorage(new File(plugin.getDataFolder(), "permissions.yml"));
     }
 
     public void load() {
+        // Don't lose changes that are still waiting for the writer
+        flush();
+        List<String> resident = reload();
+        if (resident.isEmpty()) return;
+        // Users that were resident are read again outside the lock, then published with one recompile
+        Map<String, ConfigurationSection> read = new LinkedHashMap<>();
+        for (String user : resident) {
+            try {
+                read.put(user, storage.loadUser(user));
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load permissions of " + user, e);
+            }
+        }
+        synchronized (this) {
+            read.forEach(this::applyLoaded);
+            rebuild();
+            cache.invalidateAll();
+        }
+    }
+
+    // Returns the users that were resident with a lazy backend, which the caller loads again
+    private synchronized List<String> reload() {
+        YamlConfiguration loaded = new YamlConfiguration();
+        boolean ok = true;
+        try {
+            storage.load(loaded);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load permissions from " + storage.getName() + " storage", e);
+            ok = false;
+        }
+        config = loaded;
+        staleAll = true;
+        List<String> resident = new ArrayList<>(loadedUsers);
+        loadedUsers.clear();
+        // Fresh storage; a failed load is never overwritten with defaults
+        if (ok && !config.isConfigurationSection("groups")) {
+            config.set("groups.default.permissions", Collections.emptyList());
+            config.set("groups.default.inherits", Collections.emptyList());
+            config.set("groups.default.meta.name", "default");
+            config.set("groups.default.meta.weight", 0);
+            config.set("groups.default.meta.prefix", "&7");
+            config.set("groups.default.meta.suffix", "");
+            markGroup("default");
+            save();
+        }
+        for (String user : getAllUsers()) {
+            scheduleTemporary(user);
+        }
+        rebuild();
+        cache.invalidateAll();
+        return storage.isLazy() ? resident : Collections.emptyList();
+    }
+
+    /**
+     * Read a user into memory ahead of use, e.g. on pre-login; a no-op for backends that keep every user loaded
+     */
+    public void loadUser(String name) {
+        pinnedUsers.add(name.toLowerCase());
+        ensureUserLoaded(name);
+    }
+
+    /**
+     * Drop a player's cached results when they leave, and their data too if the backend loads users lazily
+     * and nothing of theirs is waiting to be written
+     */
+    public synchronized void unloadUser(String name) {
+        worlds.remove(name);
+        cache.invalidateUser(name);
+        String user = name.toLowerCase();
+        pinnedUsers.remove(user);
+        if (!storage.isLazy()) return;
+        if (dirtyUsers.contains(user) || writingUsers.contains(user) || !loadedUsers.remove(user)) return;
+        if (config.isConfigurationSection("users." + user)) {
+            config.set("users." + user, null);
+            staleUsers.add(user);
+            rebuild();
+        }
+    }
+
+    /**
+     * Run {@code then} on the main thread once the user is resident. With a lazy backend an offline user is
+     * read from storage off the main thread first; {@code then} gets false if that failed.
+     */
+    public void withUser(String name, Consumer<Boolean> then) {
+        if (isResident(name)) {
+            then.accept(true);
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            boolean loaded = ensureUserLoaded(name);
+            Bukkit.getScheduler().runTask(plugin, () -> then.accept(loaded));
+        });
+    }
+
+    private boolean isResident(String name) {
+        return !storage.isLazy() || loadedUsers.contains(name.toLowerCase());
+    }
+
+    // Mutators never load; a user that is not resident would be written back with only the change
+    private void requireResident(String name) {
+        if (!isResident(name)) throw new IllegalStateException("Permissions of " + name + " are not loaded");
+    }
+
+    // Blocks on storage; never call this on the main thread or while holding the lock
+    private boolean ensureUserLoaded(String name) {
+        if (!storage.isLazy()) return true;
+        String user = name.toLowerCase();
+        if (loadedUsers.contains(user)) return true;
+        ConfigurationSection section;
         try {
-            if (!file.getParentFile().exists()) file.getParentFile().mkdirs();
-            if (!file.exists()) {
-                file.createNewFile();
-                config = YamlConfiguration.loadConfiguration(file);
-                // defaults
-                config.set("groups.default.permissions", Collections.emptyList());
-                config.set("groups.default.inherits", Collections.emptyList());
-                config.set("groups.default.meta.name", "default");
-                config.set("groups.default.meta.weight", 0);
-                config.set("groups.default.meta.prefix", "&7");
-                config.set("groups.default.meta.suffix", "");
-                save();
-            } else {
-                config = YamlConfiguration.loadConfiguration(file);
+            section = storage.loadUser(user);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load permissions of " + name, e);
+            return false;
+        }
+        synchronized (this) {
+            if (!applyLoaded(user, section)) return true;
+            rebuild();
+            cache.invalidateUser(user);
+        }
+        return true;
+    }
+
+    // Put a user read from storage into the config, unless someone loaded them first; the caller recompiles,
+    // which adds only this user's chains
+    private boolean applyLoaded(String user, ConfigurationSection section) {
+        if (!loadedUsers.add(user) || section == null) return false;
+        for (String key : section.getKeys(true)) {
+            Object value = section.get(key);
+            if (!(value instanceof ConfigurationSection)) config.set("users." + user + "." + key, value);
+        }
+        scheduleTemporary(user);
+        staleUsers.add(user);
+        return true;
+    }
+
+    /**
+     * Drop users that were loaded for a bulk run and are neither online nor waiting to be written or sent
+     * to the proxy, removing their chains in one swap
+     */
+    synchronized void evictUsers(Collection<String> users) {
+        boolean removed = false;
+        for (String user : users) {
+            if (pinnedUsers.contains(user) || dirtyUsers.contains(user) || writingUsers.contains(user)
+                    || outgoing.contains("users." + user) || !loadedUsers.remove(user)) continue;
+            config.set("users." + user, null);
+            staleUsers.add(user);
+            removed = true;
+        }
+        if (removed) rebuild();
+    }
+
+    /**
+     * Publish the change to permission checks now and schedule the write; only groups and users recorded
+     * as stale are compiled again
+     */
+    public synchronized void save() {
+        rebuild();
+        scheduleWrite();
+    }
+
+    // Mark the config dirty and schedule a coalesced write, for callers that have recompiled already
+    private void scheduleWrite() {
+        dirty = true;
+        // After close() the change is picked up by its final flush
+        if (!writer.isShutdown() && writeScheduled.compareAndSet(false, true)) {
+            writer.schedule(() -> {
+                writeScheduled.set(false);
+                flush();
+            }, saveDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write pending changes now. The changed data is captured while holding the manager's lock,
+     * which mutators only hold briefly; the write itself runs without it.
+     */
+    public void flush() {
+        // Lock order is always fileLock, then this
+        synchronized (fileLock) {
+            PermissionStorage.Changes changes;
+            PermissionStorage.PendingWrite write;
+            synchronized (this) {
+                if (!dirty) return;
+                changes = new PermissionStorage.Changes(new LinkedHashSet<>(dirtyGroups),
+                        new LinkedHashSet<>(dirtyUsers), new LinkedHashSet<>(dirtyTracks), new ArrayList<>(references));
+                write = storage.prepare(config, changes);
+                dirtyGroups.clear();
+                dirtyUsers.clear();
+                dirtyTracks.clear();
+                references.clear();
+                writingUsers.addAll(changes.users());
+                dirty = false;
+            }
+            try {
+                write.write();
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to save permissions to " + storage.getName() + " storage", e);
+                synchronized (this) {
+                    dirtyGroups.addAll(changes.groups());
+                    dirtyUsers.addAll(changes.users());
+                    dirtyTracks.addAll(changes.tracks());
+                    references.addAll(0, changes.references());
+                    dirty = true;
+                }
+            } finally {
+                synchronized (this) {
+                    writingUsers.clear();
+                }
             }
-        } catch (IOException e) {
-            plugin.getLogger().severe("Failed to create permissions.yml: " + e.getMessage());
-            config = new YamlConfiguration();
         }
     }
 
-    public void save() {
+    /**
+     * Write anything pending and stop the writer; called on disable before the database closes
+     */
+    public void close() {
+        expiryTask.cancel();
+        writer.shutdown();
         try {
-            config.save(file);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Failed to save permissions.yml: " + e.getMessage());
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        flush();
+        storage.close();
     }
 
     // Groups
     public void setGroupPermission(String group, String permission, boolean value) {
+        setGroupPermission(group, permission, value, null);
+    }
+
+    /**
+     * @param context e.g. {@code world=nether,server=lobby}, or null for everywhere
+     */
+    public synchronized void setGroupPermission(String group, String permission, boolean value, String context) {
         String path = "groups." + group + ".permissions";
         List<String> list = new ArrayList<>(config.getStringList(path));
-        list.removeIf(p -> p.equalsIgnoreCase(permission) || p.equalsIgnoreCase("-" + permission));
-        list.add(value ? permission : ("-" + permission));
+        list.removeIf(p -> isEntryFor(p, permission, context));
+        list.add(entry(permission, value, context));
         config.set(path, list);
-        save();
+        saveGroup(group);
     }
 
-    public void addGroupInheritance(String group, String parent) {
+    public synchronized void addGroupInheritance(String group, String parent) {
         String path = "groups." + group + ".inherits";
         List<String> list = new ArrayList<>(config.getStringList(path));
         if (!list.contains(parent)) list.add(parent);
         config.set(path, list);
-        save();
+        saveGroup(group);
     }
 
-    public void setGroupMeta(String group, String key, Object value) {
+    public synchronized void setGroupMeta(String group, String key, Object value) {
         config.set("groups." + group + ".meta." + key, value);
-        save();
+        markGroup(group);
+        if (key.equals("weight")) {
+            // Weight decides the order groups are resolved in
+            saveGroup(group);
+        } else {
+            save();
+        }
     }
 
-    public String getGroupMetaString(String group, String key, String def) {
+    public synchronized String getGroupMetaString(String group, String key, String def) {
         return config.getString("groups." + group + ".meta." + key, def);
     }
 
-    public int getGroupWeight(String group) {
+    public synchronized int getGroupWeight(String group) {
         return config.getInt("groups." + group + ".meta.weight", 0);
     }
 
-    public java.util.Set<String> getAllGroups() {
+    public synchronized java.util.Set<String> getAllGroups() {
         ConfigurationSection sec = config.getConfigurationSection("groups");
         return sec != null ? sec.getKeys(false) : java.util.Collections.emptySet();
     }
 
-    public java.util.Set<String> getAllUsers() {
+    // With a lazy storage backend, only users that are currently loaded
+    public synchronized java.util.Set<String> getAllUsers() {
         ConfigurationSection sec = config.getConfigurationSection("users");
         return sec != null ? sec.getKeys(false) : java.util.Collections.emptySet();
     }
 
-    public java.util.List<String> getGroupPermissions(String group) {
+    public synchronized java.util.List<String> getGroupPermissions(String group) {
         return new ArrayList<>(config.getStringList("groups." + group + ".permissions"));
     }
 
-    public java.util.List<String> getUserPermissions(String user) {
+    public synchronized java.util.List<String> getUserPermissions(String user) {
         String base = "users." + user.toLowerCase();
         return new ArrayList<>(config.getStringList(base + ".permissions"));
     }
 
-    public java.util.List<String> getUserGroups(String user) {
+    public synchronized java.util.List<String> getUserGroups(String user) {
         String base = "users." + user.toLowerCase();
         return new ArrayList<>(config.getStringList(base + ".groups"));
     }
 
-    public java.util.List<String> getGroupInheritance(String group) {
+    public synchronized java.util.List<String> getGroupInheritance(String group) {
         return new ArrayList<>(config.getStringList("groups." + group + ".inherits"));
     }
 
     // Group management
-    public void createGroup(String group, int weight, String displayName) {
+    public synchronized void createGroup(String group, int weight, String displayName) {
         config.set("groups." + group + ".permissions", Collections.emptyList());
         config.set("groups." + group + ".inherits", Collections.emptyList());
         config.set("groups." + group + ".meta.weight", weight);
         config.set("groups." + group + ".meta.name", displayName != null ? displayName : group);
         config.set("groups." + group + ".meta.prefix", "");
         config.set("groups." + group + ".meta.suffix", "");
-        save();
+        saveGroup(group);
     }
 
-    public void deleteGroup(String group) {
+    public synchronized void deleteGroup(String group) {
         config.set("groups." + group, null);
-        // Remove from all users
+        markGroup(group);
+        staleGroups.add(group);
+        references.add(new PermissionStorage.GroupReference(group, null));
+        // Remove from all users and group inheritances, then save once; users that resolved through
+        // the group are recompiled for it anyway
         for (String user : getAllUsers()) {
-            removeUserGroup(user, group);
+            List<String> groups = getUserGroups(user);
+            if (groups.remove(group)) {
+                config.set("users." + user.toLowerCase() + ".groups", groups);
+                markUser(user);
+            }
+            if (removeTemporary(user, "temp-groups", group)) markUser(user);
         }
-        // Remove from all group inheritances
         for (String g : getAllGroups()) {
-            removeGroupInheritance(g, group);
+            List<String> inherits = getGroupInheritance(g);
+            if (inherits.remove(group)) {
+                config.set("groups." + g + ".inherits", inherits);
+                markGroup(g);
+                staleGroups.add(g);
+            }
+        }
+        for (String track : getAllTracks()) {
+            List<String> groups = getTrack(track);
+            if (groups.remove(group)) {
+                config.set("tracks." + track, groups);
+                markTrack(track);
+            }
         }
         save();
+        cache.invalidateAll();
     }
 
-    public void renameGroup(String oldName, String newName) {
+    public synchronized void renameGroup(String oldName, String newName) {
         if (oldName.equals(newName)) return;
         
         // Copy group data
@@ -143,6 +463,12 @@ public class PermissionsManager {
         if (oldGroup != null) {
             config.set("groups." + newName, oldGroup);
             config.set("groups." + oldName, null);
+            markGroup(oldName);
+            markGroup(newName);
+            // Holders and inheritors of the old name are recompiled for it, and pick up the new one
+            staleGroups.add(oldName);
+            staleGroups.add(newName);
+            references.add(new PermissionStorage.GroupReference(oldName, newName));
             
             // Update all user references
             for (String user : getAllUsers()) {
@@ -151,6 +477,16 @@ public class PermissionsManager {
                     groups.remove(oldName);
                     groups.add(newName);
                     config.set("users." + user.toLowerCase() + ".groups", groups);
+                    markUser(user);
+                }
+                List<TemporaryEntry> temps = getTemporary(user, "temp-groups");
+                for (int i = 0; i < temps.size(); i++) {
+                    TemporaryEntry temp = temps.get(i);
+                    if (!temp.value().equals(oldName)) continue;
+                    temps.set(i, new TemporaryEntry(newName, temp.expiresAt()));
+                    setTemporary(user, "temp-groups", temps);
+                    expiries.schedule(new TempKey(user.toLowerCase(), "temp-groups", newName), temp.expiresAt());
+                    markUser(user);
                 }
             }
             
@@ -161,60 +497,96 @@ public class PermissionsManager {
                     inherits.remove(oldName);
                     inherits.add(newName);
                     config.set("groups." + group + ".inherits", inherits);
+                    markGroup(group);
+                    staleGroups.add(group);
+                }
+            }
+
+            // Tracks keep the group's position
+            for (String track : getAllTracks()) {
+                List<String> groups = getTrack(track);
+                int index = groups.indexOf(oldName);
+                if (index >= 0) {
+                    groups.set(index, newName);
+                    config.set("tracks." + track, groups);
+                    markTrack(track);
                 }
             }
             save();
+            cache.invalidateAll();
         }
     }
 
-    public void removeUserGroup(String user, String group) {
+    public synchronized void removeUserGroup(String user, String group) {
+        requireResident(user);
         String base = "users." + user.toLowerCase();
         List<String> groups = new ArrayList<>(config.getStringList(base + ".groups"));
         groups.remove(group);
         config.set(base + ".groups", groups);
-        save();
+        removeTemporary(user, "temp-groups", group);
+        saveUser(user);
     }
 
-    public void removeGroupInheritance(String group, String parent) {
+    public synchronized void removeGroupInheritance(String group, String parent) {
         List<String> inherits = new ArrayList<>(config.getStringList("groups." + group + ".inherits"));
         inherits.remove(parent);
         config.set("groups." + group + ".inherits", inherits);
-        save();
+        saveGroup(group);
     }
 
     public void unsetUserPermission(String user, String permission) {
+        unsetUserPermission(user, permission, null);
+    }
+
+    public synchronized void unsetUserPermission(String user, String permission, String context) {
+        requireResident(user);
         String base = "users." + user.toLowerCase();
         List<String> perms = new ArrayList<>(config.getStringList(base + ".permissions"));
-        perms.removeIf(p -> p.equalsIgnoreCase(permission) || p.equalsIgnoreCase("-" + permission));
+        perms.removeIf(p -> isEntryFor(p, permission, context));
         config.set(base + ".permissions", perms);
-        save();
+        if (context == null) removeTemporary(user, "temp-permissions", permission);
+        saveUser(user);
     }
 
     public void unsetGroupPermission(String group, String permission) {
+        unsetGroupPermission(group, permission, null);
+    }
+
+    public synchronized void unsetGroupPermission(String group, String permission, String context) {
         String path = "groups." + group + ".permissions";
         List<String> perms = new ArrayList<>(config.getStringList(path));
-        perms.removeIf(p -> p.equalsIgnoreCase(permission) || p.equalsIgnoreCase("-" + permission));
+        perms.removeIf(p -> isEntryFor(p, permission, context));
         config.set(path, perms);
-        save();
+        saveGroup(group);
     }
 
-    public void setUserMeta(String user, String key, Object value) {
+    public synchronized void setUserMeta(String user, String key, Object value) {
+        requireResident(user);
         config.set("users." + user.toLowerCase() + ".meta." + key, value);
+        markUser(user);
         save();
     }
 
-    public String getUserMetaString(String user, String key, String def) {
+    public synchronized String getUserMetaString(String user, String key, String def) {
         return config.getString("users." + user.toLowerCase() + ".meta." + key, def);
     }
 
-    public void unsetUserMeta(String user, String key) {
+    public synchronized void unsetUserMeta(String user, String key) {
+        requireResident(user);
         config.set("users." + user.toLowerCase() + ".meta." + key, null);
+        markUser(user);
         save();
     }
 
-    public void unsetGroupMeta(String group, String key) {
+    public synchronized void unsetGroupMeta(String group, String key) {
         config.set("groups." + group + ".meta." + key, null);
-        save();
+        markGroup(group);
+        if (key.equals("weight")) {
+            // Weight decides the order groups are resolved in
+            saveGroup(group);
+        } else {
+            save();
+        }
     }
 
     public String getGroupDisplayName(String group) {
@@ -269,90 +641,651 @@ public class PermissionsManager {
         unsetGroupMeta(group, "suffix");
     }
 
-    public boolean groupExists(String group) {
+    public synchronized boolean groupExists(String group) {
         return getAllGroups().contains(group);
     }
 
-    public boolean userExists(String user) {
+    public synchronized boolean userExists(String user) {
         return getAllUsers().contains(user.toLowerCase());
     }
 
     // Users
     public void setUserPermission(String name, String permission, boolean value) {
+        setUserPermission(name, permission, value, null);
+    }
+
+    public synchronized void setUserPermission(String name, String permission, boolean value, String context) {
+        requireResident(name);
         String base = "users." + name.toLowerCase();
         List<String> perms = new ArrayList<>(config.getStringList(base + ".permissions"));
-        perms.removeIf(p -> p.equalsIgnoreCase(permission) || p.equalsIgnoreCase("-" + permission));
-        perms.add(value ? permission : ("-" + permission));
+        perms.removeIf(p -> isEntryFor(p, permission, context));
+        perms.add(entry(permission, value, context));
         config.set(base + ".permissions", perms);
-        save();
+        saveUser(name);
+    }
+
+    /**
+     * A permission list entry, e.g. {@code [world=nether]-essentials.fly}; the context is normalized
+     */
+    public static String entry(String permission, boolean value, String context) {
+        String signed = value ? permission : ("-" + permission);
+        context = normalizeContext(context);
+        return context == null ? signed : "[" + context + "]" + signed;
+    }
+
+    /**
+     * The one written form of a context, so {@code server=b,world=a} and {@code world=a,server=b} are the same
+     * entry: lowercase, trimmed, world first, then server, then anything else alphabetically. Null if empty.
+     */
+    public static String normalizeContext(String context) {
+        if (context == null || context.isBlank()) return null;
+        String[] parts = context.toLowerCase(Locale.ROOT).split(",");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        Arrays.sort(parts, Comparator.comparingInt(PermissionsManager::contextRank).thenComparing(Comparator.naturalOrder()));
+        return String.join(",", parts);
     }
 
-    public void addUserGroup(String name, String group) {
+    private static int contextRank(String part) {
+        if (part.startsWith("world=")) return 0;
+        return part.startsWith("server=") ? 1 : 2;
+    }
+
+    // Same node under the same context, either sign; entries written by hand may list contexts in any order
+    private static boolean isEntryFor(String entry, String permission, String context) {
+        String entryContext = null;
+        String node = entry;
+        int end = entry.startsWith("[") ? entry.indexOf(']') : -1;
+        if (end > 0) {
+            entryContext = normalizeContext(entry.substring(1, end));
+            node = entry.substring(end + 1);
+        }
+        if (node.startsWith("-")) node = node.substring(1);
+        return node.equalsIgnoreCase(permission) && Objects.equals(entryContext, normalizeContext(context));
+    }
+
+    public synchronized void addUserGroup(String name, String group) {
+        requireResident(name);
         String base = "users." + name.toLowerCase();
         List<String> groups = new ArrayList<>(config.getStringList(base + ".groups"));
         if (!groups.contains(group)) groups.add(group);
         config.set(base + ".groups", groups);
-        save();
+        saveUser(name);
     }
 
-    // Resolution
-    public boolean hasPermission(String name, String permission) {
-        String node = permission.toLowerCase();
-        // direct user perms
-        String base = "users." + name.toLowerCase();
-        Tri result = evaluateList(config.getStringList(base + ".permissions"), node);
-        if (result != Tri.UNSET) return result == Tri.ALLOW;
+    // Tracks
+    public synchronized java.util.Set<String> getAllTracks() {
+        ConfigurationSection sec = config.getConfigurationSection("tracks");
+        return sec != null ? sec.getKeys(false) : java.util.Collections.emptySet();
+    }
+
+    public synchronized boolean trackExists(String track) {
+        return config.isList("tracks." + track);
+    }
+
+    public synchronized java.util.List<String> getTrack(String track) {
+        return new ArrayList<>(config.getStringList("tracks." + track));
+    }
+
+    public synchronized void createTrack(String track) {
+        if (trackExists(track)) throw new IllegalArgumentException("Track " + track + " already exists");
+        config.set("tracks." + track, new ArrayList<>());
+        saveTrack(track);
+    }
+
+    public synchronized void deleteTrack(String track) {
+        config.set("tracks." + track, null);
+        saveTrack(track);
+    }
+
+    public synchronized void appendTrackGroup(String track, String group) {
+        insertTrackGroup(track, group, requireTrack(track).size() + 1);
+    }
+
+    /**
+     * Insert a group at a 1-based position, the first being the lowest rank
+     */
+    public synchronized void insertTrackGroup(String track, String group, int position) {
+        List<String> groups = requireTrack(track);
+        if (!groupExists(group)) throw new IllegalArgumentException("Group " + group + " does not exist");
+        if (groups.contains(group)) throw new IllegalArgumentException("Track " + track + " already contains " + group);
+        if (position < 1 || position > groups.size() + 1) {
+            throw new IllegalArgumentException("Position must be between 1 and " + (groups.size() + 1));
+        }
+        groups.add(position - 1, group);
+        config.set("tracks." + track, groups);
+        saveTrack(track);
+    }
+
+    public synchronized void removeTrackGroup(String track, String group) {
+        List<String> groups = requireTrack(track);
+        if (groups.remove(group)) {
+            config.set("tracks." + track, groups);
+            saveTrack(track);
+        }
+    }
+
+    /**
+     * Move the user to the next group on the track, or onto its first group if they are on none.
+     * Returns the new group, or null if they are already at the top.
+     */
+    public synchronized String promote(String user, String track) {
+        return shiftUser(user, track, true);
+    }
 
-        // user groups (highest weight first)
+    /**
+     * Move the user to the previous group on the track. Returns the new group, or null if they are
+     * on its first group or not on the track.
+     */
+    public synchronized String demote(String user, String track) {
+        return shiftUser(user, track, false);
+    }
+
+    private String shiftUser(String user, String track, boolean promote) {
+        requireResident(user);
+        String moved = shift(user.toLowerCase(), requireTrack(track), promote);
+        if (moved != null) saveUser(user);
+        return moved;
+    }
+
+    /**
+     * Promote or demote every user that has the filter group as a permanent parent. Names are streamed from
+     * storage off the main thread, then users are loaded and moved {@value #BULK_CHUNK} at a time, each chunk's
+     * users compiled into the snapshot in one swap, so readers never see the config ahead of the compiled view
+     * for long and a run costs in proportion to the users it touches. The run ends with one storage write and
+     * one sync pass; users loaded only for the run are dropped again. The callback runs on the main thread.
+     */
+    public void bulkShift(String track, String filterGroup, boolean promote, Consumer<BulkResult> done) {
+        List<String> groups;
+        synchronized (this) {
+            groups = requireTrack(track);
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Set<String> candidates = new LinkedHashSet<>();
+            synchronized (this) {
+                for (String user : getAllUsers()) {
+                    if (config.getStringList("users." + user + ".groups").contains(filterGroup)) candidates.add(user);
+                }
+            }
+            if (storage.isLazy()) {
+                try {
+                    storage.forEachUserInGroup(filterGroup, candidates::add);
+                } catch (Exception e) {
+                    plugin.getLogger().log(Level.SEVERE, "Failed to list users of group " + filterGroup, e);
+                    Bukkit.getScheduler().runTask(plugin, () -> done.accept(new BulkResult(0, 0, true)));
+                    return;
+                }
+            }
+
+            List<String> names = new ArrayList<>(candidates);
+            List<String> loadedForRun = new ArrayList<>();
+            List<String> moved = new ArrayList<>();
+            boolean failed = false;
+            for (int from = 0; from < names.size(); from += BULK_CHUNK) {
+                List<String> chunk = names.subList(from, Math.min(from + BULK_CHUNK, names.size()));
+                Map<String, ConfigurationSection> read = new LinkedHashMap<>();
+                if (storage.isLazy()) {
+                    for (String user : chunk) {
+                        if (loadedUsers.contains(user)) continue;
+                        try {
+                            read.put(user, storage.loadUser(user));
+                        } catch (Exception e) {
+                            plugin.getLogger().log(Level.SEVERE, "Failed to load permissions of " + user, e);
+                            failed = true;
+                        }
+                    }
+                }
+                synchronized (this) {
+                    List<String> loadedNow = new ArrayList<>();
+                    for (Map.Entry<String, ConfigurationSection> entry : read.entrySet()) {
+                        if (applyLoaded(entry.getKey(), entry.getValue())) loadedNow.add(entry.getKey());
+                    }
+                    List<String> movedNow = new ArrayList<>();
+                    for (String user : chunk) {
+                        if (storage.isLazy() && !loadedUsers.contains(user)) continue;
+                        try {
+                            if (shift(user, groups, promote) != null) movedNow.add(user);
+                        } catch (IllegalArgumentException e) {
+                            // On more than one group of the track; left for a manual fix
+                        }
+                    }
+                    if (!loadedNow.isEmpty() || !movedNow.isEmpty()) {
+                        // Only this chunk's users are compiled into the snapshot
+                        staleUsers.addAll(movedNow);
+                        rebuild();
+                        loadedNow.forEach(cache::invalidateUser);
+                        movedNow.forEach(cache::invalidateUser);
+                    }
+                    loadedForRun.addAll(loadedNow);
+                    moved.addAll(movedNow);
+                }
+            }
+
+            if (!moved.isEmpty()) {
+                synchronized (this) {
+                    // Every chunk is compiled already; only the write is left
+                    scheduleWrite();
+                }
+                flush();
+            }
+            BulkResult result = new BulkResult(names.size(), moved.size(), failed);
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                evictUsers(loadedForRun);
+                PermissionSyncManager sync = plugin.getPermissionSyncManager();
+                if (sync != null && !moved.isEmpty()) sync.syncAllOnline();
+                done.accept(result);
+            });
+        });
+    }
+
+    private List<String> requireTrack(String track) {
+        if (!trackExists(track)) throw new IllegalArgumentException("Track " + track + " does not exist");
+        return getTrack(track);
+    }
+
+    // Move a lowercased, loaded user one step along the track without saving; returns the new group or null
+    private String shift(String user, List<String> track, boolean promote) {
+        String base = "users." + user;
         List<String> groups = new ArrayList<>(config.getStringList(base + ".groups"));
-        groups.sort((a, b) -> Integer.compare(getGroupWeight(b), getGroupWeight(a)));
-        for (String group : groups) {
-            Tri g = hasGroupPermission(group, node, new HashSet<>());
-            if (g != Tri.UNSET) return g == Tri.ALLOW;
+        int position = -1;
+        int current = -1;
+        for (int i = 0; i < groups.size(); i++) {
+            int index = track.indexOf(groups.get(i));
+            if (index < 0) continue;
+            if (current >= 0) throw new IllegalArgumentException(user + " is on more than one group of the track");
+            position = i;
+            current = index;
         }
+        int target = promote ? current + 1 : current - 1;
+        if (target < 0 || target >= track.size()) return null;
+        if (position >= 0) groups.set(position, track.get(target)); else groups.add(track.get(target));
+        config.set(base + ".groups", groups);
+        markUser(user);
+        return track.get(target);
+    }
+
+    // Temporary permissions and parents
+
+    /**
+     * Grant or deny a node until the given time; while active it overrides a permanent entry for the same node
+     */
+    public synchronized void setUserTempPermission(String name, String permission, boolean value, long expiresAt) {
+        requireResident(name);
+        List<TemporaryEntry> temps = getTemporary(name, "temp-permissions");
+        temps.removeIf(t -> tempValue("temp-permissions", t.value()).equals(permission.toLowerCase()));
+        temps.add(new TemporaryEntry(value ? permission : ("-" + permission), expiresAt));
+        setTemporary(name, "temp-permissions", temps);
+        expiries.schedule(new TempKey(name.toLowerCase(), "temp-permissions", permission.toLowerCase()), expiresAt);
+        saveUser(name);
+    }
+
+    public synchronized void addUserTempGroup(String name, String group, long expiresAt) {
+        requireResident(name);
+        List<TemporaryEntry> temps = getTemporary(name, "temp-groups");
+        temps.removeIf(t -> t.value().equals(group));
+        temps.add(new TemporaryEntry(group, expiresAt));
+        setTemporary(name, "temp-groups", temps);
+        expiries.schedule(new TempKey(name.toLowerCase(), "temp-groups", group), expiresAt);
+        saveUser(name);
+    }
+
+    public synchronized List<TemporaryEntry> getUserTempPermissions(String user) {
+        return getTemporary(user, "temp-permissions");
+    }
 
-        // default group
-        Tri def = hasGroupPermission("default", node, new HashSet<>());
-        return def == Tri.ALLOW;
+    public synchronized List<TemporaryEntry> getUserTempGroups(String user) {
+        return getTemporary(user, "temp-groups");
     }
 
-    private Tri hasGroupPermission(String group, String node, Set<String> visited) {
-        if (!visited.add(group)) return Tri.UNSET; // prevent cycles
-        Tri result = evaluateList(config.getStringList("groups." + group + ".permissions"), node);
-        if (result != Tri.UNSET) return result;
-        for (String parent : config.getStringList("groups." + group + ".inherits")) {
-            Tri parentRes = hasGroupPermission(parent, node, visited);
-            if (parentRes != Tri.UNSET) return parentRes;
+    private List<TemporaryEntry> getTemporary(String user, String list) {
+        return TemporaryEntry.read(config, "users." + user.toLowerCase() + "." + list);
+    }
+
+    private void setTemporary(String user, String list, List<TemporaryEntry> temps) {
+        config.set("users." + user.toLowerCase() + "." + list, temps.isEmpty() ? null : TemporaryEntry.toMaps(temps));
+    }
+
+    // Remove the temporary entry for a node (either sign) or group; true if there was one
+    private boolean removeTemporary(String user, String list, String value) {
+        String key = tempValue(list, value);
+        List<TemporaryEntry> temps = getTemporary(user, list);
+        if (!temps.removeIf(t -> tempValue(list, t.value()).equals(key))) return false;
+        setTemporary(user, list, temps);
+        expiries.cancel(new TempKey(user.toLowerCase(), list, key));
+        return true;
+    }
+
+    private static String tempValue(String list, String value) {
+        if (!list.equals("temp-permissions")) return value;
+        return (value.startsWith("-") ? value.substring(1) : value).toLowerCase();
+    }
+
+    private void scheduleTemporary(String user) {
+        for (String list : new String[]{"temp-permissions", "temp-groups"}) {
+            for (TemporaryEntry temp : getTemporary(user, list)) {
+                expiries.schedule(new TempKey(user.toLowerCase(), list, tempValue(list, temp.value())), temp.expiresAt());
+            }
         }
-        return Tri.UNSET;
     }
 
-    private Tri evaluateList(List<String> entries, String node) {
-        // last match wins
-        Tri current = Tri.UNSET;
-        for (String raw : entries) {
-            String entry = raw.trim();
-            boolean deny = entry.startsWith("-");
-            String perm = deny ? entry.substring(1) : entry;
-            if (matchesNode(perm.toLowerCase(), node)) {
-                current = deny ? Tri.DENY : Tri.ALLOW;
+    /**
+     * Runs every second on the main thread. Idle cost is one wheel advance; expired entries are removed
+     * in one save that recompiles only the affected users, whose caches and attachments are refreshed.
+     */
+    private void expireTemporary() {
+        long now = System.currentTimeMillis();
+        List<TempKey> due = new ArrayList<>();
+        expiries.advance(now, due::add);
+        if (due.isEmpty()) return;
+        Set<String> affected = new HashSet<>();
+        synchronized (this) {
+            for (TempKey key : due) {
+                // Skip entries that were replaced, removed or unloaded since they were scheduled
+                List<TemporaryEntry> temps = getTemporary(key.user(), key.list());
+                if (temps.removeIf(t -> !t.isActive(now) && tempValue(key.list(), t.value()).equals(key.value()))) {
+                    setTemporary(key.user(), key.list(), temps);
+                    markUser(key.user());
+                    staleUsers.add(key.user());
+                    affected.add(key.user());
+                }
             }
+            if (affected.isEmpty()) return;
+            save();
+            affected.forEach(cache::invalidateUser);
         }
-        return current;
+        PermissionSyncManager sync = plugin.getPermissionSyncManager();
+        if (sync != null) affected.forEach(sync::syncPlayer);
+    }
+
+    /**
+     * Compile the stale groups and users into a copy of the current snapshot, or everything after a reload,
+     * and publish it in one swap
+     */
+    private void rebuild() {
+        compiled = staleAll ? CompiledPermissions.compile(config, serverContext)
+                : compiled.update(config, staleGroups, staleUsers);
+        staleAll = false;
+        staleGroups.clear();
+        staleUsers.clear();
+    }
+
+    private void markGroup(String group) {
+        dirtyGroups.add(group);
+        if (publishing) outgoing.add("groups." + group);
     }
 
-    private boolean matchesNode(String pattern, String node) {
-        if (pattern.equals("*")) return true;
-        if (pattern.equals(node)) return true;
-        // wildcard section support: echocore.*
-        if (pattern.endsWith(".*")) {
-            String prefix = pattern.substring(0, pattern.length() - 2);
-            return node.equals(prefix) || node.startsWith(prefix + ".");
+    private void markUser(String user) {
+        dirtyUsers.add(user.toLowerCase());
+        if (publishing) outgoing.add("users." + user.toLowerCase());
+    }
+
+    private void markTrack(String track) {
+        dirtyTracks.add(track);
+        if (publishing) outgoing.add("tracks." + track);
+    }
+
+    // Tracks take no part in resolution, so nothing is invalidated
+    private void saveTrack(String track) {
+        markTrack(track);
+        save();
+    }
+
+    // Save after a change to one user's permissions or groups
+    private void saveUser(String user) {
+        markUser(user);
+        staleUsers.add(user.toLowerCase());
+        save();
+        cache.invalidateUser(user);
+    }
+
+    // Save after a change to a group; members and inheriting groups are invalidated
+    private void saveGroup(String group) {
+        CompiledPermissions before = compiled;
+        markGroup(group);
+        staleGroups.add(group);
+        save();
+        cache.invalidateGroup(group, before, compiled);
+    }
+
+    // Network sync
+
+    /**
+     * Start or stop collecting local changes for {@link #drainOutgoing()}
+     */
+    public synchronized void setPublishing(boolean publishing) {
+        this.publishing = publishing;
+        if (!publishing) outgoing.clear();
+    }
+
+    /**
+     * Groups, users and tracks changed locally since the last call, keyed by path ({@code groups.admin}),
+     * with a copy of their data, or null if they were deleted
+     */
+    public synchronized Map<String, Object> drainOutgoing() {
+        Map<String, Object> changed = new LinkedHashMap<>();
+        for (String path : outgoing) {
+            changed.put(path, copyOf(config.get(path)));
+        }
+        outgoing.clear();
+        return changed;
+    }
+
+    /**
+     * Every resident group, user and track, keyed by path
+     */
+    public synchronized Map<String, Object> snapshotEntities() {
+        Map<String, Object> entities = new LinkedHashMap<>();
+        for (String path : residentPaths()) {
+            entities.put(path, copyOf(config.get(path)));
         }
-        return false;
+        return entities;
     }
 
-    private enum Tri { ALLOW, DENY, UNSET }
+    /**
+     * Apply entities received from the proxy; a null value deletes one. With {@code replaceAll}, resident
+     * groups and tracks missing from the map are deleted too, and users as well unless the backend is lazy,
+     * as the proxy only knows users someone changed. Entities with unsent local changes keep them, since those
+     * reach the proxy after this and win there. Users of a lazy backend that are not loaded are skipped.
+     * Entities equal to the local copy, such as this server's own changes coming back, are left alone; the rest
+     * is published with one recompile and written to local storage. Returns whether anything changed.
+     */
+    public synchronized boolean applyRemote(Map<String, Object> entities, boolean replaceAll) {
+        Set<String> paths = new LinkedHashSet<>(entities.keySet());
+        if (replaceAll) {
+            for (String path : residentPaths()) {
+                if (!storage.isLazy() || !path.startsWith("users.")) paths.add(path);
+            }
+        }
+        boolean changed = false;
+        for (String path : paths) {
+            if (!isEntityPath(path) || outgoing.contains(path)) continue;
+            String kind = path.substring(0, path.indexOf('.'));
+            String name = path.substring(path.indexOf('.') + 1);
+            if (kind.equals("users") && storage.isLazy() && !loadedUsers.contains(name)) continue;
+            Object value = copyOf(entities.get(path));
+            if (Objects.equals(value, copyOf(config.get(path)))) continue;
+            changed = true;
+            putEntity(path, value);
+            switch (kind) {
+                case "groups" -> {
+                    dirtyGroups.add(name);
+                    staleGroups.add(name);
+                }
+                case "tracks" -> dirtyTracks.add(name);
+                default -> {
+                    dirtyUsers.add(name);
+                    staleUsers.add(name);
+                    scheduleTemporary(name);
+                }
+            }
+        }
+        if (!changed) return false;
+        save();
+        cache.invalidateAll();
+        return true;
+    }
+
+    // Import and export
+
+    /**
+     * Store imported entities keyed by path, marking them changed but without recompiling; users of a lazy
+     * backend become resident until evicted. They are not collected for the proxy, which would keep them from
+     * being evicted; the importer hands each chunk to the network sync itself. Returns the users that were not
+     * resident before.
+     */
+    synchronized List<String> importEntities(Map<String, Object> entities) {
+        List<String> added = new ArrayList<>();
+        for (Map.Entry<String, Object> entity : entities.entrySet()) {
+            String path = entity.getKey();
+            if (!isEntityPath(path)) continue;
+            String kind = path.substring(0, path.indexOf('.'));
+            String name = path.substring(path.indexOf('.') + 1);
+            putEntity(path, copyOf(entity.getValue()));
+            switch (kind) {
+                case "groups" -> {
+                    dirtyGroups.add(name);
+                    staleGroups.add(name);
+                }
+                case "tracks" -> dirtyTracks.add(name);
+                default -> {
+                    if (storage.isLazy() && loadedUsers.add(name)) added.add(name);
+                    dirtyUsers.add(name);
+                    staleUsers.add(name);
+                    scheduleTemporary(name);
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Publish changes made through {@link #importEntities(Map)}: one recompile, a scheduled write, and every
+     * cached result dropped
+     */
+    synchronized void completeImport() {
+        save();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Copies of the given entities, keyed by path; absent ones are left out
+     */
+    synchronized Map<String, Object> copyEntities(Collection<String> paths) {
+        Map<String, Object> copies = new LinkedHashMap<>();
+        for (String path : paths) {
+            Object value = config.get(path);
+            if (value != null) copies.put(path, copyOf(value));
+        }
+        return copies;
+    }
+
+    /**
+     * Paths of every resident entity of one kind ({@code groups}, {@code users} or {@code tracks})
+     */
+    synchronized List<String> residentPaths(String kind) {
+        List<String> paths = new ArrayList<>();
+        ConfigurationSection section = config.getConfigurationSection(kind);
+        if (section == null) return paths;
+        for (String key : section.getKeys(false)) {
+            paths.add(kind + "." + key);
+        }
+        return paths;
+    }
+
+    PermissionStorage getStorage() {
+        return storage;
+    }
+
+    // groups.<name>, users.<name> or tracks.<name>
+    static boolean isEntityPath(String path) {
+        int dot = path.indexOf('.');
+        if (dot < 0 || dot == path.length() - 1 || path.indexOf('.', dot + 1) >= 0) return false;
+        String kind = path.substring(0, dot);
+        return kind.equals("groups") || kind.equals("users") || kind.equals("tracks");
+    }
+
+    // Replace one entity; maps become sections
+    private void putEntity(String path, Object value) {
+        if (value instanceof Map<?, ?> map) {
+            config.createSection(path, map);
+        } else {
+            config.set(path, value);
+        }
+    }
+
+    private List<String> residentPaths() {
+        List<String> paths = new ArrayList<>();
+        for (String kind : new String[]{"groups", "users", "tracks"}) {
+            paths.addAll(residentPaths(kind));
+        }
+        return paths;
+    }
+
+    // Sections become nested maps so the copy is detached from the config
+    static Object copyOf(Object value) {
+        if (value instanceof ConfigurationSection section) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (String key : section.getKeys(false)) {
+                map.put(key, copyOf(section.get(key)));
+            }
+            return map;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) copy.add(copyOf(element));
+            return copy;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, copyOf(v)));
+            return copy;
+        }
+        return value;
+    }
+
+    // Resolution
+    public boolean hasPermission(String name, String permission) {
+        PermissionCache.Entry entry = cache.forUser(name);
+        byte cached = cache.get(entry, permission);
+        if (cached != PermissionCache.UNSET) return cached == PermissionCache.ALLOW;
+        // Cached results are for the player's current world; a world change that moves them
+        // to another view drops the entry
+        boolean result = compiled.hasPermission(name, worlds.get(name), permission);
+        entry.put(permission, result);
+        return result;
+    }
+
+    /**
+     * Record the player's world. Returns true if that moved them to another compiled view,
+     * in which case their cached results were dropped and their attachment needs a sync.
+     */
+    public boolean setWorld(String name, String world) {
+        String lower = world.toLowerCase();
+        String previous = worlds.put(name, lower);
+        CompiledPermissions current = compiled;
+        if (previous != null && current.viewOf(previous) == current.viewOf(lower)) return false;
+        cache.invalidateUser(name);
+        return true;
+    }
+
+    /**
+     * The player's lowercased world, or null if unknown
+     */
+    public String getWorld(String name) {
+        return worlds.get(name);
+    }
+
+    /**
+     * The current permission snapshot; it never changes, so one check can make many lookups against it
+     */
+    public CompiledPermissions getCompiled() {
+        return compiled;
+    }
+
+    public PermissionCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
 
     // Simple API exposure
     public boolean has(PlayerAdapter adapter, String permission) {
@@ -364,7 +1297,7 @@ public class PermissionsManager {
     }
 
     // Utility methods for command completion
-    public List<String> getKnownPermissions() {
+    public synchronized List<String> getKnownPermissions() {
         Set<String> perms = new HashSet<>();
         // Add common permission nodes
         perms.add("echocore.*");
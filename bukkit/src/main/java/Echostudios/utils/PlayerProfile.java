@@ -0,0 +1,35 @@
+package Echostudios.utils;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of a player's stored data, loaded in one query by
+ * {@link DatabaseManager#loadProfile(UUID)}.
+ */
+public record PlayerProfile(UUID uuid, String username, Timestamp firstJoin, Timestamp lastSeen,
+                            int totalLogins, int warnings, int bans, int kicks, int mutes,
+                            boolean muted, boolean banned) {
+
+    /**
+     * Profile for a player with no stored row yet
+     */
+    public static PlayerProfile empty(UUID uuid) {
+        return new PlayerProfile(uuid, null, null, null, 0, 0, 0, 0, 0, false, false);
+    }
+
+    /**
+     * Add counters that are still waiting in the write-behind queue
+     */
+    PlayerProfile withPending(WriteBehindQueue.StatsDelta pending) {
+        if (pending == null) return this;
+        Timestamp seen = lastSeen;
+        if (pending.lastSeen() != null && (seen == null || seen.getTime() < pending.lastSeen())) {
+            seen = new Timestamp(pending.lastSeen());
+        }
+        return new PlayerProfile(uuid, username, firstJoin, seen,
+                totalLogins + pending.logins(), warnings,
+                bans + pending.bans(), kicks + pending.kicks(), mutes + pending.mutes(),
+                muted, banned);
+    }
+}
@@ -0,0 +1,135 @@
+package Echostudios.utils;
+
+import java.util.UUID;
+
+/**
+ * A player's row from the players table, held in memory for the whole session.
+ * Rank, prefix and suffix changes are only marked dirty here and written back in
+ * batch by {@link DatabaseManager#flushSessions()}; the other fields are written
+ * through by their moderation methods and only mirrored.
+ */
+public final class PlayerSession {
+
+    public static final int RANK = 1;
+    public static final int PREFIX = 1 << 1;
+    public static final int SUFFIX = 1 << 2;
+    public static final int ALL_DIRTY = RANK | PREFIX | SUFFIX;
+
+    private final UUID uuid;
+    private String username;
+    private String rank;
+    private String prefix;
+    private String suffix;
+    private int warnings;
+    private long firstJoin; // epoch millis, 0 = never joined
+    private long lastJoin;
+    private int dirty;
+
+    public PlayerSession(UUID uuid, String username, String rank, String prefix, String suffix,
+                         int warnings, long firstJoin, long lastJoin) {
+        this.uuid = uuid;
+        this.username = username;
+        this.rank = rank;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.warnings = warnings;
+        this.firstJoin = firstJoin;
+        this.lastJoin = lastJoin;
+    }
+
+    /**
+     * Session for a player without a players row yet
+     */
+    public static PlayerSession empty(UUID uuid) {
+        return new PlayerSession(uuid, null, null, null, null, 0, 0L, 0L);
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public synchronized String getUsername() {
+        return username;
+    }
+
+    public synchronized String getRank() {
+        return rank;
+    }
+
+    public synchronized String getPrefix() {
+        return prefix;
+    }
+
+    public synchronized String getSuffix() {
+        return suffix;
+    }
+
+    public synchronized int getWarnings() {
+        return warnings;
+    }
+
+    public synchronized long getFirstJoin() {
+        return firstJoin;
+    }
+
+    public synchronized long getLastJoin() {
+        return lastJoin;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty != 0;
+    }
+
+    synchronized void setRank(String rank, String prefix, String suffix) {
+        this.rank = rank;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        dirty |= ALL_DIRTY;
+    }
+
+    synchronized void joined(String username, long now) {
+        this.username = username;
+        if (firstJoin == 0L) firstJoin = now;
+        lastJoin = now;
+    }
+
+    synchronized void adjustWarnings(int delta) {
+        warnings = Math.max(0, warnings + delta);
+    }
+
+    /**
+     * Take the pending changes and mark the session clean; null if nothing is dirty
+     */
+    synchronized Snapshot drainDirty() {
+        if (dirty == 0) return null;
+        Snapshot snapshot = new Snapshot(this, dirty, rank, prefix, suffix);
+        dirty = 0;
+        return snapshot;
+    }
+
+    /**
+     * Mark fields dirty again after a failed write; values changed since then are kept
+     */
+    synchronized void restoreDirty(int mask) {
+        dirty |= mask;
+    }
+
+    /**
+     * Take the clean fields from a fresh database load, keeping unsaved local changes
+     */
+    synchronized void refresh(PlayerSession loaded) {
+        username = loaded.username;
+        warnings = loaded.warnings;
+        firstJoin = loaded.firstJoin;
+        lastJoin = loaded.lastJoin;
+        if ((dirty & RANK) == 0) rank = loaded.rank;
+        if ((dirty & PREFIX) == 0) prefix = loaded.prefix;
+        if ((dirty & SUFFIX) == 0) suffix = loaded.suffix;
+    }
+
+    /**
+     * Dirty field values captured for a batched write
+     */
+    record Snapshot(PlayerSession session, int mask, String rank, String prefix, String suffix) {
+    }
+}
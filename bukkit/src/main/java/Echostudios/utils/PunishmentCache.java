@@ -0,0 +1,172 @@
+package Echostudios.utils;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mute and ban state of online players, so chat and login checks never hit JDBC.
+ * Entries are loaded on pre-login, replaced by the moderation methods in {@link DatabaseManager},
+ * and dropped on quit. Timed punishments are lifted by a {@link TimerWheel}.
+ * A chat check is one ConcurrentHashMap read.
+ */
+public class PunishmentCache {
+
+    /**
+     * Snapshot of a player's punishments; expiry is epoch millis, 0 = permanent
+     */
+    public record Punishment(boolean muted, String muteReason, long muteExpires,
+                             boolean banned, String banReason, long banExpires) {
+
+        public static final Punishment NONE = new Punishment(false, null, 0L, false, null, 0L);
+
+        public boolean isMuted(long now) {
+            return muted && (muteExpires == 0L || muteExpires > now);
+        }
+
+        public boolean isBanned(long now) {
+            return banned && (banExpires == 0L || banExpires > now);
+        }
+
+        Punishment withMute(boolean muted, String reason, long expires) {
+            return new Punishment(muted, muted ? reason : null, muted ? expires : 0L, banned, banReason, banExpires);
+        }
+
+        Punishment withBan(boolean banned, String reason, long expires) {
+            return new Punishment(muted, muteReason, muteExpires, banned, banned ? reason : null, banned ? expires : 0L);
+        }
+
+        /**
+         * Earliest pending expiry, or 0 if nothing is timed
+         */
+        long nextExpiry() {
+            long next = 0L;
+            if (muted && muteExpires > 0L) next = muteExpires;
+            if (banned && banExpires > 0L) next = next == 0L ? banExpires : Math.min(next, banExpires);
+            return next;
+        }
+    }
+
+    private final Map<UUID, Punishment> entries = new ConcurrentHashMap<>();
+    private final TimerWheel<UUID> expiries = new TimerWheel<>(1000L, 512, System.currentTimeMillis());
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Cached state, or null if this player has not been loaded
+     */
+    public Punishment get(UUID uuid) {
+        Punishment punishment = entries.get(uuid);
+        if (punishment != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return punishment;
+    }
+
+    /**
+     * Chat check; false for players that are not cached
+     */
+    public boolean isMuted(UUID uuid) {
+        Punishment punishment = get(uuid);
+        return punishment != null && punishment.isMuted(System.currentTimeMillis());
+    }
+
+    public boolean isLoaded(UUID uuid) {
+        return entries.containsKey(uuid);
+    }
+
+    /**
+     * Store state loaded from the database
+     */
+    public void put(UUID uuid, Punishment punishment) {
+        entries.put(uuid, punishment);
+        reschedule(uuid, punishment);
+    }
+
+    /**
+     * Apply a mute or unmute to a cached player; players that are not cached are left alone
+     */
+    public void updateMute(UUID uuid, boolean muted, String reason, long expires) {
+        Punishment updated = entries.computeIfPresent(uuid, (k, p) -> p.withMute(muted, reason, expires));
+        if (updated != null) {
+            invalidations.increment();
+            reschedule(uuid, updated);
+        }
+    }
+
+    /**
+     * Apply a ban or unban to a cached player; players that are not cached are left alone
+     */
+    public void updateBan(UUID uuid, boolean banned, String reason, long expires) {
+        Punishment updated = entries.computeIfPresent(uuid, (k, p) -> p.withBan(banned, reason, expires));
+        if (updated != null) {
+            invalidations.increment();
+            reschedule(uuid, updated);
+        }
+    }
+
+    public void remove(UUID uuid) {
+        entries.remove(uuid);
+        expiries.cancel(uuid);
+    }
+
+    /**
+     * Lift punishments whose time is up; run periodically off the main thread
+     */
+    public void expire() {
+        long now = System.currentTimeMillis();
+        expiries.advance(now, uuid -> {
+            Punishment current = entries.get(uuid);
+            if (current == null) return;
+            Punishment next = current;
+            if (current.muted && !current.isMuted(now)) next = next.withMute(false, null, 0L);
+            if (current.banned && !current.isBanned(now)) next = next.withBan(false, null, 0L);
+            if (next != current) {
+                // A concurrent update already rescheduled this player
+                if (!entries.replace(uuid, current, next)) return;
+                expirations.increment();
+            }
+            reschedule(uuid, next);
+        });
+    }
+
+    public void clear() {
+        for (UUID uuid : entries.keySet()) {
+            expiries.cancel(uuid);
+        }
+        entries.clear();
+    }
+
+    private void reschedule(UUID uuid, Punishment punishment) {
+        long next = punishment.nextExpiry();
+        if (next > 0L) {
+            expiries.schedule(uuid, next);
+        } else {
+            expiries.cancel(uuid);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(entries.size(), hits.sum(), misses.sum(), invalidations.sum(), expirations.sum());
+    }
+
+    public record Stats(int size, long hits, long misses, long invalidations, long expirations) {
+
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 1.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "size=" + size + ", hitRatio=" + String.format("%.3f", hitRatio()) + " (" + hits + "/" + (hits + misses)
+                    + "), invalidations=" + invalidations + ", expirations=" + expirations;
+        }
+    }
+}
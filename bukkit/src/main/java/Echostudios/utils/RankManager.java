@@ -36,10 +36,12 @@ public class RankManager {
 
         UUID uuid = player.getUniqueId();
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
-            return plugin.getDatabaseManager().getPlayerPrefix(uuid).thenApply(prefix -> {
+            // Served from the player's session; no database round trip while they are online
+            return plugin.getDatabaseManager().getSession(uuid).thenApply(session -> {
+                if (session == null) return getConfiguredGroupPrefix("default", defaultPrefix);
+                String prefix = session.getPrefix();
                 if (prefix != null && !prefix.isEmpty()) return prefix;
-                String rank = plugin.getDatabaseManager().getPlayerRank(uuid).join();
-                return getConfiguredGroupPrefix(rank, defaultPrefix);
+                return getConfiguredGroupPrefix(session.getRank() != null ? session.getRank() : "default", defaultPrefix);
             });
         }
 
@@ -71,10 +73,11 @@ public class RankManager {
 
         UUID uuid = player.getUniqueId();
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnected()) {
-            return plugin.getDatabaseManager().getPlayerSuffix(uuid).thenApply(suffix -> {
+            return plugin.getDatabaseManager().getSession(uuid).thenApply(session -> {
+                if (session == null) return getConfiguredGroupSuffix("default", defaultSuffix);
+                String suffix = session.getSuffix();
                 if (suffix != null && !suffix.isEmpty()) return suffix;
-                String rank = plugin.getDatabaseManager().getPlayerRank(uuid).join();
-                return getConfiguredGroupSuffix(rank, defaultSuffix);
+                return getConfiguredGroupSuffix(session.getRank() != null ? session.getRank() : "default", defaultSuffix);
             });
         }
 
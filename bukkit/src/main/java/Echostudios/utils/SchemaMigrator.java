@@ -0,0 +1,264 @@
+package Echostudios.utils;
+
+import Echostudios.EchoCore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Versioned schema migrations for the EchoCore tables.
+ * Each migration is a SQL script per dialect under migrations/&lt;mysql|sqlite&gt;/ in the jar.
+ * Applied versions are recorded in the schema_version table. Scripts are written to be
+ * idempotent, and "already exists" errors are skipped, so a half-applied migration can be rerun.
+ */
+public class SchemaMigrator {
+
+    /**
+     * Checked before a migration runs; a migration whose precondition is false is recorded without running
+     */
+    @FunctionalInterface
+    private interface Precondition {
+        boolean test(SchemaMigrator migrator, Connection connection) throws SQLException;
+    }
+
+    /**
+     * Run before a migration's script; throws to stop the migration before it changes anything
+     */
+    @FunctionalInterface
+    private interface Check {
+        void verify(SchemaMigrator migrator, Connection connection) throws SQLException;
+    }
+
+    private record Migration(int version, String name, Precondition precondition, Check check) {}
+
+    // Ordered; never renumber or edit a shipped migration, add a new one instead
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "baseline", null, null),
+        new Migration(2, "moderation_counters", null, null),
+        new Migration(3, "indexes", null, null),
+        new Migration(4, "binary_uuids", SchemaMigrator::hasTextUuids, SchemaMigrator::requireConvertibleUuids),
+        new Migration(5, "mute_expiry", null, null),
+        new Migration(6, "permissions", null, null),
+        new Migration(7, "temp_permissions", null, null),
+        new Migration(8, "tracks", null, null)
+    );
+
+    // MySQL: table exists, duplicate column, duplicate key name, can't drop missing key/column
+    private static final Set<Integer> MYSQL_ALREADY_APPLIED = Set.of(1050, 1060, 1061, 1091);
+
+    private static final String LOCK_NAME = "echocore_schema";
+
+    private final EchoCore plugin;
+    private final ConnectionPool pool;
+    private final String tablePrefix;
+    private final boolean mysql;
+
+    public SchemaMigrator(EchoCore plugin, ConnectionPool pool, String tablePrefix, SqlDialect dialect) {
+        this.plugin = plugin;
+        this.pool = pool;
+        this.tablePrefix = tablePrefix;
+        this.mysql = dialect == SqlDialect.MYSQL;
+    }
+
+    /**
+     * Bring the schema up to the latest version
+     */
+    public void migrate() throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            // Several nodes may start at once against the same MySQL schema
+            if (mysql) acquireLock(connection);
+            try {
+                createVersionTable(connection);
+                Set<Integer> applied = appliedVersions(connection);
+                for (Migration migration : MIGRATIONS) {
+                    if (applied.contains(migration.version)) continue;
+                    apply(connection, migration);
+                }
+            } finally {
+                if (mysql) releaseLock(connection);
+            }
+        }
+    }
+
+    /**
+     * Highest version in this build, for diagnostics
+     */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        String label = "V" + migration.version + "__" + migration.name;
+        long start = System.currentTimeMillis();
+
+        if (migration.precondition == null || migration.precondition.test(this, connection)) {
+            if (migration.check != null) migration.check.verify(this, connection);
+            try (Statement stmt = connection.createStatement()) {
+                for (String sql : loadScript(label)) {
+                    try {
+                        stmt.execute(sql);
+                    } catch (SQLException e) {
+                        if (!isAlreadyApplied(e)) {
+                            throw new SQLException("Migration " + label + " failed on: " + sql, e);
+                        }
+                        plugin.getLogger().fine("Migration " + label + ": skipped, already applied: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        String sql = String.format("INSERT INTO %sschema_version (version, name) VALUES (?, ?)", tablePrefix);
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.name);
+            stmt.executeUpdate();
+        }
+        plugin.getLogger().info("Applied database migration " + label + " in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private void createVersionTable(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS %sschema_version (" +
+                "version INT PRIMARY KEY, " +
+                "name VARCHAR(64) NOT NULL, " +
+                "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ")", tablePrefix
+            ));
+        }
+    }
+
+    private Set<Integer> appliedVersions(Connection connection) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        String sql = String.format("SELECT version FROM %sschema_version", tablePrefix);
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Read migrations/&lt;dialect&gt;/&lt;label&gt;.sql, drop comment lines and split on statement-ending semicolons
+     */
+    private List<String> loadScript(String label) throws SQLException {
+        String path = "migrations/" + (mysql ? "mysql" : "sqlite") + "/" + label + ".sql";
+        InputStream in = plugin.getResource(path);
+        if (in == null) {
+            throw new SQLException("Missing migration script " + path);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) continue;
+                current.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    String sql = current.toString().trim();
+                    statements.add(sql.substring(0, sql.length() - 1).replace("{prefix}", tablePrefix));
+                    current.setLength(0);
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration script " + path, e);
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim().replace("{prefix}", tablePrefix));
+        }
+        return statements;
+    }
+
+    private boolean isAlreadyApplied(SQLException e) {
+        if (mysql) {
+            return MYSQL_ALREADY_APPLIED.contains(e.getErrorCode());
+        }
+        String message = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
+        return message.contains("duplicate column name") || message.contains("already exists");
+    }
+
+    /**
+     * V4 only has work to do while players.uuid is still a text column (MySQL)
+     */
+    private static boolean hasTextUuids(SchemaMigrator migrator, Connection connection) throws SQLException {
+        if (!migrator.mysql) return false;
+        String sql = "SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'uuid'";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, migrator.tablePrefix + "players");
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && !"binary".equalsIgnoreCase(rs.getString(1));
+            }
+        }
+    }
+
+    // A dashed UUID in hex; anything else would not survive UNHEX
+    private static final String UUID_PATTERN = "'^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$'";
+
+    /**
+     * V4 copies every row and then drops the text tables, so it refuses to start while any row could not be
+     * copied: a UUID that is not a dashed hex UUID, or a stats row without its player. Nothing is changed;
+     * the rows are listed by count so they can be fixed or removed before the next start.
+     */
+    private static void requireConvertibleUuids(SchemaMigrator migrator, Connection connection) throws SQLException {
+        String prefix = migrator.tablePrefix;
+        List<String> problems = new ArrayList<>();
+        count(connection, problems, "players rows with a malformed uuid",
+                "SELECT COUNT(*) FROM " + prefix + "players WHERE uuid NOT REGEXP " + UUID_PATTERN);
+        count(connection, problems, "moderation_logs rows with a malformed target_uuid or moderator_uuid",
+                "SELECT COUNT(*) FROM " + prefix + "moderation_logs WHERE target_uuid NOT REGEXP " + UUID_PATTERN
+                        + " OR moderator_uuid NOT REGEXP " + UUID_PATTERN);
+        count(connection, problems, "player_stats rows with a malformed uuid",
+                "SELECT COUNT(*) FROM " + prefix + "player_stats WHERE uuid NOT REGEXP " + UUID_PATTERN);
+        count(connection, problems, "player_stats rows without a players row",
+                "SELECT COUNT(*) FROM " + prefix + "player_stats s LEFT JOIN " + prefix + "players p ON p.uuid = s.uuid"
+                        + " WHERE p.uuid IS NULL");
+        if (!problems.isEmpty()) {
+            throw new SQLException("Cannot convert UUIDs to BINARY(16) without losing data: " + String.join(", ", problems)
+                    + ". Nothing was changed; fix or delete these rows and restart.");
+        }
+    }
+
+    private static void count(Connection connection, List<String> problems, String what, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            long count = rs.next() ? rs.getLong(1) : 0;
+            if (count > 0) problems.add(count + " " + what);
+        }
+    }
+
+    private void acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT GET_LOCK(?, 60)")) {
+            stmt.setString(1, LOCK_NAME + "_" + tablePrefix);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another node to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection) {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME + "_" + tablePrefix);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not release schema migration lock", e);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package Echostudios.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Player sessions: online players for as long as they are connected, plus a bounded
+ * LRU of recently looked-up offline players that expire after a TTL.
+ * Sessions that quit with unsaved changes stay queued until the next flush.
+ */
+public class SessionCache {
+
+    private final Map<UUID, PlayerSession> online = new ConcurrentHashMap<>();
+    private final Map<UUID, OfflineEntry> offline;
+    private final ConcurrentLinkedQueue<PlayerSession> retired = new ConcurrentLinkedQueue<>();
+    private final long offlineTtlMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+
+    private record OfflineEntry(PlayerSession session, long loadedAt) {
+    }
+
+    public SessionCache(int offlineMaxSize, long offlineTtlMillis) {
+        this.offlineTtlMillis = offlineTtlMillis;
+        // Access-ordered, so the eldest entry is the least recently used
+        this.offline = new LinkedHashMap<>(Math.max(16, offlineMaxSize), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, OfflineEntry> eldest) {
+                if (size() > offlineMaxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public PlayerSession getOnline(UUID uuid) {
+        return online.get(uuid);
+    }
+
+    /**
+     * Online session, or a fresh offline one; null means the caller has to load it
+     */
+    public PlayerSession getIfPresent(UUID uuid) {
+        PlayerSession session = online.get(uuid);
+        if (session == null) {
+            session = getOffline(uuid);
+        }
+        if (session != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return session;
+    }
+
+    /**
+     * Make a freshly loaded session the player's online session. If the player quit
+     * recently with changes that are not flushed yet, that session is kept instead.
+     */
+    public PlayerSession start(PlayerSession loaded) {
+        PlayerSession previous;
+        synchronized (offline) {
+            OfflineEntry entry = offline.remove(loaded.getUuid());
+            previous = entry != null ? entry.session() : null;
+        }
+        PlayerSession session = loaded;
+        if (previous != null && previous.isDirty()) {
+            previous.refresh(loaded);
+            session = previous;
+        }
+        online.put(session.getUuid(), session);
+        return session;
+    }
+
+    /**
+     * Player quit: keep the session around as an offline entry and queue unsaved changes
+     */
+    public void end(UUID uuid) {
+        PlayerSession session = online.remove(uuid);
+        if (session == null) return;
+        if (session.isDirty()) {
+            retired.add(session);
+        }
+        putOffline(session);
+    }
+
+    public void putOffline(PlayerSession session) {
+        synchronized (offline) {
+            offline.put(session.getUuid(), new OfflineEntry(session, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Apply a change to a cached session; offline sessions are queued for the next flush.
+     * Returns false if the player is not cached.
+     */
+    public boolean modify(UUID uuid, Consumer<PlayerSession> change) {
+        PlayerSession session = online.get(uuid);
+        if (session != null) {
+            change.accept(session);
+            return true;
+        }
+        session = getOffline(uuid);
+        if (session == null) return false;
+        change.accept(session);
+        if (session.isDirty()) retired.add(session);
+        return true;
+    }
+
+    /**
+     * Drop queued changes for a player whose row was just written directly
+     */
+    public void forget(UUID uuid) {
+        retired.removeIf(session -> session.getUuid().equals(uuid));
+        synchronized (offline) {
+            offline.remove(uuid);
+        }
+    }
+
+    /**
+     * Collect every unsaved change and mark those sessions clean
+     */
+    List<PlayerSession.Snapshot> drainDirty() {
+        List<PlayerSession.Snapshot> batch = new ArrayList<>();
+        for (PlayerSession session : online.values()) {
+            PlayerSession.Snapshot snapshot = session.drainDirty();
+            if (snapshot != null) batch.add(snapshot);
+        }
+        PlayerSession session;
+        while ((session = retired.poll()) != null) {
+            PlayerSession.Snapshot snapshot = session.drainDirty();
+            if (snapshot != null) batch.add(snapshot);
+        }
+        return batch;
+    }
+
+    /**
+     * Put changes from a failed flush back so the next flush retries them
+     */
+    void requeue(List<PlayerSession.Snapshot> batch) {
+        for (PlayerSession.Snapshot snapshot : batch) {
+            snapshot.session().restoreDirty(snapshot.mask());
+            if (!online.containsKey(snapshot.session().getUuid())) {
+                retired.add(snapshot.session());
+            }
+        }
+    }
+
+    void recordFlushed(int count) {
+        flushed.add(count);
+    }
+
+    public void clear() {
+        online.clear();
+        retired.clear();
+        synchronized (offline) {
+            offline.clear();
+        }
+    }
+
+    private PlayerSession getOffline(UUID uuid) {
+        synchronized (offline) {
+            OfflineEntry entry = offline.get(uuid);
+            if (entry == null) return null;
+            // Keep expired entries with unsaved changes until they are flushed
+            if (System.currentTimeMillis() - entry.loadedAt() > offlineTtlMillis && !entry.session().isDirty()) {
+                offline.remove(uuid);
+                evictions.increment();
+                return null;
+            }
+            return entry.session();
+        }
+    }
+
+    public Stats getStats() {
+        int offlineSize;
+        synchronized (offline) {
+            offlineSize = offline.size();
+        }
+        return new Stats(online.size(), offlineSize, hits.sum(), misses.sum(), evictions.sum(), flushed.sum());
+    }
+
+    public record Stats(int online, int offline, long hits, long misses, long evictions, long flushed) {
+
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 1.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "online=" + online + ", offline=" + offline + ", hitRatio=" + String.format("%.3f", hitRatio())
+                    + " (" + hits + "/" + (hits + misses) + "), evictions=" + evictions + ", flushed=" + flushed;
+        }
+    }
+}
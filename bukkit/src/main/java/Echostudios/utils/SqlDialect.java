@@ -0,0 +1,165 @@
+package Echostudios.utils;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Per-backend SQL differences: upsert syntax, identifier quoting, pagination,
+ * and how UUID and timestamp parameters are bound.
+ * Statements are built from these once at startup (see {@link DatabaseQueries}).
+ */
+public enum SqlDialect {
+
+    MYSQL {
+        @Override
+        public String quote(String identifier) {
+            return "`" + identifier + "`";
+        }
+
+        @Override
+        public String upsert(String insert, String keyColumn, String... assignments) {
+            // Updates the row in place; unlike REPLACE it does not delete and reinsert
+            return insert + " ON DUPLICATE KEY UPDATE " + String.join(", ", assignments);
+        }
+
+        @Override
+        public String inserted(String column) {
+            return "VALUES(" + column + ")";
+        }
+
+        @Override
+        public void bindUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+            // BINARY(16) since the binary_uuids migration
+            stmt.setBytes(index, toBytes(uuid));
+        }
+
+        @Override
+        public boolean isTransient(SQLException e) {
+            // 1205 lock wait timeout, 1213 deadlock
+            return super.isTransient(e) || e.getErrorCode() == 1205 || e.getErrorCode() == 1213;
+        }
+
+        @Override
+        public UUID readUuid(ResultSet rs, String column) throws SQLException {
+            byte[] bytes = rs.getBytes(column);
+            return bytes != null && bytes.length == 16 ? fromBytes(bytes) : null;
+        }
+    },
+
+    SQLITE {
+        @Override
+        public String quote(String identifier) {
+            return "\"" + identifier + "\"";
+        }
+
+        @Override
+        public String upsert(String insert, String keyColumn, String... assignments) {
+            // Needs SQLite 3.24+; the WHERE true keeps INSERT ... SELECT from swallowing the ON clause
+            String body = insert.contains(" SELECT ") && !insert.contains(" WHERE ") ? insert + " WHERE true" : insert;
+            return body + " ON CONFLICT(" + keyColumn + ") DO UPDATE SET " + String.join(", ", assignments);
+        }
+
+        @Override
+        public String inserted(String column) {
+            return "excluded." + column;
+        }
+
+        @Override
+        public void bindUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+            stmt.setString(index, uuid.toString());
+        }
+
+        @Override
+        public boolean isTransient(SQLException e) {
+            // SQLITE_BUSY and SQLITE_LOCKED, including their extended result codes
+            int primary = e.getErrorCode() & 0xFF;
+            return super.isTransient(e) || primary == 5 || primary == 6;
+        }
+
+        @Override
+        public UUID readUuid(ResultSet rs, String column) throws SQLException {
+            String value = rs.getString(column);
+            try {
+                return value != null ? UUID.fromString(value) : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    };
+
+    public static SqlDialect fromType(String type) {
+        return "mysql".equalsIgnoreCase(type) ? MYSQL : SQLITE;
+    }
+
+    /**
+     * Quote an identifier that may be a reserved word (e.g. rank on MySQL 8)
+     */
+    public abstract String quote(String identifier);
+
+    /**
+     * Turn an INSERT into an insert-or-update on the given unique key
+     */
+    public abstract String upsert(String insert, String keyColumn, String... assignments);
+
+    /**
+     * Reference to the value the INSERT tried to write, for use in upsert assignments
+     */
+    public abstract String inserted(String column);
+
+    public abstract void bindUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException;
+
+    /**
+     * Read a UUID column, or null if it is NULL or malformed
+     */
+    public abstract UUID readUuid(ResultSet rs, String column) throws SQLException;
+
+    /**
+     * Whether a failed statement may succeed if simply retried later: lost connections, pool timeouts,
+     * deadlocks and lock waits. Constraint violations, oversized values and bad SQL are permanent.
+     */
+    public boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) return true;
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("08") || state.startsWith("40"));
+    }
+
+    /**
+     * Turn a SELECT over a derived table or single table into one keyset page: rows after the
+     * last key of the previous page, in key order. Binds as two trailing parameters (after, limit).
+     * Unlike LIMIT/OFFSET, a deep page costs the same as the first one.
+     */
+    public String paginate(String select, String keyColumn) {
+        return select + " WHERE " + keyColumn + " > ? ORDER BY " + keyColumn + " LIMIT ?";
+    }
+
+    /**
+     * Timestamps always come from the server clock as a bound parameter, never CURRENT_TIMESTAMP,
+     * so both backends store the same instant and SQLite keeps a single storage format
+     */
+    public void bindTimestamp(PreparedStatement stmt, int index, Timestamp timestamp) throws SQLException {
+        if (timestamp != null) {
+            stmt.setTimestamp(index, timestamp);
+        } else {
+            stmt.setNull(index, Types.TIMESTAMP);
+        }
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
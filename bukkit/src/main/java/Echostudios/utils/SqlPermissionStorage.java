@@ -0,0 +1,382 @@
+package Echostudios.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * EchoPerms in normalized tables on the plugin's database connection (see migrations V6-V8).
+ * Groups and tracks are loaded at startup; users are loaded on join or when edited and are not kept
+ * resident otherwise. A write replaces the rows of each changed group or user in one transaction.
+ * Statements come from {@link DatabaseQueries} and are prepared through the shared {@link StatementCache},
+ * so they are never closed here.
+ */
+public class SqlPermissionStorage implements PermissionStorage {
+
+    private static final int USER_PAGE = 1000;
+
+    private final ConnectionPool pool;
+    private final DatabaseQueries queries;
+    private final StatementCache statements;
+
+    SqlPermissionStorage(ConnectionPool pool, DatabaseQueries queries, StatementCache statements) {
+        this.pool = pool;
+        this.queries = queries;
+        this.statements = statements;
+    }
+
+    @Override
+    public String getName() {
+        return "sql";
+    }
+
+    @Override
+    public void load(YamlConfiguration into) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            List<String> groups = new ArrayList<>();
+            try (ResultSet rs = statements.prepare(connection, queries.permGroups).executeQuery()) {
+                while (rs.next()) groups.add(rs.getString(1));
+            }
+            Map<String, List<String>> permissions = readLists(connection, queries.permGroupPermissions);
+            Map<String, List<String>> parents = readLists(connection, queries.permGroupParents);
+            Map<String, Map<String, Object>> meta = readMeta(connection, queries.permGroupMeta);
+            for (String group : groups) {
+                String base = "groups." + group;
+                into.set(base + ".permissions", permissions.getOrDefault(group, new ArrayList<>()));
+                into.set(base + ".inherits", parents.getOrDefault(group, new ArrayList<>()));
+                for (Map.Entry<String, Object> entry : meta.getOrDefault(group, Map.of()).entrySet()) {
+                    into.set(base + ".meta." + entry.getKey(), entry.getValue());
+                }
+            }
+            Map<String, List<String>> tracks = readLists(connection, queries.permTracks);
+            for (Map.Entry<String, List<String>> track : tracks.entrySet()) {
+                into.set("tracks." + track.getKey(), track.getValue());
+            }
+        }
+    }
+
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public ConfigurationSection loadUser(String name) throws SQLException {
+        String user = name.toLowerCase();
+        try (Connection connection = pool.getConnection()) {
+            return readUsers(connection, queries.permUser, user).get(user);
+        }
+    }
+
+    /**
+     * Pages through users by name, {@value #USER_PAGE} at a time with three range queries per page,
+     * so memory stays bounded however many users are stored
+     */
+    @Override
+    public void forEachUser(BiConsumer<String, ConfigurationSection> action) throws SQLException {
+        String after = "";
+        while (true) {
+            List<String> page = new ArrayList<>(USER_PAGE);
+            Map<String, ConfigurationSection> users;
+            try (Connection connection = pool.getConnection()) {
+                PreparedStatement stmt = statements.prepare(connection, queries.permUserPage);
+                stmt.setString(1, after);
+                stmt.setInt(2, USER_PAGE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) page.add(rs.getString(1));
+                }
+                if (page.isEmpty()) return;
+                users = readUsers(connection, queries.permUserRange, after, page.get(page.size() - 1));
+            }
+            for (String user : page) {
+                ConfigurationSection section = users.get(user);
+                if (section != null) action.accept(user, section);
+            }
+            after = page.get(page.size() - 1);
+        }
+    }
+
+    @Override
+    public void forEachUserInGroup(String group, Consumer<String> action) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            PreparedStatement stmt = statements.prepare(connection, queries.permUsersInGroup);
+            stmt.setString(1, group);
+            stmt.setFetchSize(500);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) action.accept(rs.getString(1));
+            }
+        }
+    }
+
+    @Override
+    public PendingWrite prepare(YamlConfiguration config, Changes changes) {
+        // Copy everything now; the config keeps changing while the write runs
+        Map<String, Holder> groups = new LinkedHashMap<>();
+        for (String group : changes.groups()) {
+            ConfigurationSection section = config.getConfigurationSection("groups." + group);
+            groups.put(group, section != null ? new Holder(section, "inherits") : null);
+        }
+        Map<String, Holder> users = new LinkedHashMap<>();
+        for (String user : changes.users()) {
+            ConfigurationSection section = config.getConfigurationSection("users." + user);
+            users.put(user, section != null ? new Holder(section, "groups") : null);
+        }
+        Map<String, List<String>> tracks = new LinkedHashMap<>();
+        for (String track : changes.tracks()) {
+            tracks.put(track, config.isList("tracks." + track) ? new ArrayList<>(config.getStringList("tracks." + track)) : null);
+        }
+        List<GroupReference> references = new ArrayList<>(changes.references());
+        return () -> write(groups, users, tracks, references);
+    }
+
+    private void write(Map<String, Holder> groups, Map<String, Holder> users, Map<String, List<String>> tracks,
+                       List<GroupReference> references) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (GroupReference reference : references) {
+                    if (reference.to() == null) {
+                        update(connection, queries.permDropUserGroups, reference.from());
+                        update(connection, queries.permDropGroupParents, reference.from());
+                    } else {
+                        update(connection, queries.permMoveUserGroups, reference.to(), reference.from());
+                        update(connection, queries.permMoveGroupParents, reference.to(), reference.from());
+                    }
+                }
+                for (Map.Entry<String, Holder> entry : groups.entrySet()) {
+                    String group = entry.getKey();
+                    Holder holder = entry.getValue();
+                    update(connection, queries.permDeleteGroupPermissions, group);
+                    update(connection, queries.permDeleteGroupParents, group);
+                    update(connection, queries.permDeleteGroupMeta, group);
+                    if (holder == null) {
+                        update(connection, queries.permDeleteGroup, group);
+                        continue;
+                    }
+                    update(connection, queries.permUpsertGroup, group);
+                    insertList(connection, queries.permInsertGroupPermission, group, holder.permissions());
+                    insertList(connection, queries.permInsertGroupParent, group, holder.parents());
+                    insertMeta(connection, queries.permInsertGroupMeta, group, holder.meta());
+                }
+                for (Map.Entry<String, Holder> entry : users.entrySet()) {
+                    String user = entry.getKey();
+                    Holder holder = entry.getValue();
+                    update(connection, queries.permDeleteUserPermissions, user);
+                    update(connection, queries.permDeleteUserGroups, user);
+                    update(connection, queries.permDeleteUserMeta, user);
+                    if (holder == null) continue;
+                    insertUserList(connection, queries.permInsertUserPermission, user, holder.permissions(), holder.tempPermissions());
+                    insertUserList(connection, queries.permInsertUserGroup, user, holder.parents(), holder.tempParents());
+                    insertMeta(connection, queries.permInsertUserMeta, user, holder.meta());
+                }
+                for (Map.Entry<String, List<String>> entry : tracks.entrySet()) {
+                    update(connection, queries.permDeleteTrack, entry.getKey());
+                    if (entry.getValue() == null) continue;
+                    insertList(connection, queries.permInsertTrack, entry.getKey(), entry.getValue());
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // The pool belongs to DatabaseManager
+    }
+
+    /**
+     * A group's or user's lists and meta, copied out of the config. Only users have temporary entries.
+     */
+    private record Holder(List<String> permissions, List<String> parents, Map<String, String> meta,
+                          List<TemporaryEntry> tempPermissions, List<TemporaryEntry> tempParents) {
+
+        Holder(ConfigurationSection section, String parentsKey) {
+            this(new ArrayList<>(section.getStringList("permissions")),
+                 new ArrayList<>(section.getStringList(parentsKey)),
+                 copyMeta(section.getConfigurationSection("meta")),
+                 TemporaryEntry.read(section, "temp-permissions"),
+                 TemporaryEntry.read(section, "temp-groups"));
+        }
+
+        private static Map<String, String> copyMeta(ConfigurationSection meta) {
+            Map<String, String> copy = new LinkedHashMap<>();
+            if (meta == null) return copy;
+            for (String key : meta.getKeys(false)) {
+                Object value = meta.get(key);
+                if (value != null && !(value instanceof ConfigurationSection)) copy.put(key, String.valueOf(value));
+            }
+            return copy;
+        }
+    }
+
+    private Map<String, List<String>> readLists(Connection connection, String sql) throws SQLException {
+        Map<String, List<String>> lists = new HashMap<>();
+        try (ResultSet rs = statements.prepare(connection, sql).executeQuery()) {
+            while (rs.next()) {
+                lists.computeIfAbsent(rs.getString(1), k -> new ArrayList<>()).add(rs.getString(2));
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * The sections of users matching the condition on user_name; users without any rows are absent
+     */
+    private Map<String, ConfigurationSection> readUsers(Connection connection, DatabaseQueries.UserReads reads,
+                                                        String... params) throws SQLException {
+        Map<String, UserList> permissions = readUserLists(connection, reads.permissions, params);
+        Map<String, UserList> groups = readUserLists(connection, reads.groups, params);
+        Map<String, Map<String, Object>> meta = readMeta(connection, reads.meta, params);
+        Set<String> names = new LinkedHashSet<>(permissions.keySet());
+        names.addAll(groups.keySet());
+        names.addAll(meta.keySet());
+        Map<String, ConfigurationSection> users = new HashMap<>();
+        for (String user : names) {
+            UserList userPermissions = permissions.getOrDefault(user, new UserList());
+            UserList userGroups = groups.getOrDefault(user, new UserList());
+            MemoryConfiguration section = new MemoryConfiguration();
+            section.set("permissions", userPermissions.permanent());
+            section.set("groups", userGroups.permanent());
+            if (!userPermissions.temporary().isEmpty()) section.set("temp-permissions", TemporaryEntry.toMaps(userPermissions.temporary()));
+            if (!userGroups.temporary().isEmpty()) section.set("temp-groups", TemporaryEntry.toMaps(userGroups.temporary()));
+            for (Map.Entry<String, Object> entry : meta.getOrDefault(user, Map.of()).entrySet()) {
+                section.set("meta." + entry.getKey(), entry.getValue());
+            }
+            users.put(user, section);
+        }
+        return users;
+    }
+
+    /**
+     * One user's list in position order; rows with an expiry are temporary entries
+     */
+    private record UserList(List<String> permanent, List<TemporaryEntry> temporary) {
+
+        UserList() {
+            this(new ArrayList<>(), new ArrayList<>());
+        }
+    }
+
+    private Map<String, UserList> readUserLists(Connection connection, String sql, String... params) throws SQLException {
+        Map<String, UserList> lists = new HashMap<>();
+        PreparedStatement stmt = statements.prepare(connection, sql);
+        for (int i = 0; i < params.length; i++) stmt.setString(i + 1, params[i]);
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                UserList list = lists.computeIfAbsent(rs.getString(1), k -> new UserList());
+                long expiresAt = rs.getLong(3);
+                if (rs.wasNull()) {
+                    list.permanent().add(rs.getString(2));
+                } else {
+                    list.temporary().add(new TemporaryEntry(rs.getString(2), expiresAt));
+                }
+            }
+        }
+        return lists;
+    }
+
+    private Map<String, Map<String, Object>> readMeta(Connection connection, String sql, String... params)
+            throws SQLException {
+        Map<String, Map<String, Object>> meta = new HashMap<>();
+        PreparedStatement stmt = statements.prepare(connection, sql);
+        for (int i = 0; i < params.length; i++) stmt.setString(i + 1, params[i]);
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String key = rs.getString(2);
+                String value = rs.getString(3);
+                meta.computeIfAbsent(rs.getString(1), k -> new LinkedHashMap<>()).put(key, metaValue(key, value));
+            }
+        }
+        return meta;
+    }
+
+    // Weight is read with getInt, which ignores strings
+    private static Object metaValue(String key, String value) {
+        if (value != null && key.equals("weight")) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ignored) {}
+        }
+        return value;
+    }
+
+    private void update(Connection connection, String sql, String... params) throws SQLException {
+        PreparedStatement stmt = statements.prepare(connection, sql);
+        for (int i = 0; i < params.length; i++) stmt.setString(i + 1, params[i]);
+        stmt.executeUpdate();
+    }
+
+    private void insertList(Connection connection, String sql, String owner, List<String> values) throws SQLException {
+        if (values.isEmpty()) return;
+        PreparedStatement stmt = batch(connection, sql);
+        for (int i = 0; i < values.size(); i++) {
+            stmt.setString(1, owner);
+            stmt.setInt(2, i);
+            stmt.setString(3, values.get(i));
+            stmt.addBatch();
+        }
+        stmt.executeBatch();
+    }
+
+    // Permanent entries first, then temporary ones, so positions keep the config's resolution order
+    private void insertUserList(Connection connection, String sql, String user, List<String> values,
+                                List<TemporaryEntry> temporary) throws SQLException {
+        if (values.isEmpty() && temporary.isEmpty()) return;
+        PreparedStatement stmt = batch(connection, sql);
+        int position = 0;
+        for (String value : values) {
+            stmt.setString(1, user);
+            stmt.setInt(2, position++);
+            stmt.setString(3, value);
+            stmt.setNull(4, Types.BIGINT);
+            stmt.addBatch();
+        }
+        for (TemporaryEntry entry : temporary) {
+            stmt.setString(1, user);
+            stmt.setInt(2, position++);
+            stmt.setString(3, entry.value());
+            stmt.setLong(4, entry.expiresAt());
+            stmt.addBatch();
+        }
+        stmt.executeBatch();
+    }
+
+    private void insertMeta(Connection connection, String sql, String owner, Map<String, String> meta) throws SQLException {
+        if (meta.isEmpty()) return;
+        PreparedStatement stmt = batch(connection, sql);
+        for (Map.Entry<String, String> entry : meta.entrySet()) {
+            stmt.setString(1, owner);
+            stmt.setString(2, entry.getKey());
+            stmt.setString(3, entry.getValue());
+            stmt.addBatch();
+        }
+        stmt.executeBatch();
+    }
+
+    // A cached statement outlives a write that failed mid-batch; start from an empty batch
+    private PreparedStatement batch(Connection connection, String sql) throws SQLException {
+        PreparedStatement stmt = statements.prepare(connection, sql);
+        stmt.clearBatch();
+        return stmt;
+    }
+}
@@ -0,0 +1,120 @@
+package Echostudios.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-connection LRU of prepared statements, so hot queries are parsed once per physical
+ * connection instead of on every call. Statements are prepared on the unwrapped driver
+ * connection: the pool's proxy would close them when the connection is handed back.
+ * Callers must not close statements they get from here; closing their ResultSets is enough.
+ * A connection the pool has retired is dropped with its statements on the next miss; a new
+ * physical connection starts with misses, so a retired one never outlives its replacement's first query.
+ */
+public class StatementCache {
+
+    private final int capacity;
+    // Held strongly (each statement references its connection anyway) until purgeClosed() sees it closed
+    private final Map<Connection, Lru> caches = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public StatementCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Get a cached statement for this SQL on the connection's physical connection, preparing it on a miss
+     */
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        Connection physical = connection.isWrapperFor(Connection.class) ? connection.unwrap(Connection.class) : connection;
+        // A borrowed connection belongs to one thread, so its Lru needs no locking of its own
+        Lru lru = caches.computeIfAbsent(physical, k -> new Lru());
+        PreparedStatement stmt = lru.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.increment();
+            return stmt;
+        }
+        misses.increment();
+        purgeClosed();
+        stmt = physical.prepareStatement(sql);
+        lru.put(sql, stmt);
+        return stmt;
+    }
+
+    /**
+     * Forget connections the pool has closed, closing their statements
+     */
+    public void purgeClosed() {
+        Iterator<Map.Entry<Connection, Lru>> it = caches.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Connection, Lru> entry = it.next();
+            if (!isClosed(entry.getKey())) continue;
+            it.remove();
+            // Closed with the connection already; only its thread ever touched this Lru
+            entry.getValue().values().forEach(StatementCache::closeQuietly);
+        }
+    }
+
+    /**
+     * Close and forget every cached statement, e.g. before the pool shuts down
+     */
+    public void clear() {
+        Iterator<Lru> it = caches.values().iterator();
+        while (it.hasNext()) {
+            Lru lru = it.next();
+            it.remove();
+            lru.values().forEach(StatementCache::closeQuietly);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {}
+    }
+
+    private final class Lru extends LinkedHashMap<String, PreparedStatement> {
+
+        Lru() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+}
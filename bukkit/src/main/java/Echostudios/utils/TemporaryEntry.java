@@ -0,0 +1,42 @@
+package Echostudios.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user permission ({@code node} or {@code -node}) or parent group that lapses at a fixed time.
+ * Stored under {@code temp-permissions} / {@code temp-groups} as a list of {@code value}/{@code expires} maps.
+ */
+public record TemporaryEntry(String value, long expiresAt) {
+
+    public boolean isActive(long nowMillis) {
+        return expiresAt > nowMillis;
+    }
+
+    public static List<TemporaryEntry> read(ConfigurationSection section, String path) {
+        List<TemporaryEntry> entries = new ArrayList<>();
+        for (Map<?, ?> map : section.getMapList(path)) {
+            Object value = map.get("value");
+            Object expires = map.get("expires");
+            if (value != null && expires instanceof Number number) {
+                entries.add(new TemporaryEntry(value.toString(), number.longValue()));
+            }
+        }
+        return entries;
+    }
+
+    public static List<Map<String, Object>> toMaps(List<TemporaryEntry> entries) {
+        List<Map<String, Object>> maps = new ArrayList<>(entries.size());
+        for (TemporaryEntry entry : entries) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("value", entry.value());
+            map.put("expires", entry.expiresAt());
+            maps.add(map);
+        }
+        return maps;
+    }
+}
@@ -0,0 +1,154 @@
+package Echostudios.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel for expiring keys at a deadline.
+ * Level 0 has one slot per tick; each higher level has slots spanning a whole rotation of the
+ * level below, and its entries are cascaded down when the lower level wraps. Scheduling and
+ * cancelling are O(1), and {@link #advance(long, Consumer)} only visits entries that are due or
+ * being cascaded, so far-off deadlines cost nothing until they come near.
+ */
+public class TimerWheel<K> {
+
+    // Levels are added until this many ticks are covered
+    private static final int COVERED_TICK_BITS = 42;
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final List<List<Map<K, Entry<K>>>> levels;
+    private final Map<K, Entry<K>> index = new HashMap<>();
+    // Every tick before this one has been fully processed
+    private long currentTick;
+
+    private static final class Entry<K> {
+        final K key;
+        final long deadlineMillis;
+        final long tick;
+        Map<K, Entry<K>> slot;
+
+        Entry(K key, long deadlineMillis, long tick) {
+            this.key = key;
+            this.deadlineMillis = deadlineMillis;
+            this.tick = tick;
+        }
+    }
+
+    /**
+     * @param tickMillis resolution of a slot
+     * @param wheelSize  number of slots per level, rounded up to a power of two
+     */
+    public TimerWheel(long tickMillis, int wheelSize, long nowMillis) {
+        this.tickMillis = Math.max(1L, tickMillis);
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.bits = Integer.numberOfTrailingZeros(size);
+        this.mask = size - 1;
+        int levelCount = (COVERED_TICK_BITS + bits - 1) / bits;
+        this.levels = new ArrayList<>(levelCount);
+        for (int l = 0; l < levelCount; l++) {
+            List<Map<K, Entry<K>>> slots = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                slots.add(new HashMap<>());
+            }
+            levels.add(slots);
+        }
+        this.currentTick = nowMillis / this.tickMillis;
+    }
+
+    /**
+     * Schedule (or reschedule) a key to expire at the given time
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        Entry<K> entry = new Entry<>(key, deadlineMillis, Math.max(deadlineMillis / tickMillis, currentTick));
+        index.put(key, entry);
+        place(entry);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Entry<K> entry = index.remove(key);
+        if (entry == null) return false;
+        entry.slot.remove(key);
+        return true;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Move the wheel up to now and hand every key whose deadline has passed to the callback
+     */
+    public void advance(long nowMillis, Consumer<K> expired) {
+        List<K> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            if (targetTick - currentTick > (1L << (bits * 2))) {
+                // After a long stall, re-placing everything is cheaper than stepping through each tick
+                List<Entry<K>> all = new ArrayList<>(index.values());
+                for (List<Map<K, Entry<K>>> level : levels) {
+                    level.forEach(Map::clear);
+                }
+                currentTick = targetTick;
+                all.forEach(this::place);
+            }
+            while (currentTick < targetTick) {
+                expireTick(nowMillis, due);
+                currentTick++;
+            }
+            // The current tick is only partly over; take what is due and look again next time
+            if (currentTick == targetTick) expireTick(nowMillis, due);
+        }
+        // Callbacks run outside the lock so they may reschedule
+        due.forEach(expired);
+    }
+
+    private void expireTick(long nowMillis, List<K> due) {
+        int slotIndex = (int) (currentTick & mask);
+        if (slotIndex == 0) cascade();
+        Map<K, Entry<K>> slot = levels.get(0).get(slotIndex);
+        if (slot.isEmpty()) return;
+        for (Entry<K> entry : new ArrayList<>(slot.values())) {
+            if (entry.deadlineMillis <= nowMillis) {
+                slot.remove(entry.key);
+                index.remove(entry.key);
+                due.add(entry.key);
+            }
+        }
+    }
+
+    // Level 0 wrapped: move the next slot of each higher level down, as far up as levels wrapped too
+    private void cascade() {
+        for (int level = 1; level < levels.size(); level++) {
+            int slotIndex = (int) ((currentTick >> (bits * level)) & mask);
+            Map<K, Entry<K>> slot = levels.get(level).get(slotIndex);
+            if (!slot.isEmpty()) {
+                List<Entry<K>> entries = new ArrayList<>(slot.values());
+                slot.clear();
+                entries.forEach(this::place);
+            }
+            if (slotIndex != 0) return;
+        }
+    }
+
+    private void place(Entry<K> entry) {
+        long tick = Math.max(entry.tick, currentTick);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < levels.size() - 1 && delta >= (1L << (bits * (level + 1)))) {
+            level++;
+        }
+        if (delta >= (1L << (bits * levels.size()))) {
+            // Beyond the last level: park at its far end; cascading places it there again
+            tick = currentTick + (1L << (bits * levels.size())) - 1;
+        }
+        Map<K, Entry<K>> slot = levels.get(level).get((int) ((tick >> (bits * level)) & mask));
+        slot.put(entry.key, entry);
+        entry.slot = slot;
+    }
+}
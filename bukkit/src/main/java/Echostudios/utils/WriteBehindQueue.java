@@ -0,0 +1,512 @@
+package Echostudios.utils;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind buffer for moderation log rows and the per-player counters in player_stats
+ * (logins, bans, kicks, mutes).
+ * Writes are coalesced in memory and flushed with JDBC batches in one transaction,
+ * either when the batch size is reached or on a fixed interval.
+ * Every queued entry is also appended to a spill file so nothing is lost if the
+ * server dies before a flush; the file is replayed on the next start (at-least-once).
+ * The replay is not deduplicated: a crash after a flush commits but before the spill file is
+ * rewritten inserts that flush's log rows again and adds its logins/bans/kicks/mutes to the
+ * counters a second time. That window is one file rewrite and the counters are statistics only
+ * (punishment state lives in the players table), so the double count is accepted.
+ * Rows the database keeps rejecting for a permanent reason are moved to a dead-letter file.
+ */
+public class WriteBehindQueue {
+
+    private static final UUID CONSOLE_UUID = new UUID(0L, 0L);
+    // Flushes a row may fail for a non-transient reason before it is dead-lettered
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Logger logger;
+    private final ConnectionPool pool;
+    private final File spillFile;
+    private final File deadLetterFile;
+    private final int batchSize;
+    private final String insertLogSql;
+    private final String upsertStatsSql;
+    private final SqlDialect dialect;
+
+    private final Object lock = new Object();
+    private final Deque<LogEntry> pendingLogs = new ArrayDeque<>();
+    private final Map<String, StatsDelta> pendingLogins = new LinkedHashMap<>();
+    private BufferedWriter spillWriter;
+    // Permanent failures per log entry or login UUID; only touched by flush()
+    private final Map<Object, Integer> failedAttempts = new HashMap<>();
+
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    public WriteBehindQueue(Logger logger, ConnectionPool pool, File spillFile, SqlDialect dialect, DatabaseQueries queries,
+                            int batchSize, long flushIntervalMillis) {
+        this.logger = logger;
+        this.pool = pool;
+        this.spillFile = spillFile;
+        this.deadLetterFile = new File(spillFile.getParentFile(), "db-dead-letter.jsonl");
+        this.batchSize = Math.max(1, batchSize);
+        this.dialect = dialect;
+        this.insertLogSql = queries.insertModerationLog;
+        this.upsertStatsSql = queries.upsertPlayerStats;
+
+        replaySpillFile();
+        openSpillWriter();
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "EchoCore-DB-Flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(100L, flushIntervalMillis);
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        if (size() > 0) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Queue a moderation log row
+     */
+    public void enqueueLog(String action, UUID target, String moderator, String reason, Timestamp expires) {
+        LogEntry entry = new LogEntry(action, target.toString(), moderator, reason,
+                expires != null ? expires.getTime() : null, System.currentTimeMillis());
+        int size;
+        synchronized (lock) {
+            pendingLogs.addLast(entry);
+            spill(entry.toJson());
+            size = pendingLogs.size() + pendingLogins.size();
+        }
+        if (size >= batchSize) requestFlush();
+    }
+
+    /**
+     * Queue a login: increments total_logins and moves last_seen forward
+     */
+    public void enqueueLogin(UUID player) {
+        long now = System.currentTimeMillis();
+        int size;
+        synchronized (lock) {
+            StatsDelta delta = StatsDelta.login(1, now);
+            pendingLogins.merge(player.toString(), delta, StatsDelta::merge);
+            spill(loginJson(player.toString(), delta));
+            size = pendingLogs.size() + pendingLogins.size();
+        }
+        if (size >= batchSize) requestFlush();
+    }
+
+    /**
+     * Counter changes for a player that have not been flushed yet, or null if there are none
+     */
+    public StatsDelta pendingFor(UUID player) {
+        String uuid = player.toString();
+        synchronized (lock) {
+            StatsDelta delta = pendingLogins.get(uuid);
+            for (LogEntry log : pendingLogs) {
+                if (log.target.equals(uuid)) {
+                    StatsDelta counted = StatsDelta.forAction(log.action);
+                    if (counted != null) delta = delta == null ? counted : StatsDelta.merge(delta, counted);
+                }
+            }
+            return delta;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return pendingLogs.size() + pendingLogins.size();
+        }
+    }
+
+    private void requestFlush() {
+        if (closed) return;
+        if (flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushScheduled.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Write-behind flush failed, will retry", t);
+        }
+    }
+
+    /**
+     * Write everything queued so far in a single transaction. If the batch fails for a reason a retry
+     * cannot fix, each row is written in its own transaction so one bad row cannot hold back the rest.
+     */
+    public synchronized void flush() throws SQLException {
+        List<LogEntry> logs;
+        Map<String, StatsDelta> logins;
+        synchronized (lock) {
+            if (pendingLogs.isEmpty() && pendingLogins.isEmpty()) return;
+            logs = new ArrayList<>(pendingLogs);
+            logins = new LinkedHashMap<>(pendingLogins);
+            pendingLogs.clear();
+            pendingLogins.clear();
+        }
+
+        try {
+            write(logs, logins);
+            failedAttempts.clear();
+        } catch (SQLException e) {
+            if (dialect.isTransient(e)) {
+                // Put the batch back in front of anything queued meanwhile; the spill file still has it
+                requeue(logs, logins);
+                throw e;
+            }
+            logger.warning("Write-behind batch of " + (logs.size() + logins.size()) + " entries rejected ("
+                    + e.getMessage() + "), retrying row by row");
+            writeRowByRow(logs, logins);
+        }
+
+        synchronized (lock) {
+            rewriteSpillFile();
+        }
+    }
+
+    /**
+     * Write each entry in its own transaction. Rows that fail permanently are retried on the next
+     * flushes and dead-lettered after {@link #MAX_ATTEMPTS}; a transient failure requeues everything
+     * not yet written and ends the pass.
+     */
+    private void writeRowByRow(List<LogEntry> logs, Map<String, StatsDelta> logins) throws SQLException {
+        List<LogEntry> retryLogs = new ArrayList<>();
+        Map<String, StatsDelta> retryLogins = new LinkedHashMap<>();
+        SQLException transientFailure = null;
+        for (int i = 0; i < logs.size(); i++) {
+            LogEntry log = logs.get(i);
+            try {
+                write(List.of(log), Map.of());
+                failedAttempts.remove(log);
+            } catch (SQLException e) {
+                if (dialect.isTransient(e)) {
+                    retryLogs.addAll(logs.subList(i, logs.size()));
+                    retryLogins.putAll(logins);
+                    transientFailure = e;
+                    break;
+                }
+                if (failed(log, log.toJson(), e)) retryLogs.add(log);
+            }
+        }
+        if (transientFailure == null) {
+            for (Map.Entry<String, StatsDelta> login : logins.entrySet()) {
+                if (transientFailure != null) {
+                    retryLogins.put(login.getKey(), login.getValue());
+                    continue;
+                }
+                try {
+                    write(List.of(), Map.of(login.getKey(), login.getValue()));
+                    failedAttempts.remove(login.getKey());
+                } catch (SQLException e) {
+                    if (dialect.isTransient(e)) {
+                        transientFailure = e;
+                        retryLogins.put(login.getKey(), login.getValue());
+                    } else if (failed(login.getKey(), loginJson(login.getKey(), login.getValue()), e)) {
+                        retryLogins.put(login.getKey(), login.getValue());
+                    }
+                }
+            }
+        }
+        requeue(retryLogs, retryLogins);
+        if (transientFailure != null) {
+            synchronized (lock) {
+                rewriteSpillFile();
+            }
+            throw transientFailure;
+        }
+    }
+
+    /**
+     * Count a permanent failure of one entry; returns false once it has been moved to the dead-letter file
+     */
+    private boolean failed(Object key, String json, SQLException e) {
+        int attempts = failedAttempts.merge(key, 1, Integer::sum);
+        if (attempts < MAX_ATTEMPTS) return true;
+        failedAttempts.remove(key);
+        logger.severe("Dropping write-behind entry after " + attempts + " failed attempts (" + e.getMessage()
+                + "), kept in " + deadLetterFile.getName() + ": " + json);
+        JsonObject line = JsonParser.parseString(json).getAsJsonObject();
+        line.addProperty("error", e.getMessage());
+        try {
+            Files.writeString(deadLetterFile.toPath(), line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException io) {
+            logger.log(Level.WARNING, "Could not write to " + deadLetterFile.getName(), io);
+        }
+        return false;
+    }
+
+    private void write(List<LogEntry> logs, Map<String, StatsDelta> logins) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                if (!logs.isEmpty()) {
+                    try (PreparedStatement stmt = connection.prepareStatement(insertLogSql)) {
+                        for (LogEntry log : logs) {
+                            stmt.setString(1, log.action);
+                            UUID target = UUID.fromString(log.target);
+                            dialect.bindUuid(stmt, 2, target);
+                            dialect.bindUuid(stmt, 3, target);
+                            dialect.bindUuid(stmt, 4, CONSOLE_UUID);
+                            stmt.setString(5, log.moderator);
+                            stmt.setString(6, log.reason);
+                            dialect.bindTimestamp(stmt, 7, new Timestamp(log.timestamp));
+                            dialect.bindTimestamp(stmt, 8, log.expires != null ? new Timestamp(log.expires) : null);
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                    }
+                }
+                // Fold ban/kick/mute rows into the same per-player counter upsert as the logins
+                Map<String, StatsDelta> counters = new LinkedHashMap<>(logins);
+                for (LogEntry log : logs) {
+                    StatsDelta counted = StatsDelta.forAction(log.action);
+                    if (counted != null) counters.merge(log.target, counted, StatsDelta::merge);
+                }
+                if (!counters.isEmpty()) {
+                    try (PreparedStatement stmt = connection.prepareStatement(upsertStatsSql)) {
+                        for (Map.Entry<String, StatsDelta> e : counters.entrySet()) {
+                            StatsDelta delta = e.getValue();
+                            UUID player = UUID.fromString(e.getKey());
+                            dialect.bindUuid(stmt, 1, player);
+                            stmt.setInt(2, delta.logins);
+                            stmt.setInt(3, delta.bans);
+                            stmt.setInt(4, delta.kicks);
+                            stmt.setInt(5, delta.mutes);
+                            dialect.bindTimestamp(stmt, 6, delta.lastSeen != null ? new Timestamp(delta.lastSeen) : null);
+                            dialect.bindUuid(stmt, 7, player);
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Put entries back in front of anything queued meanwhile
+     */
+    private void requeue(List<LogEntry> logs, Map<String, StatsDelta> logins) {
+        synchronized (lock) {
+            for (int i = logs.size() - 1; i >= 0; i--) pendingLogs.addFirst(logs.get(i));
+            Map<String, StatsDelta> merged = new LinkedHashMap<>(logins);
+            pendingLogins.forEach((k, v) -> merged.merge(k, v, StatsDelta::merge));
+            pendingLogins.clear();
+            pendingLogins.putAll(merged);
+        }
+    }
+
+    /**
+     * Stop the timer and flush synchronously. Rows that still fail stay in the spill file.
+     */
+    public void close() {
+        closed = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Final write-behind flush failed, " + size() + " entries kept in " + spillFile.getName(), e);
+        }
+        synchronized (lock) {
+            closeSpillWriter();
+        }
+    }
+
+    // Spill file handling
+
+    private void spill(String line) {
+        if (spillWriter == null) return;
+        try {
+            spillWriter.write(line);
+            spillWriter.newLine();
+            spillWriter.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write to " + spillFile.getName(), e);
+        }
+    }
+
+    private void openSpillWriter() {
+        try {
+            spillWriter = Files.newBufferedWriter(spillFile.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not open " + spillFile.getName() + ", queued writes are not crash-safe", e);
+        }
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter == null) return;
+        try {
+            spillWriter.close();
+        } catch (IOException ignored) {}
+        spillWriter = null;
+    }
+
+    /**
+     * Replace the spill file with whatever is still pending (caller holds the lock)
+     */
+    private void rewriteSpillFile() {
+        closeSpillWriter();
+        File tmp = new File(spillFile.getParentFile(), spillFile.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (LogEntry log : pendingLogs) {
+                writer.write(log.toJson());
+                writer.newLine();
+            }
+            for (Map.Entry<String, StatsDelta> e : pendingLogins.entrySet()) {
+                writer.write(loginJson(e.getKey(), e.getValue()));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not rewrite " + spillFile.getName(), e);
+            openSpillWriter();
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), spillFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.move(tmp.toPath(), spillFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Could not replace " + spillFile.getName(), ex);
+            }
+        }
+        if (!closed) openSpillWriter();
+    }
+
+    private void replaySpillFile() {
+        if (!spillFile.exists()) return;
+        int replayed = 0;
+        try {
+            for (String line : Files.readAllLines(spillFile.toPath(), StandardCharsets.UTF_8)) {
+                if (line.isBlank()) continue;
+                try {
+                    JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                    if ("login".equals(json.get("type").getAsString())) {
+                        pendingLogins.merge(json.get("uuid").getAsString(),
+                                StatsDelta.login(json.get("logins").getAsInt(), json.get("last_seen").getAsLong()),
+                                StatsDelta::merge);
+                    } else {
+                        pendingLogs.addLast(LogEntry.fromJson(json));
+                    }
+                    replayed++;
+                } catch (RuntimeException e) {
+                    // Half-written last line from a crash
+                    logger.warning("Skipping unreadable line in " + spillFile.getName());
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read " + spillFile.getName(), e);
+        }
+        if (replayed > 0) {
+            logger.info("Recovered " + replayed + " unflushed database write(s) from " + spillFile.getName());
+        }
+    }
+
+    private static String loginJson(String uuid, StatsDelta delta) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", "login");
+        json.addProperty("uuid", uuid);
+        json.addProperty("logins", delta.logins);
+        json.addProperty("last_seen", delta.lastSeen);
+        return json.toString();
+    }
+
+    private record LogEntry(String action, String target, String moderator, String reason, Long expires, long timestamp) {
+
+        String toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("type", "log");
+            json.addProperty("action", action);
+            json.addProperty("target", target);
+            json.addProperty("moderator", moderator);
+            json.addProperty("reason", reason);
+            if (expires != null) json.addProperty("expires", expires);
+            json.addProperty("timestamp", timestamp);
+            return json.toString();
+        }
+
+        static LogEntry fromJson(JsonObject json) {
+            return new LogEntry(
+                json.get("action").getAsString(),
+                json.get("target").getAsString(),
+                json.has("moderator") && !json.get("moderator").isJsonNull() ? json.get("moderator").getAsString() : null,
+                json.has("reason") && !json.get("reason").isJsonNull() ? json.get("reason").getAsString() : null,
+                json.has("expires") ? json.get("expires").getAsLong() : null,
+                json.get("timestamp").getAsLong()
+            );
+        }
+    }
+
+    /**
+     * Pending increments for one player's player_stats row; lastSeen is null when only counters changed
+     */
+    public record StatsDelta(int logins, int bans, int kicks, int mutes, Long lastSeen) {
+
+        static StatsDelta login(int logins, long lastSeen) {
+            return new StatsDelta(logins, 0, 0, 0, lastSeen);
+        }
+
+        static StatsDelta forAction(String action) {
+            return switch (action) {
+                case "BAN" -> new StatsDelta(0, 1, 0, 0, null);
+                case "KICK" -> new StatsDelta(0, 0, 1, 0, null);
+                case "MUTE" -> new StatsDelta(0, 0, 0, 1, null);
+                default -> null;
+            };
+        }
+
+        static StatsDelta merge(StatsDelta a, StatsDelta b) {
+            Long seen = a.lastSeen == null ? b.lastSeen : b.lastSeen == null ? a.lastSeen : Math.max(a.lastSeen, b.lastSeen);
+            return new StatsDelta(a.logins + b.logins, a.bans + b.bans, a.kicks + b.kicks, a.mutes + b.mutes, seen);
+        }
+    }
+}
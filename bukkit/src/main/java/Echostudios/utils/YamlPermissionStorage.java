@@ -0,0 +1,75 @@
+package Echostudios.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * permissions.yml: everything resident, the whole file rewritten atomically on every write
+ */
+public class YamlPermissionStorage implements PermissionStorage {
+
+    private final File file;
+
+    public YamlPermissionStorage(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "yaml";
+    }
+
+    @Override
+    public void load(YamlConfiguration into) throws Exception {
+        if (!file.getParentFile().exists()) file.getParentFile().mkdirs();
+        if (file.exists()) {
+            into.load(file);
+        }
+    }
+
+    @Override
+    public boolean isLazy() {
+        return false;
+    }
+
+    @Override
+    public ConfigurationSection loadUser(String name) {
+        return null;
+    }
+
+    @Override
+    public void forEachUserInGroup(String group, Consumer<String> action) {
+        // Every user is resident
+    }
+
+    @Override
+    public void forEachUser(BiConsumer<String, ConfigurationSection> action) {
+        // Every user is resident
+    }
+
+    @Override
+    public PendingWrite prepare(YamlConfiguration config, Changes changes) {
+        String data = config.saveToString();
+        return () -> {
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            Files.writeString(tmp.toPath(), data, StandardCharsets.UTF_8);
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,37 @@
+-- Tables as created by EchoCore before versioned migrations existed
+CREATE TABLE IF NOT EXISTS {prefix}players (
+    uuid VARCHAR(36) PRIMARY KEY,
+    username VARCHAR(16) NOT NULL,
+    first_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    last_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    playtime BIGINT DEFAULT 0,
+    warnings INT DEFAULT 0,
+    muted BOOLEAN DEFAULT FALSE,
+    mute_reason TEXT,
+    banned BOOLEAN DEFAULT FALSE,
+    ban_reason TEXT,
+    ban_expires TIMESTAMP NULL,
+    `rank` VARCHAR(64) DEFAULT 'default',
+    prefix VARCHAR(128) NULL,
+    suffix VARCHAR(128) NULL
+);
+
+CREATE TABLE IF NOT EXISTS {prefix}moderation_logs (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    action VARCHAR(20) NOT NULL,
+    target_uuid VARCHAR(36) NOT NULL,
+    target_username VARCHAR(16) NOT NULL,
+    moderator_uuid VARCHAR(36) NOT NULL,
+    moderator_username VARCHAR(16) NOT NULL,
+    reason TEXT,
+    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires TIMESTAMP NULL
+);
+
+CREATE TABLE IF NOT EXISTS {prefix}player_stats (
+    uuid VARCHAR(36) PRIMARY KEY,
+    total_logins INT DEFAULT 0,
+    total_playtime BIGINT DEFAULT 0,
+    last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (uuid) REFERENCES {prefix}players(uuid) ON DELETE CASCADE
+);
@@ -0,0 +1,10 @@
+-- Maintained ban/kick/mute counters so /stats does not count moderation_logs rows
+ALTER TABLE {prefix}player_stats ADD COLUMN ban_count INT DEFAULT 0;
+ALTER TABLE {prefix}player_stats ADD COLUMN kick_count INT DEFAULT 0;
+ALTER TABLE {prefix}player_stats ADD COLUMN mute_count INT DEFAULT 0;
+
+-- Backfill from the log; safe to rerun because it recomputes the same totals
+UPDATE {prefix}player_stats s SET
+    ban_count = (SELECT COUNT(*) FROM {prefix}moderation_logs l WHERE l.target_uuid = s.uuid AND l.action = 'BAN'),
+    kick_count = (SELECT COUNT(*) FROM {prefix}moderation_logs l WHERE l.target_uuid = s.uuid AND l.action = 'KICK'),
+    mute_count = (SELECT COUNT(*) FROM {prefix}moderation_logs l WHERE l.target_uuid = s.uuid AND l.action = 'MUTE');
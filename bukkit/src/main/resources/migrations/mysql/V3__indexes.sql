@@ -0,0 +1,11 @@
+-- Per-player history lookups filter on (target_uuid, action)
+CREATE INDEX idx_logs_target_action ON {prefix}moderation_logs (target_uuid, action);
+
+-- Recent-activity listings order by time
+CREATE INDEX idx_logs_timestamp ON {prefix}moderation_logs (timestamp);
+
+-- Name lookups for offline players (the default collation is case-insensitive)
+CREATE INDEX idx_players_username ON {prefix}players (username);
+
+-- Startup scan for active bans
+CREATE INDEX idx_players_banned ON {prefix}players (banned, ban_expires);
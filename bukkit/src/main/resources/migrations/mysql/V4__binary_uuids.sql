@@ -0,0 +1,83 @@
+-- Store UUIDs as BINARY(16) instead of VARCHAR(36): 16 bytes per key instead of 36+,
+-- smaller indexes and cheaper comparisons. Runs only while players.uuid is still text.
+-- SchemaMigrator refuses to run it while any row has a malformed UUID or a stats row has
+-- no player, so every row is copied; nothing here filters rows out. The copies are swapped
+-- in with one atomic RENAME, and the old tables are dropped. Leftovers from an interrupted
+-- run are dropped first.
+DROP TABLE IF EXISTS {prefix}player_stats_bin;
+DROP TABLE IF EXISTS {prefix}moderation_logs_bin;
+DROP TABLE IF EXISTS {prefix}players_bin;
+
+CREATE TABLE {prefix}players_bin (
+    uuid BINARY(16) PRIMARY KEY,
+    username VARCHAR(16) NOT NULL,
+    first_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    last_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    playtime BIGINT DEFAULT 0,
+    warnings INT DEFAULT 0,
+    muted BOOLEAN DEFAULT FALSE,
+    mute_reason TEXT,
+    banned BOOLEAN DEFAULT FALSE,
+    ban_reason TEXT,
+    ban_expires TIMESTAMP NULL,
+    `rank` VARCHAR(64) DEFAULT 'default',
+    prefix VARCHAR(128) NULL,
+    suffix VARCHAR(128) NULL,
+    INDEX idx_players_username (username),
+    INDEX idx_players_banned (banned, ban_expires)
+);
+
+INSERT INTO {prefix}players_bin
+    (uuid, username, first_join, last_join, playtime, warnings, muted, mute_reason,
+     banned, ban_reason, ban_expires, `rank`, prefix, suffix)
+SELECT UNHEX(REPLACE(uuid, '-', '')), username, first_join, last_join, playtime, warnings, muted, mute_reason,
+       banned, ban_reason, ban_expires, `rank`, prefix, suffix
+FROM {prefix}players;
+
+CREATE TABLE {prefix}moderation_logs_bin (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    action VARCHAR(20) NOT NULL,
+    target_uuid BINARY(16) NOT NULL,
+    target_username VARCHAR(16) NOT NULL,
+    moderator_uuid BINARY(16) NOT NULL,
+    moderator_username VARCHAR(16) NOT NULL,
+    reason TEXT,
+    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires TIMESTAMP NULL,
+    INDEX idx_logs_target_action (target_uuid, action),
+    INDEX idx_logs_timestamp (timestamp)
+);
+
+INSERT INTO {prefix}moderation_logs_bin
+    (id, action, target_uuid, target_username, moderator_uuid, moderator_username, reason, timestamp, expires)
+SELECT id, action, UNHEX(REPLACE(target_uuid, '-', '')), target_username,
+       UNHEX(REPLACE(moderator_uuid, '-', '')), moderator_username, reason, timestamp, expires
+FROM {prefix}moderation_logs;
+
+CREATE TABLE {prefix}player_stats_bin (
+    uuid BINARY(16) PRIMARY KEY,
+    total_logins INT DEFAULT 0,
+    total_playtime BIGINT DEFAULT 0,
+    ban_count INT DEFAULT 0,
+    kick_count INT DEFAULT 0,
+    mute_count INT DEFAULT 0,
+    last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (uuid) REFERENCES {prefix}players_bin(uuid) ON DELETE CASCADE
+);
+
+INSERT INTO {prefix}player_stats_bin
+    (uuid, total_logins, total_playtime, ban_count, kick_count, mute_count, last_seen)
+SELECT UNHEX(REPLACE(s.uuid, '-', '')), s.total_logins, s.total_playtime, s.ban_count, s.kick_count, s.mute_count, s.last_seen
+FROM {prefix}player_stats s;
+
+RENAME TABLE
+    {prefix}players TO {prefix}players_legacy,
+    {prefix}players_bin TO {prefix}players,
+    {prefix}moderation_logs TO {prefix}moderation_logs_legacy,
+    {prefix}moderation_logs_bin TO {prefix}moderation_logs,
+    {prefix}player_stats TO {prefix}player_stats_legacy,
+    {prefix}player_stats_bin TO {prefix}player_stats;
+
+DROP TABLE IF EXISTS {prefix}player_stats_legacy;
+DROP TABLE IF EXISTS {prefix}moderation_logs_legacy;
+DROP TABLE IF EXISTS {prefix}players_legacy;
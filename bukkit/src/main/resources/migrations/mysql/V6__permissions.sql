@@ -0,0 +1,53 @@
+-- EchoPerms tables for runs.permissions.storage: sql
+-- List entries keep their position, since the last matching permission wins
+CREATE TABLE IF NOT EXISTS {prefix}perm_groups (
+    name VARCHAR(64) PRIMARY KEY
+);
+
+CREATE TABLE IF NOT EXISTS {prefix}perm_group_permissions (
+    group_name VARCHAR(64) NOT NULL,
+    position INT NOT NULL,
+    node VARCHAR(255) NOT NULL,
+    PRIMARY KEY (group_name, position)
+);
+
+CREATE TABLE IF NOT EXISTS {prefix}perm_group_parents (
+    group_name VARCHAR(64) NOT NULL,
+    position INT NOT NULL,
+    parent VARCHAR(64) NOT NULL,
+    PRIMARY KEY (group_name, position)
+);
+
+CREATE TABLE IF NOT EXISTS {prefix}perm_group_meta (
+    group_name VARCHAR(64) NOT NULL,
+    meta_key VARCHAR(64) NOT NULL,
+    meta_value TEXT,
+    PRIMARY KEY (group_name, meta_key)
+);
+
+-- Users are keyed by lowercased name, like permissions.yml
+CREATE TABLE IF NOT EXISTS {prefix}perm_user_permissions (
+    user_name VARCHAR(36) NOT NULL,
+    position INT NOT NULL,
+    node VARCHAR(255) NOT NULL,
+    PRIMARY KEY (user_name, position)
+);
+
+CREATE TABLE IF NOT EXISTS {prefix}perm_user_groups (
+    user_name VARCHAR(36) NOT NULL,
+    position INT NOT NULL,
+    group_name VARCHAR(64) NOT NULL,
+    PRIMARY KEY (user_name, position)
+);
+
+CREATE TABLE IF NOT EXISTS {prefix}perm_user_meta (
+    user_name VARCHAR(36) NOT NULL,
+    meta_key VARCHAR(64) NOT NULL,
+    meta_value TEXT,
+    PRIMARY KEY (user_name, meta_key)
+);
+
+-- Group renames and deletes rewrite references held by users that are not loaded
+CREATE INDEX idx_perm_user_groups_group ON {prefix}perm_user_groups (group_name);
+
+CREATE INDEX idx_perm_group_parents_parent ON {prefix}perm_group_parents (parent);
@@ -0,0 +1,4 @@
+-- Temporary user permissions and parents; NULL means permanent
+ALTER TABLE {prefix}perm_user_permissions ADD COLUMN expires_at BIGINT NULL;
+
+ALTER TABLE {prefix}perm_user_groups ADD COLUMN expires_at BIGINT NULL;
@@ -0,0 +1,7 @@
+-- EchoPerms tracks: ordered group ladders for promote/demote
+CREATE TABLE IF NOT EXISTS {prefix}perm_tracks (
+    track_name VARCHAR(64) NOT NULL,
+    position INT NOT NULL,
+    group_name VARCHAR(64) NOT NULL,
+    PRIMARY KEY (track_name, position)
+);
@@ -0,0 +1,12 @@
+-- Index names are database-wide in SQLite, so they carry the table prefix
+-- Per-player history lookups filter on (target_uuid, action)
+CREATE INDEX IF NOT EXISTS {prefix}idx_logs_target_action ON {prefix}moderation_logs (target_uuid, action);
+
+-- Recent-activity listings order by time
+CREATE INDEX IF NOT EXISTS {prefix}idx_logs_timestamp ON {prefix}moderation_logs (timestamp);
+
+-- Name lookups for offline players, case-insensitive like Bukkit.getOfflinePlayer
+CREATE INDEX IF NOT EXISTS {prefix}idx_players_username ON {prefix}players (username COLLATE NOCASE);
+
+-- Startup scan for active bans
+CREATE INDEX IF NOT EXISTS {prefix}idx_players_banned ON {prefix}players (banned, ban_expires);
@@ -0,0 +1,2 @@
+-- SQLite keeps UUIDs as VARCHAR(36) text; the BINARY(16) conversion is MySQL-only.
+-- This version is recorded without running anything.
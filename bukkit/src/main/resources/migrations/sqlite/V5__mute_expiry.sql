@@ -0,0 +1,2 @@
+-- Timed mutes: the punishment cache lifts a mute once this passes
+ALTER TABLE {prefix}players ADD COLUMN mute_expires TIMESTAMP NULL;
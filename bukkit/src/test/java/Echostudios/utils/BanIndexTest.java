@@ -0,0 +1,117 @@
+package Echostudios.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BanIndexTest {
+
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    void permanentAndTemporaryBans() {
+        BanIndex index = new BanIndex();
+        UUID permanent = UUID.randomUUID();
+        UUID temporary = UUID.randomUUID();
+        index.put(permanent, 0);
+        index.put(temporary, NOW + 10);
+        assertTrue(index.isBanned(permanent, Long.MAX_VALUE));
+        assertTrue(index.isBanned(temporary, NOW));
+        assertFalse(index.isBanned(temporary, NOW + 10));
+        assertFalse(index.isBanned(UUID.randomUUID(), NOW));
+    }
+
+    @Test
+    void nilUuidIsNeverStored() {
+        BanIndex index = new BanIndex();
+        index.put(new UUID(0L, 0L), 0);
+        assertEquals(0, index.size());
+        assertFalse(index.isBanned(new UUID(0L, 0L), NOW));
+    }
+
+    @Test
+    void backwardShiftKeepsProbeChainsWhole() {
+        // 38 entries in the 64 slots of a fresh table: full of collisions but never resized
+        BanIndex index = new BanIndex();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 38; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            index.put(id, 0);
+        }
+        long capacity = index.memoryBytes();
+        Collections.shuffle(ids, new Random(7));
+        for (int removed = 0; removed < ids.size(); removed++) {
+            assertTrue(index.remove(ids.get(removed)));
+            assertFalse(index.remove(ids.get(removed)));
+            for (int i = 0; i < ids.size(); i++) {
+                assertEquals(i > removed, index.isBanned(ids.get(i), NOW), "entry " + i + " after " + (removed + 1) + " deletes");
+            }
+        }
+        assertEquals(0, index.size());
+        assertEquals(capacity, index.memoryBytes());
+    }
+
+    @Test
+    void matchesAMapUnderRandomOperations() {
+        Random random = new Random(11);
+        BanIndex index = new BanIndex();
+        Map<UUID, Long> expected = new HashMap<>();
+        List<UUID> pool = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            pool.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        for (int step = 0; step < 20_000; step++) {
+            UUID id = pool.get(random.nextInt(pool.size()));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id) != null, index.remove(id));
+            } else {
+                long expiry = random.nextBoolean() ? 0 : NOW + random.nextInt(100) - 50;
+                index.put(id, expiry);
+                expected.put(id, expiry);
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (UUID id : pool) {
+            Long expiry = expected.get(id);
+            boolean banned = expiry != null && (expiry == 0 || expiry > NOW);
+            assertEquals(banned, index.isBanned(id, NOW));
+        }
+    }
+
+    @Test
+    void removeExpiredDropsOnlyPassedBansAndShrinks() {
+        BanIndex index = new BanIndex();
+        List<UUID> kept = new ArrayList<>();
+        List<UUID> expired = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            UUID id = UUID.randomUUID();
+            if (i % 10 == 0) {
+                kept.add(id);
+                index.put(id, i % 20 == 0 ? 0 : NOW + 1);
+            } else {
+                expired.add(id);
+                index.put(id, NOW - i);
+            }
+        }
+        long grown = index.memoryBytes();
+        List<UUID> removed = index.removeExpired(NOW);
+        assertEquals(expired.size(), removed.size());
+        assertTrue(removed.containsAll(expired));
+        assertEquals(kept.size(), index.size());
+        assertTrue(index.memoryBytes() < grown);
+        for (UUID id : kept) {
+            assertTrue(index.isBanned(id, NOW));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package Echostudios.utils;
+
+import Echostudios.utils.ChatTokenizer.Token;
+import Echostudios.utils.ChatTokenizer.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatTokenizerTest {
+
+    private static final TagMatcher<String> TAGS = new TagMatcher<>(Map.of("inv", "inv", "ec", "ec"));
+    private static final Map<String, String> ONLINE = Map.of("steve", "Steve", "alex", "Alex");
+    private static final Function<String, String> NAMES = name -> ONLINE.get(name.toLowerCase());
+
+    @Test
+    void plainTextIsOneToken() {
+        assertEquals(List.of(text("just some words")), tokenize("just some words", true, NAMES, false));
+    }
+
+    @Test
+    void mentions() {
+        List<Token> tokens = tokenize("hi @steve and @nobody", false, NAMES, false);
+        assertEquals(List.of(text("hi "), new Token(Type.MENTION, "Steve", "@steve"), text(" and "),
+                new Token(Type.MENTION, null, "@nobody")), tokens);
+        assertTrue(tokens.get(1).explicit());
+    }
+
+    @Test
+    void autoTagNeedsTheExactName() {
+        List<Token> tokens = tokenize("Steve said hi to alex", false, NAMES, true);
+        assertEquals(List.of(new Token(Type.MENTION, "Steve", "Steve"), text(" said hi to alex")), tokens);
+        assertFalse(tokens.get(0).explicit());
+    }
+
+    @Test
+    void noMentionsWithoutALookup() {
+        assertEquals(List.of(text("hi @steve")), tokenize("hi @steve", false, null, true));
+    }
+
+    @Test
+    void knownAndUnknownTags() {
+        assertEquals(List.of(text("look "), new Token(Type.TAG, "inv", "[INV]"), text(" and "),
+                new Token(Type.TAG, "stuff", "[stuff]")), tokenize("look [INV] and [stuff]", false, NAMES, false));
+    }
+
+    @Test
+    void tagsInsideAMentionArePassedOver() {
+        assertEquals(List.of(new Token(Type.MENTION, null, "@x[inv]"), text(" "), new Token(Type.TAG, "ec", "[ec]")),
+                tokenize("@x[inv] [ec]", false, NAMES, false));
+    }
+
+    @Test
+    void colorCodes() {
+        assertEquals(List.of(new Token(Type.COLOR, "§a", "&a"), text("green "), new Token(Type.COLOR, "§x§f§f§8§8§0§0", "&#FF8800"),
+                text("orange "), new Token(Type.COLOR, "§x§0§0§f§f§0§0", "#00ff00"), text("lime")),
+                tokenize("&agreen &#FF8800orange #00ff00lime", true, NAMES, false));
+    }
+
+    @Test
+    void colorsStayTextWhenNotAllowed() {
+        assertEquals(List.of(text("&agreen #00ff00lime\\n")), tokenize("&agreen #00ff00lime\\n", false, NAMES, false));
+    }
+
+    @Test
+    void invalidCodesStayText() {
+        assertEquals(List.of(text("&z #12345g &")), tokenize("&z #12345g &", true, NAMES, false));
+    }
+
+    @Test
+    void escapedNewline() {
+        assertEquals(List.of(text("a"), new Token(Type.TEXT, "\n", "\\n"), text("b")), tokenize("a\\nb", true, NAMES, false));
+    }
+
+    @Test
+    void gradientAlternatesColorsAndSkipsSpaces() {
+        assertEquals(List.of(text(">"), new Token(Type.COLOR, "§a", ""), text("a"), new Token(Type.COLOR, "§b", ""), text("b"),
+                text(" "), new Token(Type.COLOR, "§b", ""), text("c"), text("<")),
+                tokenize("><gradient:a:b:ab c><", true, NAMES, false));
+    }
+
+    @Test
+    void malformedGradientStaysText() {
+        assertEquals(List.of(text("<gradient:zz:a:x>")), tokenize("<gradient:zz:a:x>", true, NAMES, false));
+        assertEquals(List.of(text("<gradient:a:b:>")), tokenize("<gradient:a:b:>", true, NAMES, false));
+    }
+
+    @Test
+    void sourcesCoverTheMessage() {
+        String message = "&6Hey @alex, [inv] <gradient:#ff0000:#0000ff:hi> #zzzzzz \\n [ec]";
+        StringBuilder rebuilt = new StringBuilder();
+        for (Token token : tokenize(message, true, NAMES, true)) {
+            rebuilt.append(token.source());
+        }
+        // Gradient characters carry their own text; only the markup around them is dropped
+        assertEquals(message.replace("<gradient:#ff0000:#0000ff:hi>", "hi"), rebuilt.toString());
+    }
+
+    private static List<Token> tokenize(String message, boolean colors, Function<String, String> names, boolean autoTag) {
+        return ChatTokenizer.tokenize(message, colors, names, autoTag, TAGS);
+    }
+
+    private static Token text(String text) {
+        return new Token(Type.TEXT, text, text);
+    }
+}
@@ -0,0 +1,304 @@
+package Echostudios.utils;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledPermissionsTest {
+
+    private static final String[] NODES = {
+            "chat.color", "chat.color.red", "chat.format", "kit.daily", "kit.vip", "kit", "fly", "warp.spawn",
+            "warp.nether", "warp", "home.set", "home.multiple.5", "other.node"
+    };
+    private static final String[] PATTERNS = {
+            "*", "chat.*", "chat.color", "chat.color.*", "kit.*", "kit.vip", "fly", "warp.*", "warp.spawn",
+            "home.*", "home.multiple.*", "home.set"
+    };
+
+    @Test
+    void wildcardsAndNegations() {
+        YamlConfiguration config = new YamlConfiguration();
+        group(config, "default", 0, List.of("chat.*", "-chat.color.red", "warp.*"));
+        user(config, "steve", List.of(), List.of("-warp.nether", "warp.nether", "-kit.*", "kit.daily"));
+        user(config, "alex", List.of(), List.of("-*"));
+        CompiledPermissions compiled = CompiledPermissions.compile(config, "lobby");
+
+        assertTrue(compiled.hasPermission("steve", "chat.color"));
+        assertFalse(compiled.hasPermission("steve", "chat.color.red"));
+        assertTrue(compiled.hasPermission("steve", "chat"));
+        // The last matching entry of a list wins
+        assertTrue(compiled.hasPermission("steve", "warp.nether"));
+        assertTrue(compiled.hasPermission("steve", "kit.daily"));
+        assertFalse(compiled.hasPermission("steve", "kit.vip"));
+        assertFalse(compiled.hasPermission("alex", "chat.format"));
+        assertMatchesYaml(config, compiled, "steve", "alex");
+    }
+
+    @Test
+    void inheritanceIsDepthFirstAndWeightOrdersGroups() {
+        YamlConfiguration config = new YamlConfiguration();
+        group(config, "default", 0, List.of("fly"));
+        group(config, "member", 10, List.of("kit.daily"), "default");
+        group(config, "builder", 20, List.of("-kit.daily", "warp.*"), "member");
+        group(config, "vip", 30, List.of("kit.*", "-warp.nether"));
+        group(config, "mod", 40, List.of("-fly"), "vip", "builder");
+        user(config, "steve", List.of("member", "vip"), List.of());
+        user(config, "alex", List.of("member", "builder"), List.of());
+        user(config, "sam", List.of("mod"), List.of());
+        CompiledPermissions compiled = CompiledPermissions.compile(config, "lobby");
+
+        // vip outweighs member
+        assertTrue(compiled.hasPermission("steve", "kit.daily"));
+        // builder outweighs member whatever the list order
+        assertFalse(compiled.hasPermission("alex", "kit.daily"));
+        // mod's first parent is walked to the end before the second
+        assertFalse(compiled.hasPermission("sam", "warp.nether"));
+        assertTrue(compiled.hasPermission("sam", "kit.daily"));
+        assertFalse(compiled.hasPermission("sam", "fly"));
+        assertTrue(compiled.dependsOn("sam", "member"));
+        assertFalse(compiled.dependsOn("steve", "builder"));
+        assertMatchesYaml(config, compiled, "steve", "alex", "sam");
+    }
+
+    @Test
+    void unknownUsersGetTheDefaultGroup() {
+        YamlConfiguration config = new YamlConfiguration();
+        group(config, "base", 0, List.of("home.*"));
+        group(config, "default", 0, List.of("-home.multiple.*"), "base");
+        CompiledPermissions compiled = CompiledPermissions.compile(config, "lobby");
+
+        assertTrue(compiled.hasPermission("nobody", "home.set"));
+        assertFalse(compiled.hasPermission("nobody", "home.multiple.5"));
+        assertTrue(compiled.dependsOn("nobody", "base"));
+        assertEquals(Set.of("home.*"), Set.of(compiled.grantPatterns("nobody")));
+        assertMatchesYaml(config, compiled, "nobody");
+    }
+
+    @Test
+    void userNamesIgnoreCase() {
+        YamlConfiguration config = new YamlConfiguration();
+        group(config, "default", 0, List.of());
+        user(config, "steve", List.of(), List.of("fly"));
+        CompiledPermissions compiled = CompiledPermissions.compile(config, "lobby");
+        assertTrue(compiled.hasPermission("Steve", "FLY"));
+    }
+
+    @Test
+    void matchesTheYamlWalkOnRandomData() {
+        Random random = new Random(11);
+        for (int round = 0; round < 30; round++) {
+            YamlConfiguration config = randomConfig(random);
+            CompiledPermissions compiled = CompiledPermissions.compile(config, "lobby");
+            assertMatchesYaml(config, compiled, users(config));
+        }
+    }
+
+    @Test
+    void updateMatchesAFullCompile() {
+        Random random = new Random(21);
+        for (int round = 0; round < 30; round++) {
+            YamlConfiguration config = randomConfig(random);
+            CompiledPermissions compiled = CompiledPermissions.compile(config, "lobby");
+            for (int edit = 0; edit < 20; edit++) {
+                Set<String> groups = new HashSet<>();
+                Set<String> users = new HashSet<>();
+                randomEdit(random, config, groups, users);
+                compiled = compiled.update(config, groups, users);
+                assertSameAs(CompiledPermissions.compile(config, "lobby"), compiled, config);
+                assertMatchesYaml(config, compiled, users(config));
+            }
+        }
+    }
+
+    @Test
+    void updateWithNothingChangedKeepsTheSnapshot() {
+        YamlConfiguration config = randomConfig(new Random(2));
+        CompiledPermissions compiled = CompiledPermissions.compile(config, "lobby");
+        assertSame(compiled, compiled.update(config, Set.of(), Set.of()));
+    }
+
+    @Test
+    void updateCompilesEverythingForANewWorld() {
+        YamlConfiguration config = new YamlConfiguration();
+        group(config, "default", 0, List.of("[world=nether]fly"));
+        user(config, "steve", List.of(), List.of());
+        CompiledPermissions compiled = CompiledPermissions.compile(config, "lobby");
+        assertEquals(0, compiled.viewOf("end"));
+
+        user(config, "steve", List.of(), List.of("[world=end]-warp.*", "warp.spawn"));
+        compiled = compiled.update(config, Set.of(), Set.of("steve"));
+        assertNotEquals(0, compiled.viewOf("end"));
+        assertNotEquals(compiled.viewOf("nether"), compiled.viewOf("end"));
+        assertTrue(compiled.hasPermission("steve", "nether", "fly"));
+        assertFalse(compiled.hasPermission("steve", "end", "warp.nether"));
+        assertTrue(compiled.hasPermission("steve", "end", "warp.spawn"));
+        assertFalse(compiled.hasPermission("steve", "end", "fly"));
+    }
+
+    private static YamlConfiguration randomConfig(Random random) {
+        YamlConfiguration config = new YamlConfiguration();
+        int groups = 2 + random.nextInt(6);
+        for (int g = 0; g < groups; g++) {
+            randomGroup(random, config, groupName(g), groups);
+        }
+        for (int u = 0; u < 8; u++) {
+            randomUser(random, config, "user" + u, groups);
+        }
+        return config;
+    }
+
+    private static void randomGroup(Random random, YamlConfiguration config, String name, int groups) {
+        List<String> inherits = new ArrayList<>();
+        // Any group, so cycles and missing groups come up too
+        for (int i = random.nextInt(3); i > 0; i--) inherits.add(groupName(random.nextInt(groups + 1)));
+        group(config, name, random.nextInt(4), randomEntries(random), inherits.toArray(new String[0]));
+    }
+
+    private static void randomUser(Random random, YamlConfiguration config, String name, int groups) {
+        List<String> held = new ArrayList<>();
+        for (int i = random.nextInt(4); i > 0; i--) held.add(groupName(random.nextInt(groups + 1)));
+        user(config, name, held, randomEntries(random));
+    }
+
+    // One edit of the kinds PermissionsManager makes, recording what it touched
+    private static void randomEdit(Random random, YamlConfiguration config, Set<String> groups, Set<String> users) {
+        int count = config.getConfigurationSection("groups").getKeys(false).size();
+        String group = groupName(random.nextInt(count + 1));
+        String user = "user" + random.nextInt(10);
+        switch (random.nextInt(5)) {
+            case 0 -> {
+                randomGroup(random, config, group, count);
+                groups.add(group);
+            }
+            case 1 -> {
+                config.set("groups." + group + ".meta.weight", random.nextInt(4));
+                groups.add(group);
+            }
+            case 2 -> {
+                config.set("groups." + group, null);
+                groups.add(group);
+            }
+            case 3 -> {
+                randomUser(random, config, user, count);
+                users.add(user);
+            }
+            default -> {
+                config.set("users." + user, null);
+                users.add(user);
+            }
+        }
+    }
+
+    private static List<String> randomEntries(Random random) {
+        List<String> entries = new ArrayList<>();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            String pattern = PATTERNS[random.nextInt(PATTERNS.length)];
+            entries.add(random.nextInt(3) == 0 ? "-" + pattern : pattern);
+        }
+        return entries;
+    }
+
+    private static String groupName(int index) {
+        return index == 0 ? "default" : "group" + index;
+    }
+
+    private static void group(YamlConfiguration config, String name, int weight, List<String> permissions, String... inherits) {
+        config.set("groups." + name + ".permissions", permissions);
+        config.set("groups." + name + ".inherits", Arrays.asList(inherits));
+        config.set("groups." + name + ".meta.weight", weight);
+    }
+
+    private static void user(YamlConfiguration config, String name, List<String> groups, List<String> permissions) {
+        config.set("users." + name + ".groups", groups);
+        config.set("users." + name + ".permissions", permissions);
+    }
+
+    private static String[] users(YamlConfiguration config) {
+        List<String> names = new ArrayList<>(List.of("nobody"));
+        if (config.isConfigurationSection("users")) names.addAll(config.getConfigurationSection("users").getKeys(false));
+        return names.toArray(new String[0]);
+    }
+
+    private static void assertMatchesYaml(YamlConfiguration config, CompiledPermissions compiled, String... names) {
+        for (String name : names) {
+            for (String node : NODES) {
+                assertEquals(yamlHasPermission(config, name, node), compiled.hasPermission(name, node), name + " " + node);
+            }
+        }
+    }
+
+    private static void assertSameAs(CompiledPermissions expected, CompiledPermissions actual, YamlConfiguration config) {
+        for (String name : users(config)) {
+            for (String node : NODES) {
+                assertEquals(expected.hasPermission(name, node), actual.hasPermission(name, node), name + " " + node);
+            }
+            assertEquals(Set.of(expected.grantPatterns(name)), Set.of(actual.grantPatterns(name)), name);
+            for (int g = 0; g < 8; g++) {
+                assertEquals(expected.dependsOn(name, groupName(g)), actual.dependsOn(name, groupName(g)), name);
+            }
+        }
+        assertEquals(expected.getUserCount(), actual.getUserCount());
+    }
+
+    // hasPermission as PermissionsManager did it before the compiled snapshot
+
+    private static boolean yamlHasPermission(YamlConfiguration config, String name, String permission) {
+        String node = permission.toLowerCase();
+        String base = "users." + name.toLowerCase();
+        int result = evaluateList(config.getStringList(base + ".permissions"), node);
+        if (result != 0) return result > 0;
+
+        List<String> groups = new ArrayList<>(config.getStringList(base + ".groups"));
+        groups.sort((a, b) -> Integer.compare(config.getInt("groups." + b + ".meta.weight", 0),
+                config.getInt("groups." + a + ".meta.weight", 0)));
+        for (String group : groups) {
+            int g = groupPermission(config, group, node, new HashSet<>());
+            if (g != 0) return g > 0;
+        }
+        return groupPermission(config, "default", node, new HashSet<>()) > 0;
+    }
+
+    private static int groupPermission(YamlConfiguration config, String group, String node, Set<String> visited) {
+        if (!visited.add(group)) return 0;
+        int result = evaluateList(config.getStringList("groups." + group + ".permissions"), node);
+        if (result != 0) return result;
+        for (String parent : config.getStringList("groups." + group + ".inherits")) {
+            int parentResult = groupPermission(config, parent, node, visited);
+            if (parentResult != 0) return parentResult;
+        }
+        return 0;
+    }
+
+    // 1 allow, -1 deny, 0 unset; the last matching entry wins
+    private static int evaluateList(List<String> entries, String node) {
+        int current = 0;
+        for (String raw : entries) {
+            String entry = raw.trim();
+            boolean deny = entry.startsWith("-");
+            String perm = (deny ? entry.substring(1) : entry).toLowerCase();
+            if (matches(perm, node)) current = deny ? -1 : 1;
+        }
+        return current;
+    }
+
+    private static boolean matches(String pattern, String node) {
+        if (pattern.equals("*") || pattern.equals(node)) return true;
+        if (pattern.endsWith(".*")) {
+            String prefix = pattern.substring(0, pattern.length() - 2);
+            return node.equals(prefix) || node.startsWith(prefix + ".");
+        }
+        return false;
+    }
+}
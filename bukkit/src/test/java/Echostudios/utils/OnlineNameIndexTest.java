@@ -0,0 +1,71 @@
+package Echostudios.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OnlineNameIndexTest {
+
+    @Test
+    void exactIgnoresCase() {
+        OnlineNameIndex index = new OnlineNameIndex();
+        index.add("Steve", UUID.randomUUID());
+        assertEquals("Steve", index.exact("sTEVE"));
+        assertNull(index.exact("Stev"));
+    }
+
+    @Test
+    void resolvePrefersExactThenShortest() {
+        OnlineNameIndex index = new OnlineNameIndex();
+        index.add("Alexander", UUID.randomUUID());
+        index.add("Alex_2", UUID.randomUUID());
+        index.add("Alex", UUID.randomUUID());
+        index.add("Bob", UUID.randomUUID());
+        assertEquals("Alex", index.resolve("alex"));
+        assertEquals("Alex_2", index.resolve("alex_"));
+        assertEquals("Alexander", index.resolve("alexa"));
+        assertNull(index.resolve("c"));
+        assertNull(index.resolve(""));
+    }
+
+    @Test
+    void prefixAndNamesAreSorted() {
+        OnlineNameIndex index = new OnlineNameIndex();
+        for (String name : List.of("zed", "Mia", "max", "Marco", "anna")) {
+            index.add(name, UUID.randomUUID());
+        }
+        assertEquals(List.of("Marco", "max", "Mia"), index.withPrefix("M"));
+        assertEquals(List.of(), index.withPrefix("q"));
+        assertEquals(List.of("anna", "Marco", "max", "Mia", "zed"), index.names());
+    }
+
+    @Test
+    void removeNeedsTheSamePlayer() {
+        OnlineNameIndex index = new OnlineNameIndex();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        index.add("Steve", first);
+        // A relog whose join arrives before the old session's quit
+        index.add("steve", second);
+        assertEquals(List.of("steve"), index.names());
+        index.remove("Steve", first);
+        assertEquals("steve", index.exact("STEVE"));
+        index.remove("steve", second);
+        assertNull(index.exact("steve"));
+        assertEquals(List.of(), index.names());
+    }
+
+    @Test
+    void readersKeepTheirSnapshot() {
+        OnlineNameIndex index = new OnlineNameIndex();
+        index.add("a", UUID.randomUUID());
+        List<String> before = index.names();
+        index.add("b", UUID.randomUUID());
+        assertEquals(List.of("a"), before);
+        assertEquals(List.of("a", "b"), index.names());
+    }
+}
@@ -0,0 +1,163 @@
+package Echostudios.utils;
+
+import Echostudios.utils.PermissionSyncProtocol.Message;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PermissionSyncProtocolTest {
+
+    @Test
+    void smallMessageIsOnePlainFrame() throws IOException {
+        Map<String, String> entities = new LinkedHashMap<>();
+        entities.put("groups.admin", "value:\n  permissions:\n  - '*'\n");
+        entities.put("users.steve", null);
+        Message message = new Message(PermissionSyncProtocol.DELTA, 1_700_000_000_000L, 42, entities);
+
+        List<byte[]> frames = PermissionSyncProtocol.encode(message);
+        assertEquals(1, frames.size());
+        byte[] frame = frames.get(0);
+        assertEquals(PermissionSyncProtocol.VERSION, frame[0]);
+        assertEquals(PermissionSyncProtocol.DELTA, frame[1]);
+        assertEquals(0, frame[2]);
+        // Header, then epoch and seq as big-endian longs
+        assertEquals(1_700_000_000_000L, readLong(frame, 3));
+        assertEquals(42, readLong(frame, 11));
+
+        Message decoded = new PermissionSyncProtocol.Reassembler().accept(frame);
+        assertEquals(message, decoded);
+        assertEquals(List.of("groups.admin", "users.steve"), new ArrayList<>(decoded.entities().keySet()));
+    }
+
+    @Test
+    void emptyRequestRoundTrips() throws IOException {
+        Message request = new Message(PermissionSyncProtocol.SNAPSHOT_REQUEST, 0, 0);
+        List<byte[]> frames = PermissionSyncProtocol.encode(request);
+        assertEquals(1, frames.size());
+        assertEquals(request, new PermissionSyncProtocol.Reassembler().accept(frames.get(0)));
+    }
+
+    @Test
+    void largeBodiesAreGzipped() throws IOException {
+        Map<String, String> entities = new LinkedHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            entities.put("users.player" + i, "value:\n  groups:\n  - default\n  - vip\n");
+        }
+        Message message = new Message(PermissionSyncProtocol.SNAPSHOT, 7, 1000, entities);
+        List<byte[]> frames = PermissionSyncProtocol.encode(message);
+        assertEquals(1, frames.size());
+        assertEquals(1, frames.get(0)[2]);
+        assertEquals(message, new PermissionSyncProtocol.Reassembler().accept(frames.get(0)));
+    }
+
+    @Test
+    void framesOverTheLimitAreSplitIntoParts() throws IOException {
+        Message message = new Message(PermissionSyncProtocol.SEED, 3, 9, randomEntities(new Random(5), 100, 1000));
+        List<byte[]> frames = PermissionSyncProtocol.encode(message);
+        assertTrue(frames.size() > 1, "expected PART frames, got " + frames.size());
+        int id = -1;
+        for (int i = 0; i < frames.size(); i++) {
+            byte[] frame = frames.get(i);
+            assertTrue(frame.length <= PermissionSyncProtocol.MAX_FRAME);
+            assertEquals(PermissionSyncProtocol.VERSION, frame[0]);
+            assertEquals(PermissionSyncProtocol.PART, frame[1]);
+            // Part id, then index and count as unsigned shorts
+            int frameId = (int) (readLong(frame, 3) >>> 32);
+            if (i == 0) id = frameId;
+            assertEquals(id, frameId);
+            assertEquals(i, readShort(frame, 7));
+            assertEquals(frames.size(), readShort(frame, 9));
+        }
+
+        PermissionSyncProtocol.Reassembler reassembler = new PermissionSyncProtocol.Reassembler();
+        List<byte[]> shuffled = new ArrayList<>(frames);
+        Collections.reverse(shuffled);
+        for (int i = 0; i < shuffled.size() - 1; i++) {
+            assertNull(reassembler.accept(shuffled.get(i)));
+        }
+        assertEquals(message, reassembler.accept(shuffled.get(shuffled.size() - 1)));
+    }
+
+    @Test
+    void newerSplitFrameDropsAnUnfinishedOne() throws IOException {
+        Random random = new Random(8);
+        List<byte[]> first = PermissionSyncProtocol.encode(new Message(PermissionSyncProtocol.SEED, 1, 1, randomEntities(random, 100, 1000)));
+        Message second = new Message(PermissionSyncProtocol.SEED, 1, 2, randomEntities(random, 100, 1000));
+        List<byte[]> frames = PermissionSyncProtocol.encode(second);
+
+        PermissionSyncProtocol.Reassembler reassembler = new PermissionSyncProtocol.Reassembler();
+        assertNull(reassembler.accept(first.get(0)));
+        Message decoded = null;
+        for (byte[] frame : frames) {
+            decoded = reassembler.accept(frame);
+        }
+        assertEquals(second, decoded);
+        // The rest of the first frame can never complete it
+        for (int i = 1; i < first.size(); i++) {
+            assertNull(reassembler.accept(first.get(i)));
+        }
+    }
+
+    @Test
+    void rejectsOtherVersions() throws IOException {
+        byte[] frame = PermissionSyncProtocol.encode(new Message(PermissionSyncProtocol.CHANGE, 1, 1)).get(0);
+        frame[0] = (byte) (PermissionSyncProtocol.VERSION + 1);
+        PermissionSyncProtocol.VersionMismatchException e = assertThrows(PermissionSyncProtocol.VersionMismatchException.class,
+                () -> new PermissionSyncProtocol.Reassembler().accept(frame));
+        assertEquals(PermissionSyncProtocol.VERSION + 1, e.getVersion());
+    }
+
+    @Test
+    void sameCodeAsTheCommonCopy() throws IOException {
+        // The proxies' copy; tests run from the bukkit module, next to common
+        Path common = Path.of("..", "common", "src", "main", "java", "Echostudios", "common", "sync", "PermissionSyncProtocol.java");
+        assumeTrue(Files.exists(common), "common module not checked out");
+        Path local = Path.of("src", "main", "java", "Echostudios", "utils", "PermissionSyncProtocol.java");
+        assertEquals(body(Files.readString(common)), body(Files.readString(local)),
+                "PermissionSyncProtocol differs from " + common + "; change both copies together");
+    }
+
+    // Everything from the class declaration on; the package and the class comment differ between the copies
+    private static String body(String source) {
+        return source.substring(source.indexOf("public final class")).replace("\r\n", "\n");
+    }
+
+    // Random letters barely compress, so the frame stays large after gzip
+    private static Map<String, String> randomEntities(Random random, int count, int length) {
+        Map<String, String> entities = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder value = new StringBuilder(length);
+            for (int c = 0; c < length; c++) {
+                value.append((char) ('!' + random.nextInt(94)));
+            }
+            entities.put("users.player" + i, value.toString());
+        }
+        return entities;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+}
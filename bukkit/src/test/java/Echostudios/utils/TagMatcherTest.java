@@ -0,0 +1,141 @@
+package Echostudios.utils;
+
+import Echostudios.utils.TagMatcher.Match;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TagMatcherTest {
+
+    @Test
+    void findsKnownTagsIgnoringCase() {
+        TagMatcher<String> matcher = matcher("inv", "ec");
+        assertEquals(List.of(new Match<>(4, 9, "INV"), new Match<>(14, 18, "EC")), matcher.find("see [Inv] and [EC]"));
+    }
+
+    @Test
+    void unknownBracketsHaveNoValue() {
+        TagMatcher<String> matcher = matcher("inv");
+        List<Match<String>> matches = matcher.find("[hello] [] [inv");
+        assertEquals(List.of(new Match<String>(0, 7, null)), matches);
+        assertEquals("hello", matches.get(0).name("[hello] [] [inv"));
+    }
+
+    @Test
+    void failureLinksFindATagAfterAFalseStart() {
+        TagMatcher<String> matcher = matcher("inv", "nv", "ab", "b");
+        // "[in" and "[a" dead-end in the trie; the '[' that broke them off has to start the next match
+        assertEquals(List.of(new Match<>(3, 8, "INV")), matcher.find("[in[inv]"));
+        assertEquals(List.of(new Match<>(2, 5, "B")), matcher.find("[a[b]"));
+        assertEquals(List.of(new Match<>(1, 6, "INV")), matcher.find("[[inv]"));
+    }
+
+    @Test
+    void prefixesOfOtherTagsAreTagsOfTheirOwn() {
+        TagMatcher<String> matcher = matcher("in", "inv", "i");
+        assertEquals(List.of(new Match<>(0, 3, "I"), new Match<>(3, 7, "IN"), new Match<>(7, 12, "INV"),
+                new Match<String>(12, 18, null)), matcher.find("[i][in][inv][invv]"));
+    }
+
+    @Test
+    void ignoresNamesWithBracketsAndKeepsTheFirstCase() {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("a]b", "bad");
+        tags.put("", "empty");
+        tags.put("Inv", "first");
+        tags.put("inv", "second");
+        TagMatcher<String> matcher = new TagMatcher<>(tags);
+        assertEquals(List.of(new Match<>(0, 5, "first")), matcher.find("[inv]"));
+        assertEquals(List.of(new Match<String>(0, 3, null)), matcher.find("[a]b]"));
+    }
+
+    @Test
+    void containsAndEmpty() {
+        assertTrue(matcher("x").contains("a [x] b"));
+        assertTrue(TagMatcher.<String>empty().contains("[anything]"));
+        assertFalse(TagMatcher.<String>empty().contains("no tags [ here"));
+    }
+
+    @Test
+    void matchesANaiveScanOnRandomText() {
+        Random random = new Random(3);
+        String[] names = {"a", "ab", "b", "ba", "inv", "in", "nv", "v", "aab"};
+        String alphabet = "[[]]abinv ";
+        for (int round = 0; round < 200; round++) {
+            List<String> chosen = new ArrayList<>();
+            for (String name : names) {
+                if (random.nextBoolean()) chosen.add(name);
+            }
+            TagMatcher<String> matcher = matcher(chosen.toArray(new String[0]));
+            for (int sample = 0; sample < 50; sample++) {
+                StringBuilder text = new StringBuilder();
+                for (int i = random.nextInt(30); i > 0; i--) {
+                    text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                assertEquals(naive(chosen, text.toString()), matcher.find(text), "tags " + chosen + " in " + text);
+            }
+        }
+    }
+
+    @Test
+    void sameCodeAsTheCommonCopy() throws IOException {
+        // The proxy side's copy; tests run from the bukkit module, next to common
+        Path common = Path.of("..", "common", "src", "main", "java", "Echostudios", "common", "api", "chat", "TagMatcher.java");
+        assumeTrue(Files.exists(common), "common module not checked out");
+        Path local = Path.of("src", "main", "java", "Echostudios", "utils", "TagMatcher.java");
+        assertEquals(body(Files.readString(common)), body(Files.readString(local)),
+                "TagMatcher differs from " + common + "; change both copies together");
+    }
+
+    // Everything from the class declaration on; the package and the class comment differ between the copies
+    private static String body(String source) {
+        return source.substring(source.indexOf("public final class")).replace("\r\n", "\n");
+    }
+
+    // At each ']' the longest known tag ending there, else the text from the first '[' since the last ']'
+    private static List<Match<String>> naive(List<String> names, String text) {
+        List<Match<String>> matches = new ArrayList<>();
+        int open = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '[' && open < 0) open = i;
+            if (c != ']') continue;
+            String best = null;
+            for (String name : names) {
+                String pattern = "[" + name + "]";
+                int start = i + 1 - pattern.length();
+                if (start >= 0 && text.regionMatches(true, start, pattern, 0, pattern.length())
+                        && (best == null || name.length() > best.length())) {
+                    best = name;
+                }
+            }
+            if (best != null) {
+                matches.add(new Match<>(i - best.length() - 1, i + 1, best.toUpperCase()));
+            } else if (open >= 0 && i > open + 1) {
+                matches.add(new Match<>(open, i + 1, null));
+            }
+            open = -1;
+        }
+        return matches;
+    }
+
+    private static TagMatcher<String> matcher(String... names) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (String name : names) {
+            tags.put(name, name.toUpperCase());
+        }
+        return new TagMatcher<>(tags);
+    }
+}
@@ -0,0 +1,102 @@
+package Echostudios.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    @Test
+    void expiresAtTheDeadlineAndNotBefore() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 8, 0);
+        wheel.schedule("a", 55);
+        List<String> due = new ArrayList<>();
+        wheel.advance(54, due::add);
+        assertTrue(due.isEmpty());
+        wheel.advance(55, due::add);
+        assertEquals(List.of("a"), due);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesThroughEveryLevel() {
+        // Four slots per level, so these deadlines start out on levels 0 to 4
+        TimerWheel<Integer> wheel = new TimerWheel<>(1, 4, 0);
+        int[] deadlines = {3, 9, 17, 63, 70, 255, 300, 1023, 1500};
+        for (int deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        Map<Integer, Long> firedAt = new HashMap<>();
+        for (long now = 0; now <= 1500; now++) {
+            long at = now;
+            wheel.advance(now, key -> firedAt.put(key, at));
+        }
+        for (int deadline : deadlines) {
+            assertEquals(Long.valueOf(deadline), firedAt.get(deadline), "deadline " + deadline);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void matchesDeadlinesInRandomSteps() {
+        Random random = new Random(42);
+        TimerWheel<Integer> wheel = new TimerWheel<>(1, 8, 0);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int key = 0; key < 2000; key++) {
+            long deadline = random.nextInt(100_000);
+            deadlines.put(key, deadline);
+            wheel.schedule(key, deadline);
+        }
+        long now = 0;
+        while (now < 100_000) {
+            now += 1 + random.nextInt(300);
+            long at = now;
+            List<Integer> due = new ArrayList<>();
+            wheel.advance(now, due::add);
+            for (int key : due) {
+                long deadline = deadlines.remove(key);
+                assertTrue(deadline <= at, "key " + key + " fired early");
+            }
+            for (long deadline : deadlines.values()) {
+                assertTrue(deadline > at, "a due key was not fired at " + at);
+            }
+        }
+        assertTrue(deadlines.isEmpty());
+    }
+
+    @Test
+    void rescheduleAndCancelReplaceTheOldDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(1, 4, 0);
+        wheel.schedule("a", 10);
+        wheel.schedule("a", 200);
+        wheel.schedule("b", 20);
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+        List<String> due = new ArrayList<>();
+        wheel.advance(199, due::add);
+        assertTrue(due.isEmpty());
+        wheel.advance(200, due::add);
+        assertEquals(List.of("a"), due);
+    }
+
+    @Test
+    void longStallFiresEverythingDue() {
+        TimerWheel<Integer> wheel = new TimerWheel<>(1, 4, 0);
+        for (int key = 0; key < 100; key++) {
+            wheel.schedule(key, key * 1000L);
+        }
+        List<Integer> due = new ArrayList<>();
+        wheel.advance(49_999, due::add);
+        assertEquals(50, due.size());
+        wheel.advance(1_000_000, due::add);
+        assertEquals(100, due.size());
+    }
+}
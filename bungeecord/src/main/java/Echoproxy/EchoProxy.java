@@ -1,15 +1,21 @@
 package Echoproxy;
 
+import Echostudios.common.sync.PermissionHub;
+import Echostudios.common.sync.PermissionSyncProtocol;
 import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.Server;
+import net.md_5.bungee.api.event.PluginMessageEvent;
+import net.md_5.bungee.api.event.ServerSwitchEvent;
+import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.event.EventHandler;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.logging.Level;
 
-public class EchoProxy extends Plugin {
+public class EchoProxy extends Plugin implements Listener {
 
-    private net.md_5.bungee.config.Configuration permissionsConfig;
+    private PermissionHub permissionHub;
 
     @Override
     public void onEnable() {
@@ -18,37 +24,55 @@ public class EchoProxy extends Plugin {
         discoverEchoCoreServers();
     }
 
+    @Override
+    public void onDisable() {
+        if (permissionHub != null) {
+            permissionHub.close();
+        }
+    }
+
+    /**
+     * The proxy holds the network's permissions and pushes changes to backends over plugin messaging
+     */
     private void loadPermissions() {
-        try {
-            if (!getDataFolder().exists()) getDataFolder().mkdirs();
-            File file = new File(getDataFolder(), "permissions.yml");
-            if (!file.exists()) file.createNewFile();
-            net.md_5.bungee.config.ConfigurationProvider provider = net.md_5.bungee.config.ConfigurationProvider.getProvider(net.md_5.bungee.config.YamlConfiguration.class);
-            permissionsConfig = provider.load(file);
-            // defaults
-            if (!permissionsConfig.contains("groups")) {
-                permissionsConfig.set("groups.default.permissions", new java.util.ArrayList<>());
-                permissionsConfig.set("groups.default.inherits", new java.util.ArrayList<>());
-                permissionsConfig.set("groups.default.meta.name", "default");
-                permissionsConfig.set("groups.default.meta.weight", 0);
-                permissionsConfig.set("groups.default.meta.prefix", "&7");
-                permissionsConfig.set("groups.default.meta.suffix", "");
-                provider.save(permissionsConfig, file);
-            }
-        } catch (IOException e) {
-            getLogger().log(Level.SEVERE, "Failed to load permissions.yml", e);
+        if (!getDataFolder().exists()) getDataFolder().mkdirs();
+        permissionHub = new PermissionHub(new File(getDataFolder(), "permissions-hub.dat"), getLogger(), this::sendToServer);
+        permissionHub.load();
+        getProxy().registerChannel(PermissionSyncProtocol.CHANNEL);
+        getProxy().getPluginManager().registerListener(this, this);
+    }
+
+    private boolean sendToServer(String name, byte[] frame) {
+        ServerInfo info = getProxy().getServerInfo(name);
+        // Not queued by Bungee; the hub keeps its own bounded queue
+        return info != null && info.sendData(PermissionSyncProtocol.CHANNEL, frame, false);
+    }
+
+    @EventHandler
+    public void onPluginMessage(PluginMessageEvent event) {
+        if (!event.getTag().equals(PermissionSyncProtocol.CHANNEL)) return;
+        // Never forward the channel, and only trust backends
+        event.setCancelled(true);
+        if (event.getSender() instanceof Server server) {
+            permissionHub.handle(server.getInfo().getName(), event.getData());
+        }
+    }
+
+    @EventHandler
+    public void onServerSwitch(ServerSwitchEvent event) {
+        Server server = event.getPlayer().getServer();
+        if (server != null) {
+            permissionHub.flushQueued(server.getInfo().getName());
         }
     }
 
     private void discoverEchoCoreServers() {
         int count = 0;
         for (String name : ProxyServer.getInstance().getServers().keySet()) {
-            // Here we just log; a real discovery would use plugin messaging or a ping with brand
-            getLogger().info("Discovered server entry: " + name + " (assuming EchoCore if installed)");
+            // Backends running EchoCore announce themselves on the permission channel when a player joins
+            getLogger().info("Discovered server entry: " + name);
             count++;
         }
         getLogger().info("EchoProxy discovery complete. Servers found: " + count);
     }
 }
-
-
@@ -7,11 +7,9 @@ import Echostudios.common.api.player.Player;
 import Echostudios.common.api.player.PlayerAPI;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Chat processor that handles advanced tagging system
@@ -19,8 +17,9 @@ import java.util.stream.Collectors;
  */
 public class ChatProcessor {
     
-    private static final Pattern INVENTORY_TAG_PATTERN = Pattern.compile("\\[inv\\]", Pattern.CASE_INSENSITIVE);
-    private static final Pattern ITEM_TAG_PATTERN = Pattern.compile("\\[([^\\]]+)\\]", Pattern.CASE_INSENSITIVE);
+    private static final String INVENTORY_TAG = "inv";
+    // [inv] is the only fixed tag; any other bracketed text is an item tag
+    private static final TagMatcher<String> TAGS = new TagMatcher<>(Map.of(INVENTORY_TAG, INVENTORY_TAG));
     
     private final PlayerAPI playerAPI;
     private final ChatAPI chatAPI;
@@ -37,66 +36,40 @@ public class ChatProcessor {
      * @return Processed message with tags replaced
      */
     public CompletableFuture<String> processMessage(UUID sender, String message) {
-        CompletableFuture<String> future = CompletableFuture.completedFuture(message);
-        
-        // Process inventory tags first
-        if (INVENTORY_TAG_PATTERN.matcher(message).find()) {
-            future = future.thenCompose(msg -> processInventoryTags(sender, msg));
+        List<TagMatcher.Match<String>> tags = TAGS.find(message);
+        if (tags.isEmpty()) {
+            return CompletableFuture.completedFuture(message);
         }
         
-        // Process item tags
-        if (ITEM_TAG_PATTERN.matcher(message).find()) {
-            future = future.thenCompose(msg -> processItemTags(sender, msg));
+        // Inventory tags need the preview; item tags are formatted in the same pass
+        if (tags.stream().anyMatch(tag -> tag.value() != null)) {
+            return chatAPI.getInventoryPreview(sender).thenApply(inventoryOpt -> {
+                String inventory = inventoryOpt
+                        .map(preview -> "§6[§e" + preview.getPlayerName() + "'s Inventory§6]")
+                        .orElse("§c[Inventory Unavailable]");
+                return replaceTags(sender, message, tags, inventory);
+            });
         }
-        
-        return future;
+        return CompletableFuture.completedFuture(replaceTags(sender, message, tags, null));
     }
     
     /**
-     * Process inventory tags [inv] in the message
+     * Replace the tags found in a message
      * @param sender Sender UUID
      * @param message Message to process
+     * @param tags Tags found in the message
+     * @param inventory Replacement for [inv] tags
      * @return Processed message
      */
-    private CompletableFuture<String> processInventoryTags(UUID sender, String message) {
-        return chatAPI.getInventoryPreview(sender).thenApply(inventoryOpt -> {
-            if (inventoryOpt.isEmpty()) {
-                return message.replaceAll("(?i)\\[inv\\]", "§c[Inventory Unavailable]");
-            }
-            
-            InventoryTag inventory = inventoryOpt.get();
-            String replacement = "§6[§e" + inventory.getPlayerName() + "'s Inventory§6]";
-            
-            return message.replaceAll("(?i)\\[inv\\]", replacement);
-        });
-    }
-    
-    /**
-     * Process item tags [itemname] in the message
-     * @param sender Sender UUID
-     * @param message Message to process
-     * @return Processed message
-     */
-    private CompletableFuture<String> processItemTags(UUID sender, String message) {
-        Matcher matcher = ITEM_TAG_PATTERN.matcher(message);
-        StringBuffer result = new StringBuffer();
-        
-        while (matcher.find()) {
-            String itemName = matcher.group(1);
-            
-            // Skip [inv] tags as they're handled separately
-            if ("inv".equalsIgnoreCase(itemName)) {
-                matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group(0)));
-                continue;
-            }
-            
-            // Process item tag
-            String replacement = processItemTag(sender, itemName);
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+    private String replaceTags(UUID sender, String message, List<TagMatcher.Match<String>> tags, String inventory) {
+        StringBuilder result = new StringBuilder(message.length() + tags.size() * 16);
+        int last = 0;
+        for (TagMatcher.Match<String> tag : tags) {
+            result.append(message, last, tag.start());
+            result.append(tag.value() != null ? inventory : processItemTag(sender, tag.name(message)));
+            last = tag.end();
         }
-        matcher.appendTail(result);
-        
-        return CompletableFuture.completedFuture(result.toString());
+        return result.append(message, last, message.length()).toString();
     }
     
     /**
@@ -196,8 +169,7 @@ public class ChatProcessor {
      * @return true if contains tags, false otherwise
      */
     public boolean containsTags(String message) {
-        return INVENTORY_TAG_PATTERN.matcher(message).find() || 
-               ITEM_TAG_PATTERN.matcher(message).find();
+        return TAGS.contains(message);
     }
     
     /**
@@ -206,21 +178,15 @@ public class ChatProcessor {
      * @return List of found tags
      */
     public List<String> extractTags(String message) {
+        List<TagMatcher.Match<String>> found = TAGS.find(message);
         List<String> tags = new java.util.ArrayList<>();
         
-        // Find inventory tags
-        Matcher invMatcher = INVENTORY_TAG_PATTERN.matcher(message);
-        while (invMatcher.find()) {
-            tags.add("[inv]");
+        // Inventory tags first, then item tags
+        for (TagMatcher.Match<String> tag : found) {
+            if (tag.value() != null) tags.add("[inv]");
         }
-        
-        // Find item tags
-        Matcher itemMatcher = ITEM_TAG_PATTERN.matcher(message);
-        while (itemMatcher.find()) {
-            String tag = itemMatcher.group(0);
-            if (!"[inv]".equalsIgnoreCase(tag)) {
-                tags.add(tag);
-            }
+        for (TagMatcher.Match<String> tag : found) {
+            if (tag.value() == null) tags.add(message.substring(tag.start(), tag.end()));
         }
         
         return tags;
@@ -0,0 +1,160 @@
+package Echostudios.common.api.chat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds bracket tags like {@code [inv]} or {@code [item]} in chat text with an Aho–Corasick automaton over
+ * every known tag, so one left-to-right pass finds all of them however many are configured. Matching ignores
+ * case. Bracketed text that is not a known tag is reported too, with a null value, the way the old
+ * {@code \[([^\]]+)\]} patterns found it; a known tag inside it wins. Immutable once built; build a new one
+ * on reload. The Bukkit plugin does not depend on this module and keeps an identical copy in
+ * {@code Echostudios.utils}.
+ */
+public final class TagMatcher<V> {
+
+    /**
+     * A tag at {@code [start, end)} of the text; {@code value} is null for bracketed text that is not a known tag
+     */
+    public record Match<V>(int start, int end, V value) {
+        /**
+         * The text between the brackets
+         */
+        public String name(CharSequence text) {
+            return text.subSequence(start + 1, end - 1).toString();
+        }
+    }
+
+    // Per state: sorted outgoing characters and their target states
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    // The longest known tag ending in each state, as its value and length
+    private final Object[] output;
+    private final int[] outputLength;
+
+    /**
+     * @param tags tag names without brackets and their values; names containing brackets are ignored, and
+     *             of names that differ only in case the first one is kept
+     */
+    public TagMatcher(Map<String, V> tags) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        values.add(null);
+        lengths.add(0);
+        for (Map.Entry<String, V> tag : tags.entrySet()) {
+            String name = tag.getKey();
+            if (name.isEmpty() || name.indexOf('[') >= 0 || name.indexOf(']') >= 0) continue;
+            String pattern = "[" + name + "]";
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = Character.toLowerCase(pattern.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new TreeMap<>());
+                    values.add(null);
+                    lengths.add(0);
+                }
+                state = next;
+            }
+            if (values.get(state) == null) {
+                values.set(state, tag.getValue());
+                lengths.set(state, pattern.length());
+            }
+        }
+
+        int size = trie.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> edges = trie.get(state);
+            keys[state] = new char[edges.size()];
+            targets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                keys[state][i] = edge.getKey();
+                targets[state][i++] = edge.getValue();
+            }
+        }
+        output = values.toArray();
+        outputLength = lengths.stream().mapToInt(Integer::intValue).toArray();
+
+        // Failure links breadth-first; a state without its own tag reports the one of its failure state
+        fail = new int[size];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                int child = targets[state][i];
+                int link = fail[state];
+                while (link != 0 && edge(link, keys[state][i]) < 0) link = fail[link];
+                int target = edge(link, keys[state][i]);
+                fail[child] = target >= 0 && target != child ? target : 0;
+                if (output[child] == null && output[fail[child]] != null) {
+                    output[child] = output[fail[child]];
+                    outputLength[child] = outputLength[fail[child]];
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    public static <V> TagMatcher<V> empty() {
+        return new TagMatcher<>(Collections.emptyMap());
+    }
+
+    private int edge(int state, char c) {
+        int i = Arrays.binarySearch(keys[state], c);
+        return i >= 0 ? targets[state][i] : -1;
+    }
+
+    /**
+     * Every tag in the text, in order and without overlaps
+     */
+    public List<Match<V>> find(CharSequence text) {
+        List<Match<V>> matches = new ArrayList<>();
+        int state = 0;
+        // First '[' since the last tag, where bracketed text that is no known tag starts
+        int open = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            while (state != 0 && edge(state, c) < 0) state = fail[state];
+            int next = edge(state, c);
+            state = next < 0 ? 0 : next;
+            if (c == '[' && open < 0) open = i;
+            if (c != ']') continue;
+            if (output[state] != null) {
+                matches.add(new Match<>(i + 1 - outputLength[state], i + 1, value(state)));
+            } else if (open >= 0 && i > open + 1) {
+                matches.add(new Match<>(open, i + 1, null));
+            }
+            open = -1;
+        }
+        return matches;
+    }
+
+    /**
+     * Whether the text has any tag, known or not
+     */
+    public boolean contains(CharSequence text) {
+        return !find(text).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int state) {
+        return (V) output[state];
+    }
+}
@@ -0,0 +1,281 @@
+package Echostudios.common.sync;
+
+import Echostudios.common.sync.PermissionSyncProtocol.Message;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Proxy-side owner of the network's EchoPerms data. Backends send their local changes; the hub applies
+ * them in arrival order, numbers each change and pushes it to every backend that has spoken on the
+ * channel. Entities are kept as the YAML text the backends sent, so the hub never interprets permissions.
+ * A hub with no entities takes no changes: a one-entity state would become every backend's snapshot, so the
+ * sender is asked for a seed instead. The state and its sequence number survive restarts in one gzipped file,
+ * written off the calling thread.
+ * Frames for a backend with nobody online are queued; if the queue overflows it is replaced by a snapshot.
+ */
+public class PermissionHub {
+
+    private static final int FILE_VERSION = 1;
+    private static final int MAX_QUEUED_FRAMES = 256;
+    private static final long SAVE_DELAY_MILLIS = 1000L;
+
+    /**
+     * Sends a frame to a backend; returns false if it could not be delivered now (no player connected there)
+     */
+    public interface Transport {
+        boolean send(String server, byte[] frame);
+    }
+
+    private final File file;
+    private final Logger logger;
+    private final Transport transport;
+    private final ScheduledExecutorService writer;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+
+    // Guarded by this
+    private final Map<String, String> entities = new TreeMap<>();
+    private long epoch;
+    private long seq;
+    private final Map<String, PermissionSyncProtocol.Reassembler> reassemblers = new HashMap<>();
+    private final Map<String, Deque<byte[]>> queues = new LinkedHashMap<>();
+    private final Set<String> needsSnapshot = new HashSet<>();
+    private final Set<String> mismatched = new HashSet<>();
+
+    public PermissionHub(File file, Logger logger, Transport transport) {
+        this.file = file;
+        this.logger = logger;
+        this.transport = transport;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "EchoProxy-Perms-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void load() {
+        entities.clear();
+        if (!file.exists()) {
+            // A new epoch tells backends that sequence numbers started over
+            epoch = System.currentTimeMillis();
+            seq = 0;
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FILE_VERSION) throw new IOException("Unknown hub file version " + version);
+            epoch = in.readLong();
+            seq = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                entities.put(path, new String(value, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to load " + file.getName() + ", starting a new epoch", e);
+            entities.clear();
+            epoch = System.currentTimeMillis();
+            seq = 0;
+        }
+        logger.info("Permission hub loaded " + entities.size() + " entities at sequence " + seq);
+    }
+
+    /**
+     * Handle a frame a backend sent on the channel
+     */
+    public synchronized void handle(String server, byte[] frame) {
+        Message message;
+        try {
+            message = reassemblers.computeIfAbsent(server, s -> new PermissionSyncProtocol.Reassembler()).accept(frame);
+        } catch (PermissionSyncProtocol.VersionMismatchException e) {
+            // The backend's snapshot requests repeat, so each server is reported once
+            if (mismatched.add(server)) {
+                logger.severe(server + " speaks permission sync version " + e.getVersion() + ", this proxy "
+                        + PermissionSyncProtocol.VERSION + "; update EchoCore and EchoProxy together");
+            }
+            return;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Dropped a bad permission sync frame from " + server, e);
+            return;
+        }
+        mismatched.remove(server);
+        if (message == null) return;
+        if (!queues.containsKey(server)) {
+            queues.put(server, new ArrayDeque<>());
+            logger.info("EchoCore permission sync active on " + server);
+        }
+        switch (message.type()) {
+            case PermissionSyncProtocol.CHANGE -> {
+                if (message.entities().isEmpty()) return;
+                if (entities.isEmpty()) {
+                    // The seed carries this change too
+                    deliver(server, new Message(PermissionSyncProtocol.SEED_REQUEST, epoch, seq));
+                    return;
+                }
+                apply(message.entities());
+                broadcast(new Message(PermissionSyncProtocol.DELTA, epoch, seq, message.entities()));
+            }
+            case PermissionSyncProtocol.SNAPSHOT_REQUEST -> {
+                if (entities.isEmpty()) {
+                    deliver(server, new Message(PermissionSyncProtocol.SEED_REQUEST, epoch, seq));
+                } else {
+                    deliver(server, snapshot());
+                }
+            }
+            case PermissionSyncProtocol.SEED -> {
+                if (entities.isEmpty()) {
+                    logger.info("Permission hub seeded by " + server + " with " + message.entities().size() + " entities");
+                    apply(message.entities());
+                    broadcast(snapshot());
+                } else {
+                    // Someone else seeded first; adopt theirs
+                    deliver(server, snapshot());
+                }
+            }
+            default -> logger.warning("Unexpected permission sync message " + message.type() + " from " + server);
+        }
+    }
+
+    /**
+     * Send what was queued for a backend; call when a player connects to it
+     */
+    public synchronized void flushQueued(String server) {
+        Deque<byte[]> queue = queues.get(server);
+        if (queue == null) return;
+        if (needsSnapshot.remove(server)) {
+            queue.clear();
+            deliver(server, snapshot());
+            return;
+        }
+        while (!queue.isEmpty()) {
+            if (!transport.send(server, queue.peekFirst())) return;
+            queue.pollFirst();
+        }
+    }
+
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        save();
+    }
+
+    private void apply(Map<String, String> changed) {
+        for (Map.Entry<String, String> entity : changed.entrySet()) {
+            if (entity.getValue() == null) entities.remove(entity.getKey());
+            else entities.put(entity.getKey(), entity.getValue());
+        }
+        seq++;
+        scheduleSave();
+    }
+
+    private Message snapshot() {
+        return new Message(PermissionSyncProtocol.SNAPSHOT, epoch, seq, new LinkedHashMap<>(entities));
+    }
+
+    // Encoded once, then queued per backend
+    private void broadcast(Message message) {
+        List<byte[]> frames = encode(message);
+        if (frames == null) return;
+        for (String server : queues.keySet()) {
+            deliver(server, frames);
+        }
+    }
+
+    private void deliver(String server, Message message) {
+        List<byte[]> frames = encode(message);
+        if (frames != null) deliver(server, frames);
+    }
+
+    private void deliver(String server, List<byte[]> frames) {
+        Deque<byte[]> queue = queues.computeIfAbsent(server, s -> new ArrayDeque<>());
+        for (byte[] frame : frames) {
+            // Frames behind undelivered ones must wait their turn
+            if (queue.isEmpty() && !needsSnapshot.contains(server) && transport.send(server, frame)) continue;
+            if (needsSnapshot.contains(server)) return;
+            if (queue.size() >= MAX_QUEUED_FRAMES) {
+                queue.clear();
+                needsSnapshot.add(server);
+                return;
+            }
+            queue.addLast(frame);
+        }
+    }
+
+    private List<byte[]> encode(Message message) {
+        try {
+            return PermissionSyncProtocol.encode(message);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to encode permission sync message", e);
+            return null;
+        }
+    }
+
+    private void scheduleSave() {
+        if (!writer.isShutdown() && writeScheduled.compareAndSet(false, true)) {
+            writer.schedule(() -> {
+                writeScheduled.set(false);
+                save();
+            }, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void save() {
+        Map<String, String> copy;
+        long savedEpoch;
+        long savedSeq;
+        synchronized (this) {
+            copy = new LinkedHashMap<>(entities);
+            savedEpoch = epoch;
+            savedSeq = seq;
+        }
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            if (!file.getParentFile().exists()) file.getParentFile().mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(FILE_VERSION);
+                out.writeLong(savedEpoch);
+                out.writeLong(savedSeq);
+                out.writeInt(copy.size());
+                for (Map.Entry<String, String> entity : copy.entrySet()) {
+                    out.writeUTF(entity.getKey());
+                    byte[] value = entity.getValue().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(value.length);
+                    out.write(value);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to save " + file.getName(), e);
+        }
+    }
+}
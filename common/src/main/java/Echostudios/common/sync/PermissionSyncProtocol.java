@@ -0,0 +1,209 @@
+package Echostudios.common.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Wire format of the {@value #CHANNEL} plugin-messaging channel between EchoProxy and EchoCore backends.
+ * A frame is a version byte, a type byte, a flags byte and the body: epoch, sequence number and a list of
+ * entities. Entities are whole groups, users or tracks keyed by their permissions.yml path ({@code users.steve})
+ * and carried as YAML text, which the proxy stores without parsing; a missing value deletes the entity.
+ * Large bodies are gzipped, and frames over {@link #MAX_FRAME} bytes are split into {@link #PART} frames.
+ * Every frame, the first snapshot or seed request included, is checked against {@link #VERSION}.
+ * The Bukkit plugin does not depend on this module and keeps an identical copy in {@code Echostudios.utils}.
+ */
+public final class PermissionSyncProtocol {
+
+    public static final String CHANNEL = "echocore:perms";
+    // Bump on any change to the framing; both ends drop frames of another version
+    public static final int VERSION = 1;
+
+    // Backend to proxy: entities changed locally
+    public static final byte CHANGE = 1;
+    // Proxy to backends: entities as of sequence number seq of the hub's epoch
+    public static final byte DELTA = 2;
+    // Backend to proxy: send every entity
+    public static final byte SNAPSHOT_REQUEST = 3;
+    // Proxy to backend: every entity as of seq
+    public static final byte SNAPSHOT = 4;
+    // Proxy to backend: the hub is empty, send your entities
+    public static final byte SEED_REQUEST = 5;
+    // Backend to proxy: every local entity, only taken by an empty hub
+    public static final byte SEED = 6;
+    // A slice of a frame that was too large for one plugin message
+    public static final byte PART = 7;
+
+    // Plugin messages towards a server are capped at 32767 bytes
+    public static final int MAX_FRAME = 30_000;
+    private static final int COMPRESS_THRESHOLD = 1024;
+    private static final byte FLAG_GZIP = 1;
+    private static final int HEADER = 3;
+    private static final int PART_HEADER = HEADER + 8;
+    private static final AtomicInteger NEXT_PART_ID = new AtomicInteger();
+
+    private PermissionSyncProtocol() {
+    }
+
+    /**
+     * A frame from a peer built against another {@link #VERSION}; the proxy and the backends have to be
+     * updated together
+     */
+    public static final class VersionMismatchException extends IOException {
+
+        private final int version;
+
+        public VersionMismatchException(int version) {
+            super("Permission sync frame version " + version + ", expected " + VERSION);
+            this.version = version;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+    }
+
+    public record Message(byte type, long epoch, long seq, Map<String, String> entities) {
+
+        public Message(byte type, long epoch, long seq) {
+            this(type, epoch, seq, Map.of());
+        }
+    }
+
+    /**
+     * Encode a message into one frame, or several {@link #PART} frames if it is too large
+     */
+    public static List<byte[]> encode(Message message) throws IOException {
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        try (DataOutputStream body = new DataOutputStream(bodyBytes)) {
+            body.writeLong(message.epoch());
+            body.writeLong(message.seq());
+            body.writeInt(message.entities().size());
+            for (Map.Entry<String, String> entity : message.entities().entrySet()) {
+                body.writeUTF(entity.getKey());
+                body.writeBoolean(entity.getValue() != null);
+                if (entity.getValue() != null) writeBytes(body, entity.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        byte[] raw = bodyBytes.toByteArray();
+        byte flags = 0;
+        if (raw.length > COMPRESS_THRESHOLD) {
+            ByteArrayOutputStream zipped = new ByteArrayOutputStream(raw.length / 4);
+            try (OutputStream gzip = new GZIPOutputStream(zipped)) {
+                gzip.write(raw);
+            }
+            raw = zipped.toByteArray();
+            flags = FLAG_GZIP;
+        }
+        byte[] frame = new byte[HEADER + raw.length];
+        frame[0] = VERSION;
+        frame[1] = message.type();
+        frame[2] = flags;
+        System.arraycopy(raw, 0, frame, HEADER, raw.length);
+        if (frame.length <= MAX_FRAME) return List.of(frame);
+
+        int slice = MAX_FRAME - PART_HEADER;
+        int count = (frame.length + slice - 1) / slice;
+        int id = NEXT_PART_ID.incrementAndGet();
+        List<byte[]> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int from = i * slice;
+            int length = Math.min(slice, frame.length - from);
+            ByteArrayOutputStream partBytes = new ByteArrayOutputStream(PART_HEADER + length);
+            try (DataOutputStream part = new DataOutputStream(partBytes)) {
+                part.writeByte(VERSION);
+                part.writeByte(PART);
+                part.writeByte(0);
+                part.writeInt(id);
+                part.writeShort(i);
+                part.writeShort(count);
+                part.write(frame, from, length);
+            }
+            parts.add(partBytes.toByteArray());
+        }
+        return parts;
+    }
+
+    /**
+     * Joins {@link #PART} frames from one sender; keep one per connection or server
+     */
+    public static final class Reassembler {
+
+        private final Map<Integer, byte[][]> pending = new HashMap<>();
+
+        /**
+         * The decoded message, or null while parts of it are still missing
+         */
+        public Message accept(byte[] frame) throws IOException {
+            if (frame.length > 0 && frame[0] != VERSION) throw new VersionMismatchException(frame[0]);
+            if (frame.length < HEADER) throw new IOException("Truncated permission sync frame");
+            if (frame[1] != PART) return decode(frame);
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame, HEADER, frame.length - HEADER));
+            int id = in.readInt();
+            int index = in.readUnsignedShort();
+            int count = in.readUnsignedShort();
+            if (index >= count) throw new IOException("Bad permission sync part " + index + "/" + count);
+            byte[][] parts = pending.computeIfAbsent(id, k -> new byte[count][]);
+            // A sender only has one large frame in flight, so older ones will never complete
+            pending.keySet().removeIf(other -> other != id);
+            parts[index] = Arrays.copyOfRange(frame, PART_HEADER, frame.length);
+            int length = 0;
+            for (byte[] part : parts) {
+                if (part == null) return null;
+                length += part.length;
+            }
+            pending.remove(id);
+            byte[] joined = new byte[length];
+            int offset = 0;
+            for (byte[] part : parts) {
+                System.arraycopy(part, 0, joined, offset, part.length);
+                offset += part.length;
+            }
+            return accept(joined);
+        }
+    }
+
+    private static Message decode(byte[] frame) throws IOException {
+        InputStream bodyBytes = new ByteArrayInputStream(frame, HEADER, frame.length - HEADER);
+        if ((frame[2] & FLAG_GZIP) != 0) bodyBytes = new GZIPInputStream(bodyBytes);
+        try (DataInputStream body = new DataInputStream(bodyBytes)) {
+            long epoch = body.readLong();
+            long seq = body.readLong();
+            int count = body.readInt();
+            Map<String, String> entities = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String path = body.readUTF();
+                entities.put(path, body.readBoolean() ? new String(readBytes(body), StandardCharsets.UTF_8) : null);
+            }
+            return new Message(frame[1], epoch, seq, entities);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Negative length in permission sync frame");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -1,14 +1,19 @@
 package Echoproxy;
 
-import com.moandjiezana.toml.Toml;
+import Echostudios.common.sync.PermissionHub;
+import Echostudios.common.sync.PermissionSyncProtocol;
 import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.PluginMessageEvent;
+import com.velocitypowered.api.event.player.ServerPostConnectEvent;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
 import org.slf4j.Logger;
 
 import javax.inject.Inject;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -16,8 +21,12 @@ import java.nio.file.Path;
 @Plugin(id = "echoproxy", name = "EchoProxy", version = "1.0.0", authors = {"Echostudios"})
 public class EchoProxy {
 
+    private static final MinecraftChannelIdentifier PERMISSION_CHANNEL =
+            MinecraftChannelIdentifier.from(PermissionSyncProtocol.CHANNEL);
+
     private final ProxyServer server;
     private final Logger logger;
+    private PermissionHub permissionHub;
 
     @Inject
     public EchoProxy(ProxyServer server, Logger logger) {
@@ -32,27 +41,59 @@ public class EchoProxy {
         discoverEchoCoreServers();
     }
 
+    @Subscribe
+    public void onShutdown(ProxyShutdownEvent event) {
+        if (permissionHub != null) {
+            permissionHub.close();
+        }
+    }
+
+    /**
+     * The proxy holds the network's permissions and pushes changes to backends over plugin messaging
+     */
     private void loadPermissions() {
         try {
             Path dir = server.getPluginManager().fromInstance(this).get().getSource().get().getParent();
             Path data = dir.resolve("echoproxy");
             Files.createDirectories(data);
-            Path yml = data.resolve("permissions.yml");
-            if (!Files.exists(yml)) Files.createFile(yml);
-            // Keep as YAML content, but Velocity commonly uses TOML/JSON; we only ensure the file exists here
+            permissionHub = new PermissionHub(data.resolve("permissions-hub.dat").toFile(),
+                    java.util.logging.Logger.getLogger("EchoProxy"), this::sendToServer);
+            permissionHub.load();
+            server.getChannelRegistrar().register(PERMISSION_CHANNEL);
         } catch (IOException e) {
-            logger.error("Failed to prepare permissions.yml", e);
+            logger.error("Failed to prepare the permission hub", e);
+        }
+    }
+
+    // Velocity sends through a connected player, so this fails while the server is empty
+    private boolean sendToServer(String name, byte[] frame) {
+        return server.getServer(name).map(rs -> rs.sendPluginMessage(PERMISSION_CHANNEL, frame)).orElse(false);
+    }
+
+    @Subscribe
+    public void onPluginMessage(PluginMessageEvent event) {
+        if (!event.getIdentifier().equals(PERMISSION_CHANNEL)) return;
+        // Never forward the channel, and only trust backends
+        event.setResult(PluginMessageEvent.ForwardResult.handled());
+        if (permissionHub != null && event.getSource() instanceof ServerConnection connection) {
+            permissionHub.handle(connection.getServerInfo().getName(), event.getData());
         }
     }
 
+    @Subscribe
+    public void onServerPostConnect(ServerPostConnectEvent event) {
+        if (permissionHub == null) return;
+        event.getPlayer().getCurrentServer()
+                .ifPresent(connection -> permissionHub.flushQueued(connection.getServerInfo().getName()));
+    }
+
     private void discoverEchoCoreServers() {
         int count = 0;
         for (com.velocitypowered.api.proxy.server.RegisteredServer rs : server.getAllServers()) {
-            logger.info("Discovered server entry: {} (assuming EchoCore if installed)", rs.getServerInfo().getName());
+            // Backends running EchoCore announce themselves on the permission channel when a player joins
+            logger.info("Discovered server entry: {}", rs.getServerInfo().getName());
             count++;
         }
         logger.info("EchoProxy discovery complete. Servers found: {}", count);
     }
 }
-
-